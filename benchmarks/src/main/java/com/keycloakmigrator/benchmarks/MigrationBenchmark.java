@@ -0,0 +1,79 @@
+package com.keycloakmigrator.benchmarks;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.CreateRealmOperation;
+import com.keycloakmigrator.parser.XmlChangesetParser;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end migrations against a fake admin server that delays each response, reported
+ * as operations per second.
+ *
+ * <p>Every invocation starts from a realm without migrated content, with a new client,
+ * so it includes authentication and reads with cold caches. The realm itself is created
+ * by the setup, so its creation is left out of the changelog.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(3 * MigrationBenchmark.ENTITIES)
+public class MigrationBenchmark {
+
+    /** Roles, groups and users migrated per invocation. */
+    static final int ENTITIES = 50;
+
+    @Param({"0", "1", "5"})
+    public int latencyMillis;
+
+    private FakeKeycloakServer server;
+    private List<Changeset> changesets;
+    private KeycloakAdminClient client;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        Path directory = Files.createTempDirectory("migration-benchmark");
+        SyntheticChangelogs.write(directory, ENTITIES, 1);
+        changesets = new XmlChangesetParser(false).parseDirectory(directory);
+        changesets.forEach(changeset -> changeset.getOperations().removeIf(CreateRealmOperation.class::isInstance));
+        server = FakeKeycloakServer.start()
+            .latency(Duration.ofMillis(latencyMillis), Duration.ofMillis(latencyMillis / 2));
+    }
+
+    @Setup(Level.Invocation)
+    public void resetRealm() throws IOException {
+        server.addRealm("{\"realm\": \"" + SyntheticChangelogs.REALM + "\", \"enabled\": true}");
+        client = new KeycloakAdminClient(server.config());
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeClient() {
+        client.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        server.close();
+    }
+
+    @Benchmark
+    public MigrationExecutor.MigrationResult migrate() {
+        MigrationExecutor.MigrationResult result = new MigrationExecutor(client).executeMigrations(changesets, SyntheticChangelogs.REALM);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Migration failed: " + result.errors());
+        }
+        return result;
+    }
+}
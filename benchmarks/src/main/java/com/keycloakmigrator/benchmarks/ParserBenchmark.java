@@ -0,0 +1,68 @@
+package com.keycloakmigrator.benchmarks;
+
+import com.keycloakmigrator.model.ChangeLog;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.parser.XmlChangesetParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parsing of a changelog written as one file, and as a directory of files of about 1000
+ * changesets, with and without XSD validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    private static final int CHANGESETS_PER_FILE = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int changesets;
+
+    @Param({"true", "false"})
+    public boolean validateSchema;
+
+    private Path singleFile;
+    private Path directory;
+    private XmlChangesetParser parser;
+
+    @Setup(Level.Trial)
+    public void writeChangelogs() throws IOException {
+        Path root = Files.createTempDirectory("parser-benchmark");
+        SyntheticChangelogs.write(root.resolve("single"), changesets, 1);
+        singleFile = root.resolve("single").resolve("changelog-00001.xml");
+        directory = root.resolve("split");
+        SyntheticChangelogs.write(directory, changesets, Math.max(1, changesets / CHANGESETS_PER_FILE));
+        parser = new XmlChangesetParser(validateSchema);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteChangelogs() throws IOException {
+        try (Stream<Path> paths = Files.walk(singleFile.getParent().getParent())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public ChangeLog parseFile() throws Exception {
+        return parser.parseFile(singleFile);
+    }
+
+    @Benchmark
+    public List<Changeset> parseDirectory() throws IOException {
+        return parser.parseDirectory(directory);
+    }
+}
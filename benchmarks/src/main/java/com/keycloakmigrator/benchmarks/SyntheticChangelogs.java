@@ -0,0 +1,44 @@
+package com.keycloakmigrator.benchmarks;
+
+import com.keycloakmigrator.generator.ChangelogGenerator;
+import com.keycloakmigrator.generator.GeneratorOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes changelogs of a given size for the benchmarks, with {@link ChangelogGenerator}.
+ *
+ * <p>The realm {@value #REALM} gets {@code n} realm roles, {@code n} groups each mapped to
+ * a role, and {@code n} users each with a role and a group, three operations per
+ * changeset. With the creation of the realm, that is {@code n + 1} changesets.</p>
+ */
+final class SyntheticChangelogs {
+
+    static final String REALM = "realm-1";
+    static final int OPERATIONS_PER_CHANGESET = 3;
+
+    private SyntheticChangelogs() {
+    }
+
+    /**
+     * Write the changelog for {@code n} roles, groups and users into numbered files of the
+     * directory.
+     *
+     * @param directory the directory to write to, created if missing
+     * @param n         the number of roles, groups and users
+     * @param files     the number of files
+     */
+    static void write(Path directory, int n, int files) throws IOException {
+        GeneratorOptions options = GeneratorOptions.defaults()
+            .clients(0)
+            .roles(n)
+            .groups(n)
+            .users(n)
+            .roleMappings(1)
+            .groupMemberships(1)
+            .operationsPerChangeset(OPERATIONS_PER_CHANGESET)
+            .files(files);
+        new ChangelogGenerator(options).generate(directory);
+    }
+}
@@ -0,0 +1,53 @@
+package com.keycloakmigrator.benchmarks;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.tracking.RealmAttributeTracker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording one more changeset on top of a migration history of growing size, which
+ * reads the history attribute and writes it back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackerBenchmark {
+
+    @Param({"100", "1000", "10000", "50000"})
+    public int historySize;
+
+    private final RealmAttributeTracker tracker = new RealmAttributeTracker(null);
+    private Map<String, String> attributes;
+    private List<Changeset> next;
+
+    @Setup(Level.Trial)
+    public void buildHistory() {
+        List<Changeset> applied = new ArrayList<>(historySize);
+        for (int version = 1; version <= historySize; version++) {
+            applied.add(changeset(version));
+        }
+        attributes = tracker.migrationAttributes(Map.of(), applied);
+        next = List.of(changeset(historySize + 1));
+    }
+
+    @Benchmark
+    public Map<String, String> recordChangeset() {
+        return tracker.migrationAttributes(attributes, next);
+    }
+
+    private static Changeset changeset(int version) {
+        Changeset changeset = new Changeset();
+        changeset.setVersion(version);
+        changeset.setAuthor("bench");
+        changeset.setComment("Synthetic changeset " + version);
+        return changeset;
+    }
+}
@@ -1,5 +1,6 @@
 package com.keycloakmigrator;
 
+import com.keycloakmigrator.commands.GenerateCommand;
 import com.keycloakmigrator.commands.MigrateCommand;
 import com.keycloakmigrator.commands.StatusCommand;
 import com.keycloakmigrator.commands.ValidateCommand;
@@ -18,7 +19,8 @@ import picocli.CommandLine.Option;
     subcommands = {
         MigrateCommand.class,
         StatusCommand.class,
-        ValidateCommand.class
+        ValidateCommand.class,
+        GenerateCommand.class
     }
 )
 public class KeycloakMigratorCli implements Runnable {
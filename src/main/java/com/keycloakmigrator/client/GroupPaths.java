@@ -0,0 +1,83 @@
+package com.keycloakmigrator.client;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers for {@code /}-separated group paths as used by Keycloak.
+ *
+ * <p>Changesets may reference a top-level group by its bare name or any group by
+ * its path, with or without the leading {@code /}. As in Keycloak, a {@code /} that
+ * is part of a group name is escaped as {@code ~/} in paths.</p>
+ */
+public final class GroupPaths {
+
+    private static final Pattern SEPARATOR = Pattern.compile("(?<!~)/");
+
+    private GroupPaths() {
+    }
+
+    /**
+     * Canonical form of a group path: a leading {@code /}, no empty segments, and
+     * {@code /} in group names escaped.
+     */
+    public static String normalize(String path) {
+        if (isNormalized(path)) {
+            return path;
+        }
+        return "/" + String.join("/", escapedSegments(path));
+    }
+
+    /**
+     * Path of a group created with the given name below the given parent.
+     *
+     * @param parentPath the parent path, or {@code null} for a top-level group
+     * @param name       the group name, which may contain {@code /}
+     */
+    public static String childPath(String parentPath, String name) {
+        return parentPath == null ? "/" + escape(name) : normalize(parentPath) + "/" + escape(name);
+    }
+
+    /**
+     * Path segment of a group name.
+     */
+    public static String escape(String name) {
+        return name.replace("/", "~/");
+    }
+
+    /**
+     * Index of the first separator of a path at or after {@code from}, or -1.
+     */
+    public static int separatorIndex(String path, int from) {
+        int i = path.indexOf('/', from);
+        while (i > 0 && path.charAt(i - 1) == '~') {
+            i = path.indexOf('/', i + 1);
+        }
+        return i;
+    }
+
+    private static boolean isNormalized(String path) {
+        return path.length() > 1 && path.charAt(0) == '/' && path.charAt(path.length() - 1) != '/'
+            && !path.contains("//");
+    }
+
+    /**
+     * Names of the groups along a path, from the top-level group down.
+     */
+    public static List<String> segments(String path) {
+        return escapedSegments(path).stream()
+            .map(s -> s.replace("~/", "/"))
+            .toList();
+    }
+
+    private static List<String> escapedSegments(String path) {
+        List<String> segments = Arrays.stream(SEPARATOR.split(path))
+            .filter(s -> !s.isEmpty())
+            .toList();
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Invalid group path: " + path);
+        }
+        return segments;
+    }
+}
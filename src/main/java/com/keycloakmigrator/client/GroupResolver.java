@@ -0,0 +1,100 @@
+package com.keycloakmigrator.client;
+
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.NotFoundException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves group paths such as {@code Engineering/Backend} to group ids.
+ *
+ * <p>Each path segment is looked up with an exact, server-side name search on the
+ * parent level, paging through the results, so realms with very large group
+ * hierarchies are never listed in full. A name without {@code /} denotes a top-level
+ * group; a {@code /} inside a group name is written {@code ~/}. Resolved paths,
+ * including every intermediate parent, are cached for the lifetime of the admin
+ * client.</p>
+ */
+final class GroupResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupResolver.class);
+
+    static final int PAGE_SIZE = 100;
+
+    private final Keycloak keycloak;
+    private final Map<String, Map<String, String>> groupIds = new ConcurrentHashMap<>();
+
+    GroupResolver(Keycloak keycloak) {
+        this.keycloak = keycloak;
+    }
+
+    /**
+     * Resolve a group path to the id of the group.
+     *
+     * @throws NotFoundException if a segment of the path does not exist
+     */
+    String resolve(String realm, String path) {
+        List<String> segments = GroupPaths.segments(path);
+        Map<String, String> ids = realmIds(realm);
+
+        String id = null;
+        String current = "";
+        for (String segment : segments) {
+            current = current + "/" + GroupPaths.escape(segment);
+            String cached = ids.get(current);
+            if (cached == null) {
+                cached = find(realm, id, segment)
+                    .orElseThrow(() -> new NotFoundException("Group not found: " + path));
+                ids.put(current, cached);
+            }
+            id = cached;
+        }
+        return id;
+    }
+
+    /**
+     * Remember the id of a group that was just created.
+     */
+    void created(String realm, String parentPath, String name, String id) {
+        realmIds(realm).put(GroupPaths.childPath(parentPath, name), id);
+    }
+
+    /**
+     * Forget a deleted group and everything below it.
+     */
+    void deleted(String realm, String path) {
+        String normalized = GroupPaths.normalize(path);
+        realmIds(realm).keySet()
+            .removeIf(p -> p.equals(normalized) || p.startsWith(normalized + "/"));
+    }
+
+    void invalidateRealm(String realm) {
+        groupIds.remove(realm);
+    }
+
+    private Map<String, String> realmIds(String realm) {
+        return groupIds.computeIfAbsent(realm, r -> new ConcurrentHashMap<>());
+    }
+
+    private Optional<String> find(String realm, String parentId, String name) {
+        log.debug("Searching group '{}' under {} in realm '{}'",
+            name, parentId != null ? parentId : "realm root", realm);
+        for (int first = 0; ; first += PAGE_SIZE) {
+            List<GroupRepresentation> page = parentId == null
+                ? keycloak.realm(realm).groups().groups(name, true, first, PAGE_SIZE, true)
+                : keycloak.realm(realm).groups().group(parentId)
+                    .getSubGroups(name, true, first, PAGE_SIZE, true);
+            Optional<String> match = page.stream()
+                .filter(g -> name.equals(g.getName()))
+                .map(GroupRepresentation::getId)
+                .findFirst();
+            if (match.isPresent() || page.size() < PAGE_SIZE) {
+                return match;
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.keycloakmigrator.client;
 
+import com.keycloakmigrator.client.http.AdminCallFilter;
+import com.keycloakmigrator.client.http.AdminCallListener;
 import com.keycloakmigrator.config.KeycloakConfig;
 import com.keycloakmigrator.model.operations.*;
 import org.keycloak.admin.client.Keycloak;
@@ -10,8 +12,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.core.Response;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -23,16 +30,72 @@ public class KeycloakAdminClient implements AutoCloseable {
 
     private final Keycloak keycloak;
     private final KeycloakConfig config;
+    private final AdminCallFilter callFilter = new AdminCallFilter();
+    private final RoleResolver roleResolver;
+    private final GroupResolver groupResolver;
+    private final UserResolver userResolver;
+    private final NameIndex clientIds;
+    private final NameIndex clientScopeIds;
+    private final Map<String, Boolean> realmExistence = new ConcurrentHashMap<>();
+    private final AtomicInteger skippedUpdates = new AtomicInteger();
 
     public KeycloakAdminClient(KeycloakConfig config) {
+        this(config, new Object[0]);
+    }
+
+    /**
+     * Create a client whose HTTP client also uses the given JAX-RS providers, such as a
+     * {@link com.keycloakmigrator.client.http.TrafficRecorder} or a
+     * {@link com.keycloakmigrator.client.http.TrafficReplayer}. They run after the
+     * filter that reports calls to the {@link AdminCallListener}s.
+     */
+    public KeycloakAdminClient(KeycloakConfig config, Object... providers) {
         this.config = config;
+        Client httpClient = Keycloak.getClientProvider().newRestEasyClient(null, null, false);
+        httpClient.register(callFilter);
+        for (Object provider : providers) {
+            httpClient.register(provider);
+        }
         this.keycloak = KeycloakBuilder.builder()
+            .resteasyClient(httpClient)
             .serverUrl(config.getServerUrl())
             .realm(config.getRealm())
             .clientId(config.getClientId())
             .clientSecret(config.getClientSecret())
             .grantType("client_credentials")
             .build();
+        this.roleResolver = new RoleResolver(keycloak);
+        this.groupResolver = new GroupResolver(keycloak);
+        this.userResolver = new UserResolver(keycloak);
+        this.clientIds = new NameIndex("Client",
+            realm -> keycloak.realm(realm).clients().findAll().stream()
+                .collect(Collectors.toMap(ClientRepresentation::getClientId, ClientRepresentation::getId, (a, b) -> a)),
+            (realm, clientId) -> keycloak.realm(realm).clients().findByClientId(clientId).stream()
+                .findFirst()
+                .map(ClientRepresentation::getId));
+        this.clientScopeIds = new NameIndex("Client scope",
+            realm -> keycloak.realm(realm).clientScopes().findAll().stream()
+                .collect(Collectors.toMap(ClientScopeRepresentation::getName, ClientScopeRepresentation::getId, (a, b) -> a)),
+            null);
+    }
+
+    /**
+     * Register a listener for every HTTP call made through this client, token requests included.
+     */
+    public void addCallListener(AdminCallListener listener) {
+        callFilter.addListener(listener);
+    }
+
+    public void removeCallListener(AdminCallListener listener) {
+        callFilter.removeListener(listener);
+    }
+
+    /**
+     * Obtain the access token up front, so that it is not fetched by the first admin request.
+     */
+    public void authenticate() {
+        log.debug("Requesting access token from realm '{}'", config.getRealm());
+        keycloak.tokenManager().getAccessToken();
     }
 
     @Override
@@ -47,138 +110,149 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createRealm(CreateRealmOperation op) {
         log.info("Creating realm: {}", op.getName());
 
-        RealmRepresentation realm = new RealmRepresentation();
-        realm.setRealm(op.getName());
-        realm.setEnabled(op.getEnabled());
-
-        if (op.getDisplayName() != null) realm.setDisplayName(op.getDisplayName());
-        if (op.getDisplayNameHtml() != null) realm.setDisplayNameHtml(op.getDisplayNameHtml());
-        if (op.getRegistrationAllowed() != null) realm.setRegistrationAllowed(op.getRegistrationAllowed());
-        if (op.getRegistrationEmailAsUsername() != null) realm.setRegistrationEmailAsUsername(op.getRegistrationEmailAsUsername());
-        if (op.getVerifyEmail() != null) realm.setVerifyEmail(op.getVerifyEmail());
-        if (op.getResetPasswordAllowed() != null) realm.setResetPasswordAllowed(op.getResetPasswordAllowed());
-        if (op.getLoginWithEmailAllowed() != null) realm.setLoginWithEmailAllowed(op.getLoginWithEmailAllowed());
-        if (op.getDuplicateEmailsAllowed() != null) realm.setDuplicateEmailsAllowed(op.getDuplicateEmailsAllowed());
-        if (op.getRememberMe() != null) realm.setRememberMe(op.getRememberMe());
-        if (op.getBruteForceProtected() != null) realm.setBruteForceProtected(op.getBruteForceProtected());
-        if (op.getSslRequired() != null) realm.setSslRequired(op.getSslRequired());
-        if (op.getAccessTokenLifespan() != null) realm.setAccessTokenLifespan(op.getAccessTokenLifespan());
-        if (op.getSsoSessionIdleTimeout() != null) realm.setSsoSessionIdleTimeout(op.getSsoSessionIdleTimeout());
-        if (op.getSsoSessionMaxLifespan() != null) realm.setSsoSessionMaxLifespan(op.getSsoSessionMaxLifespan());
-        if (op.getPasswordPolicy() != null) realm.setPasswordPolicy(op.getPasswordPolicy());
-        if (op.getLoginTheme() != null) realm.setLoginTheme(op.getLoginTheme());
-        if (op.getAccountTheme() != null) realm.setAccountTheme(op.getAccountTheme());
-        if (op.getAdminTheme() != null) realm.setAdminTheme(op.getAdminTheme());
-        if (op.getEmailTheme() != null) realm.setEmailTheme(op.getEmailTheme());
-        if (op.getInternationalizationEnabled() != null) realm.setInternationalizationEnabled(op.getInternationalizationEnabled());
-        if (op.getSupportedLocales() != null) realm.setSupportedLocales(new HashSet<>(op.getSupportedLocales()));
-        if (op.getDefaultLocale() != null) realm.setDefaultLocale(op.getDefaultLocale());
-
-        if (op.getSmtpServer() != null) {
-            Map<String, String> smtp = new HashMap<>();
-            var smtpConfig = op.getSmtpServer();
-            if (smtpConfig.getHost() != null) smtp.put("host", smtpConfig.getHost());
-            if (smtpConfig.getPort() != null) smtp.put("port", smtpConfig.getPort());
-            if (smtpConfig.getFrom() != null) smtp.put("from", smtpConfig.getFrom());
-            if (smtpConfig.getFromDisplayName() != null) smtp.put("fromDisplayName", smtpConfig.getFromDisplayName());
-            if (smtpConfig.getSsl() != null) smtp.put("ssl", smtpConfig.getSsl().toString());
-            if (smtpConfig.getStarttls() != null) smtp.put("starttls", smtpConfig.getStarttls().toString());
-            if (smtpConfig.getAuth() != null) smtp.put("auth", smtpConfig.getAuth().toString());
-            if (smtpConfig.getUser() != null) smtp.put("user", smtpConfig.getUser());
-            if (smtpConfig.getPassword() != null) smtp.put("password", smtpConfig.getPassword());
-            realm.setSmtpServer(smtp);
-        }
+        RealmRepresentation realm = RepresentationMapper.toRealmRepresentation(op);
 
         keycloak.realms().create(realm);
+        realmExistence.put(op.getName(), true);
         log.info("Realm '{}' created successfully", op.getName());
     }
 
+    /**
+     * Create a realm together with all the content embedded in its representation
+     * (clients, roles, groups, users, identity providers) in a single request.
+     *
+     * @param realm the complete realm representation
+     */
+    public void importRealm(RealmRepresentation realm) {
+        log.info("Importing realm: {}", realm.getRealm());
+        keycloak.realms().create(realm);
+        realmExistence.put(realm.getRealm(), true);
+        log.info("Realm '{}' imported successfully", realm.getRealm());
+    }
+
     public void updateRealm(UpdateRealmOperation op) {
-        log.info("Updating realm: {}", op.getName());
+        updateRealm(op.getName(), List.of(op), attributes -> Map.of());
+    }
 
-        RealmResource realmResource = keycloak.realm(op.getName());
+    /**
+     * Apply several realm updates and attribute changes with a single read and a single write.
+     *
+     * @param realmName         the realm to update
+     * @param ops               realm updates, applied in order
+     * @param attributeUpdates  computes the attributes to set from the current realm attributes
+     */
+    public void updateRealm(String realmName, List<UpdateRealmOperation> ops,
+                            Function<Map<String, String>, Map<String, String>> attributeUpdates) {
+        log.info("Updating realm: {}", realmName);
+
+        RealmResource realmResource = keycloak.realm(realmName);
         RealmRepresentation realm = realmResource.toRepresentation();
 
-        if (op.getDisplayName() != null) realm.setDisplayName(op.getDisplayName());
-        if (op.getDisplayNameHtml() != null) realm.setDisplayNameHtml(op.getDisplayNameHtml());
-        if (op.getEnabled() != null) realm.setEnabled(op.getEnabled());
-        if (op.getRegistrationAllowed() != null) realm.setRegistrationAllowed(op.getRegistrationAllowed());
-        if (op.getRegistrationEmailAsUsername() != null) realm.setRegistrationEmailAsUsername(op.getRegistrationEmailAsUsername());
-        if (op.getVerifyEmail() != null) realm.setVerifyEmail(op.getVerifyEmail());
-        if (op.getResetPasswordAllowed() != null) realm.setResetPasswordAllowed(op.getResetPasswordAllowed());
-        if (op.getLoginWithEmailAllowed() != null) realm.setLoginWithEmailAllowed(op.getLoginWithEmailAllowed());
-        if (op.getDuplicateEmailsAllowed() != null) realm.setDuplicateEmailsAllowed(op.getDuplicateEmailsAllowed());
-        if (op.getRememberMe() != null) realm.setRememberMe(op.getRememberMe());
-        if (op.getBruteForceProtected() != null) realm.setBruteForceProtected(op.getBruteForceProtected());
-        if (op.getSslRequired() != null) realm.setSslRequired(op.getSslRequired());
-        if (op.getAccessTokenLifespan() != null) realm.setAccessTokenLifespan(op.getAccessTokenLifespan());
-        if (op.getSsoSessionIdleTimeout() != null) realm.setSsoSessionIdleTimeout(op.getSsoSessionIdleTimeout());
-        if (op.getSsoSessionMaxLifespan() != null) realm.setSsoSessionMaxLifespan(op.getSsoSessionMaxLifespan());
-        if (op.getPasswordPolicy() != null) realm.setPasswordPolicy(op.getPasswordPolicy());
-        if (op.getLoginTheme() != null) realm.setLoginTheme(op.getLoginTheme());
-        if (op.getAccountTheme() != null) realm.setAccountTheme(op.getAccountTheme());
-        if (op.getAdminTheme() != null) realm.setAdminTheme(op.getAdminTheme());
-        if (op.getEmailTheme() != null) realm.setEmailTheme(op.getEmailTheme());
-        if (op.getInternationalizationEnabled() != null) realm.setInternationalizationEnabled(op.getInternationalizationEnabled());
-        if (op.getSupportedLocales() != null) realm.setSupportedLocales(new HashSet<>(op.getSupportedLocales()));
-        if (op.getDefaultLocale() != null) realm.setDefaultLocale(op.getDefaultLocale());
-
-        realmResource.update(realm);
-        log.info("Realm '{}' updated successfully", op.getName());
+        boolean changed = false;
+        for (UpdateRealmOperation op : ops) {
+            changed |= RepresentationMapper.applyRealmUpdate(realm, op);
+        }
+
+        Map<String, String> attributes = realm.getAttributes() != null ? new HashMap<>(realm.getAttributes()) : new HashMap<>();
+        for (Map.Entry<String, String> attribute : attributeUpdates.apply(Collections.unmodifiableMap(attributes)).entrySet()) {
+            if (!Objects.equals(attribute.getValue(), attributes.put(attribute.getKey(), attribute.getValue()))) {
+                changed = true;
+            }
+        }
+
+        if (!changed) {
+            skipUnchanged("Realm '{}' already up to date, skipping update", realmName);
+            return;
+        }
+
+        if (ops.isEmpty()) {
+            realmResource.update(attributesOnly(realmName, attributes));
+        } else {
+            realm.setAttributes(attributes);
+            realmResource.update(realm);
+        }
+        log.info("Realm '{}' updated successfully", realmName);
     }
 
     public void deleteRealm(String realmName) {
         log.info("Deleting realm: {}", realmName);
         keycloak.realm(realmName).remove();
+        roleResolver.invalidateRealm(realmName);
+        groupResolver.invalidateRealm(realmName);
+        userResolver.invalidateRealm(realmName);
+        clientIds.invalidateRealm(realmName);
+        clientScopeIds.invalidateRealm(realmName);
+        realmExistence.put(realmName, false);
         log.info("Realm '{}' deleted successfully", realmName);
     }
 
     // ==================== Client Operations ====================
 
     public void createClient(CreateClientOperation op) {
+        createClient(op, List.of(), List.of());
+    }
+
+    /**
+     * Create a client together with roles and protocol mappers planned for it.
+     *
+     * <p>The protocol mappers are embedded in the client representation. Client roles
+     * cannot be part of that payload, so they are posted to the new client directly,
+     * using the id returned by the create request instead of looking the client up.</p>
+     *
+     * @param op              the client to create
+     * @param roles           client roles to create for the new client
+     * @param protocolMappers protocol mappers to embed in the client
+     */
+    public void createClient(CreateClientOperation op, List<CreateClientRoleOperation> roles,
+                             List<CreateProtocolMapperOperation> protocolMappers) {
+        createClient(op, roles, protocolMappers, completed -> { });
+    }
+
+    /**
+     * Create a client together with roles and protocol mappers planned for it, reporting
+     * each part as soon as it exists on the server. The client and its protocol mappers
+     * are reported once the client is created, then each role once it is created, so
+     * that a failure part way still tells which parts need not be sent again.
+     *
+     * @param op              the client to create
+     * @param roles           client roles to create for the new client
+     * @param protocolMappers protocol mappers to embed in the client
+     * @param completed       receives each operation once it has been applied
+     */
+    public void createClient(CreateClientOperation op, List<CreateClientRoleOperation> roles,
+                             List<CreateProtocolMapperOperation> protocolMappers, Consumer<Operation> completed) {
         log.info("Creating client '{}' in realm '{}'", op.getClientId(), op.getRealm());
 
-        ClientRepresentation client = new ClientRepresentation();
-        client.setClientId(op.getClientId());
-        client.setEnabled(op.getEnabled());
-        client.setProtocol(op.getProtocol());
-
-        if (op.getName() != null) client.setName(op.getName());
-        if (op.getClientDescription() != null) client.setDescription(op.getClientDescription());
-        if (op.getPublicClient() != null) client.setPublicClient(op.getPublicClient());
-        if (op.getBearerOnly() != null) client.setBearerOnly(op.getBearerOnly());
-        if (op.getConsentRequired() != null) client.setConsentRequired(op.getConsentRequired());
-        if (op.getStandardFlowEnabled() != null) client.setStandardFlowEnabled(op.getStandardFlowEnabled());
-        if (op.getImplicitFlowEnabled() != null) client.setImplicitFlowEnabled(op.getImplicitFlowEnabled());
-        if (op.getDirectAccessGrantsEnabled() != null) client.setDirectAccessGrantsEnabled(op.getDirectAccessGrantsEnabled());
-        if (op.getServiceAccountsEnabled() != null) client.setServiceAccountsEnabled(op.getServiceAccountsEnabled());
-        if (op.getAuthorizationServicesEnabled() != null) client.setAuthorizationServicesEnabled(op.getAuthorizationServicesEnabled());
-        if (op.getRootUrl() != null) client.setRootUrl(op.getRootUrl());
-        if (op.getBaseUrl() != null) client.setBaseUrl(op.getBaseUrl());
-        if (op.getAdminUrl() != null) client.setAdminUrl(op.getAdminUrl());
-        if (op.getRedirectUris() != null) client.setRedirectUris(op.getRedirectUris());
-        if (op.getWebOrigins() != null) client.setWebOrigins(op.getWebOrigins());
-        if (op.getSecret() != null) client.setSecret(op.getSecret());
-        if (op.getClientAuthenticatorType() != null) client.setClientAuthenticatorType(op.getClientAuthenticatorType());
-        if (op.getDefaultClientScopes() != null) client.setDefaultClientScopes(op.getDefaultClientScopes());
-        if (op.getOptionalClientScopes() != null) client.setOptionalClientScopes(op.getOptionalClientScopes());
-        if (op.getFrontchannelLogout() != null) client.setFrontchannelLogout(op.getFrontchannelLogout());
-        if (op.getFullScopeAllowed() != null) client.setFullScopeAllowed(op.getFullScopeAllowed());
-
-        if (op.getAttributes() != null) {
-            Map<String, String> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    CreateClientOperation.AttributeEntry::getValue
-                ));
-            client.setAttributes(attrs);
+        ClientRepresentation client = RepresentationMapper.toClientRepresentation(op);
+        if (!protocolMappers.isEmpty()) {
+            client.setProtocolMappers(protocolMappers.stream()
+                .map(RepresentationMapper::toProtocolMapperRepresentation)
+                .toList());
         }
 
         Response response = keycloak.realm(op.getRealm()).clients().create(client);
         if (response.getStatus() != 201) {
             throw new RuntimeException("Failed to create client: " + response.getStatusInfo().getReasonPhrase());
         }
+        String clientUuid = extractIdFromLocation(response);
         response.close();
+        if (clientUuid != null) {
+            clientIds.put(op.getRealm(), op.getClientId(), clientUuid);
+        }
+        completed.accept(op);
+        protocolMappers.forEach(completed);
+
+        if (!roles.isEmpty()) {
+            // Without a Location header, look the new client up by its client id
+            String uuid = clientUuid != null ? clientUuid : getClientUuid(op.getRealm(), op.getClientId());
+            RolesResource clientRoles = keycloak.realm(op.getRealm()).clients().get(uuid).roles();
+            for (CreateClientRoleOperation role : roles) {
+                clientRoles.create(RepresentationMapper.toRoleRepresentation(role));
+                completed.accept(role);
+                log.info("Client role '{}' created successfully", role.getName());
+            }
+        }
+
         log.info("Client '{}' created successfully", op.getClientId());
     }
 
@@ -188,24 +262,10 @@ public class KeycloakAdminClient implements AutoCloseable {
         ClientResource clientResource = getClientByClientId(op.getRealm(), op.getClientId());
         ClientRepresentation client = clientResource.toRepresentation();
 
-        if (op.getName() != null) client.setName(op.getName());
-        if (op.getClientDescription() != null) client.setDescription(op.getClientDescription());
-        if (op.getEnabled() != null) client.setEnabled(op.getEnabled());
-        if (op.getPublicClient() != null) client.setPublicClient(op.getPublicClient());
-        if (op.getBearerOnly() != null) client.setBearerOnly(op.getBearerOnly());
-        if (op.getConsentRequired() != null) client.setConsentRequired(op.getConsentRequired());
-        if (op.getStandardFlowEnabled() != null) client.setStandardFlowEnabled(op.getStandardFlowEnabled());
-        if (op.getImplicitFlowEnabled() != null) client.setImplicitFlowEnabled(op.getImplicitFlowEnabled());
-        if (op.getDirectAccessGrantsEnabled() != null) client.setDirectAccessGrantsEnabled(op.getDirectAccessGrantsEnabled());
-        if (op.getServiceAccountsEnabled() != null) client.setServiceAccountsEnabled(op.getServiceAccountsEnabled());
-        if (op.getRootUrl() != null) client.setRootUrl(op.getRootUrl());
-        if (op.getBaseUrl() != null) client.setBaseUrl(op.getBaseUrl());
-        if (op.getAdminUrl() != null) client.setAdminUrl(op.getAdminUrl());
-        if (op.getRedirectUris() != null) client.setRedirectUris(op.getRedirectUris());
-        if (op.getWebOrigins() != null) client.setWebOrigins(op.getWebOrigins());
-        if (op.getSecret() != null) client.setSecret(op.getSecret());
-        if (op.getFrontchannelLogout() != null) client.setFrontchannelLogout(op.getFrontchannelLogout());
-        if (op.getFullScopeAllowed() != null) client.setFullScopeAllowed(op.getFullScopeAllowed());
+        if (!RepresentationMapper.applyClientUpdate(client, op)) {
+            skipUnchanged("Client '{}' already up to date, skipping update", op.getClientId());
+            return;
+        }
 
         clientResource.update(client);
         log.info("Client '{}' updated successfully", op.getClientId());
@@ -213,8 +273,10 @@ public class KeycloakAdminClient implements AutoCloseable {
 
     public void deleteClient(String realm, String clientId) {
         log.info("Deleting client '{}' from realm '{}'", clientId, realm);
-        ClientResource clientResource = getClientByClientId(realm, clientId);
-        clientResource.remove();
+        String clientUuid = getClientUuid(realm, clientId);
+        keycloak.realm(realm).clients().get(clientUuid).remove();
+        roleResolver.invalidateClientRoles(realm, clientUuid);
+        clientIds.remove(realm, clientId);
         log.info("Client '{}' deleted successfully", clientId);
     }
 
@@ -223,26 +285,7 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createUser(CreateUserOperation op) {
         log.info("Creating user '{}' in realm '{}'", op.getUsername(), op.getRealm());
 
-        UserRepresentation user = new UserRepresentation();
-        user.setUsername(op.getUsername());
-        user.setEnabled(op.getEnabled());
-
-        if (op.getEmail() != null) user.setEmail(op.getEmail());
-        if (op.getFirstName() != null) user.setFirstName(op.getFirstName());
-        if (op.getLastName() != null) user.setLastName(op.getLastName());
-        if (op.getEmailVerified() != null) user.setEmailVerified(op.getEmailVerified());
-        if (op.getGroups() != null) user.setGroups(op.getGroups());
-        if (op.getRealmRoles() != null) user.setRealmRoles(op.getRealmRoles());
-        if (op.getRequiredActions() != null) user.setRequiredActions(op.getRequiredActions());
-
-        if (op.getAttributes() != null) {
-            Map<String, List<String>> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateUserOperation.UserAttribute::getKey,
-                    CreateUserOperation.UserAttribute::getValues
-                ));
-            user.setAttributes(attrs);
-        }
+        UserRepresentation user = RepresentationMapper.toUserRepresentation(op);
 
         Response response = keycloak.realm(op.getRealm()).users().create(user);
         if (response.getStatus() != 201) {
@@ -250,13 +293,13 @@ public class KeycloakAdminClient implements AutoCloseable {
         }
         String userId = extractIdFromLocation(response);
         response.close();
+        if (userId != null) {
+            userResolver.created(op.getRealm(), op.getUsername(), userId);
+        }
 
         // Set password if provided
         if (op.getPassword() != null) {
-            CredentialRepresentation credential = new CredentialRepresentation();
-            credential.setType(CredentialRepresentation.PASSWORD);
-            credential.setValue(op.getPassword());
-            credential.setTemporary(op.getTemporaryPassword());
+            CredentialRepresentation credential = RepresentationMapper.toPasswordCredential(op);
             keycloak.realm(op.getRealm()).users().get(userId).resetPassword(credential);
         }
 
@@ -264,11 +307,8 @@ public class KeycloakAdminClient implements AutoCloseable {
         if (op.getClientRoles() != null) {
             UserResource userResource = keycloak.realm(op.getRealm()).users().get(userId);
             for (var clientRoleMapping : op.getClientRoles()) {
-                ClientResource clientResource = getClientByClientId(op.getRealm(), clientRoleMapping.getClientId());
-                String clientUuid = clientResource.toRepresentation().getId();
-                List<RoleRepresentation> roles = clientRoleMapping.getRoles().stream()
-                    .map(roleName -> clientResource.roles().get(roleName).toRepresentation())
-                    .toList();
+                String clientUuid = getClientUuid(op.getRealm(), clientRoleMapping.getClientId());
+                List<RoleRepresentation> roles = roleResolver.clientRoles(op.getRealm(), clientUuid, clientRoleMapping.getRoles());
                 userResource.roles().clientLevel(clientUuid).add(roles);
             }
         }
@@ -282,59 +322,53 @@ public class KeycloakAdminClient implements AutoCloseable {
         UserResource userResource = getUserByUsername(op.getRealm(), op.getUsername());
         UserRepresentation user = userResource.toRepresentation();
 
-        if (op.getEmail() != null) user.setEmail(op.getEmail());
-        if (op.getFirstName() != null) user.setFirstName(op.getFirstName());
-        if (op.getLastName() != null) user.setLastName(op.getLastName());
-        if (op.getEnabled() != null) user.setEnabled(op.getEnabled());
-        if (op.getEmailVerified() != null) user.setEmailVerified(op.getEmailVerified());
-        if (op.getRequiredActions() != null) user.setRequiredActions(op.getRequiredActions());
-
-        if (op.getAttributes() != null) {
-            Map<String, List<String>> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateUserOperation.UserAttribute::getKey,
-                    CreateUserOperation.UserAttribute::getValues
-                ));
-            user.setAttributes(attrs);
+        if (RepresentationMapper.applyUserUpdate(user, op)) {
+            userResource.update(user);
+        } else {
+            skipUnchanged("User '{}' already up to date, skipping representation update", op.getUsername());
         }
 
-        userResource.update(user);
-
         // Handle realm role changes
         if (op.getAddRealmRoles() != null) {
-            List<RoleRepresentation> rolesToAdd = op.getAddRealmRoles().stream()
-                .map(name -> keycloak.realm(op.getRealm()).roles().get(name).toRepresentation())
-                .toList();
+            List<RoleRepresentation> rolesToAdd = roleResolver.realmRoles(op.getRealm(), op.getAddRealmRoles());
             userResource.roles().realmLevel().add(rolesToAdd);
         }
         if (op.getRemoveRealmRoles() != null) {
-            List<RoleRepresentation> rolesToRemove = op.getRemoveRealmRoles().stream()
-                .map(name -> keycloak.realm(op.getRealm()).roles().get(name).toRepresentation())
-                .toList();
+            List<RoleRepresentation> rolesToRemove = roleResolver.realmRoles(op.getRealm(), op.getRemoveRealmRoles());
             userResource.roles().realmLevel().remove(rolesToRemove);
         }
 
         // Handle group changes
         if (op.getAddGroups() != null) {
-            for (String groupName : op.getAddGroups()) {
-                GroupRepresentation group = findGroupByName(op.getRealm(), groupName);
-                userResource.joinGroup(group.getId());
+            for (String groupPath : op.getAddGroups()) {
+                userResource.joinGroup(groupResolver.resolve(op.getRealm(), groupPath));
             }
         }
         if (op.getRemoveGroups() != null) {
-            for (String groupName : op.getRemoveGroups()) {
-                GroupRepresentation group = findGroupByName(op.getRealm(), groupName);
-                userResource.leaveGroup(group.getId());
+            for (String groupPath : op.getRemoveGroups()) {
+                userResource.leaveGroup(groupResolver.resolve(op.getRealm(), groupPath));
             }
         }
 
         log.info("User '{}' updated successfully", op.getUsername());
     }
 
+    /**
+     * Resolve the ids of users that upcoming operations will look up, with paginated
+     * scans of the realm's users when that takes fewer requests than individual searches.
+     *
+     * @param realm     the realm of the users
+     * @param usernames usernames referenced by the upcoming operations
+     */
+    public void prefetchUsers(String realm, Collection<String> usernames) {
+        userResolver.prefetch(realm, usernames);
+    }
+
     public void deleteUser(String realm, String username) {
         log.info("Deleting user '{}' from realm '{}'", username, realm);
         UserResource userResource = getUserByUsername(realm, username);
         userResource.remove();
+        userResolver.deleted(realm, username);
         log.info("User '{}' deleted successfully", username);
     }
 
@@ -343,28 +377,13 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createRealmRole(CreateRealmRoleOperation op) {
         log.info("Creating realm role '{}' in realm '{}'", op.getName(), op.getRealm());
 
-        RoleRepresentation role = new RoleRepresentation();
-        role.setName(op.getName());
-        role.setComposite(op.getComposite());
-
-        if (op.getRoleDescription() != null) role.setDescription(op.getRoleDescription());
-
-        if (op.getAttributes() != null) {
-            Map<String, List<String>> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    e -> List.of(e.getValue())
-                ));
-            role.setAttributes(attrs);
-        }
+        RoleRepresentation role = RepresentationMapper.toRoleRepresentation(op);
 
         keycloak.realm(op.getRealm()).roles().create(role);
 
         // Add composite roles if specified
         if (op.getCompositeRoles() != null && !op.getCompositeRoles().isEmpty()) {
-            List<RoleRepresentation> composites = op.getCompositeRoles().stream()
-                .map(name -> keycloak.realm(op.getRealm()).roles().get(name).toRepresentation())
-                .toList();
+            List<RoleRepresentation> composites = roleResolver.realmRoles(op.getRealm(), op.getCompositeRoles());
             keycloak.realm(op.getRealm()).roles().get(op.getName()).addComposites(composites);
         }
 
@@ -374,23 +393,10 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createClientRole(CreateClientRoleOperation op) {
         log.info("Creating client role '{}' for client '{}' in realm '{}'", op.getName(), op.getClientId(), op.getRealm());
 
-        RoleRepresentation role = new RoleRepresentation();
-        role.setName(op.getName());
-        role.setComposite(op.getComposite());
-
-        if (op.getRoleDescription() != null) role.setDescription(op.getRoleDescription());
-
-        if (op.getAttributes() != null) {
-            Map<String, List<String>> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    e -> List.of(e.getValue())
-                ));
-            role.setAttributes(attrs);
-        }
+        RoleRepresentation role = RepresentationMapper.toRoleRepresentation(op);
 
-        ClientResource clientResource = getClientByClientId(op.getRealm(), op.getClientId());
-        clientResource.roles().create(role);
+        String clientUuid = getClientUuid(op.getRealm(), op.getClientId());
+        keycloak.realm(op.getRealm()).clients().get(clientUuid).roles().create(role);
 
         log.info("Client role '{}' created successfully", op.getName());
     }
@@ -398,13 +404,15 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void deleteRealmRole(String realm, String roleName) {
         log.info("Deleting realm role '{}' from realm '{}'", roleName, realm);
         keycloak.realm(realm).roles().deleteRole(roleName);
+        roleResolver.realmRoleDeleted(realm, roleName);
         log.info("Realm role '{}' deleted successfully", roleName);
     }
 
     public void deleteClientRole(String realm, String clientId, String roleName) {
         log.info("Deleting client role '{}' from client '{}' in realm '{}'", roleName, clientId, realm);
-        ClientResource clientResource = getClientByClientId(realm, clientId);
-        clientResource.roles().deleteRole(roleName);
+        String clientUuid = getClientUuid(realm, clientId);
+        keycloak.realm(realm).clients().get(clientUuid).roles().deleteRole(roleName);
+        roleResolver.clientRoleDeleted(realm, clientUuid, roleName);
         log.info("Client role '{}' deleted successfully", roleName);
     }
 
@@ -413,23 +421,12 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createGroup(CreateGroupOperation op) {
         log.info("Creating group '{}' in realm '{}'", op.getName(), op.getRealm());
 
-        GroupRepresentation group = new GroupRepresentation();
-        group.setName(op.getName());
-        if (op.getPath() != null) group.setPath(op.getPath());
-
-        if (op.getAttributes() != null) {
-            Map<String, List<String>> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateUserOperation.UserAttribute::getKey,
-                    CreateUserOperation.UserAttribute::getValues
-                ));
-            group.setAttributes(attrs);
-        }
+        GroupRepresentation group = RepresentationMapper.toGroupRepresentation(op);
 
         Response response;
         if (op.getParentGroup() != null) {
-            GroupRepresentation parent = findGroupByName(op.getRealm(), op.getParentGroup());
-            response = keycloak.realm(op.getRealm()).groups().group(parent.getId()).subGroup(group);
+            String parentId = groupResolver.resolve(op.getRealm(), op.getParentGroup());
+            response = keycloak.realm(op.getRealm()).groups().group(parentId).subGroup(group);
         } else {
             response = keycloak.realm(op.getRealm()).groups().add(group);
         }
@@ -439,13 +436,14 @@ public class KeycloakAdminClient implements AutoCloseable {
         }
         String groupId = extractIdFromLocation(response);
         response.close();
+        if (groupId != null) {
+            groupResolver.created(op.getRealm(), op.getParentGroup(), op.getName(), groupId);
+        }
 
         // Assign realm roles if provided
         if (op.getRealmRoles() != null) {
             GroupResource groupResource = keycloak.realm(op.getRealm()).groups().group(groupId);
-            List<RoleRepresentation> roles = op.getRealmRoles().stream()
-                .map(name -> keycloak.realm(op.getRealm()).roles().get(name).toRepresentation())
-                .toList();
+            List<RoleRepresentation> roles = roleResolver.realmRoles(op.getRealm(), op.getRealmRoles());
             groupResource.roles().realmLevel().add(roles);
         }
 
@@ -453,11 +451,8 @@ public class KeycloakAdminClient implements AutoCloseable {
         if (op.getClientRoles() != null) {
             GroupResource groupResource = keycloak.realm(op.getRealm()).groups().group(groupId);
             for (var clientRoleMapping : op.getClientRoles()) {
-                ClientResource clientResource = getClientByClientId(op.getRealm(), clientRoleMapping.getClientId());
-                String clientUuid = clientResource.toRepresentation().getId();
-                List<RoleRepresentation> roles = clientRoleMapping.getRoles().stream()
-                    .map(roleName -> clientResource.roles().get(roleName).toRepresentation())
-                    .toList();
+                String clientUuid = getClientUuid(op.getRealm(), clientRoleMapping.getClientId());
+                List<RoleRepresentation> roles = roleResolver.clientRoles(op.getRealm(), clientUuid, clientRoleMapping.getRoles());
                 groupResource.roles().clientLevel(clientUuid).add(roles);
             }
         }
@@ -465,11 +460,17 @@ public class KeycloakAdminClient implements AutoCloseable {
         log.info("Group '{}' created successfully", op.getName());
     }
 
-    public void deleteGroup(String realm, String groupName) {
-        log.info("Deleting group '{}' from realm '{}'", groupName, realm);
-        GroupRepresentation group = findGroupByName(realm, groupName);
-        keycloak.realm(realm).groups().group(group.getId()).remove();
-        log.info("Group '{}' deleted successfully", groupName);
+    /**
+     * Delete a group.
+     *
+     * @param groupPath the group name for a top-level group, or its {@code /}-separated path
+     */
+    public void deleteGroup(String realm, String groupPath) {
+        log.info("Deleting group '{}' from realm '{}'", groupPath, realm);
+        String groupId = groupResolver.resolve(realm, groupPath);
+        keycloak.realm(realm).groups().group(groupId).remove();
+        groupResolver.deleted(realm, groupPath);
+        log.info("Group '{}' deleted successfully", groupPath);
     }
 
     // ==================== Client Scope Operations ====================
@@ -477,44 +478,26 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createClientScope(CreateClientScopeOperation op) {
         log.info("Creating client scope '{}' in realm '{}'", op.getName(), op.getRealm());
 
-        ClientScopeRepresentation scope = new ClientScopeRepresentation();
-        scope.setName(op.getName());
-        scope.setProtocol(op.getProtocol());
-
-        if (op.getScopeDescription() != null) scope.setDescription(op.getScopeDescription());
-
-        if (op.getAttributes() != null) {
-            Map<String, String> attrs = op.getAttributes().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    CreateClientOperation.AttributeEntry::getValue
-                ));
-            if (op.getIncludeInTokenScope() != null) {
-                attrs.put("include.in.token.scope", op.getIncludeInTokenScope().toString());
-            }
-            scope.setAttributes(attrs);
-        }
-
-        if (op.getProtocolMappers() != null) {
-            List<ProtocolMapperRepresentation> mappers = op.getProtocolMappers().stream()
-                .map(this::toProtocolMapperRepresentation)
-                .toList();
-            scope.setProtocolMappers(mappers);
-        }
+        ClientScopeRepresentation scope = RepresentationMapper.toClientScopeRepresentation(op);
 
         Response response = keycloak.realm(op.getRealm()).clientScopes().create(scope);
         if (response.getStatus() != 201) {
             throw new RuntimeException("Failed to create client scope: " + response.getStatusInfo().getReasonPhrase());
         }
+        String scopeId = extractIdFromLocation(response);
         response.close();
+        if (scopeId != null) {
+            clientScopeIds.put(op.getRealm(), op.getName(), scopeId);
+        }
 
         log.info("Client scope '{}' created successfully", op.getName());
     }
 
     public void deleteClientScope(String realm, String scopeName) {
         log.info("Deleting client scope '{}' from realm '{}'", scopeName, realm);
-        ClientScopeRepresentation scope = findClientScopeByName(realm, scopeName);
-        keycloak.realm(realm).clientScopes().get(scope.getId()).remove();
+        String scopeId = getClientScopeId(realm, scopeName);
+        keycloak.realm(realm).clientScopes().get(scopeId).remove();
+        clientScopeIds.remove(realm, scopeName);
         log.info("Client scope '{}' deleted successfully", scopeName);
     }
 
@@ -523,27 +506,7 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createIdentityProvider(CreateIdentityProviderOperation op) {
         log.info("Creating identity provider '{}' in realm '{}'", op.getAlias(), op.getRealm());
 
-        IdentityProviderRepresentation idp = new IdentityProviderRepresentation();
-        idp.setAlias(op.getAlias());
-        idp.setProviderId(op.getProviderId());
-        idp.setEnabled(op.getEnabled());
-
-        if (op.getDisplayName() != null) idp.setDisplayName(op.getDisplayName());
-        if (op.getTrustEmail() != null) idp.setTrustEmail(op.getTrustEmail());
-        if (op.getStoreToken() != null) idp.setStoreToken(op.getStoreToken());
-        if (op.getAddReadTokenRoleOnCreate() != null) idp.setAddReadTokenRoleOnCreate(op.getAddReadTokenRoleOnCreate());
-        if (op.getLinkOnly() != null) idp.setLinkOnly(op.getLinkOnly());
-        if (op.getFirstBrokerLoginFlowAlias() != null) idp.setFirstBrokerLoginFlowAlias(op.getFirstBrokerLoginFlowAlias());
-        if (op.getPostBrokerLoginFlowAlias() != null) idp.setPostBrokerLoginFlowAlias(op.getPostBrokerLoginFlowAlias());
-
-        if (op.getConfig() != null) {
-            Map<String, String> config = op.getConfig().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    CreateClientOperation.AttributeEntry::getValue
-                ));
-            idp.setConfig(config);
-        }
+        IdentityProviderRepresentation idp = RepresentationMapper.toIdentityProviderRepresentation(op);
 
         Response response = keycloak.realm(op.getRealm()).identityProviders().create(idp);
         if (response.getStatus() != 201) {
@@ -565,40 +528,47 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createProtocolMapper(CreateProtocolMapperOperation op) {
         log.info("Creating protocol mapper '{}' in realm '{}'", op.getName(), op.getRealm());
 
-        ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
-        mapper.setName(op.getName());
-        mapper.setProtocol(op.getProtocol());
-        mapper.setProtocolMapper(op.getProtocolMapper());
+        ProtocolMapperRepresentation mapper = RepresentationMapper.toProtocolMapperRepresentation(op);
 
-        if (op.getConfig() != null) {
-            Map<String, String> config = op.getConfig().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    CreateClientOperation.AttributeEntry::getValue
-                ));
-            mapper.setConfig(config);
-        }
+        ProtocolMappersResource mappersResource = getProtocolMappers(op.getRealm(), op.getClientId(), op.getClientScopeName());
+        createMapper(mappersResource, mapper);
 
-        if (op.getClientId() != null) {
-            ClientResource clientResource = getClientByClientId(op.getRealm(), op.getClientId());
-            Response response = clientResource.getProtocolMappers().createMapper(mapper);
-            if (response.getStatus() != 201) {
-                throw new RuntimeException("Failed to create protocol mapper: " + response.getStatusInfo().getReasonPhrase());
-            }
-            response.close();
-        } else if (op.getClientScopeName() != null) {
-            ClientScopeRepresentation scope = findClientScopeByName(op.getRealm(), op.getClientScopeName());
-            Response response = keycloak.realm(op.getRealm()).clientScopes().get(scope.getId())
-                .getProtocolMappers().createMapper(mapper);
-            if (response.getStatus() != 201) {
-                throw new RuntimeException("Failed to create protocol mapper: " + response.getStatusInfo().getReasonPhrase());
+        log.info("Protocol mapper '{}' created successfully", op.getName());
+    }
+
+    /**
+     * Create several protocol mappers on the same client or client scope.
+     *
+     * <p>The owner is resolved once and all mappers are sent in a single request to the
+     * bulk endpoint. Keycloak applies that request atomically, so if it is rejected the
+     * mappers are created one by one to report which mapper caused the failure.</p>
+     *
+     * @param ops protocol mapper operations that all share the same realm and owner
+     */
+    public void createProtocolMappers(List<CreateProtocolMapperOperation> ops) {
+        CreateProtocolMapperOperation first = ops.get(0);
+        log.info("Creating {} protocol mappers in realm '{}'", ops.size(), first.getRealm());
+
+        ProtocolMappersResource mappersResource = getProtocolMappers(first.getRealm(), first.getClientId(), first.getClientScopeName());
+        List<ProtocolMapperRepresentation> mappers = ops.stream()
+            .map(RepresentationMapper::toProtocolMapperRepresentation)
+            .toList();
+
+        try {
+            mappersResource.createMapper(mappers);
+        } catch (RuntimeException e) {
+            log.warn("Bulk protocol mapper creation failed ({}), creating mappers one by one", e.getMessage());
+            for (ProtocolMapperRepresentation mapper : mappers) {
+                try {
+                    createMapper(mappersResource, mapper);
+                } catch (RuntimeException mapperError) {
+                    throw new RuntimeException("Failed to create protocol mapper '" + mapper.getName() + "': "
+                        + mapperError.getMessage(), mapperError);
+                }
             }
-            response.close();
-        } else {
-            throw new IllegalArgumentException("Either clientId or clientScopeName must be specified");
         }
 
-        log.info("Protocol mapper '{}' created successfully", op.getName());
+        log.info("{} protocol mappers created successfully", ops.size());
     }
 
     public void deleteProtocolMapper(DeleteProtocolMapperOperation op) {
@@ -612,13 +582,13 @@ public class KeycloakAdminClient implements AutoCloseable {
                 .orElseThrow(() -> new NotFoundException("Protocol mapper not found: " + op.getName()));
             clientResource.getProtocolMappers().delete(mapper.getId());
         } else if (op.getClientScopeName() != null) {
-            ClientScopeRepresentation scope = findClientScopeByName(op.getRealm(), op.getClientScopeName());
-            ProtocolMapperRepresentation mapper = keycloak.realm(op.getRealm()).clientScopes().get(scope.getId())
+            String scopeId = getClientScopeId(op.getRealm(), op.getClientScopeName());
+            ProtocolMapperRepresentation mapper = keycloak.realm(op.getRealm()).clientScopes().get(scopeId)
                 .getProtocolMappers().getMappers().stream()
                 .filter(m -> m.getName().equals(op.getName()))
                 .findFirst()
                 .orElseThrow(() -> new NotFoundException("Protocol mapper not found: " + op.getName()));
-            keycloak.realm(op.getRealm()).clientScopes().get(scope.getId()).getProtocolMappers().delete(mapper.getId());
+            keycloak.realm(op.getRealm()).clientScopes().get(scopeId).getProtocolMappers().delete(mapper.getId());
         } else {
             throw new IllegalArgumentException("Either clientId or clientScopeName must be specified");
         }
@@ -631,13 +601,7 @@ public class KeycloakAdminClient implements AutoCloseable {
     public void createAuthenticationFlow(CreateAuthenticationFlowOperation op) {
         log.info("Creating authentication flow '{}' in realm '{}'", op.getAlias(), op.getRealm());
 
-        AuthenticationFlowRepresentation flow = new AuthenticationFlowRepresentation();
-        flow.setAlias(op.getAlias());
-        flow.setProviderId(op.getProviderId());
-        flow.setTopLevel(op.getTopLevel());
-        flow.setBuiltIn(op.getBuiltIn());
-
-        if (op.getFlowDescription() != null) flow.setDescription(op.getFlowDescription());
+        AuthenticationFlowRepresentation flow = RepresentationMapper.toAuthenticationFlowRepresentation(op);
 
         Response response = keycloak.realm(op.getRealm()).flows().createFlow(flow);
         if (response.getStatus() != 201) {
@@ -645,26 +609,59 @@ public class KeycloakAdminClient implements AutoCloseable {
         }
         response.close();
 
-        // Add executions if provided
-        if (op.getExecutions() != null) {
-            for (var execution : op.getExecutions()) {
-                Map<String, Object> execData = new HashMap<>();
-                execData.put("provider", execution.getAuthenticator());
+        if (op.getExecutions() != null && !op.getExecutions().isEmpty()) {
+            addExecutions(op.getRealm(), op.getAlias(), op.getExecutions());
+        }
 
-                keycloak.realm(op.getRealm()).flows().addExecution(op.getAlias(), execData);
+        log.info("Authentication flow '{}' created successfully", op.getAlias());
+    }
 
-                // Update the requirement
-                AuthenticationFlowRepresentation createdFlow = keycloak.realm(op.getRealm()).flows().getFlows().stream()
-                    .filter(f -> f.getAlias().equals(op.getAlias()))
-                    .findFirst()
-                    .orElseThrow();
+    /**
+     * Add executions to a new flow, then read the execution list back once and apply the
+     * requested requirements and priorities to the executions that were just added.
+     */
+    private void addExecutions(String realm, String flowAlias,
+                               List<CreateAuthenticationFlowOperation.AuthenticationExecution> executions) {
+        AuthenticationManagementResource flows = keycloak.realm(realm).flows();
 
-                // Note: Full execution configuration requires additional API calls
-                // This is a simplified implementation
+        for (var execution : executions) {
+            Map<String, Object> execData = new HashMap<>();
+            if (Boolean.TRUE.equals(execution.getAuthenticatorFlow())) {
+                execData.put("alias", execution.getFlowAlias());
+                execData.put("type", "basic-flow");
+                execData.put("provider", execution.getAuthenticator());
+                flows.addExecutionFlow(flowAlias, execData);
+            } else {
+                execData.put("provider", execution.getAuthenticator());
+                flows.addExecution(flowAlias, execData);
             }
         }
 
-        log.info("Authentication flow '{}' created successfully", op.getAlias());
+        // Executions are appended in order, nested sub-flow steps are reported at deeper levels
+        List<AuthenticationExecutionInfoRepresentation> added = flows.getExecutions(flowAlias).stream()
+            .filter(e -> e.getLevel() == 0)
+            .toList();
+        if (added.size() != executions.size()) {
+            throw new RuntimeException("Failed to configure authentication flow '" + flowAlias + "': expected "
+                + executions.size() + " executions but found " + added.size());
+        }
+
+        for (int i = 0; i < executions.size(); i++) {
+            var execution = executions.get(i);
+            AuthenticationExecutionInfoRepresentation info = added.get(i);
+            boolean changed = false;
+            if (execution.getRequirement() != null && !execution.getRequirement().equals(info.getRequirement())) {
+                info.setRequirement(execution.getRequirement());
+                changed = true;
+            }
+            if (execution.getPriority() != null && execution.getPriority() != info.getPriority()) {
+                info.setPriority(execution.getPriority());
+                changed = true;
+            }
+            if (changed) {
+                flows.updateExecutions(flowAlias, info);
+            }
+        }
     }
 
     public void deleteAuthenticationFlow(String realm, String alias) {
@@ -679,6 +676,78 @@ public class KeycloakAdminClient implements AutoCloseable {
         log.info("Authentication flow '{}' deleted successfully", alias);
     }
 
+    // ==================== Convergence ====================
+
+    /**
+     * Export a realm with its groups, roles and clients in a single request. The client
+     * id and client scope lookup tables of the realm are filled from the export.
+     */
+    public RealmRepresentation exportRealm(String realmName) {
+        log.info("Exporting realm: {}", realmName);
+        RealmRepresentation realm = keycloak.realm(realmName).partialExport(true, true);
+        if (realm.getClients() != null) {
+            realm.getClients().forEach(c -> clientIds.put(realmName, c.getClientId(), c.getId()));
+        }
+        if (realm.getClientScopes() != null) {
+            realm.getClientScopes().forEach(s -> clientScopeIds.put(realmName, s.getName(), s.getId()));
+        }
+        return realm;
+    }
+
+    /**
+     * Look up users by username, with the paths of their groups and their realm roles, to
+     * complete a realm export, which does not include users. Missing users are left out.
+     */
+    public List<UserRepresentation> exportUsers(String realmName, Collection<String> usernames) {
+        UsersResource users = keycloak.realm(realmName).users();
+        List<UserRepresentation> exported = new ArrayList<>();
+        for (String username : usernames) {
+            for (UserRepresentation user : users.search(username, true)) {
+                UserResource resource = users.get(user.getId());
+                user.setGroups(resource.groups().stream().map(GroupRepresentation::getPath).toList());
+                user.setRealmRoles(resource.roles().realmLevel().listAll().stream().map(RoleRepresentation::getName).toList());
+                exported.add(user);
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Add the roles, groups, users and identity providers of a partial import to a realm.
+     */
+    public void partialImport(String realmName, PartialImportRepresentation rep) {
+        log.info("Importing realm content into realm: {}", realmName);
+        Response response = keycloak.realm(realmName).partialImport(rep);
+        try {
+            if (response.getStatus() != 200) {
+                throw new RuntimeException("Failed to import realm content: " + response.getStatusInfo().getReasonPhrase());
+            }
+        } finally {
+            response.close();
+        }
+        roleResolver.invalidateRealm(realmName);
+        log.info("Realm content imported into realm '{}' successfully", realmName);
+    }
+
+    /**
+     * Update a realm with a partial representation; fields left {@code null} keep their value.
+     */
+    public void patchRealm(RealmRepresentation patch) {
+        log.info("Updating realm: {}", patch.getRealm());
+        keycloak.realm(patch.getRealm()).update(patch);
+        log.info("Realm '{}' updated successfully", patch.getRealm());
+    }
+
+    /**
+     * Update a client with a partial representation carrying its internal id; fields left
+     * {@code null} keep their value.
+     */
+    public void patchClient(String realm, ClientRepresentation patch) {
+        log.info("Updating client '{}' in realm '{}'", patch.getClientId(), realm);
+        keycloak.realm(realm).clients().get(patch.getId()).update(patch);
+        log.info("Client '{}' updated successfully", patch.getClientId());
+    }
+
     // ==================== Realm Attributes for Tracking ====================
 
     public Map<String, String> getRealmAttributes(String realmName) {
@@ -687,78 +756,138 @@ public class KeycloakAdminClient implements AutoCloseable {
     }
 
     public void setRealmAttribute(String realmName, String key, String value) {
+        setRealmAttributes(realmName, Map.of(key, value));
+    }
+
+    /**
+     * Set realm attributes without sending the rest of the realm back.
+     *
+     * <p>The update carries only the realm name and its attributes, so the server leaves
+     * every other setting untouched. The attribute map is sent complete because
+     * Keycloak removes attributes that are missing from an update.</p>
+     */
+    public void setRealmAttributes(String realmName, Map<String, String> values) {
         RealmResource realmResource = keycloak.realm(realmName);
-        RealmRepresentation realm = realmResource.toRepresentation();
 
-        Map<String, String> attributes = realm.getAttributes();
-        if (attributes == null) {
-            attributes = new HashMap<>();
-        }
-        attributes.put(key, value);
-        realm.setAttributes(attributes);
+        Map<String, String> attributes = new HashMap<>(getRealmAttributes(realmName));
+        attributes.putAll(values);
 
-        realmResource.update(realm);
+        realmResource.update(attributesOnly(realmName, attributes));
     }
 
+    /**
+     * Check whether a realm exists. The answer is cached for the lifetime of the client
+     * and kept up to date by the realm operations performed through it.
+     */
     public boolean realmExists(String realmName) {
-        try {
-            keycloak.realm(realmName).toRepresentation();
-            return true;
-        } catch (NotFoundException e) {
-            return false;
-        }
+        return realmExistence.computeIfAbsent(realmName, name -> {
+            try {
+                keycloak.realm(name).toRepresentation();
+                return true;
+            } catch (NotFoundException e) {
+                return false;
+            }
+        });
+    }
+
+    // ==================== Lookup Preloading ====================
+
+    /**
+     * Load the client id to internal id table of a realm with a single listing.
+     */
+    public void preloadClients(String realm) {
+        clientIds.preload(realm);
+    }
+
+    /**
+     * Load the client scope name to id table of a realm with a single listing.
+     */
+    public void preloadClientScopes(String realm) {
+        clientScopeIds.preload(realm);
+    }
+
+    /**
+     * Load the realm roles of a realm with a single listing.
+     */
+    public void preloadRealmRoles(String realm) {
+        roleResolver.realmRoles(realm, List.of());
+    }
+
+    /**
+     * Load the roles of a client with a single listing.
+     */
+    public void preloadClientRoles(String realm, String clientId) {
+        roleResolver.clientRoles(realm, getClientUuid(realm, clientId), List.of());
+    }
+
+    /**
+     * Resolve a group path, and every parent on the way, into the group lookup table.
+     */
+    public void preloadGroup(String realm, String groupPath) {
+        groupResolver.resolve(realm, groupPath);
+    }
+
+    /**
+     * Resolve a username into the user lookup table.
+     */
+    public void preloadUser(String realm, String username) {
+        userResolver.resolve(realm, username);
+    }
+
+    /**
+     * Number of realm, client and user updates whose PUT was skipped because every
+     * requested field already had the requested value.
+     */
+    public int getSkippedUpdateCount() {
+        return skippedUpdates.get();
     }
 
     // ==================== Helper Methods ====================
 
+    private void skipUnchanged(String message, String name) {
+        skippedUpdates.incrementAndGet();
+        log.info(message, name);
+    }
+
     private ClientResource getClientByClientId(String realm, String clientId) {
-        List<ClientRepresentation> clients = keycloak.realm(realm).clients()
-            .findByClientId(clientId);
-        if (clients.isEmpty()) {
-            throw new NotFoundException("Client not found: " + clientId);
-        }
-        return keycloak.realm(realm).clients().get(clients.get(0).getId());
+        return keycloak.realm(realm).clients().get(getClientUuid(realm, clientId));
     }
 
-    private UserResource getUserByUsername(String realm, String username) {
-        List<UserRepresentation> users = keycloak.realm(realm).users()
-            .searchByUsername(username, true);
-        if (users.isEmpty()) {
-            throw new NotFoundException("User not found: " + username);
-        }
-        return keycloak.realm(realm).users().get(users.get(0).getId());
+    private String getClientUuid(String realm, String clientId) {
+        return clientIds.resolve(realm, clientId);
     }
 
-    private GroupRepresentation findGroupByName(String realm, String groupName) {
-        return keycloak.realm(realm).groups().groups().stream()
-            .filter(g -> g.getName().equals(groupName))
-            .findFirst()
-            .orElseThrow(() -> new NotFoundException("Group not found: " + groupName));
+    private UserResource getUserByUsername(String realm, String username) {
+        return keycloak.realm(realm).users().get(userResolver.resolve(realm, username));
     }
 
-    private ClientScopeRepresentation findClientScopeByName(String realm, String scopeName) {
-        return keycloak.realm(realm).clientScopes().findAll().stream()
-            .filter(s -> s.getName().equals(scopeName))
-            .findFirst()
-            .orElseThrow(() -> new NotFoundException("Client scope not found: " + scopeName));
+    private String getClientScopeId(String realm, String scopeName) {
+        return clientScopeIds.resolve(realm, scopeName);
     }
 
-    private ProtocolMapperRepresentation toProtocolMapperRepresentation(CreateClientScopeOperation.ProtocolMapperConfig config) {
-        ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
-        mapper.setName(config.getName());
-        mapper.setProtocol(config.getProtocol());
-        mapper.setProtocolMapper(config.getProtocolMapper());
+    private ProtocolMappersResource getProtocolMappers(String realm, String clientId, String clientScopeName) {
+        if (clientId != null) {
+            return getClientByClientId(realm, clientId).getProtocolMappers();
+        }
+        if (clientScopeName != null) {
+            return keycloak.realm(realm).clientScopes().get(getClientScopeId(realm, clientScopeName)).getProtocolMappers();
+        }
+        throw new IllegalArgumentException("Either clientId or clientScopeName must be specified");
+    }
 
-        if (config.getConfig() != null) {
-            Map<String, String> cfg = config.getConfig().stream()
-                .collect(Collectors.toMap(
-                    CreateClientOperation.AttributeEntry::getKey,
-                    CreateClientOperation.AttributeEntry::getValue
-                ));
-            mapper.setConfig(cfg);
+    private void createMapper(ProtocolMappersResource mappersResource, ProtocolMapperRepresentation mapper) {
+        Response response = mappersResource.createMapper(mapper);
+        if (response.getStatus() != 201) {
+            throw new RuntimeException("Failed to create protocol mapper: " + response.getStatusInfo().getReasonPhrase());
         }
+        response.close();
+    }
 
-        return mapper;
+    private static RealmRepresentation attributesOnly(String realmName, Map<String, String> attributes) {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm(realmName);
+        realm.setAttributes(attributes);
+        return realm;
     }
 
     private String extractIdFromLocation(Response response) {
@@ -0,0 +1,87 @@
+package com.keycloakmigrator.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.NotFoundException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Per-realm index from the name of an entity (client id, client scope name) to its
+ * internal id, kept for the lifetime of the admin client.
+ *
+ * <p>An index can be preloaded with one listing per realm. Names missing from the index
+ * are looked up individually when the admin API allows it, otherwise by listing the
+ * realm again.</p>
+ */
+final class NameIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(NameIndex.class);
+
+    private final String kind;
+    private final Function<String, Map<String, String>> listAll;
+    private final BiFunction<String, String, Optional<String>> lookup;
+    private final Map<String, Map<String, String>> ids = new ConcurrentHashMap<>();
+
+    /**
+     * @param kind    entity kind used in error messages, e.g. "Client"
+     * @param listAll lists the name to id mapping of every entity in a realm
+     * @param lookup  looks up a single name, or {@code null} if the API has no such lookup
+     */
+    NameIndex(String kind, Function<String, Map<String, String>> listAll,
+              BiFunction<String, String, Optional<String>> lookup) {
+        this.kind = kind;
+        this.listAll = listAll;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Resolve a name to an id.
+     *
+     * @throws NotFoundException if no entity has that name
+     */
+    String resolve(String realm, String name) {
+        Map<String, String> realmIds = realmIds(realm);
+        String id = realmIds.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        if (lookup != null) {
+            id = lookup.apply(realm, name).orElse(null);
+        } else {
+            preload(realm);
+            id = realmIds.get(name);
+        }
+        if (id == null) {
+            throw new NotFoundException(kind + " not found: " + name);
+        }
+        realmIds.put(name, id);
+        return id;
+    }
+
+    void preload(String realm) {
+        log.debug("Listing {} ids of realm '{}'", kind.toLowerCase(), realm);
+        realmIds(realm).putAll(listAll.apply(realm));
+    }
+
+    void put(String realm, String name, String id) {
+        realmIds(realm).put(name, id);
+    }
+
+    void remove(String realm, String name) {
+        realmIds(realm).remove(name);
+    }
+
+    void invalidateRealm(String realm) {
+        ids.remove(realm);
+    }
+
+    private Map<String, String> realmIds(String realm) {
+        return ids.computeIfAbsent(realm, r -> new ConcurrentHashMap<>());
+    }
+}
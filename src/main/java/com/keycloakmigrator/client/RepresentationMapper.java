@@ -0,0 +1,452 @@
+package com.keycloakmigrator.client;
+
+import com.keycloakmigrator.model.operations.*;
+import org.keycloak.representations.idm.*;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Converts migration operations into Keycloak admin API representations.
+ *
+ * <p>Shared by {@link KeycloakAdminClient}, which sends the representations one
+ * operation at a time, and by the planner, which folds several operations into a
+ * single payload.</p>
+ */
+public final class RepresentationMapper {
+
+    private RepresentationMapper() {
+    }
+
+    // ==================== Realm ====================
+
+    public static RealmRepresentation toRealmRepresentation(CreateRealmOperation op) {
+        RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm(op.getName());
+        realm.setEnabled(op.getEnabled());
+
+        if (op.getDisplayName() != null) realm.setDisplayName(op.getDisplayName());
+        if (op.getDisplayNameHtml() != null) realm.setDisplayNameHtml(op.getDisplayNameHtml());
+        if (op.getRegistrationAllowed() != null) realm.setRegistrationAllowed(op.getRegistrationAllowed());
+        if (op.getRegistrationEmailAsUsername() != null) realm.setRegistrationEmailAsUsername(op.getRegistrationEmailAsUsername());
+        if (op.getVerifyEmail() != null) realm.setVerifyEmail(op.getVerifyEmail());
+        if (op.getResetPasswordAllowed() != null) realm.setResetPasswordAllowed(op.getResetPasswordAllowed());
+        if (op.getLoginWithEmailAllowed() != null) realm.setLoginWithEmailAllowed(op.getLoginWithEmailAllowed());
+        if (op.getDuplicateEmailsAllowed() != null) realm.setDuplicateEmailsAllowed(op.getDuplicateEmailsAllowed());
+        if (op.getRememberMe() != null) realm.setRememberMe(op.getRememberMe());
+        if (op.getBruteForceProtected() != null) realm.setBruteForceProtected(op.getBruteForceProtected());
+        if (op.getSslRequired() != null) realm.setSslRequired(op.getSslRequired());
+        if (op.getAccessTokenLifespan() != null) realm.setAccessTokenLifespan(op.getAccessTokenLifespan());
+        if (op.getSsoSessionIdleTimeout() != null) realm.setSsoSessionIdleTimeout(op.getSsoSessionIdleTimeout());
+        if (op.getSsoSessionMaxLifespan() != null) realm.setSsoSessionMaxLifespan(op.getSsoSessionMaxLifespan());
+        if (op.getPasswordPolicy() != null) realm.setPasswordPolicy(op.getPasswordPolicy());
+        if (op.getLoginTheme() != null) realm.setLoginTheme(op.getLoginTheme());
+        if (op.getAccountTheme() != null) realm.setAccountTheme(op.getAccountTheme());
+        if (op.getAdminTheme() != null) realm.setAdminTheme(op.getAdminTheme());
+        if (op.getEmailTheme() != null) realm.setEmailTheme(op.getEmailTheme());
+        if (op.getInternationalizationEnabled() != null) realm.setInternationalizationEnabled(op.getInternationalizationEnabled());
+        if (op.getSupportedLocales() != null) realm.setSupportedLocales(new HashSet<>(op.getSupportedLocales()));
+        if (op.getDefaultLocale() != null) realm.setDefaultLocale(op.getDefaultLocale());
+
+        if (op.getSmtpServer() != null) {
+            Map<String, String> smtp = new HashMap<>();
+            var smtpConfig = op.getSmtpServer();
+            if (smtpConfig.getHost() != null) smtp.put("host", smtpConfig.getHost());
+            if (smtpConfig.getPort() != null) smtp.put("port", smtpConfig.getPort());
+            if (smtpConfig.getFrom() != null) smtp.put("from", smtpConfig.getFrom());
+            if (smtpConfig.getFromDisplayName() != null) smtp.put("fromDisplayName", smtpConfig.getFromDisplayName());
+            if (smtpConfig.getSsl() != null) smtp.put("ssl", smtpConfig.getSsl().toString());
+            if (smtpConfig.getStarttls() != null) smtp.put("starttls", smtpConfig.getStarttls().toString());
+            if (smtpConfig.getAuth() != null) smtp.put("auth", smtpConfig.getAuth().toString());
+            if (smtpConfig.getUser() != null) smtp.put("user", smtpConfig.getUser());
+            if (smtpConfig.getPassword() != null) smtp.put("password", smtpConfig.getPassword());
+            realm.setSmtpServer(smtp);
+        }
+
+        return realm;
+    }
+
+    /**
+     * Apply the fields set on the operation to the realm.
+     *
+     * @return true if at least one field differs from its current value
+     */
+    public static boolean applyRealmUpdate(RealmRepresentation realm, UpdateRealmOperation op) {
+        boolean changed = false;
+        changed |= apply(op.getDisplayName(), realm::getDisplayName, realm::setDisplayName);
+        changed |= apply(op.getDisplayNameHtml(), realm::getDisplayNameHtml, realm::setDisplayNameHtml);
+        changed |= apply(op.getEnabled(), realm::isEnabled, realm::setEnabled);
+        changed |= apply(op.getRegistrationAllowed(), realm::isRegistrationAllowed, realm::setRegistrationAllowed);
+        changed |= apply(op.getRegistrationEmailAsUsername(), realm::isRegistrationEmailAsUsername, realm::setRegistrationEmailAsUsername);
+        changed |= apply(op.getVerifyEmail(), realm::isVerifyEmail, realm::setVerifyEmail);
+        changed |= apply(op.getResetPasswordAllowed(), realm::isResetPasswordAllowed, realm::setResetPasswordAllowed);
+        changed |= apply(op.getLoginWithEmailAllowed(), realm::isLoginWithEmailAllowed, realm::setLoginWithEmailAllowed);
+        changed |= apply(op.getDuplicateEmailsAllowed(), realm::isDuplicateEmailsAllowed, realm::setDuplicateEmailsAllowed);
+        changed |= apply(op.getRememberMe(), realm::isRememberMe, realm::setRememberMe);
+        changed |= apply(op.getBruteForceProtected(), realm::isBruteForceProtected, realm::setBruteForceProtected);
+        changed |= apply(op.getSslRequired(), realm::getSslRequired, realm::setSslRequired);
+        changed |= apply(op.getAccessTokenLifespan(), realm::getAccessTokenLifespan, realm::setAccessTokenLifespan);
+        changed |= apply(op.getSsoSessionIdleTimeout(), realm::getSsoSessionIdleTimeout, realm::setSsoSessionIdleTimeout);
+        changed |= apply(op.getSsoSessionMaxLifespan(), realm::getSsoSessionMaxLifespan, realm::setSsoSessionMaxLifespan);
+        changed |= apply(op.getPasswordPolicy(), realm::getPasswordPolicy, realm::setPasswordPolicy);
+        changed |= apply(op.getLoginTheme(), realm::getLoginTheme, realm::setLoginTheme);
+        changed |= apply(op.getAccountTheme(), realm::getAccountTheme, realm::setAccountTheme);
+        changed |= apply(op.getAdminTheme(), realm::getAdminTheme, realm::setAdminTheme);
+        changed |= apply(op.getEmailTheme(), realm::getEmailTheme, realm::setEmailTheme);
+        changed |= apply(op.getInternationalizationEnabled(), realm::isInternationalizationEnabled, realm::setInternationalizationEnabled);
+        changed |= apply(op.getSupportedLocales() != null ? new HashSet<>(op.getSupportedLocales()) : null,
+            realm::getSupportedLocales, realm::setSupportedLocales);
+        changed |= apply(op.getDefaultLocale(), realm::getDefaultLocale, realm::setDefaultLocale);
+        return changed;
+    }
+
+    // ==================== Client ====================
+
+    public static ClientRepresentation toClientRepresentation(CreateClientOperation op) {
+        ClientRepresentation client = new ClientRepresentation();
+        client.setClientId(op.getClientId());
+        client.setEnabled(op.getEnabled());
+        client.setProtocol(op.getProtocol());
+
+        if (op.getName() != null) client.setName(op.getName());
+        if (op.getClientDescription() != null) client.setDescription(op.getClientDescription());
+        if (op.getPublicClient() != null) client.setPublicClient(op.getPublicClient());
+        if (op.getBearerOnly() != null) client.setBearerOnly(op.getBearerOnly());
+        if (op.getConsentRequired() != null) client.setConsentRequired(op.getConsentRequired());
+        if (op.getStandardFlowEnabled() != null) client.setStandardFlowEnabled(op.getStandardFlowEnabled());
+        if (op.getImplicitFlowEnabled() != null) client.setImplicitFlowEnabled(op.getImplicitFlowEnabled());
+        if (op.getDirectAccessGrantsEnabled() != null) client.setDirectAccessGrantsEnabled(op.getDirectAccessGrantsEnabled());
+        if (op.getServiceAccountsEnabled() != null) client.setServiceAccountsEnabled(op.getServiceAccountsEnabled());
+        if (op.getAuthorizationServicesEnabled() != null) client.setAuthorizationServicesEnabled(op.getAuthorizationServicesEnabled());
+        if (op.getRootUrl() != null) client.setRootUrl(op.getRootUrl());
+        if (op.getBaseUrl() != null) client.setBaseUrl(op.getBaseUrl());
+        if (op.getAdminUrl() != null) client.setAdminUrl(op.getAdminUrl());
+        if (op.getRedirectUris() != null) client.setRedirectUris(op.getRedirectUris());
+        if (op.getWebOrigins() != null) client.setWebOrigins(op.getWebOrigins());
+        if (op.getSecret() != null) client.setSecret(op.getSecret());
+        if (op.getClientAuthenticatorType() != null) client.setClientAuthenticatorType(op.getClientAuthenticatorType());
+        if (op.getDefaultClientScopes() != null) client.setDefaultClientScopes(op.getDefaultClientScopes());
+        if (op.getOptionalClientScopes() != null) client.setOptionalClientScopes(op.getOptionalClientScopes());
+        if (op.getFrontchannelLogout() != null) client.setFrontchannelLogout(op.getFrontchannelLogout());
+        if (op.getFullScopeAllowed() != null) client.setFullScopeAllowed(op.getFullScopeAllowed());
+
+        if (op.getAttributes() != null) {
+            client.setAttributes(toStringMap(op.getAttributes()));
+        }
+
+        return client;
+    }
+
+    /**
+     * Apply the fields set on the operation to the client.
+     *
+     * @return true if at least one field differs from its current value
+     */
+    public static boolean applyClientUpdate(ClientRepresentation client, UpdateClientOperation op) {
+        boolean changed = false;
+        changed |= apply(op.getName(), client::getName, client::setName);
+        changed |= apply(op.getClientDescription(), client::getDescription, client::setDescription);
+        changed |= apply(op.getEnabled(), client::isEnabled, client::setEnabled);
+        changed |= apply(op.getPublicClient(), client::isPublicClient, client::setPublicClient);
+        changed |= apply(op.getBearerOnly(), client::isBearerOnly, client::setBearerOnly);
+        changed |= apply(op.getConsentRequired(), client::isConsentRequired, client::setConsentRequired);
+        changed |= apply(op.getStandardFlowEnabled(), client::isStandardFlowEnabled, client::setStandardFlowEnabled);
+        changed |= apply(op.getImplicitFlowEnabled(), client::isImplicitFlowEnabled, client::setImplicitFlowEnabled);
+        changed |= apply(op.getDirectAccessGrantsEnabled(), client::isDirectAccessGrantsEnabled, client::setDirectAccessGrantsEnabled);
+        changed |= apply(op.getServiceAccountsEnabled(), client::isServiceAccountsEnabled, client::setServiceAccountsEnabled);
+        changed |= apply(op.getRootUrl(), client::getRootUrl, client::setRootUrl);
+        changed |= apply(op.getBaseUrl(), client::getBaseUrl, client::setBaseUrl);
+        changed |= apply(op.getAdminUrl(), client::getAdminUrl, client::setAdminUrl);
+        changed |= applyUnordered(op.getRedirectUris(), client::getRedirectUris, client::setRedirectUris);
+        changed |= applyUnordered(op.getWebOrigins(), client::getWebOrigins, client::setWebOrigins);
+        changed |= apply(op.getSecret(), client::getSecret, client::setSecret);
+        changed |= apply(op.getFrontchannelLogout(), client::isFrontchannelLogout, client::setFrontchannelLogout);
+        changed |= apply(op.getFullScopeAllowed(), client::isFullScopeAllowed, client::setFullScopeAllowed);
+        return changed;
+    }
+
+    // ==================== User ====================
+
+    public static UserRepresentation toUserRepresentation(CreateUserOperation op) {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername(op.getUsername());
+        user.setEnabled(op.getEnabled());
+
+        if (op.getEmail() != null) user.setEmail(op.getEmail());
+        if (op.getFirstName() != null) user.setFirstName(op.getFirstName());
+        if (op.getLastName() != null) user.setLastName(op.getLastName());
+        if (op.getEmailVerified() != null) user.setEmailVerified(op.getEmailVerified());
+        if (op.getGroups() != null) user.setGroups(op.getGroups().stream().map(GroupPaths::normalize).toList());
+        if (op.getRealmRoles() != null) user.setRealmRoles(op.getRealmRoles());
+        if (op.getRequiredActions() != null) user.setRequiredActions(op.getRequiredActions());
+
+        if (op.getAttributes() != null) {
+            user.setAttributes(toMultiValuedMap(op.getAttributes()));
+        }
+
+        return user;
+    }
+
+    /**
+     * Apply the fields set on the operation to the user.
+     *
+     * @return true if at least one field differs from its current value
+     */
+    public static boolean applyUserUpdate(UserRepresentation user, UpdateUserOperation op) {
+        boolean changed = false;
+        changed |= apply(op.getEmail(), user::getEmail, user::setEmail);
+        changed |= apply(op.getFirstName(), user::getFirstName, user::setFirstName);
+        changed |= apply(op.getLastName(), user::getLastName, user::setLastName);
+        changed |= apply(op.getEnabled(), user::isEnabled, user::setEnabled);
+        changed |= apply(op.getEmailVerified(), user::isEmailVerified, user::setEmailVerified);
+        changed |= applyUnordered(op.getRequiredActions(), user::getRequiredActions, user::setRequiredActions);
+        changed |= apply(op.getAttributes() != null ? toMultiValuedMap(op.getAttributes()) : null,
+            user::getAttributes, user::setAttributes);
+        return changed;
+    }
+
+    public static CredentialRepresentation toPasswordCredential(CreateUserOperation op) {
+        CredentialRepresentation credential = new CredentialRepresentation();
+        credential.setType(CredentialRepresentation.PASSWORD);
+        credential.setValue(op.getPassword());
+        credential.setTemporary(op.getTemporaryPassword());
+        return credential;
+    }
+
+    // ==================== Role ====================
+
+    public static RoleRepresentation toRoleRepresentation(CreateRealmRoleOperation op) {
+        return toRoleRepresentation(op.getName(), op.getRoleDescription(), op.getComposite(), op.getAttributes());
+    }
+
+    public static RoleRepresentation toRoleRepresentation(CreateClientRoleOperation op) {
+        return toRoleRepresentation(op.getName(), op.getRoleDescription(), op.getComposite(), op.getAttributes());
+    }
+
+    private static RoleRepresentation toRoleRepresentation(String name, String description, Boolean composite,
+                                                           List<CreateClientOperation.AttributeEntry> attributes) {
+        RoleRepresentation role = new RoleRepresentation();
+        role.setName(name);
+        role.setComposite(composite);
+
+        if (description != null) role.setDescription(description);
+
+        if (attributes != null) {
+            Map<String, List<String>> attrs = attributes.stream()
+                .collect(Collectors.toMap(
+                    CreateClientOperation.AttributeEntry::getKey,
+                    e -> List.of(e.getValue())
+                ));
+            role.setAttributes(attrs);
+        }
+
+        return role;
+    }
+
+    // ==================== Group ====================
+
+    public static GroupRepresentation toGroupRepresentation(CreateGroupOperation op) {
+        GroupRepresentation group = new GroupRepresentation();
+        group.setName(op.getName());
+        if (op.getPath() != null) group.setPath(op.getPath());
+
+        if (op.getAttributes() != null) {
+            group.setAttributes(toMultiValuedMap(op.getAttributes()));
+        }
+
+        return group;
+    }
+
+    // ==================== Client Scope ====================
+
+    public static ClientScopeRepresentation toClientScopeRepresentation(CreateClientScopeOperation op) {
+        ClientScopeRepresentation scope = new ClientScopeRepresentation();
+        scope.setName(op.getName());
+        scope.setProtocol(op.getProtocol());
+
+        if (op.getScopeDescription() != null) scope.setDescription(op.getScopeDescription());
+
+        if (op.getAttributes() != null) {
+            Map<String, String> attrs = toStringMap(op.getAttributes());
+            if (op.getIncludeInTokenScope() != null) {
+                attrs.put("include.in.token.scope", op.getIncludeInTokenScope().toString());
+            }
+            scope.setAttributes(attrs);
+        }
+
+        if (op.getProtocolMappers() != null) {
+            List<ProtocolMapperRepresentation> mappers = op.getProtocolMappers().stream()
+                .map(RepresentationMapper::toProtocolMapperRepresentation)
+                .toList();
+            scope.setProtocolMappers(mappers);
+        }
+
+        return scope;
+    }
+
+    // ==================== Identity Provider ====================
+
+    public static IdentityProviderRepresentation toIdentityProviderRepresentation(CreateIdentityProviderOperation op) {
+        IdentityProviderRepresentation idp = new IdentityProviderRepresentation();
+        idp.setAlias(op.getAlias());
+        idp.setProviderId(op.getProviderId());
+        idp.setEnabled(op.getEnabled());
+
+        if (op.getDisplayName() != null) idp.setDisplayName(op.getDisplayName());
+        if (op.getTrustEmail() != null) idp.setTrustEmail(op.getTrustEmail());
+        if (op.getStoreToken() != null) idp.setStoreToken(op.getStoreToken());
+        if (op.getAddReadTokenRoleOnCreate() != null) idp.setAddReadTokenRoleOnCreate(op.getAddReadTokenRoleOnCreate());
+        if (op.getLinkOnly() != null) idp.setLinkOnly(op.getLinkOnly());
+        if (op.getFirstBrokerLoginFlowAlias() != null) idp.setFirstBrokerLoginFlowAlias(op.getFirstBrokerLoginFlowAlias());
+        if (op.getPostBrokerLoginFlowAlias() != null) idp.setPostBrokerLoginFlowAlias(op.getPostBrokerLoginFlowAlias());
+
+        if (op.getConfig() != null) {
+            idp.setConfig(toStringMap(op.getConfig()));
+        }
+
+        return idp;
+    }
+
+    // ==================== Protocol Mapper ====================
+
+    public static ProtocolMapperRepresentation toProtocolMapperRepresentation(CreateProtocolMapperOperation op) {
+        ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
+        mapper.setName(op.getName());
+        mapper.setProtocol(op.getProtocol());
+        mapper.setProtocolMapper(op.getProtocolMapper());
+
+        if (op.getConfig() != null) {
+            mapper.setConfig(toStringMap(op.getConfig()));
+        }
+
+        return mapper;
+    }
+
+    public static ProtocolMapperRepresentation toProtocolMapperRepresentation(CreateClientScopeOperation.ProtocolMapperConfig config) {
+        ProtocolMapperRepresentation mapper = new ProtocolMapperRepresentation();
+        mapper.setName(config.getName());
+        mapper.setProtocol(config.getProtocol());
+        mapper.setProtocolMapper(config.getProtocolMapper());
+
+        if (config.getConfig() != null) {
+            mapper.setConfig(toStringMap(config.getConfig()));
+        }
+
+        return mapper;
+    }
+
+    // ==================== Authentication Flow ====================
+
+    public static AuthenticationFlowRepresentation toAuthenticationFlowRepresentation(CreateAuthenticationFlowOperation op) {
+        AuthenticationFlowRepresentation flow = new AuthenticationFlowRepresentation();
+        flow.setAlias(op.getAlias());
+        flow.setProviderId(op.getProviderId());
+        flow.setTopLevel(op.getTopLevel());
+        flow.setBuiltIn(op.getBuiltIn());
+
+        if (op.getFlowDescription() != null) flow.setDescription(op.getFlowDescription());
+
+        return flow;
+    }
+
+    // ==================== Embedded Representations ====================
+
+    /**
+     * Realm role as embedded in a realm or partial import, with its composites inline.
+     */
+    public static RoleRepresentation toEmbeddedRealmRole(CreateRealmRoleOperation op) {
+        RoleRepresentation role = toRoleRepresentation(op);
+        if (op.getCompositeRoles() != null && !op.getCompositeRoles().isEmpty()) {
+            RoleRepresentation.Composites composites = new RoleRepresentation.Composites();
+            composites.setRealm(new LinkedHashSet<>(op.getCompositeRoles()));
+            role.setComposites(composites);
+        }
+        return role;
+    }
+
+    /**
+     * Group as embedded in a realm or partial import, with its role mappings inline.
+     */
+    public static GroupRepresentation toEmbeddedGroup(CreateGroupOperation op) {
+        GroupRepresentation group = toGroupRepresentation(op);
+        if (op.getRealmRoles() != null) {
+            group.setRealmRoles(op.getRealmRoles());
+        }
+        if (op.getClientRoles() != null) {
+            group.setClientRoles(toClientRoleMap(op.getClientRoles()));
+        }
+        return group;
+    }
+
+    /**
+     * User as embedded in a realm or partial import, with its password and client role
+     * mappings inline.
+     */
+    public static UserRepresentation toEmbeddedUser(CreateUserOperation op) {
+        UserRepresentation user = toUserRepresentation(op);
+        if (op.getPassword() != null) {
+            user.setCredentials(List.of(toPasswordCredential(op)));
+        }
+        if (op.getClientRoles() != null) {
+            user.setClientRoles(toClientRoleMap(op.getClientRoles()));
+        }
+        return user;
+    }
+
+    private static Map<String, List<String>> toClientRoleMap(List<CreateUserOperation.ClientRoleMapping> mappings) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (CreateUserOperation.ClientRoleMapping mapping : mappings) {
+            result.computeIfAbsent(mapping.getClientId(), k -> new ArrayList<>()).addAll(mapping.getRoles());
+        }
+        return result;
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Set a requested value unless it is absent or already equal to the current value.
+     *
+     * @return true if the value was changed
+     */
+    private static <T> boolean apply(T requested, Supplier<? extends T> current, Consumer<? super T> setter) {
+        if (requested == null || Objects.equals(requested, current.get())) {
+            return false;
+        }
+        setter.accept(requested);
+        return true;
+    }
+
+    /**
+     * Like {@link #apply}, for lists that Keycloak treats as sets and may return in any order.
+     */
+    private static boolean applyUnordered(List<String> requested, Supplier<List<String>> current,
+                                          Consumer<List<String>> setter) {
+        if (requested == null) {
+            return false;
+        }
+        List<String> existing = current.get();
+        if (existing != null && new HashSet<>(existing).equals(new HashSet<>(requested))) {
+            return false;
+        }
+        setter.accept(requested);
+        return true;
+    }
+
+    public static Map<String, String> toStringMap(List<CreateClientOperation.AttributeEntry> entries) {
+        return entries.stream()
+            .collect(Collectors.toMap(
+                CreateClientOperation.AttributeEntry::getKey,
+                CreateClientOperation.AttributeEntry::getValue
+            ));
+    }
+
+    public static Map<String, List<String>> toMultiValuedMap(List<CreateUserOperation.UserAttribute> attributes) {
+        return attributes.stream()
+            .collect(Collectors.toMap(
+                CreateUserOperation.UserAttribute::getKey,
+                CreateUserOperation.UserAttribute::getValues
+            ));
+    }
+}
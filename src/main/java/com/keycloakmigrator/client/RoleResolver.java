@@ -0,0 +1,119 @@
+package com.keycloakmigrator.client;
+
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.NotFoundException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves role names to role representations for role mappings and composites.
+ *
+ * <p>Instead of one {@code roles().get(name)} request per role, the roles of a realm or
+ * client are listed once and kept for the lifetime of the admin client. A role missing
+ * from the listing, such as one created since, is fetched by name once and added to it,
+ * so creating roles never causes the container to be listed again. Deleted roles are
+ * removed from the listing.</p>
+ */
+final class RoleResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleResolver.class);
+
+    private final Keycloak keycloak;
+    private final Map<String, Map<String, RoleRepresentation>> realmRoles = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, RoleRepresentation>> clientRoles = new ConcurrentHashMap<>();
+
+    RoleResolver(Keycloak keycloak) {
+        this.keycloak = keycloak;
+    }
+
+    /**
+     * Resolve realm roles by name.
+     *
+     * @throws NotFoundException if one of the roles does not exist
+     */
+    List<RoleRepresentation> realmRoles(String realm, Collection<String> names) {
+        Map<String, RoleRepresentation> roles = realmRoles.computeIfAbsent(realm, r -> {
+            log.debug("Listing realm roles of realm '{}'", r);
+            return index(keycloak.realm(r).roles().list());
+        });
+        return resolve(roles, names, name -> keycloak.realm(realm).roles().get(name).toRepresentation());
+    }
+
+    /**
+     * Resolve the roles of a client by name.
+     *
+     * @param clientUuid the internal id of the client
+     * @throws NotFoundException if one of the roles does not exist
+     */
+    List<RoleRepresentation> clientRoles(String realm, String clientUuid, Collection<String> names) {
+        Map<String, RoleRepresentation> roles = clientRoles.computeIfAbsent(clientKey(realm, clientUuid), k -> {
+            log.debug("Listing roles of client '{}' in realm '{}'", clientUuid, realm);
+            return index(keycloak.realm(realm).clients().get(clientUuid).roles().list());
+        });
+        return resolve(roles, names,
+            name -> keycloak.realm(realm).clients().get(clientUuid).roles().get(name).toRepresentation());
+    }
+
+    void realmRoleDeleted(String realm, String name) {
+        removeRole(realmRoles.get(realm), name);
+    }
+
+    void clientRoleDeleted(String realm, String clientUuid, String name) {
+        removeRole(clientRoles.get(clientKey(realm, clientUuid)), name);
+    }
+
+    void invalidateClientRoles(String realm, String clientUuid) {
+        clientRoles.remove(clientKey(realm, clientUuid));
+    }
+
+    void invalidateRealm(String realm) {
+        realmRoles.remove(realm);
+        clientRoles.keySet().removeIf(k -> k.startsWith(realm + "/"));
+    }
+
+    private static void removeRole(Map<String, RoleRepresentation> roles, String name) {
+        if (roles != null) {
+            roles.remove(name);
+        }
+    }
+
+    private static Map<String, RoleRepresentation> index(List<RoleRepresentation> roles) {
+        Map<String, RoleRepresentation> index = new ConcurrentHashMap<>();
+        for (RoleRepresentation role : roles) {
+            index.putIfAbsent(role.getName(), role);
+        }
+        return index;
+    }
+
+    /**
+     * @param fetch reads a role missing from the listing by name, throwing
+     *              {@link NotFoundException} if it does not exist
+     */
+    private static List<RoleRepresentation> resolve(Map<String, RoleRepresentation> roles, Collection<String> names,
+                                                    Function<String, RoleRepresentation> fetch) {
+        List<RoleRepresentation> resolved = new ArrayList<>(names.size());
+        for (String name : names) {
+            RoleRepresentation role = roles.get(name);
+            if (role == null) {
+                log.debug("Role '{}' not in listing, fetching it by name", name);
+                try {
+                    role = fetch.apply(name);
+                } catch (NotFoundException e) {
+                    throw new NotFoundException("Role not found: " + name, e);
+                }
+                roles.put(name, role);
+            }
+            resolved.add(role);
+        }
+        return resolved;
+    }
+
+    private static String clientKey(String realm, String clientUuid) {
+        return realm + "/" + clientUuid;
+    }
+}
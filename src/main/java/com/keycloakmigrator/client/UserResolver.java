@@ -0,0 +1,112 @@
+package com.keycloakmigrator.client;
+
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.ws.rs.NotFoundException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves usernames to user ids and caches them for the lifetime of the admin client.
+ *
+ * <p>Single lookups use an exact username search. When a run of operations touches
+ * many users, {@link #prefetch} scans the realm's users page by page instead, provided
+ * the scan takes fewer requests than looking the users up one at a time. Keycloak
+ * stores usernames in lower case, so the cache is keyed the same way.</p>
+ */
+final class UserResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(UserResolver.class);
+
+    static final int PAGE_SIZE = 500;
+
+    private final Keycloak keycloak;
+    private final Map<String, Map<String, String>> userIds = new ConcurrentHashMap<>();
+
+    UserResolver(Keycloak keycloak) {
+        this.keycloak = keycloak;
+    }
+
+    /**
+     * Resolve a username to the id of the user.
+     *
+     * @throws NotFoundException if the user does not exist
+     */
+    String resolve(String realm, String username) {
+        Map<String, String> ids = realmIds(realm);
+        String key = key(username);
+        String id = ids.get(key);
+        if (id == null) {
+            List<UserRepresentation> users = keycloak.realm(realm).users().searchByUsername(username, true);
+            if (users.isEmpty()) {
+                throw new NotFoundException("User not found: " + username);
+            }
+            id = users.get(0).getId();
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * Fill the cache for the given usernames with a paginated scan of the realm's users,
+     * unless looking them up individually is cheaper.
+     */
+    void prefetch(String realm, Collection<String> usernames) {
+        Map<String, String> ids = realmIds(realm);
+        Set<String> missing = new HashSet<>();
+        for (String username : usernames) {
+            if (!ids.containsKey(key(username))) {
+                missing.add(key(username));
+            }
+        }
+        if (missing.size() < 2) {
+            return;
+        }
+
+        int userCount = keycloak.realm(realm).users().count();
+        int pages = (userCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        if (pages >= missing.size()) {
+            log.debug("Skipping user scan of realm '{}': {} pages for {} users", realm, pages, missing.size());
+            return;
+        }
+
+        log.debug("Scanning {} users of realm '{}' to resolve {} usernames", userCount, realm, missing.size());
+        for (int first = 0; !missing.isEmpty(); first += PAGE_SIZE) {
+            List<UserRepresentation> page = keycloak.realm(realm).users().list(first, PAGE_SIZE);
+            for (UserRepresentation user : page) {
+                String key = key(user.getUsername());
+                ids.put(key, user.getId());
+                missing.remove(key);
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Remember the id of a user that was just created.
+     */
+    void created(String realm, String username, String id) {
+        realmIds(realm).put(key(username), id);
+    }
+
+    void deleted(String realm, String username) {
+        realmIds(realm).remove(key(username));
+    }
+
+    void invalidateRealm(String realm) {
+        userIds.remove(realm);
+    }
+
+    private Map<String, String> realmIds(String realm) {
+        return userIds.computeIfAbsent(realm, r -> new ConcurrentHashMap<>());
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
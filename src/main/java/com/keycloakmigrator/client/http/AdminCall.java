@@ -0,0 +1,19 @@
+package com.keycloakmigrator.client.http;
+
+/**
+ * A completed HTTP call to the Keycloak server.
+ *
+ * @param method        the HTTP method
+ * @param path          the request path, without query string
+ * @param endpoint      the path with realm names and ids replaced by placeholders, see {@link EndpointTemplates}
+ * @param status        the response status code
+ * @param durationNanos time from sending the request to receiving the response headers
+ */
+public record AdminCall(
+    String method,
+    String path,
+    String endpoint,
+    int status,
+    long durationNanos
+) {
+}
@@ -0,0 +1,70 @@
+package com.keycloakmigrator.client.http;
+
+import com.keycloakmigrator.metrics.jfr.AdminRequestEvent;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JAX-RS client filter that times every request of the admin client and reports it to
+ * the registered {@link AdminCallListener}s and, while a flight recording is running, as an
+ * {@link AdminRequestEvent}.
+ *
+ * <p>The duration runs from the request filter to the response filter, that is until the
+ * response headers have arrived; reading the response body is not included. Requests
+ * that fail without a response are not reported.</p>
+ */
+public final class AdminCallFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final String START_PROPERTY = AdminCallFilter.class.getName() + ".start";
+    private static final String EVENT_PROPERTY = AdminCallFilter.class.getName() + ".event";
+
+    private final List<AdminCallListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(AdminCallListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(AdminCallListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        if (!listeners.isEmpty()) {
+            request.setProperty(START_PROPERTY, System.nanoTime());
+        }
+        AdminRequestEvent event = new AdminRequestEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            request.setProperty(EVENT_PROPERTY, event);
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) {
+        if (request.getProperty(EVENT_PROPERTY) instanceof AdminRequestEvent event) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = request.getMethod();
+                event.path = request.getUri().getPath();
+                event.endpoint = EndpointTemplates.of(event.path);
+                event.status = response.getStatus();
+                event.commit();
+            }
+        }
+        if (!(request.getProperty(START_PROPERTY) instanceof Long start)) {
+            return;
+        }
+        String path = request.getUri().getPath();
+        AdminCall call = new AdminCall(request.getMethod(), path, EndpointTemplates.of(path),
+            response.getStatus(), System.nanoTime() - start);
+        for (AdminCallListener listener : listeners) {
+            listener.onCall(call);
+        }
+    }
+}
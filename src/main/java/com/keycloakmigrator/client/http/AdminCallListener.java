@@ -0,0 +1,13 @@
+package com.keycloakmigrator.client.http;
+
+/**
+ * Receives every HTTP call the admin client makes, including token requests.
+ *
+ * <p>Listeners are called on the thread that made the call, which may be any thread
+ * using the admin client, and must therefore be thread-safe and quick.</p>
+ */
+@FunctionalInterface
+public interface AdminCallListener {
+
+    void onCall(AdminCall call);
+}
@@ -0,0 +1,73 @@
+package com.keycloakmigrator.client.http;
+
+import java.util.Set;
+
+/**
+ * Reduces admin API paths to endpoint templates, so that calls can be aggregated per
+ * endpoint rather than per entity.
+ *
+ * <p>Segments are templated by position. The segment after {@code realms} becomes
+ * {@code {realm}}, and the segment after any other collection, such as {@code roles} or
+ * {@code instances}, becomes {@code {id}} whatever its value, so that a role named
+ * {@code admin} is not mistaken for a fixed part of the admin API. Elsewhere, segments
+ * that are not fixed parts of the admin API become {@code {id}} as well. For example
+ * {@code /admin/realms/app/clients/3f2a.../roles} becomes
+ * {@code /admin/realms/{realm}/clients/{id}/roles}.</p>
+ */
+public final class EndpointTemplates {
+
+    private static final Set<String> FIXED_SEGMENTS = Set.of(
+        "admin", "realms", "protocol", "openid-connect", "token",
+        "clients", "client-scopes", "roles", "roles-by-id", "composites", "realm",
+        "users", "groups", "children", "members", "count", "role-mappings", "available", "effective",
+        "reset-password", "execute-actions-email", "protocol-mappers", "models", "add-models",
+        "identity-provider", "instances", "mappers", "authentication", "flows", "executions",
+        "execution", "flow", "partialImport", "partial-export", "default-client-scopes",
+        "optional-client-scopes", "default-default-client-scopes", "default-optional-client-scopes",
+        "client-secret", "service-account-user", "attributes"
+    );
+
+    /**
+     * Segments followed by the id, name or alias of one of their entities.
+     */
+    private static final Set<String> COLLECTIONS = Set.of(
+        "clients", "client-scopes", "roles", "roles-by-id", "users", "groups", "instances", "mappers",
+        "flows", "executions", "models", "default-client-scopes", "optional-client-scopes",
+        "default-default-client-scopes", "default-optional-client-scopes"
+    );
+
+    /**
+     * Fixed segments that may follow a collection instead of an entity.
+     */
+    private static final Set<String> COLLECTION_ENDPOINTS = Set.of("count", "execution", "flow");
+
+    private EndpointTemplates() {
+    }
+
+    public static String of(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        StringBuilder template = new StringBuilder(path.length());
+        String previous = null;
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            String templated;
+            if ("realms".equals(previous)) {
+                templated = "{realm}";
+            } else if (previous != null && COLLECTIONS.contains(previous)) {
+                templated = COLLECTION_ENDPOINTS.contains(segment) ? segment : "{id}";
+            } else if (FIXED_SEGMENTS.contains(segment)) {
+                templated = segment;
+            } else {
+                templated = "{id}";
+            }
+            template.append('/').append(templated);
+            // Compare with the templated segment, so that an entity named like a collection is not one
+            previous = templated;
+        }
+        return template.length() == 0 ? "/" : template.toString();
+    }
+}
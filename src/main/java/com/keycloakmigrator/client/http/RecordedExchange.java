@@ -0,0 +1,33 @@
+package com.keycloakmigrator.client.http;
+
+/**
+ * An HTTP exchange of the admin client, as recorded by {@link TrafficRecorder} and served
+ * again by {@link TrafficReplayer}.
+ *
+ * @param method        the HTTP method
+ * @param path          the request path
+ * @param query         the query string, or {@code null}
+ * @param status        the response status code
+ * @param contentType   the response content type, or {@code null}
+ * @param location      the path and query of the {@code Location} header, or {@code null}
+ * @param durationNanos time from sending the request to receiving the response headers
+ * @param body          the response body, or {@code null} if it had none
+ */
+public record RecordedExchange(
+    String method,
+    String path,
+    String query,
+    int status,
+    String contentType,
+    String location,
+    long durationNanos,
+    String body
+) {
+
+    /**
+     * The request this exchange answers, for example {@code GET /admin/realms/app/roles?first=0}.
+     */
+    public String request() {
+        return method + " " + path + (query != null ? "?" + query : "");
+    }
+}
@@ -0,0 +1,86 @@
+package com.keycloakmigrator.client.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes recorded exchanges as a JSON fixture file.
+ *
+ * <p>JSON response bodies are stored as JSON, so that fixtures can be read and diffed;
+ * other bodies are stored as text.</p>
+ */
+public final class TrafficFixture {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private TrafficFixture() {
+    }
+
+    public static void write(Path file, List<RecordedExchange> exchanges) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode array = root.putArray("exchanges");
+        for (RecordedExchange exchange : exchanges) {
+            ObjectNode node = array.addObject();
+            node.put("method", exchange.method());
+            node.put("path", exchange.path());
+            if (exchange.query() != null) {
+                node.put("query", exchange.query());
+            }
+            node.put("status", exchange.status());
+            node.put("durationNanos", exchange.durationNanos());
+            if (exchange.contentType() != null) {
+                node.put("contentType", exchange.contentType());
+            }
+            if (exchange.location() != null) {
+                node.put("location", exchange.location());
+            }
+            if (exchange.body() != null) {
+                if (isJson(exchange.contentType())) {
+                    node.set("json", MAPPER.readTree(exchange.body()));
+                } else {
+                    node.put("text", exchange.body());
+                }
+            }
+        }
+        MAPPER.writeValue(file.toFile(), root);
+    }
+
+    public static List<RecordedExchange> read(Path file) throws IOException {
+        JsonNode root = MAPPER.readTree(file.toFile());
+        List<RecordedExchange> exchanges = new ArrayList<>();
+        for (JsonNode node : root.path("exchanges")) {
+            String body = null;
+            if (node.has("json")) {
+                body = MAPPER.writeValueAsString(node.get("json"));
+            } else if (node.has("text")) {
+                body = node.get("text").asText();
+            }
+            exchanges.add(new RecordedExchange(
+                node.get("method").asText(),
+                node.get("path").asText(),
+                text(node, "query"),
+                node.get("status").asInt(),
+                text(node, "contentType"),
+                text(node, "location"),
+                node.path("durationNanos").asLong(),
+                body));
+        }
+        return exchanges;
+    }
+
+    static boolean isJson(String contentType) {
+        return contentType != null && contentType.toLowerCase().contains("json");
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+}
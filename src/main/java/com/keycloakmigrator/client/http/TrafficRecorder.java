@@ -0,0 +1,113 @@
+package com.keycloakmigrator.client.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JAX-RS client filter that records every exchange of the admin client, token requests
+ * included, for replay by {@link TrafficReplayer}.
+ *
+ * <p>The filter runs after the filter that adds the access token, so a token request
+ * is recorded before the admin request that triggered it, in the order
+ * {@link TrafficReplayer} will see them. Exchanges are kept in the order their requests
+ * were sent. Request bodies and headers
+ * are not recorded, and tokens in token responses are replaced by a placeholder, so that
+ * fixtures contain no credentials. Requests that fail without a response are not
+ * recorded.</p>
+ */
+@Priority(Priorities.USER + 1)
+public final class TrafficRecorder implements ClientRequestFilter, ClientResponseFilter {
+
+    static final String REDACTED = "redacted";
+
+    private static final String SEQUENCE_PROPERTY = TrafficRecorder.class.getName() + ".sequence";
+    private static final String START_PROPERTY = TrafficRecorder.class.getName() + ".start";
+    private static final List<String> TOKEN_FIELDS = List.of("access_token", "refresh_token", "id_token");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, RecordedExchange> exchanges = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        request.setProperty(SEQUENCE_PROPERTY, sequence.getAndIncrement());
+        request.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+        if (!(request.getProperty(START_PROPERTY) instanceof Long start)
+            || !(request.getProperty(SEQUENCE_PROPERTY) instanceof Long number)) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+
+        String contentType = response.getHeaderString(HttpHeaders.CONTENT_TYPE);
+        String body = null;
+        if (response.hasEntity()) {
+            byte[] bytes = response.getEntityStream().readAllBytes();
+            response.setEntityStream(new ByteArrayInputStream(bytes));
+            body = new String(bytes, StandardCharsets.UTF_8);
+            if (request.getUri().getPath().endsWith("/protocol/openid-connect/token") && TrafficFixture.isJson(contentType)) {
+                body = redactTokens(body);
+            }
+        }
+
+        URI uri = request.getUri();
+        exchanges.put(number, new RecordedExchange(request.getMethod(), uri.getRawPath(), uri.getRawQuery(),
+            response.getStatus(), contentType, pathOf(response.getLocation()), duration, body));
+    }
+
+    /**
+     * The exchanges recorded so far, in the order their requests were sent.
+     */
+    public List<RecordedExchange> getExchanges() {
+        return new ArrayList<>(exchanges.values());
+    }
+
+    /**
+     * Write the exchanges recorded so far to a fixture file.
+     */
+    public void write(Path file) throws IOException {
+        TrafficFixture.write(file, getExchanges());
+    }
+
+    private static String pathOf(URI location) {
+        if (location == null) {
+            return null;
+        }
+        return location.getRawPath() + (location.getRawQuery() != null ? "?" + location.getRawQuery() : "");
+    }
+
+    private static String redactTokens(String body) throws IOException {
+        JsonNode json = MAPPER.readTree(body);
+        if (!(json instanceof ObjectNode token)) {
+            return body;
+        }
+        for (String field : TOKEN_FIELDS) {
+            if (token.has(field)) {
+                token.put(field, REDACTED);
+            }
+        }
+        return MAPPER.writeValueAsString(token);
+    }
+}
@@ -0,0 +1,173 @@
+package com.keycloakmigrator.client.http;
+
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * JAX-RS client filter that answers every request of the admin client from recorded
+ * exchanges, so that a migration runs without a Keycloak server.
+ *
+ * <p>Each request is answered by the first exchange not yet replayed with the same method,
+ * path and query, after its recorded duration multiplied by the time scale. A request
+ * answered by an exchange other than the next recorded one is out of order; a request
+ * without a matching exchange is unexpected and answered with status 500. Both are
+ * reported by {@link #verify()}, together with exchanges that were never requested.</p>
+ *
+ * <p>Like {@link TrafficRecorder}, the filter runs after the filter that adds the
+ * access token, so token requests are replayed too.</p>
+ *
+ * <p>Concurrent lookups, such as prefetching, send requests in an order that varies from
+ * run to run; record and replay those runs with prefetching disabled, or disable the
+ * order check.</p>
+ */
+@Priority(Priorities.USER + 1)
+public final class TrafficReplayer implements ClientRequestFilter {
+
+    private final List<RecordedExchange> exchanges;
+    private final boolean[] replayed;
+    private final List<String> divergences = new ArrayList<>();
+    private int next;
+    private int requests;
+    private double timeScale = 1.0;
+    private boolean strictOrder = true;
+
+    public TrafficReplayer(List<RecordedExchange> exchanges) {
+        this.exchanges = List.copyOf(exchanges);
+        this.replayed = new boolean[exchanges.size()];
+    }
+
+    /**
+     * Create a replayer for the exchanges of a fixture file written by {@link TrafficRecorder}.
+     */
+    public static TrafficReplayer fromFile(Path file) throws IOException {
+        return new TrafficReplayer(TrafficFixture.read(file));
+    }
+
+    /**
+     * Factor applied to the recorded durations: 1 replays them as recorded, 0.1 ten times
+     * faster, and 0 without delay.
+     */
+    public TrafficReplayer timeScale(double timeScale) {
+        if (!(timeScale >= 0)) {
+            throw new IllegalArgumentException("Time scale must be at least 0");
+        }
+        this.timeScale = timeScale;
+        return this;
+    }
+
+    /**
+     * Whether requests answered out of recorded order are reported by {@link #verify()}.
+     */
+    public TrafficReplayer strictOrder(boolean strictOrder) {
+        this.strictOrder = strictOrder;
+        return this;
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        String method = request.getMethod();
+        String path = request.getUri().getRawPath();
+        String query = request.getUri().getRawQuery();
+
+        RecordedExchange exchange = match(method, path, query);
+        if (exchange == null) {
+            request.abortWith(Response.serverError()
+                .entity("No recorded exchange for " + method + " " + path)
+                .type(MediaType.TEXT_PLAIN_TYPE)
+                .build());
+            return;
+        }
+
+        delay(exchange.durationNanos());
+        Response.ResponseBuilder response = Response.status(exchange.status());
+        if (exchange.location() != null) {
+            response.location(request.getUri().resolve(exchange.location()));
+        }
+        if (exchange.body() != null) {
+            response.entity(exchange.body().getBytes(StandardCharsets.UTF_8));
+            if (exchange.contentType() != null) {
+                response.type(exchange.contentType());
+            }
+        }
+        request.abortWith(response.build());
+    }
+
+    /**
+     * Requests answered so far, including unexpected ones.
+     */
+    public synchronized int getRequests() {
+        return requests;
+    }
+
+    /**
+     * Differences between the replayed requests and the recording, one line each: requests
+     * out of order or unexpected, then exchanges not requested.
+     */
+    public synchronized List<String> getDivergences() {
+        List<String> all = new ArrayList<>(divergences);
+        for (int i = 0; i < exchanges.size(); i++) {
+            if (!replayed[i]) {
+                all.add("Exchange " + (i + 1) + " was not requested: " + exchanges.get(i).request());
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Check that the requests matched the recording in count and, if strict, in order.
+     *
+     * @throws IllegalStateException listing the divergences, if any
+     */
+    public void verify() {
+        List<String> all = getDivergences();
+        if (!all.isEmpty()) {
+            throw new IllegalStateException("Replay diverged from the recording of " + exchanges.size()
+                + " exchanges after " + getRequests() + " requests:\n  " + String.join("\n  ", all));
+        }
+    }
+
+    private synchronized RecordedExchange match(String method, String path, String query) {
+        requests++;
+        for (int i = next; i < exchanges.size(); i++) {
+            RecordedExchange exchange = exchanges.get(i);
+            if (replayed[i] || !exchange.method().equals(method) || !exchange.path().equals(path)
+                || !Objects.equals(exchange.query(), query)) {
+                continue;
+            }
+            if (i != next && strictOrder) {
+                divergences.add("Request " + requests + " out of order: expected " + exchanges.get(next).request()
+                    + ", got " + exchange.request());
+            }
+            replayed[i] = true;
+            while (next < exchanges.size() && replayed[next]) {
+                next++;
+            }
+            return exchange;
+        }
+        divergences.add("Request " + requests + " unexpected: " + method + " " + path + (query != null ? "?" + query : ""));
+        return null;
+    }
+
+    private void delay(long recordedNanos) {
+        long nanos = (long) (recordedNanos * timeScale);
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
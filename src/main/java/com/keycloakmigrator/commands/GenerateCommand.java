@@ -0,0 +1,108 @@
+package com.keycloakmigrator.commands;
+
+import com.keycloakmigrator.generator.ChangelogGenerator;
+import com.keycloakmigrator.generator.GeneratorOptions;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * Command to write a synthetic changelog for load tests and benchmarks.
+ */
+@Command(
+    name = "generate",
+    description = "Generate a synthetic changelog for load testing"
+)
+public class GenerateCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "Directory to write the changelog to")
+    private Path outputDir;
+
+    @Option(names = {"--realms"}, description = "Number of realms (default: 1)")
+    private int realms = 1;
+
+    @Option(names = {"--clients"}, description = "Clients per realm (default: 10)")
+    private int clients = 10;
+
+    @Option(names = {"--client-roles"}, description = "Client roles per client (default: 2)")
+    private int clientRoles = 2;
+
+    @Option(names = {"--roles"}, description = "Realm roles per realm (default: 20)")
+    private int roles = 20;
+
+    @Option(names = {"--groups"}, description = "Groups per realm (default: 20)")
+    private int groups = 20;
+
+    @Option(names = {"--group-depth"}, description = "Levels of group nesting (default: 1)")
+    private int groupDepth = 1;
+
+    @Option(names = {"--users"}, description = "Users per realm (default: 100)")
+    private int users = 100;
+
+    @Option(names = {"--role-mappings"}, description = "Realm roles mapped to each group and user (default: 2)")
+    private int roleMappings = 2;
+
+    @Option(names = {"--group-memberships"}, description = "Groups each user belongs to (default: 1)")
+    private int groupMemberships = 1;
+
+    @Option(names = {"--operations-per-changeset"}, description = "Operations per changeset (default: 10)")
+    private int operationsPerChangeset = 10;
+
+    @Option(names = {"--files"}, description = "Number of files to split the changesets across (default: 1)")
+    private int files = 1;
+
+    @Option(names = {"--includes"}, description = "Write the files below parts/ and include them from changelog.xml")
+    private boolean includes;
+
+    @Option(names = {"--seed"}, description = "Seed of the role and group picks (default: 1)")
+    private long seed = 1;
+
+    @Override
+    public Integer call() {
+        try {
+            GeneratorOptions options = GeneratorOptions.defaults()
+                .realms(realms)
+                .clients(clients)
+                .clientRoles(clientRoles)
+                .roles(roles)
+                .groups(groups)
+                .groupDepth(groupDepth)
+                .users(users)
+                .roleMappings(roleMappings)
+                .groupMemberships(groupMemberships)
+                .operationsPerChangeset(operationsPerChangeset)
+                .files(files)
+                .includes(includes)
+                .seed(seed);
+
+            System.out.println("Keycloak Migrator - Generate");
+            System.out.println("============================");
+            System.out.println("Output: " + outputDir);
+            System.out.println();
+
+            long start = System.nanoTime();
+            ChangelogGenerator.Summary summary = new ChangelogGenerator(options).generate(outputDir);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Changesets: " + summary.changesets());
+            System.out.println("Operations: " + summary.operations());
+            System.out.println("Files: " + summary.files().size());
+            if (includes) {
+                System.out.println("Entry point: " + summary.files().get(0));
+            }
+            System.out.println("Written in " + millis + " ms");
+            return 0;
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+}
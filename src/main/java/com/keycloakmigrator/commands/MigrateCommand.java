@@ -1,16 +1,32 @@
 package com.keycloakmigrator.commands;
 
 import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.client.http.TrafficRecorder;
+import com.keycloakmigrator.client.http.TrafficReplayer;
 import com.keycloakmigrator.config.KeycloakConfig;
 import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.executor.MigrationOptions;
+import com.keycloakmigrator.metrics.PrometheusTextfile;
+import com.keycloakmigrator.metrics.jfr.FlightRecording;
+import com.keycloakmigrator.metrics.trace.Trace;
 import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.Operation;
 import com.keycloakmigrator.parser.XmlChangesetParser;
+import com.keycloakmigrator.planner.RealmReferences;
+import com.keycloakmigrator.planner.ReferenceCollector;
+import com.keycloakmigrator.simulator.DryRunSimulator;
+import org.keycloak.representations.idm.RealmRepresentation;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Callable;
 
 /**
@@ -43,12 +59,89 @@ public class MigrateCommand implements Callable<Integer> {
     @Option(names = {"--dry-run"}, description = "Preview changes without applying them")
     private boolean dryRun;
 
+    @Option(names = {"--offline"}, description = "With --dry-run, simulate the migration from empty realms without contacting the server")
+    private boolean offline;
+
     @Option(names = {"--skip-validation"}, description = "Skip XML schema validation")
     private boolean skipValidation;
 
+    @Option(names = {"--no-realm-import"}, description = "Create new realms operation by operation instead of as a single realm import")
+    private boolean noRealmImport;
+
+    @Option(names = {"--no-batching"}, description = "Execute every operation as written instead of merging related operations into fewer requests")
+    private boolean noBatching;
+
+    @Option(names = {"--no-realm-update-buffer"}, description = "Write every realm update and tracking record immediately instead of combining them per realm")
+    private boolean noRealmUpdateBuffer;
+
+    @Option(names = {"--no-prefetch"}, description = "Look up referenced entities while executing instead of fetching them concurrently beforehand")
+    private boolean noPrefetch;
+
+    @Option(names = {"--prefetch-threads"}, description = "Number of concurrent lookups while prefetching (default: 8)", defaultValue = "8")
+    private int prefetchThreads;
+
+    @Option(names = {"--converge"}, description = "Compare changesets with an export of each existing realm and send only the differences")
+    private boolean converge;
+
+    @Option(names = {"--resume"}, description = "Continue a changeset that failed part way from its first unfinished operation")
+    private boolean resume;
+
+    @Option(names = {"--performance-report"}, description = "Write the performance report as JSON to this file")
+    private Path performanceReport;
+
+    @Option(names = {"--jfr"}, description = "Record the run with JDK Flight Recorder and write the recording to this file")
+    private Path jfrFile;
+
+    @Option(names = {"--prometheus-file"}, description = "Write run metrics in Prometheus text format to this file, for the node_exporter textfile collector")
+    private Path prometheusFile;
+
+    @Option(names = {"--trace-file"}, description = "Write a trace of the run in OTLP/JSON format to this file")
+    private Path traceFile;
+
+    @Option(names = {"--record-traffic"}, description = "Record the admin API exchanges of the run to this fixture file")
+    private Path recordTraffic;
+
+    @Option(names = {"--replay-traffic"}, description = "Answer admin API requests from this fixture file instead of the server")
+    private Path replayTraffic;
+
+    @Option(names = {"--replay-time-scale"}, description = "Factor applied to recorded response times when replaying: 1 as recorded, 0 without delay (default: 1)", defaultValue = "1")
+    private double replayTimeScale;
+
+    private TrafficRecorder recorder;
+    private TrafficReplayer replayer;
+
     @Override
     public Integer call() {
+        if (traceFile == null) {
+            return finishTraffic(migrate(null));
+        }
+
+        Trace trace = new Trace("migrate");
+        trace.getRoot()
+            .attribute("migrator.changelog", String.valueOf(changelogDir))
+            .attribute("migrator.realm", targetRealm);
+        int exitCode = 1;
         try {
+            exitCode = finishTraffic(migrate(trace));
+            return exitCode;
+        } finally {
+            trace.getRoot().end(exitCode == 0);
+            try {
+                trace.writeOtlpJson(traceFile);
+                System.out.println("Trace written to " + traceFile);
+            } catch (IOException e) {
+                System.err.println("Warning: could not write trace to " + traceFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private int migrate(Trace trace) {
+        long start = System.nanoTime();
+        try {
+            if (offline) {
+                return simulateOffline();
+            }
+
             // Build configuration from CLI args + environment variables
             KeycloakConfig cliConfig = new KeycloakConfig(keycloakUrl, realm, clientId, clientSecret);
             KeycloakConfig envConfig = KeycloakConfig.fromEnvironment();
@@ -61,22 +154,43 @@ public class MigrateCommand implements Callable<Integer> {
             System.out.println("Server: " + config.getServerUrl());
             System.out.println("Auth Realm: " + config.getRealm());
             System.out.println("Changelog Directory: " + changelogDir);
+            if (jfrFile != null) {
+                System.out.println("Flight Recording: " + jfrFile);
+            }
+            if (replayTraffic != null) {
+                System.out.println("Replaying: " + replayTraffic);
+            }
             System.out.println();
 
-            // Parse changesets
+            // Parse the changelog while authenticating and reading the tracking state
             XmlChangesetParser parser = new XmlChangesetParser(!skipValidation);
-            List<Changeset> changesets = parser.parseDirectory(changelogDir);
+            StartupPipeline startup = new StartupPipeline();
+            try (FlightRecording recording = jfrFile != null ? FlightRecording.start(jfrFile) : null;
+                 KeycloakAdminClient client = new KeycloakAdminClient(config, trafficProviders())) {
+                MigrationOptions options = migrationOptions().trace(trace);
+                MigrationExecutor executor = new MigrationExecutor(client, options);
 
-            System.out.println("Found " + changesets.size() + " changeset(s)");
-            System.out.println();
+                List<Changeset> changesets;
+                try {
+                    changesets = startup.parse(
+                        () -> parser.parseDirectory(changelogDir),
+                        client::authenticate,
+                        targetRealm != null && !targetRealm.isBlank() ? () -> executor.getTracker().preload(targetRealm) : null);
 
-            if (changesets.isEmpty()) {
-                System.out.println("No changesets found. Nothing to do.");
-                return 0;
-            }
+                    System.out.println("Found " + changesets.size() + " changeset(s)");
+                    System.out.println();
 
-            try (KeycloakAdminClient client = new KeycloakAdminClient(config)) {
-                MigrationExecutor executor = new MigrationExecutor(client);
+                    if (changesets.isEmpty()) {
+                        System.out.println("No changesets found. Nothing to do.");
+                        return 0;
+                    }
+
+                    startup.awaitConnection();
+                } finally {
+                    startup.close();
+                }
+                startup.printTimings(System.out);
+                System.out.println();
 
                 if (dryRun) {
                     // Preview mode
@@ -96,6 +210,8 @@ public class MigrateCommand implements Callable<Integer> {
                             }
                             System.out.println("    Operations: " + cs.getOperations().size());
                         }
+                        System.out.println();
+                        return printSimulation(simulate(client, changesets, pending));
                     }
 
                     return 0;
@@ -110,6 +226,19 @@ public class MigrateCommand implements Callable<Integer> {
                 System.out.println("Total pending: " + result.totalPending());
                 System.out.println("Applied: " + result.totalApplied());
                 System.out.println("Errors: " + result.errors().size());
+                System.out.println("Unchanged updates skipped: " + result.skippedUpdates());
+
+                System.out.println();
+                System.out.println("Performance");
+                System.out.println("-----------");
+                result.performance().print(System.out);
+                if (performanceReport != null) {
+                    result.performance().writeJson(performanceReport);
+                    System.out.println("Performance report written to " + performanceReport);
+                }
+                if (prometheusFile != null) {
+                    writePrometheusFile(client, executor, changesets, result, System.nanoTime() - start);
+                }
 
                 if (result.hasErrors()) {
                     System.out.println();
@@ -134,4 +263,180 @@ public class MigrateCommand implements Callable<Integer> {
             return 1;
         }
     }
+
+    private MigrationOptions migrationOptions() {
+        return MigrationOptions.defaults()
+            .realmImport(!noRealmImport)
+            .batching(!noBatching)
+            .realmUpdateBuffering(!noRealmUpdateBuffer)
+            .prefetch(!noPrefetch)
+            .prefetchParallelism(prefetchThreads)
+            .converge(converge)
+            .resume(resume);
+    }
+
+    /**
+     * Simulate the migration on a copy of the realms it touches: a partial export of each
+     * existing realm, completed with the users that the pending changesets look up.
+     */
+    private MigrationExecutor.MigrationResult simulate(KeycloakAdminClient client, List<Changeset> changesets,
+                                                       List<Changeset> pending) {
+        Map<String, RealmReferences> references = new ReferenceCollector().collect(pending);
+        List<String> realms = new ArrayList<>(references.keySet());
+        if (targetRealm != null && !targetRealm.isBlank() && !realms.contains(targetRealm)) {
+            realms.add(targetRealm);
+        }
+
+        DryRunSimulator simulator = new DryRunSimulator(migrationOptions());
+        for (String realmName : realms) {
+            if (client.realmExists(realmName)) {
+                RealmRepresentation export = client.exportRealm(realmName);
+                RealmReferences refs = references.get(realmName);
+                if (refs != null && !refs.getUsernames().isEmpty()) {
+                    export.setUsers(client.exportUsers(realmName, refs.getUsernames()));
+                }
+                simulator.seed(export);
+            }
+        }
+        return simulator.simulate(changesets, targetRealm);
+    }
+
+    /**
+     * Dry run without a server: simulate every changeset from empty realms.
+     */
+    private int simulateOffline() throws IOException {
+        if (!dryRun) {
+            System.err.println("Error: --offline requires --dry-run");
+            return 1;
+        }
+        System.out.println("Keycloak Migrator - Migrate");
+        System.out.println("===========================");
+        System.out.println("Changelog Directory: " + changelogDir);
+        System.out.println("DRY RUN MODE - Offline, simulating from empty realms");
+        System.out.println();
+
+        List<Changeset> changesets = new XmlChangesetParser(!skipValidation).parseDirectory(changelogDir);
+        System.out.println("Found " + changesets.size() + " changeset(s)");
+        System.out.println();
+        if (changesets.isEmpty()) {
+            System.out.println("No changesets found. Nothing to do.");
+            return 0;
+        }
+        return printSimulation(new DryRunSimulator(migrationOptions()).simulate(changesets, targetRealm));
+    }
+
+    /**
+     * Print the outcome of a simulated migration.
+     *
+     * @return the exit code: 1 if a changeset would fail
+     */
+    private static int printSimulation(MigrationExecutor.MigrationResult result) {
+        System.out.println("Simulation");
+        System.out.println("----------");
+        System.out.println("Would apply: " + result.totalApplied() + " of " + result.totalPending());
+        System.out.println("Admin calls: " + result.totalAdminCalls());
+        result.adminCallCounts().forEach((endpoint, count) ->
+            System.out.printf("  %6d  %s%n", count, endpoint));
+
+        if (result.hasErrors()) {
+            System.out.println();
+            System.out.println("Would fail:");
+            for (MigrationExecutor.MigrationError error : result.errors()) {
+                System.out.println("  - " + error.getMessage());
+            }
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Create the recorder and replayer of admin API traffic, if requested.
+     */
+    private Object[] trafficProviders() throws IOException {
+        List<Object> providers = new ArrayList<>();
+        if (recordTraffic != null) {
+            recorder = new TrafficRecorder();
+            providers.add(recorder);
+        }
+        if (replayTraffic != null) {
+            replayer = TrafficReplayer.fromFile(replayTraffic).timeScale(replayTimeScale);
+            providers.add(replayer);
+        }
+        return providers.toArray();
+    }
+
+    /**
+     * Write the recorded traffic, and fail the run if the replayed traffic diverged from
+     * its recording.
+     */
+    private int finishTraffic(int exitCode) {
+        if (recorder != null) {
+            try {
+                recorder.write(recordTraffic);
+                System.out.println("Traffic recorded to " + recordTraffic + " (" + recorder.getExchanges().size() + " exchanges)");
+            } catch (IOException e) {
+                System.err.println("Warning: could not write traffic to " + recordTraffic + ": " + e.getMessage());
+            }
+        }
+        if (replayer != null) {
+            List<String> divergences = replayer.getDivergences();
+            if (!divergences.isEmpty()) {
+                System.out.println();
+                System.out.println("Replay diverged from " + replayTraffic + ":");
+                for (String divergence : divergences) {
+                    System.out.println("  - " + divergence);
+                }
+                return 1;
+            }
+        }
+        return exitCode;
+    }
+
+    private void writePrometheusFile(KeycloakAdminClient client, MigrationExecutor executor, List<Changeset> changesets,
+                                     MigrationExecutor.MigrationResult result, long durationNanos) {
+        Map<String, int[]> realms = new LinkedHashMap<>();
+        if (targetRealm != null && !targetRealm.isBlank()) {
+            realms.put(targetRealm, new int[2]);
+        }
+        for (Changeset changeset : result.applied()) {
+            realms.computeIfAbsent(realmOf(changeset), r -> new int[2])[0]++;
+        }
+        for (MigrationExecutor.MigrationError error : result.errors()) {
+            realms.computeIfAbsent(realmOf(error.changeset()), r -> new int[2])[1]++;
+        }
+
+        PrometheusTextfile metrics = new PrometheusTextfile();
+        realms.forEach((realmName, counts) -> {
+            Map<String, String> labels = PrometheusTextfile.labels("realm", realmName);
+            metrics.gauge("run_changesets_applied", "Changesets applied by the last run", labels, counts[0]);
+            metrics.gauge("run_changesets_failed", "Changesets that failed in the last run", labels, counts[1]);
+        });
+        try {
+            for (String realmName : realms.keySet()) {
+                if (client.realmExists(realmName)) {
+                    metrics.realmStatus(realmName, executor.getTracker().getStatus(realmName, changesets));
+                }
+            }
+            metrics.gauge("run_duration_seconds", "Duration of the last run", Map.of(), durationNanos / 1e9)
+                .gauge("run_success", "Whether the last run applied every pending changeset", Map.of(), result.isSuccess() ? 1 : 0)
+                .gauge("last_run_timestamp_seconds", "End of the last run, in seconds since the epoch", Map.of(),
+                    System.currentTimeMillis() / 1000)
+                .performance(result.performance())
+                .write(prometheusFile);
+            System.out.println("Metrics written to " + prometheusFile);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: could not write metrics to " + prometheusFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The realm a changeset is counted under: the first realm it targets.
+     */
+    private String realmOf(Changeset changeset) {
+        return changeset.getOperations().stream()
+            .map(Operation::getTargetRealm)
+            .filter(Objects::nonNull)
+            .findFirst()
+            .orElse(targetRealm != null ? targetRealm : "master");
+    }
 }
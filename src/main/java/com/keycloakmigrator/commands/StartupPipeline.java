@@ -0,0 +1,136 @@
+package com.keycloakmigrator.commands;
+
+import com.keycloakmigrator.model.Changeset;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the independent startup steps of a migration concurrently: changelog parsing on
+ * one side, token acquisition followed by the tracking state fetch on the other.
+ *
+ * <p>The tracking state fetch needs a token, so it runs after authentication on the same
+ * branch. Failures of the tracking fetch are ignored; the executor reads the tracking
+ * state again when it needs it and reports the failure there.</p>
+ */
+final class StartupPipeline {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long start;
+    private final Step parsing = new Step("Changelog parsing");
+    private final Step authentication = new Step("Authentication");
+    private final Step tracking = new Step("Tracking state");
+    private CompletableFuture<Void> connection;
+
+    /**
+     * Start all steps and wait for the changelog.
+     *
+     * @param parse        parses the changelog
+     * @param authenticate obtains the access token
+     * @param fetchTracking reads the tracking state, or {@code null} if it cannot be read before parsing
+     * @return the parsed changesets
+     */
+    List<Changeset> parse(Callable<List<Changeset>> parse, Runnable authenticate, Runnable fetchTracking) throws Exception {
+        start = System.nanoTime();
+        CompletableFuture<List<Changeset>> changesets = CompletableFuture.supplyAsync(() -> parsing.time(parse), pool);
+        CompletableFuture<Void> auth = CompletableFuture.runAsync(() -> authentication.time(authenticate), pool);
+        connection = fetchTracking == null ? auth : auth.thenRunAsync(() -> {
+            try {
+                tracking.time(fetchTracking);
+            } catch (RuntimeException e) {
+                // Read again, and reported, by the executor
+            }
+        }, pool);
+        return join(changesets);
+    }
+
+    /**
+     * Wait for authentication and the tracking state fetch.
+     */
+    void awaitConnection() throws Exception {
+        join(connection);
+    }
+
+    void close() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Print the duration of every step and the chain of steps that determined the total.
+     */
+    void printTimings(PrintStream out) {
+        boolean trackingRan = tracking.finished;
+        Step last = trackingRan ? tracking : authentication;
+        String criticalPath = parsing.end >= last.end
+            ? parsing.name
+            : authentication.name + (trackingRan ? " -> " + tracking.name : "");
+        long total = Math.max(parsing.end, last.end) - start;
+
+        out.println("Startup: " + millis(total) + " ms (critical path: " + criticalPath + ")");
+        parsing.print(out);
+        authentication.print(out);
+        if (trackingRan) {
+            tracking.print(out);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    /**
+     * Start and end time of a single step.
+     */
+    private final class Step {
+        private final String name;
+        private volatile long begin;
+        private volatile long end;
+        private volatile boolean finished;
+
+        Step(String name) {
+            this.name = name;
+        }
+
+        <T> T time(Callable<T> step) {
+            begin = System.nanoTime();
+            try {
+                return step.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                end = System.nanoTime();
+                finished = true;
+            }
+        }
+
+        void time(Runnable step) {
+            time(() -> {
+                step.run();
+                return null;
+            });
+        }
+
+        void print(PrintStream out) {
+            out.printf("  %-18s %6d ms (from +%d ms)%n", name + ":", millis(end - begin), millis(begin - start));
+        }
+    }
+}
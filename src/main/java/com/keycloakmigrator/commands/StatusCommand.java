@@ -3,6 +3,8 @@ package com.keycloakmigrator.commands;
 import com.keycloakmigrator.client.KeycloakAdminClient;
 import com.keycloakmigrator.config.KeycloakConfig;
 import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.metrics.PerformanceRecorder;
+import com.keycloakmigrator.metrics.PrometheusTextfile;
 import com.keycloakmigrator.model.Changeset;
 import com.keycloakmigrator.parser.XmlChangesetParser;
 import com.keycloakmigrator.tracking.RealmAttributeTracker;
@@ -12,10 +14,12 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 /**
@@ -48,12 +52,16 @@ public class StatusCommand implements Callable<Integer> {
     @Option(names = {"--show-history"}, description = "Show full migration history")
     private boolean showHistory;
 
+    @Option(names = {"--prometheus-file"}, description = "Write the status in Prometheus text format to this file, for the node_exporter textfile collector")
+    private Path prometheusFile;
+
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
         .ofPattern("yyyy-MM-dd HH:mm:ss")
         .withZone(ZoneId.systemDefault());
 
     @Override
     public Integer call() {
+        long start = System.nanoTime();
         try {
             // Build configuration
             KeycloakConfig cliConfig = new KeycloakConfig(keycloakUrl, realm, clientId, clientSecret);
@@ -73,12 +81,18 @@ public class StatusCommand implements Callable<Integer> {
             List<Changeset> changesets = parser.parseDirectory(changelogDir);
 
             try (KeycloakAdminClient client = new KeycloakAdminClient(config)) {
+                PerformanceRecorder performance = new PerformanceRecorder();
+                client.addCallListener(performance);
+
                 // Check if realm exists
                 if (!client.realmExists(targetRealm)) {
                     System.out.println("Realm '" + targetRealm + "' does not exist.");
                     System.out.println();
                     System.out.println("Available changesets: " + changesets.size());
                     System.out.println("All changesets are pending (realm will be created).");
+                    int availableVersion = changesets.isEmpty() ? 0 : changesets.get(changesets.size() - 1).getVersion();
+                    writePrometheusFile(new MigrationStatus(targetRealm, 0, availableVersion, changesets.size(), List.of()),
+                        performance, System.nanoTime() - start);
                     return 0;
                 }
 
@@ -86,6 +100,7 @@ public class StatusCommand implements Callable<Integer> {
                 RealmAttributeTracker tracker = executor.getTracker();
 
                 MigrationStatus status = tracker.getStatus(targetRealm, changesets);
+                writePrometheusFile(status, performance, System.nanoTime() - start);
 
                 System.out.println("Migration Status");
                 System.out.println("----------------");
@@ -131,4 +146,21 @@ public class StatusCommand implements Callable<Integer> {
             return 1;
         }
     }
+
+    private void writePrometheusFile(MigrationStatus status, PerformanceRecorder performance, long durationNanos) {
+        if (prometheusFile == null) {
+            return;
+        }
+        try {
+            new PrometheusTextfile()
+                .realmStatus(targetRealm, status)
+                .gauge("status_duration_seconds", "Duration of the last status check", Map.of(), durationNanos / 1e9)
+                .gauge("status_timestamp_seconds", "End of the last status check, in seconds since the epoch", Map.of(),
+                    System.currentTimeMillis() / 1000)
+                .performance(performance.report())
+                .write(prometheusFile);
+        } catch (IOException e) {
+            System.err.println("Warning: could not write metrics to " + prometheusFile + ": " + e.getMessage());
+        }
+    }
 }
@@ -1,8 +1,13 @@
 package com.keycloakmigrator.commands;
 
+import com.keycloakmigrator.model.ChangeLog;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.parser.SourceLocations;
 import com.keycloakmigrator.parser.XmlChangesetParser;
 import com.keycloakmigrator.parser.XmlChangesetParser.ValidationResult;
+import com.keycloakmigrator.planner.ReferenceAnalyzer;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
 import java.nio.file.Path;
@@ -11,6 +16,9 @@ import java.util.concurrent.Callable;
 
 /**
  * Command to validate changelog XML files.
+ *
+ * <p>Besides the schema and version checks, the changesets are analyzed for references
+ * to roles, groups, clients and scopes that are deleted earlier or created later.</p>
  */
 @Command(
     name = "validate",
@@ -21,6 +29,10 @@ public class ValidateCommand implements Callable<Integer> {
     @Parameters(index = "0", description = "Directory or file to validate")
     private Path path;
 
+    @Option(names = "--strict-references",
+            description = "Report references that no changeset creates as errors, also in realms the changelog does not create")
+    private boolean strictReferences;
+
     @Override
     public Integer call() {
         try {
@@ -32,10 +44,18 @@ public class ValidateCommand implements Callable<Integer> {
             XmlChangesetParser parser = new XmlChangesetParser(true);
 
             if (path.toFile().isFile()) {
-                // Validate single file
-                ValidationResult result = parser.validate(path);
-                printResult(result);
-                return result.valid() ? 0 : 1;
+                // Validate single file and its includes
+                SourceLocations locations = new SourceLocations();
+                ChangeLog changeLog;
+                try {
+                    changeLog = parser.parseFile(path, locations);
+                } catch (Exception e) {
+                    printResult(new ValidationResult(false, path, e.getMessage()));
+                    return 1;
+                }
+                printResult(new ValidationResult(true, path, null));
+                System.out.println();
+                return checkReferences(changeLog.getChangesets(), locations) ? 0 : 1;
             }
 
             // Validate directory
@@ -67,10 +87,14 @@ public class ValidateCommand implements Callable<Integer> {
             System.out.println("  Invalid: " + invalidCount);
             System.out.println("  Total: " + results.size());
 
-            // Also try to parse and check for duplicate versions
+            // Also try to parse and check for duplicate versions and dangling references
             try {
-                parser.parseDirectory(path);
+                SourceLocations locations = new SourceLocations();
+                List<Changeset> changesets = parser.parseDirectory(path, locations);
                 System.out.println("  Version check: OK (no duplicates)");
+                if (!checkReferences(changesets, locations)) {
+                    invalidCount++;
+                }
             } catch (IllegalStateException e) {
                 System.out.println("  Version check: FAILED - " + e.getMessage());
                 invalidCount++;
@@ -85,6 +109,22 @@ public class ValidateCommand implements Callable<Integer> {
         }
     }
 
+    private boolean checkReferences(List<Changeset> changesets, SourceLocations locations) {
+        ReferenceAnalyzer.Result result = new ReferenceAnalyzer(locations, strictReferences).analyze(changesets);
+        if (result.hasErrors()) {
+            System.out.println("  Reference check: FAILED (" + result.errorCount() + " errors, "
+                + result.warningCount() + " warnings in " + result.operations() + " operations)");
+        } else {
+            System.out.println("  Reference check: OK (" + result.operations() + " operations, "
+                + result.warningCount() + " warnings)");
+        }
+        for (ReferenceAnalyzer.Finding finding : result.findings()) {
+            String label = finding.severity() == ReferenceAnalyzer.Finding.Severity.ERROR ? "[ERROR] " : "[WARN]  ";
+            System.out.println("    " + label + finding);
+        }
+        return !result.hasErrors();
+    }
+
     private void printResult(ValidationResult result) {
         if (result.valid()) {
             System.out.println("  [OK] " + result.file().getFileName());
@@ -1,13 +1,34 @@
 package com.keycloakmigrator.executor;
 
 import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.metrics.PerformanceRecorder;
+import com.keycloakmigrator.metrics.jfr.ChangesetEvent;
+import com.keycloakmigrator.metrics.jfr.OperationEvent;
+import com.keycloakmigrator.metrics.trace.Trace;
+import com.keycloakmigrator.metrics.PerformanceReport;
 import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.DeleteUserOperation;
 import com.keycloakmigrator.model.operations.Operation;
+import com.keycloakmigrator.model.operations.UpdateRealmOperation;
+import com.keycloakmigrator.model.operations.UpdateUserOperation;
+import com.keycloakmigrator.planner.ClientBundlePlanner;
+import com.keycloakmigrator.planner.CreateClientBundleOperation;
+import com.keycloakmigrator.planner.CreateProtocolMappersOperation;
+import com.keycloakmigrator.planner.ConvergePlan;
+import com.keycloakmigrator.planner.ConvergePlanner;
+import com.keycloakmigrator.planner.ProtocolMapperBatchPlanner;
+import com.keycloakmigrator.planner.RealmImport;
+import com.keycloakmigrator.planner.RealmImportCompiler;
+import com.keycloakmigrator.planner.ReferenceCollector;
 import com.keycloakmigrator.tracking.RealmAttributeTracker;
+import com.keycloakmigrator.tracking.RealmAttributeTracker.Checkpoint;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Executes migrations against a Keycloak server.
@@ -18,10 +39,28 @@ public class MigrationExecutor {
 
     private final KeycloakAdminClient client;
     private final RealmAttributeTracker tracker;
+    private final MigrationOptions options;
+    private final RealmImportCompiler realmImportCompiler = new RealmImportCompiler();
+    private final ClientBundlePlanner clientBundlePlanner = new ClientBundlePlanner();
+    private final ProtocolMapperBatchPlanner protocolMapperBatchPlanner = new ProtocolMapperBatchPlanner();
+    private final ReferenceCollector referenceCollector = new ReferenceCollector();
+    private final ConvergePlanner convergePlanner = new ConvergePlanner();
+    private final RealmUpdateBuffer realmUpdates;
+    private final Map<Changeset, Exception> flushFailures = new LinkedHashMap<>();
+    private final BitSet completedOperations = new BitSet();
+    private final PerformanceRecorder performance = new PerformanceRecorder();
+    private final Trace trace;
 
     public MigrationExecutor(KeycloakAdminClient client) {
+        this(client, MigrationOptions.defaults());
+    }
+
+    public MigrationExecutor(KeycloakAdminClient client, MigrationOptions options) {
         this.client = client;
         this.tracker = new RealmAttributeTracker(client);
+        this.options = options;
+        this.realmUpdates = options.isRealmUpdateBuffering() ? new RealmUpdateBuffer(tracker) : null;
+        this.trace = options.getTrace();
     }
 
     /**
@@ -32,39 +71,102 @@ public class MigrationExecutor {
      * @return the result of the migration execution
      */
     public MigrationResult executeMigrations(List<Changeset> changesets, String targetRealm) {
+        // Only count the admin calls of this run, other executors may share the client
+        client.addCallListener(performance);
+        if (trace != null) {
+            client.addCallListener(trace);
+        }
+        try {
+            return applyMigrations(changesets, targetRealm);
+        } finally {
+            client.removeCallListener(performance);
+            if (trace != null) {
+                client.removeCallListener(trace);
+            }
+        }
+    }
+
+    private MigrationResult applyMigrations(List<Changeset> changesets, String targetRealm) {
         log.info("Starting migration execution for realm context: {}", targetRealm);
+        int skippedBefore = client.getSkippedUpdateCount();
+        long phaseStart = System.nanoTime();
 
         // Determine which realm to use for tracking
         String trackingRealm = determineTrackingRealm(changesets, targetRealm);
 
         // Get pending changesets
         List<Changeset> pending = tracker.getPendingChangesets(trackingRealm, changesets);
+        phaseStart = endPhase("Tracking state", phaseStart);
 
         if (pending.isEmpty()) {
             log.info("No pending migrations to apply");
-            return new MigrationResult(0, 0, Collections.emptyList(), Collections.emptyList());
+            return new MigrationResult(0, 0, Collections.emptyList(), Collections.emptyList(), 0, performance.report());
         }
 
         log.info("Found {} pending migrations to apply", pending.size());
 
+        if (options.isPrefetch()) {
+            new Prefetcher(client, options.getPrefetchParallelism())
+                .prefetch(referenceCollector.collect(pending).values());
+            phaseStart = endPhase("Prefetch", phaseStart);
+        }
+
+        Checkpoint resumeFrom = options.isResume() ? findCheckpoint(pending.get(0), trackingRealm) : null;
+
         List<Changeset> applied = new ArrayList<>();
         List<MigrationError> errors = new ArrayList<>();
 
-        for (Changeset changeset : pending) {
+        for (int i = 0; i < pending.size(); i++) {
+            Checkpoint checkpoint = i == 0 ? resumeFrom : null;
+            if (options.isRealmImport() && checkpoint == null) {
+                Optional<RealmImport> realmImport = realmImportCompiler.compile(pending, i, client::realmExists);
+                if (realmImport.isPresent() && applyRealmImport(realmImport.get(), applied)) {
+                    i += realmImport.get().changesets().size() - 1;
+                    continue;
+                }
+            }
+
+            if (options.isConverge() && checkpoint == null) {
+                Optional<ConvergePlan> plan = planConvergence(pending, i);
+                if (plan.isPresent()) {
+                    boolean stop = applyConvergePlan(plan.get(), trackingRealm, applied, errors);
+                    i += plan.get().changesets().size() - 1;
+                    stop |= reportFlushFailures(applied, errors);
+                    if (stop) {
+                        log.error("Stopping migration due to failure (failOnError=true)");
+                        break;
+                    }
+                    continue;
+                }
+            }
+
+            Changeset changeset = pending.get(i);
             log.info("Applying changeset version {} by {}", changeset.getVersion(), changeset.getAuthor());
 
             if (changeset.getComment() != null) {
                 log.info("Comment: {}", changeset.getComment());
             }
 
+            boolean stop = false;
             try {
-                executeChangeset(changeset);
+                executeChangeset(changeset, checkpoint);
 
                 // Record the migration after successful execution
                 // Use the tracking realm (first realm affected or specified target)
                 String realmForTracking = determineRealmForChangeset(changeset, trackingRealm);
+                if (realmUpdates != null) {
+                    flushOtherRealms(changeset, realmForTracking);
+                }
                 if (client.realmExists(realmForTracking)) {
-                    tracker.recordMigration(realmForTracking, changeset);
+                    if (realmUpdates != null) {
+                        realmUpdates.record(realmForTracking, changeset);
+                    } else {
+                        tracker.recordMigration(realmForTracking, changeset);
+                    }
+                }
+                // A changeset that must stop the run on failure is not left buffered behind later ones
+                if (realmUpdates != null && changeset.getFailOnError()) {
+                    flushRealm(realmForTracking, changeset);
                 }
 
                 applied.add(changeset);
@@ -73,17 +175,142 @@ public class MigrationExecutor {
             } catch (Exception e) {
                 log.error("Failed to apply changeset version {}: {}", changeset.getVersion(), e.getMessage());
                 errors.add(new MigrationError(changeset, e));
+                recordCheckpoint(changeset, trackingRealm);
 
                 if (changeset.getFailOnError()) {
-                    log.error("Stopping migration due to failure (failOnError=true)");
-                    break;
+                    stop = true;
                 } else {
                     log.warn("Continuing despite error (failOnError=false)");
                 }
             }
+
+            // Buffered updates of earlier changesets may have failed while flushing for this one
+            stop |= reportFlushFailures(applied, errors);
+            if (stop) {
+                log.error("Stopping migration due to failure (failOnError=true)");
+                break;
+            }
+        }
+
+        phaseStart = endPhase("Execution", phaseStart);
+
+        // Write what is still buffered, including the updates made before a stop
+        if (realmUpdates != null) {
+            flushFailures.putAll(realmUpdates.flushAll());
+            reportFlushFailures(applied, errors);
+            endPhase("Final flush", phaseStart);
+        }
+
+        int skippedUpdates = client.getSkippedUpdateCount() - skippedBefore;
+        return new MigrationResult(pending.size(), applied.size(), applied, errors, skippedUpdates, performance.report());
+    }
+
+    /**
+     * Create a new realm and its content with a single import request, then record
+     * every folded changeset as applied.
+     *
+     * @return true if the import succeeded, false if the changesets must be executed one by one
+     */
+    private boolean applyRealmImport(RealmImport realmImport, List<Changeset> applied) {
+        List<Changeset> changesets = realmImport.changesets();
+        log.info("Compiling changeset versions {} to {} ({} operations) into a single import of realm '{}'",
+            changesets.get(0).getVersion(), changesets.get(changesets.size() - 1).getVersion(),
+            realmImport.operationCount(), realmImport.realmName());
+
+        try {
+            client.importRealm(realmImport.representation());
+        } catch (Exception e) {
+            log.warn("Realm import of '{}' failed, applying its changesets one operation at a time: {}",
+                realmImport.realmName(), e.getMessage());
+            return false;
+        }
+
+        for (Changeset changeset : changesets) {
+            tracker.recordMigration(realmImport.realmName(), changeset);
+            applied.add(changeset);
+            log.info("Successfully applied changeset version {}", changeset.getVersion());
+        }
+        return true;
+    }
+
+    /**
+     * Export the realm targeted by the changeset at {@code start}, if it exists, and plan
+     * its convergence over as many following changesets as possible.
+     */
+    private Optional<ConvergePlan> planConvergence(List<Changeset> pending, int start) {
+        Optional<String> realmName = ConvergePlanner.convergibleRealm(pending.get(start));
+        if (realmName.isEmpty() || !client.realmExists(realmName.get())) {
+            return Optional.empty();
+        }
+
+        // The export must reflect the realm updates buffered so far
+        if (realmUpdates != null) {
+            flushFailures.putAll(realmUpdates.flush(realmName.get()));
+        }
+
+        RealmRepresentation export;
+        try {
+            export = client.exportRealm(realmName.get());
+        } catch (Exception e) {
+            log.warn("Could not export realm '{}', applying changesets one operation at a time: {}",
+                realmName.get(), e.getMessage());
+            return Optional.empty();
+        }
+        return convergePlanner.plan(export, pending, start);
+    }
+
+    /**
+     * Send the changes of a convergence plan, then record every changeset it covers as applied.
+     * If a change fails, all changesets of the plan fail with it; since every step only adds
+     * what is missing, running the migration again resumes where this one stopped.
+     *
+     * @return true if the migration must stop
+     */
+    private boolean applyConvergePlan(ConvergePlan plan, String trackingRealm,
+                                      List<Changeset> applied, List<MigrationError> errors) {
+        List<Changeset> changesets = plan.changesets();
+        String realmName = plan.realmName();
+        log.info("Converging realm '{}' with changeset versions {} to {} ({} operations, {} already satisfied)",
+            realmName, changesets.get(0).getVersion(), changesets.get(changesets.size() - 1).getVersion(),
+            plan.operationCount(), plan.satisfiedCount());
+
+        try {
+            if (plan.realmPatch() != null) {
+                client.patchRealm(plan.realmPatch());
+            }
+            if (plan.partialImport() != null) {
+                client.partialImport(realmName, plan.partialImport());
+            }
+            for (ClientRepresentation patch : plan.clientPatches()) {
+                client.patchClient(realmName, patch);
+            }
+            List<Operation> followUps = plan.followUps();
+            if (options.isBatching()) {
+                followUps = protocolMapperBatchPlanner.plan(clientBundlePlanner.plan(followUps));
+            }
+            for (Operation operation : followUps) {
+                log.info("  {}", operation.getDescription());
+                execute(operation, changesets.get(0));
+            }
+        } catch (Exception e) {
+            log.error("Failed to converge realm '{}': {}", realmName, e.getMessage());
+            for (Changeset changeset : changesets) {
+                errors.add(new MigrationError(changeset, e));
+            }
+            return changesets.stream().anyMatch(Changeset::getFailOnError);
         }
 
-        return new MigrationResult(pending.size(), applied.size(), applied, errors);
+        for (Changeset changeset : changesets) {
+            String realmForTracking = determineRealmForChangeset(changeset, trackingRealm);
+            if (realmUpdates != null) {
+                realmUpdates.record(realmForTracking, changeset);
+            } else {
+                tracker.recordMigration(realmForTracking, changeset);
+            }
+            applied.add(changeset);
+            log.info("Successfully applied changeset version {}", changeset.getVersion());
+        }
+        return false;
     }
 
     /**
@@ -92,15 +319,264 @@ public class MigrationExecutor {
      * @param changeset the changeset to execute
      */
     public void executeChangeset(Changeset changeset) throws Exception {
-        List<Operation> operations = changeset.getOperations();
+        executeChangeset(changeset, null);
+    }
+
+    /**
+     * Execute the operations of a changeset that a checkpoint does not mark as completed,
+     * keeping track of every operation that completes.
+     */
+    private void executeChangeset(Changeset changeset, Checkpoint checkpoint) throws Exception {
+        ChangesetEvent event = new ChangesetEvent();
+        event.begin();
+        Trace.Span span = trace == null ? null : trace.startSpan("changeset " + changeset.getVersion())
+            .attribute("migrator.changeset.version", changeset.getVersion())
+            .attribute("migrator.changeset.author", changeset.getAuthor())
+            .attribute("migrator.realm", changeset.getOperations().stream()
+                .map(Operation::getTargetRealm).filter(Objects::nonNull).findFirst().orElse(null));
+        try {
+            executeOperations(changeset, checkpoint);
+            event.succeeded = true;
+        } finally {
+            if (span != null) {
+                span.end(event.succeeded);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.version = changeset.getVersion();
+                event.author = changeset.getAuthor();
+                event.operations = changeset.getOperations().size();
+                event.resumed = checkpoint != null;
+                event.commit();
+            }
+        }
+    }
+
+    private void executeOperations(Changeset changeset, Checkpoint checkpoint) throws Exception {
+        List<Operation> all = changeset.getOperations();
+        Map<Operation, Integer> indexes = new IdentityHashMap<>();
+        List<Operation> remaining = new ArrayList<>();
+        completedOperations.clear();
+        for (int i = 0; i < all.size(); i++) {
+            indexes.put(all.get(i), i);
+            if (checkpoint != null && checkpoint.isCompleted(i)) {
+                completedOperations.set(i);
+            } else {
+                remaining.add(all.get(i));
+            }
+        }
+
+        List<Operation> operations = planOperations(remaining);
 
         log.debug("Executing {} operations in changeset version {}", operations.size(), changeset.getVersion());
 
+        if (options.isBatching()) {
+            prefetchUsers(operations);
+        }
+
         for (int i = 0; i < operations.size(); i++) {
             Operation operation = operations.get(i);
             log.info("  [{}/{}] {}", i + 1, operations.size(), operation.getDescription());
-            operation.execute(client);
+
+            if (realmUpdates != null) {
+                if (operation instanceof UpdateRealmOperation update) {
+                    realmUpdates.update(changeset, update);
+                    continue;
+                }
+                if (operation.getTargetRealm() != null && RealmUpdateBuffer.dependsOnRealmState(operation)) {
+                    flushRealm(operation.getTargetRealm(), changeset);
+                }
+            }
+            Consumer<Operation> completed = original -> {
+                Integer index = indexes.get(original);
+                if (index != null) {
+                    completedOperations.set(index);
+                }
+            };
+            execute(operation, changeset, completed);
+            originalOperations(operation).forEach(completed);
+        }
+    }
+
+    private void execute(Operation operation, Changeset changeset) throws Exception {
+        execute(operation, changeset, completed -> { });
+    }
+
+    /**
+     * Execute an operation, reporting the merged operations a client bundle applies as it goes.
+     */
+    private void execute(Operation operation, Changeset changeset, Consumer<Operation> completed) throws Exception {
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        Trace.Span span = trace == null ? null : trace.startSpan(operation.getClass().getSimpleName())
+            .attribute("migrator.operation.type", operation.getClass().getSimpleName())
+            .attribute("migrator.operation.description", operation.getDescription())
+            .attribute("migrator.changeset.version", changeset.getVersion())
+            .attribute("migrator.realm", operation.getTargetRealm());
+        long start = System.nanoTime();
+        try {
+            if (operation instanceof CreateClientBundleOperation bundle) {
+                bundle.execute(client, completed);
+            } else {
+                operation.execute(client);
+            }
+            event.succeeded = true;
+        } finally {
+            if (span != null) {
+                span.end(event.succeeded);
+            }
+            performance.recordOperation(operation, changeset.getVersion(), System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.type = operation.getClass().getSimpleName();
+                event.realm = operation.getTargetRealm();
+                event.description = operation.getDescription();
+                event.changesetVersion = changeset.getVersion();
+                event.commit();
+            }
+        }
+    }
+
+    private long endPhase(String phase, long start) {
+        long now = System.nanoTime();
+        performance.recordPhase(phase, now - start);
+        return now;
+    }
+
+    /**
+     * The changeset operations that a planned operation carries out.
+     */
+    private static List<Operation> originalOperations(Operation operation) {
+        if (operation instanceof CreateClientBundleOperation bundle) {
+            List<Operation> originals = new ArrayList<>();
+            originals.add(bundle.getClient());
+            originals.addAll(bundle.getRoles());
+            originals.addAll(bundle.getProtocolMappers());
+            return originals;
+        }
+        if (operation instanceof CreateProtocolMappersOperation batch) {
+            return List.copyOf(batch.getMappers());
+        }
+        return List.of(operation);
+    }
+
+    /**
+     * Record which operations of a failed changeset completed, so that a run with
+     * {@code --resume} can continue after them.
+     */
+    private void recordCheckpoint(Changeset changeset, String trackingRealm) {
+        if (completedOperations.isEmpty()) {
+            return;
+        }
+        Checkpoint checkpoint = Checkpoint.of(changeset.getVersion(), completedOperations);
+        String realmForTracking = determineRealmForChangeset(changeset, trackingRealm);
+        try {
+            if (!client.realmExists(realmForTracking)) {
+                return;
+            }
+            if (realmUpdates != null) {
+                realmUpdates.checkpoint(realmForTracking, changeset, checkpoint);
+            } else {
+                tracker.recordCheckpoint(realmForTracking, checkpoint);
+            }
+            log.info("Recorded {} completed operation(s) of changeset version {}; rerun with --resume to continue",
+                completedOperations.cardinality(), changeset.getVersion());
+        } catch (Exception e) {
+            log.warn("Could not record progress of changeset version {}: {}", changeset.getVersion(), e.getMessage());
+        }
+    }
+
+    /**
+     * Find the checkpoint left by a previous run for the first pending changeset.
+     */
+    private Checkpoint findCheckpoint(Changeset first, String trackingRealm) {
+        Optional<Checkpoint> checkpoint = tracker.getCheckpoint(determineRealmForChangeset(first, trackingRealm))
+            .filter(c -> c.version() == first.getVersion());
+        if (checkpoint.isEmpty()) {
+            log.info("No checkpoint found for changeset version {}, starting from its first operation", first.getVersion());
+            return null;
         }
+        log.info("Resuming changeset version {} after {} completed operation(s)",
+            first.getVersion(), checkpoint.get().completedOperations() + checkpoint.get().completedLater().size());
+        return checkpoint.get();
+    }
+
+    /**
+     * Write the buffered updates of a realm before an operation that depends on them.
+     * If the current changeset's own buffered update fails, the changeset fails with it.
+     */
+    private void flushRealm(String realmName, Changeset current) throws Exception {
+        Map<Changeset, Exception> failures = realmUpdates.flush(realmName);
+        flushFailures.putAll(failures);
+        Exception own = flushFailures.remove(current);
+        if (own != null) {
+            throw own;
+        }
+    }
+
+    /**
+     * Write the realm updates a changeset buffered outside its tracking realm before it
+     * is recorded, so that a rejected update can never leave the changeset recorded.
+     */
+    private void flushOtherRealms(Changeset changeset, String realmForTracking) throws Exception {
+        for (String realmName : realmUpdates.updatedRealms(changeset)) {
+            if (!realmName.equals(realmForTracking)) {
+                flushRealm(realmName, changeset);
+            }
+        }
+    }
+
+    /**
+     * Move changesets whose buffered realm writes failed from the applied list to the errors.
+     *
+     * @return true if one of them requires the migration to stop
+     */
+    private boolean reportFlushFailures(List<Changeset> applied, List<MigrationError> errors) {
+        boolean stop = false;
+        for (Map.Entry<Changeset, Exception> failure : flushFailures.entrySet()) {
+            Changeset changeset = failure.getKey();
+            log.error("Failed to apply buffered realm update of changeset version {}: {}",
+                changeset.getVersion(), failure.getValue().getMessage());
+            applied.remove(changeset);
+            errors.add(new MigrationError(changeset, failure.getValue()));
+            stop |= changeset.getFailOnError();
+        }
+        flushFailures.clear();
+        return stop;
+    }
+
+    /**
+     * Apply the enabled planning passes to the operations of a changeset.
+     */
+    private List<Operation> planOperations(List<Operation> operations) {
+        if (options.isBatching()) {
+            operations = clientBundlePlanner.plan(operations);
+            operations = protocolMapperBatchPlanner.plan(operations);
+        }
+        return operations;
+    }
+
+    /**
+     * Let the client resolve the users that the update and delete operations of a
+     * changeset refer to in bulk, instead of searching them one at a time.
+     */
+    private void prefetchUsers(List<Operation> operations) {
+        Map<String, Set<String>> usernamesByRealm = new LinkedHashMap<>();
+        for (Operation op : operations) {
+            if (op instanceof UpdateUserOperation update) {
+                usernamesByRealm.computeIfAbsent(update.getRealm(), r -> new LinkedHashSet<>()).add(update.getUsername());
+            } else if (op instanceof DeleteUserOperation delete) {
+                usernamesByRealm.computeIfAbsent(delete.getRealm(), r -> new LinkedHashSet<>()).add(delete.getUsername());
+            }
+        }
+        usernamesByRealm.forEach((realm, usernames) -> {
+            try {
+                client.prefetchUsers(realm, usernames);
+            } catch (RuntimeException e) {
+                // The realm may only be created by this changeset; users are then looked up one by one
+                log.debug("Could not prefetch users of realm '{}': {}", realm, e.getMessage());
+            }
+        });
     }
 
     /**
@@ -155,12 +631,18 @@ public class MigrationExecutor {
 
     /**
      * Result of a migration execution.
+     *
+     * @param skippedUpdates realm, client and user updates that were not sent because
+     *                       nothing in them differed from the server state
+     * @param performance    timings of the run's phases, operations and admin calls
      */
     public record MigrationResult(
         int totalPending,
         int totalApplied,
         List<Changeset> applied,
-        List<MigrationError> errors
+        List<MigrationError> errors,
+        int skippedUpdates,
+        PerformanceReport performance
     ) {
         public boolean isSuccess() {
             return errors.isEmpty();
@@ -169,6 +651,21 @@ public class MigrationExecutor {
         public boolean hasErrors() {
             return !errors.isEmpty();
         }
+
+        /**
+         * Admin calls of the run per {@code "METHOD endpoint"}, token requests included.
+         */
+        public Map<String, Long> adminCallCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (PerformanceReport.EndpointStats stats : performance.adminCalls()) {
+                counts.put(stats.method() + " " + stats.endpoint(), stats.latency().count());
+            }
+            return counts;
+        }
+
+        public long totalAdminCalls() {
+            return performance.adminCalls().stream().mapToLong(s -> s.latency().count()).sum();
+        }
     }
 
     /**
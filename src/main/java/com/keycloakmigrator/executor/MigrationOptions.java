@@ -0,0 +1,131 @@
+package com.keycloakmigrator.executor;
+
+import com.keycloakmigrator.metrics.trace.Trace;
+
+/**
+ * Options controlling how {@link MigrationExecutor} applies changesets.
+ */
+public final class MigrationOptions {
+
+    private boolean realmImport = true;
+    private boolean batching = true;
+    private boolean realmUpdateBuffering = true;
+    private boolean prefetch = true;
+    private int prefetchParallelism = 8;
+    private boolean converge = false;
+    private boolean resume = false;
+    private Trace trace;
+
+    /**
+     * Creates options with every optimization enabled.
+     */
+    public static MigrationOptions defaults() {
+        return new MigrationOptions();
+    }
+
+    /**
+     * Whether changesets that create a new realm and populate it are compiled into
+     * a single realm import instead of being executed operation by operation.
+     */
+    public boolean isRealmImport() {
+        return realmImport;
+    }
+
+    public MigrationOptions realmImport(boolean realmImport) {
+        this.realmImport = realmImport;
+        return this;
+    }
+
+    /**
+     * Whether related operations within a changeset are merged into fewer admin
+     * requests before the changeset is executed.
+     */
+    public boolean isBatching() {
+        return batching;
+    }
+
+    public MigrationOptions batching(boolean batching) {
+        this.batching = batching;
+        return this;
+    }
+
+    /**
+     * Whether realm updates and migration tracking writes are held back and combined
+     * into one update per realm, flushed before operations that depend on realm settings.
+     */
+    public boolean isRealmUpdateBuffering() {
+        return realmUpdateBuffering;
+    }
+
+    public MigrationOptions realmUpdateBuffering(boolean realmUpdateBuffering) {
+        this.realmUpdateBuffering = realmUpdateBuffering;
+        return this;
+    }
+
+    /**
+     * Whether the entities referenced by pending operations are looked up concurrently
+     * before execution starts.
+     */
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    public MigrationOptions prefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Maximum number of concurrent lookups while prefetching.
+     */
+    public int getPrefetchParallelism() {
+        return prefetchParallelism;
+    }
+
+    public MigrationOptions prefetchParallelism(int prefetchParallelism) {
+        if (prefetchParallelism < 1) {
+            throw new IllegalArgumentException("Prefetch parallelism must be at least 1");
+        }
+        this.prefetchParallelism = prefetchParallelism;
+        return this;
+    }
+
+    /**
+     * Whether changesets that only add or update entities in an existing realm are compared
+     * against an export of the realm and applied as the minimal set of changes.
+     */
+    public boolean isConverge() {
+        return converge;
+    }
+
+    public MigrationOptions converge(boolean converge) {
+        this.converge = converge;
+        return this;
+    }
+
+    /**
+     * Whether the first pending changeset skips the operations that a checkpoint left by a
+     * failed run marks as completed.
+     */
+    public boolean isResume() {
+        return resume;
+    }
+
+    public MigrationOptions resume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * The trace that records a span per changeset, operation and admin call, or
+     * {@code null} to record none.
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public MigrationOptions trace(Trace trace) {
+        this.trace = trace;
+        return this;
+    }
+}
@@ -0,0 +1,106 @@
+package com.keycloakmigrator.executor;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.planner.RealmReferences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Warms the lookup tables of the admin client before execution.
+ *
+ * <p>For every realm that already exists, the clients, client scopes and roles that
+ * pending operations refer to are listed once per realm or client, and referenced
+ * groups and users are resolved, all concurrently. Execution then finds its lookups in
+ * the client's caches and only issues the mutating requests.</p>
+ *
+ * <p>Prefetching is best effort: a lookup that fails here is simply repeated, and
+ * reported, when the operation that needs it runs.</p>
+ */
+class Prefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(Prefetcher.class);
+
+    private final KeycloakAdminClient client;
+    private final int parallelism;
+
+    Prefetcher(KeycloakAdminClient client, int parallelism) {
+        this.client = client;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Fetch everything referenced, waiting until all lookups have completed.
+     */
+    void prefetch(Collection<RealmReferences> references) {
+        if (references.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Void>> realms = references.stream()
+                .map(refs -> CompletableFuture.supplyAsync(() -> client.realmExists(refs.getRealmName()), pool)
+                    .exceptionally(e -> false)
+                    .thenCompose(exists -> exists ? prefetchRealm(refs, pool) : CompletableFuture.completedFuture(null)))
+                .toList();
+            CompletableFuture.allOf(realms.toArray(CompletableFuture[]::new)).join();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        log.info("Prefetched lookups for {} realm(s) in {} ms", references.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private CompletableFuture<Void> prefetchRealm(RealmReferences refs, ExecutorService pool) {
+        String realm = refs.getRealmName();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        if (!refs.getClientIds().isEmpty()) {
+            tasks.add(run(pool, "clients of " + realm, () -> client.preloadClients(realm))
+                .thenCompose(ignored -> all(refs.getRoleClientIds().stream()
+                    .map(clientId -> run(pool, "roles of client " + clientId, () -> client.preloadClientRoles(realm, clientId)))
+                    .toList())));
+        }
+        if (!refs.getClientScopes().isEmpty()) {
+            tasks.add(run(pool, "client scopes of " + realm, () -> client.preloadClientScopes(realm)));
+        }
+        if (!refs.getRealmRoles().isEmpty()) {
+            tasks.add(run(pool, "realm roles of " + realm, () -> client.preloadRealmRoles(realm)));
+        }
+        for (String path : refs.getGroupPaths()) {
+            tasks.add(run(pool, "group " + path, () -> client.preloadGroup(realm, path)));
+        }
+        if (!refs.getUsernames().isEmpty()) {
+            tasks.add(run(pool, "users of " + realm, () -> client.prefetchUsers(realm, refs.getUsernames()))
+                .thenCompose(ignored -> all(refs.getUsernames().stream()
+                    .map(username -> run(pool, "user " + username, () -> client.preloadUser(realm, username)))
+                    .toList())));
+        }
+
+        return all(tasks);
+    }
+
+    private static CompletableFuture<Void> run(ExecutorService pool, String what, Runnable lookup) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                lookup.run();
+            } catch (RuntimeException e) {
+                log.debug("Could not prefetch {}: {}", what, e.getMessage());
+            }
+        }, pool);
+    }
+
+    private static CompletableFuture<Void> all(List<CompletableFuture<Void>> futures) {
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+}
@@ -0,0 +1,166 @@
+package com.keycloakmigrator.executor;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import com.keycloakmigrator.planner.CreateClientBundleOperation;
+import com.keycloakmigrator.planner.CreateProtocolMappersOperation;
+import com.keycloakmigrator.tracking.RealmAttributeTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Write-combining buffer for realm representation updates.
+ *
+ * <p>Realm updates, tracking records and checkpoints are held back per realm and
+ * written with a single read and a single update when the realm is flushed. The
+ * executor flushes a realm before any operation that depends on its settings, after
+ * each changeset whose failure must stop the run, and at the end of the run. Only the
+ * writes of changesets that may fail without stopping the run are combined across
+ * changesets.</p>
+ *
+ * <p>If the combined update is rejected, the buffered changesets are replayed one by
+ * one so that the failure is attributed to the changeset that caused it. The others
+ * are still written and recorded, as they would have been without the buffer.</p>
+ */
+final class RealmUpdateBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(RealmUpdateBuffer.class);
+
+    /**
+     * Operations known not to read any setting that an {@link UpdateRealmOperation} writes.
+     */
+    private static final Set<Class<? extends Operation>> INDEPENDENT_OPERATIONS = Set.of(
+        CreateClientOperation.class,
+        UpdateClientOperation.class,
+        DeleteClientOperation.class,
+        CreateClientBundleOperation.class,
+        CreateRealmRoleOperation.class,
+        CreateClientRoleOperation.class,
+        DeleteRoleOperation.class,
+        CreateGroupOperation.class,
+        DeleteGroupOperation.class,
+        DeleteUserOperation.class,
+        CreateClientScopeOperation.class,
+        DeleteClientScopeOperation.class,
+        CreateIdentityProviderOperation.class,
+        DeleteIdentityProviderOperation.class,
+        CreateProtocolMapperOperation.class,
+        CreateProtocolMappersOperation.class,
+        DeleteProtocolMapperOperation.class,
+        CreateAuthenticationFlowOperation.class,
+        DeleteAuthenticationFlowOperation.class
+    );
+
+    private final RealmAttributeTracker tracker;
+    private final Map<String, Map<Changeset, PendingWrites>> pending = new LinkedHashMap<>();
+
+    RealmUpdateBuffer(RealmAttributeTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    /**
+     * Whether an operation must see the buffered updates of its realm applied first.
+     */
+    static boolean dependsOnRealmState(Operation op) {
+        return !INDEPENDENT_OPERATIONS.contains(op.getClass());
+    }
+
+    void update(Changeset changeset, UpdateRealmOperation op) {
+        writes(op.getName(), changeset).updates.add(op);
+    }
+
+    void record(String realmName, Changeset changeset) {
+        writes(realmName, changeset).record = true;
+    }
+
+    void checkpoint(String realmName, Changeset changeset, RealmAttributeTracker.Checkpoint checkpoint) {
+        writes(realmName, changeset).checkpoint = checkpoint;
+    }
+
+    /**
+     * The realms for which the given changeset has buffered realm updates.
+     */
+    Set<String> updatedRealms(Changeset changeset) {
+        Set<String> realms = new LinkedHashSet<>();
+        pending.forEach((realmName, writes) -> {
+            PendingWrites w = writes.get(changeset);
+            if (w != null && !w.updates.isEmpty()) {
+                realms.add(realmName);
+            }
+        });
+        return realms;
+    }
+
+    /**
+     * Write the buffered updates of a realm.
+     *
+     * @return the changesets whose buffered writes could not be applied, with the cause
+     */
+    Map<Changeset, Exception> flush(String realmName) {
+        Map<Changeset, PendingWrites> writes = pending.remove(realmName);
+        if (writes == null) {
+            return Map.of();
+        }
+
+        List<UpdateRealmOperation> updates = new ArrayList<>();
+        List<Changeset> recorded = new ArrayList<>();
+        RealmAttributeTracker.Checkpoint checkpoint = null;
+        for (Map.Entry<Changeset, PendingWrites> entry : writes.entrySet()) {
+            PendingWrites w = entry.getValue();
+            updates.addAll(w.updates);
+            if (w.record) {
+                recorded.add(entry.getKey());
+            }
+            if (w.checkpoint != null) {
+                checkpoint = w.checkpoint;
+            }
+        }
+
+        log.debug("Flushing {} realm update(s) and {} tracking record(s) for realm '{}'",
+            updates.size(), recorded.size(), realmName);
+        try {
+            tracker.write(realmName, updates, recorded, checkpoint);
+            return Map.of();
+        } catch (Exception e) {
+            if (writes.size() == 1) {
+                return Map.of(writes.keySet().iterator().next(), e);
+            }
+            log.warn("Combined update of realm '{}' failed ({}), applying changesets one by one", realmName, e.getMessage());
+            return replay(realmName, writes);
+        }
+    }
+
+    Map<Changeset, Exception> flushAll() {
+        Map<Changeset, Exception> failures = new LinkedHashMap<>();
+        for (String realmName : new ArrayList<>(pending.keySet())) {
+            failures.putAll(flush(realmName));
+        }
+        return failures;
+    }
+
+    private Map<Changeset, Exception> replay(String realmName, Map<Changeset, PendingWrites> writes) {
+        Map<Changeset, Exception> failures = new LinkedHashMap<>();
+        writes.forEach((changeset, w) -> {
+            List<Changeset> recorded = w.record ? List.of(changeset) : List.of();
+            try {
+                tracker.write(realmName, w.updates, recorded, w.checkpoint);
+            } catch (Exception e) {
+                failures.put(changeset, e);
+            }
+        });
+        return failures;
+    }
+
+    private PendingWrites writes(String realmName, Changeset changeset) {
+        return pending.computeIfAbsent(realmName, r -> new LinkedHashMap<>())
+            .computeIfAbsent(changeset, c -> new PendingWrites());
+    }
+
+    private static final class PendingWrites {
+        private final List<UpdateRealmOperation> updates = new ArrayList<>();
+        private boolean record;
+        private RealmAttributeTracker.Checkpoint checkpoint;
+    }
+}
@@ -0,0 +1,325 @@
+package com.keycloakmigrator.generator;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic changelogs that conform to {@code changeset.xsd}, for load tests and
+ * benchmarks.
+ *
+ * <p>Each realm {@code realm-N} gets, in this order: its creation, clients
+ * {@code client-N} with their client roles, realm roles {@code role-N}, groups
+ * {@code group-N} mapped to realm roles, and users {@code user-N} with realm roles and
+ * group memberships. Every reference points to an entity created earlier, so the
+ * changelog migrates into an empty Keycloak.</p>
+ *
+ * <p>Operations are written as they are generated, so the size of the changelog is not
+ * limited by memory.</p>
+ */
+public final class ChangelogGenerator {
+
+    static final String NAMESPACE = "http://keycloak-migrator.com/changelog";
+    static final String MASTER_FILE = "changelog.xml";
+    static final String PARTS_DIRECTORY = "parts";
+
+    private static final String AUTHOR = "generator";
+
+    private final GeneratorOptions options;
+
+    public ChangelogGenerator(GeneratorOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Write the changelog into a directory, created if missing.
+     *
+     * @param directory the output directory
+     * @return what was written
+     * @throws IOException if a file cannot be written
+     */
+    public Summary generate(Path directory) throws IOException {
+        if (options.getRoleMappings() > options.getRoles()) {
+            throw new IllegalArgumentException("Role mappings (" + options.getRoleMappings()
+                + ") cannot exceed roles (" + options.getRoles() + ")");
+        }
+        if (options.getGroupMemberships() > options.getGroups()) {
+            throw new IllegalArgumentException("Group memberships (" + options.getGroupMemberships()
+                + ") cannot exceed groups (" + options.getGroups() + ")");
+        }
+
+        Path partsDirectory = options.isIncludes() ? directory.resolve(PARTS_DIRECTORY) : directory;
+        Files.createDirectories(partsDirectory);
+
+        try (ChangelogWriter writer = new ChangelogWriter(partsDirectory)) {
+            SplittableRandom random = new SplittableRandom(options.getSeed());
+            for (int realm = 1; realm <= options.getRealms(); realm++) {
+                writeRealm(writer, "realm-" + realm, random);
+            }
+            writer.finish();
+
+            List<Path> files = writer.files;
+            if (options.isIncludes()) {
+                Path master = directory.resolve(MASTER_FILE);
+                writeMaster(master, files, directory);
+                files = new ArrayList<>(files);
+                files.add(0, master);
+            }
+            return new Summary(files, writer.version, options.totalOperations());
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write changelog: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeRealm(ChangelogWriter out, String realm, SplittableRandom random) throws IOException, XMLStreamException {
+        out.startOperation("createRealm", "name", realm);
+        out.element("displayName", realm);
+        out.element("enabled", "true");
+        out.endOperation();
+
+        for (int client = 1; client <= options.getClients(); client++) {
+            String clientId = "client-" + client;
+            out.startOperation("createClient", "realm", realm, "clientId", clientId);
+            out.element("name", "Client " + client);
+            out.element("enabled", "true");
+            out.element("publicClient", String.valueOf(client % 2 == 0));
+            out.endOperation();
+            for (int role = 1; role <= options.getClientRoles(); role++) {
+                out.startOperation("createClientRole", "realm", realm, "clientId", clientId, "name", "client-role-" + role);
+                out.endOperation();
+            }
+        }
+
+        for (int role = 1; role <= options.getRoles(); role++) {
+            out.startOperation("createRealmRole", "realm", realm, "name", "role-" + role);
+            out.endOperation();
+        }
+
+        for (int group = 1; group <= options.getGroups(); group++) {
+            out.startOperation("createGroup", "realm", realm, "name", "group-" + group);
+            if (level(group) > 0) {
+                out.element("parentGroup", groupPath(group - 1));
+            }
+            out.list("realmRoles", "role", roles(random));
+            out.endOperation();
+        }
+
+        for (int user = 1; user <= options.getUsers(); user++) {
+            out.startOperation("createUser", "realm", realm, "username", "user-" + user);
+            out.element("email", "user-" + user + "@example.com");
+            out.element("firstName", "User");
+            out.element("lastName", String.valueOf(user));
+            out.element("enabled", "true");
+            out.list("realmRoles", "role", roles(random));
+            List<String> groups = new ArrayList<>();
+            for (int group : pick(random, options.getGroupMemberships(), options.getGroups())) {
+                groups.add(groupPath(group));
+            }
+            out.list("groups", "group", groups);
+            out.endOperation();
+        }
+    }
+
+    /**
+     * Level of a group in its chain, 0 for a top-level group.
+     */
+    private int level(int group) {
+        return (group - 1) % options.getGroupDepth();
+    }
+
+    /**
+     * Path of a group: the groups of its chain from the top-level one down to it.
+     */
+    private String groupPath(int group) {
+        StringBuilder path = new StringBuilder();
+        for (int ancestor = group - level(group); ancestor <= group; ancestor++) {
+            path.append("/group-").append(ancestor);
+        }
+        return path.toString();
+    }
+
+    private List<String> roles(SplittableRandom random) {
+        List<String> roles = new ArrayList<>();
+        for (int role : pick(random, options.getRoleMappings(), options.getRoles())) {
+            roles.add("role-" + role);
+        }
+        return roles;
+    }
+
+    /**
+     * {@code count} distinct random numbers in {@code 1..bound}.
+     */
+    private static Set<Integer> pick(SplittableRandom random, int count, int bound) {
+        Set<Integer> picked = new LinkedHashSet<>();
+        while (picked.size() < count) {
+            picked.add(random.nextInt(bound) + 1);
+        }
+        return picked;
+    }
+
+    private static void writeMaster(Path master, List<Path> parts, Path directory) throws IOException, XMLStreamException {
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(master))) {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(stream, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("changelog");
+            xml.writeDefaultNamespace(NAMESPACE);
+            for (Path part : parts) {
+                xml.writeCharacters("\n    ");
+                xml.writeEmptyElement("include");
+                xml.writeAttribute("file", directory.relativize(part).toString().replace('\\', '/'));
+            }
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.close();
+        }
+    }
+
+    /**
+     * What {@link #generate} wrote.
+     *
+     * @param files      the files written; with includes, the including changelog first
+     * @param changesets the number of changesets
+     * @param operations the number of operations
+     */
+    public record Summary(List<Path> files, long changesets, long operations) {
+    }
+
+    /**
+     * Streams operations into changesets of the configured size, and changesets into
+     * numbered files of equal size.
+     */
+    private final class ChangelogWriter implements AutoCloseable {
+
+        private final Path directory;
+        private final long changesetsPerFile;
+        private final List<Path> files = new ArrayList<>();
+        private final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+        private OutputStream stream;
+        private XMLStreamWriter xml;
+        private long version;
+        private long changesetsInFile;
+        private int operationsInChangeset;
+
+        ChangelogWriter(Path directory) {
+            this.directory = directory;
+            this.changesetsPerFile = Math.max(1, (options.totalChangesets() + options.getFiles() - 1) / options.getFiles());
+        }
+
+        void startOperation(String name, String... attributes) throws IOException, XMLStreamException {
+            if (operationsInChangeset == 0) {
+                startChangeset();
+            }
+            xml.writeCharacters("\n        ");
+            xml.writeStartElement(name);
+            for (int i = 0; i < attributes.length; i += 2) {
+                xml.writeAttribute(attributes[i], attributes[i + 1]);
+            }
+        }
+
+        void element(String name, String value) throws XMLStreamException {
+            xml.writeCharacters("\n            ");
+            xml.writeStartElement(name);
+            xml.writeCharacters(value);
+            xml.writeEndElement();
+        }
+
+        void list(String name, String item, List<String> values) throws XMLStreamException {
+            if (values.isEmpty()) {
+                return;
+            }
+            xml.writeCharacters("\n            ");
+            xml.writeStartElement(name);
+            for (String value : values) {
+                xml.writeCharacters("\n                ");
+                xml.writeStartElement(item);
+                xml.writeCharacters(value);
+                xml.writeEndElement();
+            }
+            xml.writeCharacters("\n            ");
+            xml.writeEndElement();
+        }
+
+        void endOperation() throws XMLStreamException {
+            xml.writeCharacters("\n        ");
+            xml.writeEndElement();
+            if (++operationsInChangeset == options.getOperationsPerChangeset()) {
+                endChangeset();
+            }
+        }
+
+        void finish() throws IOException, XMLStreamException {
+            if (operationsInChangeset > 0) {
+                endChangeset();
+            }
+            closeFile();
+        }
+
+        private void startChangeset() throws IOException, XMLStreamException {
+            if (xml == null || changesetsInFile == changesetsPerFile) {
+                closeFile();
+                openFile();
+            }
+            version++;
+            xml.writeCharacters("\n    ");
+            xml.writeStartElement("changeset");
+            xml.writeAttribute("version", String.valueOf(version));
+            xml.writeAttribute("author", AUTHOR);
+            xml.writeCharacters("\n        ");
+            xml.writeStartElement("comment");
+            xml.writeCharacters("Synthetic changeset " + version);
+            xml.writeEndElement();
+        }
+
+        private void endChangeset() throws XMLStreamException {
+            xml.writeCharacters("\n    ");
+            xml.writeEndElement();
+            operationsInChangeset = 0;
+            changesetsInFile++;
+        }
+
+        private void openFile() throws IOException, XMLStreamException {
+            Path file = directory.resolve(String.format("changelog-%05d.xml", files.size() + 1));
+            files.add(file);
+            stream = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+            xml = factory.createXMLStreamWriter(stream, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("changelog");
+            xml.writeDefaultNamespace(NAMESPACE);
+            changesetsInFile = 0;
+        }
+
+        private void closeFile() throws IOException, XMLStreamException {
+            if (xml == null) {
+                return;
+            }
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+            xml.writeEndDocument();
+            xml.close();
+            stream.close();
+            xml = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+}
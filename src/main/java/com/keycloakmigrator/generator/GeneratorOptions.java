@@ -0,0 +1,195 @@
+package com.keycloakmigrator.generator;
+
+/**
+ * Size and shape of a changelog written by {@link ChangelogGenerator}.
+ *
+ * <p>Counts of clients, roles, groups and users are per realm.</p>
+ */
+public final class GeneratorOptions {
+
+    private int realms = 1;
+    private int clients = 10;
+    private int clientRoles = 2;
+    private int roles = 20;
+    private int groups = 20;
+    private int groupDepth = 1;
+    private int users = 100;
+    private int roleMappings = 2;
+    private int groupMemberships = 1;
+    private int operationsPerChangeset = 10;
+    private int files = 1;
+    private boolean includes = false;
+    private long seed = 1;
+
+    /**
+     * Creates options for a small changelog of one realm.
+     */
+    public static GeneratorOptions defaults() {
+        return new GeneratorOptions();
+    }
+
+    public int getRealms() {
+        return realms;
+    }
+
+    public GeneratorOptions realms(int realms) {
+        this.realms = atLeast(realms, 1, "Realms");
+        return this;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public GeneratorOptions clients(int clients) {
+        this.clients = atLeast(clients, 0, "Clients");
+        return this;
+    }
+
+    /**
+     * Client roles created for each client.
+     */
+    public int getClientRoles() {
+        return clientRoles;
+    }
+
+    public GeneratorOptions clientRoles(int clientRoles) {
+        this.clientRoles = atLeast(clientRoles, 0, "Client roles");
+        return this;
+    }
+
+    /**
+     * Realm roles.
+     */
+    public int getRoles() {
+        return roles;
+    }
+
+    public GeneratorOptions roles(int roles) {
+        this.roles = atLeast(roles, 0, "Roles");
+        return this;
+    }
+
+    public int getGroups() {
+        return groups;
+    }
+
+    public GeneratorOptions groups(int groups) {
+        this.groups = atLeast(groups, 0, "Groups");
+        return this;
+    }
+
+    /**
+     * Levels of group nesting: groups form chains of this length, each group created
+     * below the previous one of its chain.
+     */
+    public int getGroupDepth() {
+        return groupDepth;
+    }
+
+    public GeneratorOptions groupDepth(int groupDepth) {
+        this.groupDepth = atLeast(groupDepth, 1, "Group depth");
+        return this;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public GeneratorOptions users(int users) {
+        this.users = atLeast(users, 0, "Users");
+        return this;
+    }
+
+    /**
+     * Realm roles mapped to each group and each user, at most the number of roles.
+     */
+    public int getRoleMappings() {
+        return roleMappings;
+    }
+
+    public GeneratorOptions roleMappings(int roleMappings) {
+        this.roleMappings = atLeast(roleMappings, 0, "Role mappings");
+        return this;
+    }
+
+    /**
+     * Groups each user is a member of, at most the number of groups.
+     */
+    public int getGroupMemberships() {
+        return groupMemberships;
+    }
+
+    public GeneratorOptions groupMemberships(int groupMemberships) {
+        this.groupMemberships = atLeast(groupMemberships, 0, "Group memberships");
+        return this;
+    }
+
+    public int getOperationsPerChangeset() {
+        return operationsPerChangeset;
+    }
+
+    public GeneratorOptions operationsPerChangeset(int operationsPerChangeset) {
+        this.operationsPerChangeset = atLeast(operationsPerChangeset, 1, "Operations per changeset");
+        return this;
+    }
+
+    /**
+     * Number of files the changesets are split across, in version order.
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    public GeneratorOptions files(int files) {
+        this.files = atLeast(files, 1, "Files");
+        return this;
+    }
+
+    /**
+     * Whether the files are written below {@code parts/} and included from a
+     * {@code changelog.xml} next to it, instead of side by side.
+     */
+    public boolean isIncludes() {
+        return includes;
+    }
+
+    public GeneratorOptions includes(boolean includes) {
+        this.includes = includes;
+        return this;
+    }
+
+    /**
+     * Seed of the role and group picks; the same options always give the same changelog.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public GeneratorOptions seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Operations per realm: the realm, its clients and their roles, realm roles, groups and users.
+     */
+    public long operationsPerRealm() {
+        return 1 + (long) clients * (1 + clientRoles) + roles + groups + users;
+    }
+
+    public long totalOperations() {
+        return realms * operationsPerRealm();
+    }
+
+    public long totalChangesets() {
+        return (totalOperations() + operationsPerChangeset - 1) / operationsPerChangeset;
+    }
+
+    private static int atLeast(int value, int minimum, String name) {
+        if (value < minimum) {
+            throw new IllegalArgumentException(name + " must be at least " + minimum);
+        }
+        return value;
+    }
+}
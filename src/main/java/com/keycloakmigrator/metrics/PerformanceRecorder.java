@@ -0,0 +1,115 @@
+package com.keycloakmigrator.metrics;
+
+import com.keycloakmigrator.client.http.AdminCall;
+import com.keycloakmigrator.client.http.AdminCallListener;
+import com.keycloakmigrator.model.operations.Operation;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the durations of a migration run: operations by type and realm, admin calls
+ * by endpoint, the slowest operations and the time spent in each phase.
+ *
+ * <p>All methods are thread-safe. Admin calls are reported by the admin client on
+ * whatever thread makes them, for example while prefetching.</p>
+ */
+public class PerformanceRecorder implements AdminCallListener {
+
+    private static final int SLOWEST_OPERATIONS = 10;
+
+    private final Map<OperationKey, LatencyHistogram> operations = new ConcurrentHashMap<>();
+    private final Map<EndpointKey, EndpointStats> adminCalls = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> phases = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final PriorityQueue<PerformanceReport.SlowOperation> slowest =
+        new PriorityQueue<>(Comparator.comparingDouble(PerformanceReport.SlowOperation::millis));
+
+    /**
+     * Record the execution of an operation, successful or not.
+     */
+    public void recordOperation(Operation operation, int changesetVersion, long nanos) {
+        String realm = operation.getTargetRealm() != null ? operation.getTargetRealm() : "-";
+        operations.computeIfAbsent(new OperationKey(operation.getClass().getSimpleName(), realm),
+            k -> new LatencyHistogram()).record(nanos);
+
+        synchronized (slowest) {
+            if (slowest.size() < SLOWEST_OPERATIONS || millis(nanos) > slowest.peek().millis()) {
+                slowest.add(new PerformanceReport.SlowOperation(
+                    operation.getDescription(), changesetVersion, millis(nanos)));
+                if (slowest.size() > SLOWEST_OPERATIONS) {
+                    slowest.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Add time spent in a phase of the run; phases are reported in order of first use.
+     */
+    public void recordPhase(String phase, long nanos) {
+        phases.computeIfAbsent(phase, p -> new LongAdder()).add(nanos);
+    }
+
+    @Override
+    public void onCall(AdminCall call) {
+        EndpointStats stats = adminCalls.computeIfAbsent(new EndpointKey(call.method(), call.endpoint()),
+            k -> new EndpointStats());
+        stats.latency.record(call.durationNanos());
+        stats.statuses.computeIfAbsent(call.status(), s -> new LongAdder()).increment();
+    }
+
+    public PerformanceReport report() {
+        List<PerformanceReport.PhaseTiming> phaseTimings = new ArrayList<>();
+        synchronized (phases) {
+            phases.forEach((phase, nanos) -> phaseTimings.add(new PerformanceReport.PhaseTiming(phase, millis(nanos.sum()))));
+        }
+
+        List<PerformanceReport.OperationStats> operationStats = new ArrayList<>();
+        operations.forEach((key, latency) -> operationStats.add(new PerformanceReport.OperationStats(
+            key.type(), key.realm(), summarize(latency))));
+        operationStats.sort(Comparator.comparingDouble((PerformanceReport.OperationStats s) -> s.latency().totalMillis()).reversed());
+
+        List<PerformanceReport.EndpointStats> endpointStats = new ArrayList<>();
+        adminCalls.forEach((key, stats) -> {
+            Map<Integer, Long> statuses = new TreeMap<>();
+            stats.statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+            endpointStats.add(new PerformanceReport.EndpointStats(key.method(), key.endpoint(), statuses, summarize(stats.latency)));
+        });
+        endpointStats.sort(Comparator.comparingDouble((PerformanceReport.EndpointStats s) -> s.latency().totalMillis()).reversed());
+
+        List<PerformanceReport.SlowOperation> slowOperations;
+        synchronized (slowest) {
+            slowOperations = new ArrayList<>(slowest);
+        }
+        slowOperations.sort(Comparator.comparingDouble(PerformanceReport.SlowOperation::millis).reversed());
+
+        return new PerformanceReport(phaseTimings, operationStats, endpointStats, slowOperations);
+    }
+
+    private static PerformanceReport.LatencySummary summarize(LatencyHistogram latency) {
+        return new PerformanceReport.LatencySummary(
+            latency.getCount(),
+            millis(latency.getTotalNanos()),
+            millis(latency.percentile(50)),
+            millis(latency.percentile(95)),
+            millis(latency.percentile(99)),
+            millis(latency.getMaxNanos()),
+            latency.bucketCounts());
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private record OperationKey(String type, String realm) {
+    }
+
+    private record EndpointKey(String method, String endpoint) {
+    }
+
+    private static final class EndpointStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    }
+}
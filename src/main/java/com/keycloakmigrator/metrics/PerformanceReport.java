@@ -0,0 +1,101 @@
+package com.keycloakmigrator.metrics;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Performance summary of a migration run. All durations are in milliseconds.
+ *
+ * @param phases     time spent in each phase of the run, in order
+ * @param operations latency per operation type and realm, slowest in total first
+ * @param adminCalls latency and status codes per admin endpoint, slowest in total first
+ * @param slowest    the slowest individual operations, slowest first
+ */
+public record PerformanceReport(
+    List<PhaseTiming> phases,
+    List<OperationStats> operations,
+    List<EndpointStats> adminCalls,
+    List<SlowOperation> slowest
+) {
+
+    public record PhaseTiming(String phase, double millis) {
+    }
+
+    /**
+     * @param bucketCounts recorded durations per {@link LatencyHistogram} bucket, for
+     *                     exporters that publish the histogram itself
+     */
+    public record LatencySummary(long count, double totalMillis, double p50Millis, double p95Millis,
+                                 double p99Millis, double maxMillis, @JsonIgnore long[] bucketCounts) {
+    }
+
+    public record OperationStats(String type, String realm, LatencySummary latency) {
+    }
+
+    public record EndpointStats(String method, String endpoint, Map<Integer, Long> statuses, LatencySummary latency) {
+    }
+
+    public record SlowOperation(String description, int changesetVersion, double millis) {
+    }
+
+    /**
+     * Print the report as aligned text tables.
+     */
+    public void print(PrintStream out) {
+        out.println("Phases:");
+        for (PhaseTiming phase : phases) {
+            out.printf("  %-24s %10.1f ms%n", phase.phase(), phase.millis());
+        }
+
+        if (!operations.isEmpty()) {
+            out.println("Operations:");
+            out.printf("  %-36s %-16s %6s %10s %8s %8s %8s %8s%n",
+                "type", "realm", "count", "total", "p50", "p95", "p99", "max");
+            for (OperationStats stats : operations) {
+                printRow(out, stats.type(), stats.realm(), stats.latency());
+            }
+        }
+
+        if (!adminCalls.isEmpty()) {
+            out.println("Admin calls:");
+            out.printf("  %-60s %6s %10s %8s %8s %8s %8s  %s%n",
+                "endpoint", "count", "total", "p50", "p95", "p99", "max", "status");
+            for (EndpointStats stats : adminCalls) {
+                LatencySummary l = stats.latency();
+                out.printf("  %-60s %6d %10.1f %8.1f %8.1f %8.1f %8.1f  %s%n",
+                    stats.method() + " " + stats.endpoint(), l.count(), l.totalMillis(),
+                    l.p50Millis(), l.p95Millis(), l.p99Millis(), l.maxMillis(),
+                    stats.statuses().entrySet().stream()
+                        .map(e -> e.getKey() + "x" + e.getValue())
+                        .collect(Collectors.joining(" ")));
+            }
+        }
+
+        if (!slowest.isEmpty()) {
+            out.println("Slowest operations:");
+            for (SlowOperation op : slowest) {
+                out.printf("  %10.1f ms  %s (changeset %d)%n", op.millis(), op.description(), op.changesetVersion());
+            }
+        }
+    }
+
+    /**
+     * Write the report as JSON.
+     */
+    public void writeJson(Path file) throws IOException {
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), this);
+    }
+
+    private static void printRow(PrintStream out, String type, String realm, LatencySummary l) {
+        out.printf("  %-36s %-16s %6d %10.1f %8.1f %8.1f %8.1f %8.1f%n",
+            type, realm, l.count(), l.totalMillis(), l.p50Millis(), l.p95Millis(), l.p99Millis(), l.maxMillis());
+    }
+}
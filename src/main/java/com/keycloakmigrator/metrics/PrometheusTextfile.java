@@ -0,0 +1,168 @@
+package com.keycloakmigrator.metrics;
+
+import com.keycloakmigrator.tracking.RealmAttributeTracker.MigrationStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of a run in the Prometheus text exposition format, for the textfile collector
+ * of node_exporter.
+ *
+ * <p>The file is written to a temporary file next to the target and then moved over it,
+ * so the collector never reads a partially written file.</p>
+ */
+public final class PrometheusTextfile {
+
+    private static final String PREFIX = "keycloak_migrator_";
+
+    /**
+     * Every fourth {@link LatencyHistogram} bucket: bounds that double from 100 µs.
+     */
+    private static final int BUCKET_STEP = 4;
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public PrometheusTextfile gauge(String name, String help, Map<String, String> labels, double value) {
+        family(name, "gauge", help).samples.add(new Sample(PREFIX + name, labels, value));
+        return this;
+    }
+
+    public PrometheusTextfile counter(String name, String help, Map<String, String> labels, double value) {
+        family(name + "_total", "counter", help).samples.add(new Sample(PREFIX + name + "_total", labels, value));
+        return this;
+    }
+
+    /**
+     * Add the tracking state of a realm: changesets applied and pending, and the last applied version.
+     */
+    public PrometheusTextfile realmStatus(String realm, MigrationStatus status) {
+        Map<String, String> labels = labels("realm", realm);
+        gauge("changesets_applied", "Changesets recorded as applied in the realm", labels, status.history().size());
+        gauge("changesets_pending", "Changesets of the changelog not yet applied to the realm", labels, status.pendingCount());
+        gauge("last_applied_version", "Version of the last changeset applied to the realm", labels, status.lastAppliedVersion());
+        return this;
+    }
+
+    /**
+     * Add the admin calls by endpoint and status code, and the operation latency histograms.
+     */
+    public PrometheusTextfile performance(PerformanceReport report) {
+        for (PerformanceReport.EndpointStats stats : report.adminCalls()) {
+            stats.statuses().forEach((status, count) -> counter("admin_calls",
+                "Admin API requests by endpoint and status code",
+                labels("method", stats.method(), "endpoint", stats.endpoint(), "status", String.valueOf(status)),
+                count));
+        }
+        for (PerformanceReport.OperationStats stats : report.operations()) {
+            histogram("operation_duration_seconds", "Duration of Operation.execute",
+                labels("type", stats.type(), "realm", stats.realm()), stats.latency());
+        }
+        return this;
+    }
+
+    private void histogram(String name, String help, Map<String, String> labels, PerformanceReport.LatencySummary latency) {
+        Family family = family(name, "histogram", help);
+        long[] bounds = LatencyHistogram.bucketUpperBounds();
+        long[] counts = latency.bucketCounts();
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts[i];
+            if (i % BUCKET_STEP == 0) {
+                family.samples.add(new Sample(PREFIX + name + "_bucket", withLabel(labels, "le", seconds(bounds[i])), cumulative));
+            }
+        }
+        family.samples.add(new Sample(PREFIX + name + "_bucket", withLabel(labels, "le", "+Inf"), latency.count()));
+        family.samples.add(new Sample(PREFIX + name + "_sum", labels, latency.totalMillis() / 1000));
+        family.samples.add(new Sample(PREFIX + name + "_count", labels, latency.count()));
+    }
+
+    /**
+     * Render the metrics in the text exposition format.
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder();
+        families.forEach((name, family) -> {
+            out.append("# HELP ").append(PREFIX).append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(family.type).append('\n');
+            for (Sample sample : family.samples) {
+                out.append(sample.name());
+                if (!sample.labels().isEmpty()) {
+                    out.append(sample.labels().entrySet().stream()
+                        .map(e -> e.getKey() + "=\"" + escape(e.getValue()) + "\"")
+                        .collect(Collectors.joining(",", "{", "}")));
+                }
+                out.append(' ').append(number(sample.value())).append('\n');
+            }
+        });
+        return out.toString();
+    }
+
+    /**
+     * Write the metrics to a file, replacing it atomically.
+     */
+    public void write(Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path temp = target.resolveSibling("." + target.getFileName() + ".tmp");
+        Files.writeString(temp, render(), StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Family family(String name, String type, String help) {
+        return families.computeIfAbsent(name, n -> new Family(type, help));
+    }
+
+    /**
+     * Labels in the given order, as alternating names and values.
+     */
+    public static Map<String, String> labels(String... namesAndValues) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            labels.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return labels;
+    }
+
+    private static Map<String, String> withLabel(Map<String, String> labels, String name, String value) {
+        Map<String, String> all = new LinkedHashMap<>(labels);
+        all.put(name, value);
+        return all;
+    }
+
+    private static String seconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+            ? String.valueOf((long) value)
+            : String.valueOf(value);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private record Sample(String name, Map<String, String> labels, double value) {
+    }
+
+    private static final class Family {
+        private final String type;
+        private final String help;
+        private final List<Sample> samples = new ArrayList<>();
+
+        Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An HTTP request of the admin client, until its response headers arrived.
+ */
+@Name("com.keycloakmigrator.AdminRequest")
+@Label("Admin Request")
+@Category({"Keycloak Migrator", "Admin API"})
+@Description("HTTP request to the Keycloak admin API or token endpoint")
+public class AdminRequestEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Endpoint")
+    @Description("Path with realm names and ids replaced by placeholders")
+    public String endpoint;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,32 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Execution of the operations of one changeset, excluding its tracking record.
+ */
+@Name("com.keycloakmigrator.Changeset")
+@Label("Changeset")
+@Category({"Keycloak Migrator", "Execution"})
+@Description("Execution of the operations of a changeset")
+public class ChangesetEvent extends jdk.jfr.Event {
+
+    @Label("Version")
+    public int version;
+
+    @Label("Author")
+    public String author;
+
+    @Label("Operations")
+    public int operations;
+
+    @Label("Resumed")
+    @Description("Whether the changeset continued from a checkpoint")
+    public boolean resumed;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
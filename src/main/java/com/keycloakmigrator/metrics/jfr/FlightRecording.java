@@ -0,0 +1,56 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ * A JDK Flight Recorder recording of a migration run, written to a file when closed.
+ *
+ * <p>The recording uses the JDK's {@code profile} settings, so besides the migrator's own
+ * events it holds method samples, allocations, GC and socket I/O of the same run.</p>
+ */
+public final class FlightRecording implements AutoCloseable {
+
+    private static final List<Class<? extends Event>> EVENT_TYPES = List.of(
+        ChangesetEvent.class, OperationEvent.class, AdminRequestEvent.class,
+        TrackerReadEvent.class, TrackerWriteEvent.class, ParseFileEvent.class
+    );
+
+    private final Recording recording;
+
+    private FlightRecording(Recording recording) {
+        this.recording = recording;
+    }
+
+    /**
+     * Start recording.
+     *
+     * @param file the file to write the recording to
+     */
+    public static FlightRecording start(Path file) throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration("profile"));
+        recording.setName("keycloak-migrator");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        for (Class<? extends Event> type : EVENT_TYPES) {
+            recording.enable(type).withoutThreshold();
+        }
+        recording.start();
+        return new FlightRecording(recording);
+    }
+
+    /**
+     * Stop recording and write the file.
+     */
+    @Override
+    public void close() {
+        recording.stop();
+        recording.close();
+    }
+}
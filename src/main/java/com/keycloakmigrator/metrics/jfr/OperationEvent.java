@@ -0,0 +1,31 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A single call of {@code Operation.execute}. Batched operations appear as one event.
+ */
+@Name("com.keycloakmigrator.Operation")
+@Label("Operation")
+@Category({"Keycloak Migrator", "Execution"})
+@Description("Execution of a migration operation")
+public class OperationEvent extends jdk.jfr.Event {
+
+    @Label("Type")
+    public String type;
+
+    @Label("Realm")
+    public String realm;
+
+    @Label("Description")
+    public String description;
+
+    @Label("Changeset Version")
+    public int changesetVersion;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
@@ -0,0 +1,25 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Parsing of one changelog file, including the files it includes.
+ */
+@Name("com.keycloakmigrator.ParseFile")
+@Label("Parse Changelog File")
+@Category({"Keycloak Migrator", "Parsing"})
+@Description("Unmarshalling of a changelog file and its includes")
+public class ParseFileEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Schema Validation")
+    public boolean validated;
+
+    @Label("Changesets")
+    public int changesets;
+}
@@ -0,0 +1,23 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A read of the tracking attributes of a realm.
+ */
+@Name("com.keycloakmigrator.TrackerRead")
+@Label("Tracker Read")
+@Category({"Keycloak Migrator", "Tracking"})
+@Description("Read of the migration tracking attributes of a realm")
+public class TrackerReadEvent extends jdk.jfr.Event {
+
+    @Label("Realm")
+    public String realm;
+
+    @Label("Preloaded")
+    @Description("Whether the attributes were read ahead of time during startup")
+    public boolean preloaded;
+}
@@ -0,0 +1,36 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A write of the tracking attributes of a realm, together with any realm updates
+ * buffered with them: reading the realm, serializing the history and sending the
+ * update. The requests themselves also appear as {@link AdminRequestEvent}s.
+ */
+@Name("com.keycloakmigrator.TrackerWrite")
+@Label("Tracker Write")
+@Category({"Keycloak Migrator", "Tracking"})
+@Description("Update of the migration tracking attributes of a realm")
+public class TrackerWriteEvent extends jdk.jfr.Event {
+
+    @Label("Realm")
+    public String realm;
+
+    @Label("Realm Updates")
+    @Description("Number of buffered realm updates sent with the tracking attributes")
+    public int realmUpdates;
+
+    @Label("Changesets")
+    @Description("Number of changesets recorded")
+    public int changesets;
+
+    @Label("Checkpoint")
+    @Description("Whether a checkpoint was written")
+    public boolean checkpoint;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
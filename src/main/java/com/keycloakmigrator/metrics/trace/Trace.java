@@ -0,0 +1,210 @@
+package com.keycloakmigrator.metrics.trace;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.keycloakmigrator.client.http.AdminCall;
+import com.keycloakmigrator.client.http.AdminCallListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spans of a single run, written as an OpenTelemetry trace in the OTLP/JSON format.
+ *
+ * <p>The trace starts with a root span. {@link #startSpan} opens a child of the span
+ * currently open on the calling thread, or of the root span, and makes it the current
+ * span of that thread until it ends. Admin calls reported to the trace become client
+ * spans under the current span of the thread that made them.</p>
+ *
+ * <p>Spans are kept in memory until the trace is written. Nothing is recorded when no
+ * trace is created, so code that traces only checks for {@code null}.</p>
+ */
+public final class Trace implements AdminCallListener {
+
+    private static final String SERVICE_NAME = "keycloak-migrator";
+
+    private static final int KIND_INTERNAL = 1;
+    private static final int KIND_CLIENT = 3;
+
+    private final String traceId = randomId(16);
+    private final long epochNanos;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Span> finished = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private final Span root;
+
+    /**
+     * Start a trace and its root span.
+     *
+     * @param name the name of the root span
+     */
+    public Trace(String name) {
+        Instant now = Instant.now();
+        this.epochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        this.root = new Span(name, null, KIND_INTERNAL, startNanos);
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    /**
+     * Open a span under the span currently open on this thread.
+     */
+    public Span startSpan(String name) {
+        Span parent = current.get();
+        Span span = new Span(name, parent != null ? parent : root, KIND_INTERNAL, System.nanoTime());
+        current.set(span);
+        return span;
+    }
+
+    @Override
+    public void onCall(AdminCall call) {
+        Span parent = current.get();
+        long end = System.nanoTime();
+        Span span = new Span(call.method() + " " + call.endpoint(), parent != null ? parent : root, KIND_CLIENT,
+            end - call.durationNanos());
+        span.attribute("http.request.method", call.method())
+            .attribute("url.path", call.path())
+            .attribute("http.route", call.endpoint())
+            .attribute("http.response.status_code", call.status());
+        span.finish(end, call.status() < 400);
+    }
+
+    /**
+     * End the root span, if still open, and write all ended spans.
+     */
+    public void writeOtlpJson(Path file) throws IOException {
+        if (root.endNanos == 0) {
+            root.end(true);
+        }
+        try (JsonGenerator json = new JsonFactory().createGenerator(file.toFile(), JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("resourceSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("resource");
+            writeAttributes(json, Map.of("service.name", SERVICE_NAME));
+            json.writeEndObject();
+            json.writeArrayFieldStart("scopeSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("scope");
+            json.writeStringField("name", SERVICE_NAME);
+            json.writeEndObject();
+            json.writeArrayFieldStart("spans");
+            for (Span span : List.copyOf(finished)) {
+                writeSpan(json, span);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private void writeSpan(JsonGenerator json, Span span) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", traceId);
+        json.writeStringField("spanId", span.spanId);
+        if (span.parent != null) {
+            json.writeStringField("parentSpanId", span.parent.spanId);
+        }
+        json.writeStringField("name", span.name);
+        json.writeNumberField("kind", span.kind);
+        json.writeStringField("startTimeUnixNano", String.valueOf(epochNanos + span.startNanos - startNanos));
+        json.writeStringField("endTimeUnixNano", String.valueOf(epochNanos + span.endNanos - startNanos));
+        writeAttributes(json, span.attributes);
+        json.writeObjectFieldStart("status");
+        json.writeNumberField("code", span.ok ? 1 : 2);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeAttributes(JsonGenerator json, Map<String, Object> attributes) throws IOException {
+        json.writeArrayFieldStart("attributes");
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            json.writeStartObject();
+            json.writeStringField("key", attribute.getKey());
+            json.writeObjectFieldStart("value");
+            if (attribute.getValue() instanceof Number number) {
+                // OTLP/JSON encodes 64-bit integers as strings
+                json.writeStringField("intValue", String.valueOf(number.longValue()));
+            } else {
+                json.writeStringField("stringValue", String.valueOf(attribute.getValue()));
+            }
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    private static String randomId(int bytes) {
+        StringBuilder id = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i += 8) {
+            id.append(String.format("%016x", ThreadLocalRandom.current().nextLong()));
+        }
+        return id.toString();
+    }
+
+    /**
+     * A span of the trace. Attributes are set while it is open; {@link #end} records it.
+     */
+    public final class Span {
+        private final String spanId = randomId(8);
+        private final String name;
+        private final Span parent;
+        private final int kind;
+        private final long startNanos;
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private volatile long endNanos;
+        private boolean ok;
+
+        private Span(String name, Span parent, int kind, long startNanos) {
+            this.name = name;
+            this.parent = parent;
+            this.kind = kind;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Set a string or integer attribute; {@code null} values are left out.
+         */
+        public Span attribute(String key, Object value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        /**
+         * End the span and make its parent the current span of this thread again.
+         *
+         * @param ok whether the work of the span succeeded
+         */
+        public void end(boolean ok) {
+            finish(System.nanoTime(), ok);
+            if (current.get() == this) {
+                if (parent == null || parent == root) {
+                    current.remove();
+                } else {
+                    current.set(parent);
+                }
+            }
+        }
+
+        private void finish(long endNanos, boolean ok) {
+            this.ok = ok;
+            this.endNanos = endNanos;
+            finished.add(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.keycloakmigrator.parser;
+
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * File and line of the changesets and operations read by {@link XmlChangesetParser}.
+ *
+ * <p>Locations are keyed by object identity, so they stay valid however the parsed
+ * changesets are merged or sorted afterwards.</p>
+ */
+public final class SourceLocations {
+
+    private final Map<Object, Location> locations = new IdentityHashMap<>();
+
+    void put(final Object element, final Path file, final int line) {
+        locations.put(element, new Location(file, line));
+    }
+
+    /**
+     * Location of a parsed changeset or operation.
+     *
+     * @return the location, or {@code null} if the element was not read by the parser
+     */
+    public Location get(final Object element) {
+        return locations.get(element);
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    /**
+     * Position of an element in a changelog file.
+     *
+     * @param file the changelog file
+     * @param line line of the element's start tag, or -1 if unknown
+     */
+    public record Location(Path file, int line) {
+        @Override
+        public String toString() {
+            return line > 0 ? file + ":" + line : file.toString();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.keycloakmigrator.parser;
 
+import com.keycloakmigrator.metrics.jfr.ParseFileEvent;
 import com.keycloakmigrator.model.ChangeLog;
 import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.Operation;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
 import jakarta.xml.bind.Unmarshaller;
@@ -9,6 +11,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
@@ -35,6 +40,7 @@ import java.util.stream.Stream;
  *   <li>Support for include directives</li>
  *   <li>Recursive directory scanning</li>
  *   <li>Duplicate version detection</li>
+ *   <li>File and line of each changeset and operation (optional)</li>
  * </ul>
  *
  * @see ChangeLog
@@ -44,6 +50,7 @@ public final class XmlChangesetParser {
 
     private static final Logger LOG = LoggerFactory.getLogger(XmlChangesetParser.class);
     private static final String SCHEMA_RESOURCE = "/schema/changeset.xsd";
+    private static final XMLInputFactory INPUT_FACTORY = inputFactory();
 
     private final JAXBContext jaxbContext;
     private final Schema schema;
@@ -92,17 +99,43 @@ public final class XmlChangesetParser {
      * @throws JAXBException if parsing fails
      */
     public ChangeLog parseFile(final Path file) throws JAXBException {
+        return parseFile(file, null);
+    }
+
+    /**
+     * Parses a single changelog file, recording where each changeset and operation
+     * of the file and of its includes starts.
+     *
+     * @param file      the changelog file to parse
+     * @param locations receives the locations, or {@code null} to skip tracking them
+     * @return the parsed changelog
+     * @throws JAXBException if parsing fails
+     */
+    public ChangeLog parseFile(final Path file, final SourceLocations locations) throws JAXBException {
         LOG.debug("Parsing changelog file: {}", file);
 
+        final ParseFileEvent event = new ParseFileEvent();
+        event.begin();
+
         final Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
         if (schema != null && validateSchema) {
             unmarshaller.setSchema(schema);
         }
 
-        final ChangeLog changeLog = (ChangeLog) unmarshaller.unmarshal(file.toFile());
+        final ChangeLog changeLog = locations == null
+            ? (ChangeLog) unmarshaller.unmarshal(file.toFile())
+            : unmarshalWithLocations(unmarshaller, file, locations);
 
         // Process includes
-        processIncludes(changeLog, file.getParent());
+        processIncludes(changeLog, file.getParent(), locations);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file.toString();
+            event.validated = unmarshaller.getSchema() != null;
+            event.changesets = changeLog.getChangesets().size();
+            event.commit();
+        }
 
         LOG.debug("Parsed {} changesets from {}", changeLog.getChangesets().size(), file);
         return changeLog;
@@ -121,6 +154,21 @@ public final class XmlChangesetParser {
      * @throws IllegalStateException    if duplicate versions are found
      */
     public List<Changeset> parseDirectory(final Path directory) throws IOException {
+        return parseDirectory(directory, null);
+    }
+
+    /**
+     * Parses all changelog files in a directory recursively, recording where each
+     * changeset and operation starts.
+     *
+     * @param directory the directory containing changelog files
+     * @param locations receives the locations, or {@code null} to skip tracking them
+     * @return a combined list of all changesets, sorted by version
+     * @throws IOException              if reading the directory fails
+     * @throws IllegalArgumentException if the path is not a directory
+     * @throws IllegalStateException    if duplicate versions are found
+     */
+    public List<Changeset> parseDirectory(final Path directory, final SourceLocations locations) throws IOException {
         LOG.info("Scanning directory for changelog files: {}", directory);
 
         if (!Files.isDirectory(directory)) {
@@ -141,7 +189,7 @@ public final class XmlChangesetParser {
 
             for (final Path xmlFile : xmlFiles) {
                 try {
-                    final ChangeLog changeLog = parseFile(xmlFile);
+                    final ChangeLog changeLog = parseFile(xmlFile, locations);
                     allChangesets.addAll(changeLog.getChangesets());
                 } catch (final JAXBException e) {
                     throw new IllegalStateException("Failed to parse file: " + xmlFile, e);
@@ -198,7 +246,31 @@ public final class XmlChangesetParser {
         return results;
     }
 
-    private void processIncludes(final ChangeLog changeLog, final Path baseDir) throws JAXBException {
+    private ChangeLog unmarshalWithLocations(final Unmarshaller unmarshaller, final Path file,
+                                             final SourceLocations locations) throws JAXBException {
+        try (final InputStream in = Files.newInputStream(file)) {
+            final XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(file.toUri().toString(), in);
+            // Objects are instantiated while the reader sits on their start tag
+            unmarshaller.setListener(new Unmarshaller.Listener() {
+                @Override
+                public void beforeUnmarshal(final Object target, final Object parent) {
+                    if (target instanceof Changeset || target instanceof Operation) {
+                        locations.put(target, file, reader.getLocation().getLineNumber());
+                    }
+                }
+            });
+            try {
+                return (ChangeLog) unmarshaller.unmarshal(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException | XMLStreamException e) {
+            throw new JAXBException("Failed to read " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void processIncludes(final ChangeLog changeLog, final Path baseDir,
+                                 final SourceLocations locations) throws JAXBException {
         if (changeLog.getIncludes() == null || changeLog.getIncludes().isEmpty()) {
             return;
         }
@@ -212,11 +284,17 @@ public final class XmlChangesetParser {
             }
 
             LOG.debug("Processing include: {}", includePath);
-            final ChangeLog includedChangeLog = parseFile(includePath);
+            final ChangeLog includedChangeLog = parseFile(includePath, locations);
             changeLog.getChangesets().addAll(includedChangeLog.getChangesets());
         }
     }
 
+    private static XMLInputFactory inputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     private void validateUniqueVersions(final List<Changeset> changesets) {
         final Set<Integer> seenVersions = new HashSet<>();
         for (final Changeset changeset : changesets) {
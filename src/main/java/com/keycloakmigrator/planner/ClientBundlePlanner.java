@@ -0,0 +1,93 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.operations.*;
+
+import java.util.*;
+
+/**
+ * Merges client roles and protocol mappers into the creation of their client.
+ *
+ * <p>A {@link CreateClientOperation} is usually followed, in the same changeset, by
+ * {@link CreateClientRoleOperation}s and {@link CreateProtocolMapperOperation}s for that
+ * client, each of which would otherwise look the client up again before posting. This
+ * pass moves them into a single {@link CreateClientBundleOperation} placed where the
+ * client is created. Moving creations earlier is safe; a delete that touches the client,
+ * one of its roles or one of its mappers closes the bundle so later operations keep their
+ * original position.</p>
+ */
+public final class ClientBundlePlanner {
+
+    /**
+     * Plan the operations of a single changeset.
+     *
+     * @param operations the operations, in changeset order
+     * @return the planned operations
+     */
+    public List<Operation> plan(List<Operation> operations) {
+        List<Operation> planned = new ArrayList<>(operations.size());
+        Map<String, Bundle> open = new HashMap<>();
+        List<Bundle> bundles = new ArrayList<>();
+
+        for (Operation op : operations) {
+            if (op instanceof CreateClientOperation create) {
+                Bundle bundle = new Bundle(create, planned.size());
+                open.put(key(create.getRealm(), create.getClientId()), bundle);
+                bundles.add(bundle);
+                planned.add(op);
+                continue;
+            }
+
+            if (op instanceof CreateClientRoleOperation role) {
+                Bundle bundle = open.get(key(role.getRealm(), role.getClientId()));
+                if (bundle != null) {
+                    bundle.roles.add(role);
+                    continue;
+                }
+            } else if (op instanceof CreateProtocolMapperOperation mapper && mapper.getClientId() != null) {
+                Bundle bundle = open.get(key(mapper.getRealm(), mapper.getClientId()));
+                if (bundle != null) {
+                    bundle.protocolMappers.add(mapper);
+                    continue;
+                }
+            } else {
+                closeAffected(op, open);
+            }
+            planned.add(op);
+        }
+
+        for (Bundle bundle : bundles) {
+            if (!bundle.roles.isEmpty() || !bundle.protocolMappers.isEmpty()) {
+                planned.set(bundle.position, new CreateClientBundleOperation(bundle.client, bundle.roles, bundle.protocolMappers));
+            }
+        }
+        return planned;
+    }
+
+    private void closeAffected(Operation op, Map<String, Bundle> open) {
+        if (op instanceof DeleteClientOperation delete) {
+            open.remove(key(delete.getRealm(), delete.getClientId()));
+        } else if (op instanceof DeleteRoleOperation delete && delete.getClientId() != null) {
+            open.remove(key(delete.getRealm(), delete.getClientId()));
+        } else if (op instanceof DeleteProtocolMapperOperation delete && delete.getClientId() != null) {
+            open.remove(key(delete.getRealm(), delete.getClientId()));
+        } else if (op instanceof DeleteRealmOperation delete) {
+            open.keySet().removeIf(k -> k.startsWith(delete.getName() + "/"));
+        }
+    }
+
+    private static String key(String realm, String clientId) {
+        return realm + "/" + clientId;
+    }
+
+    private static final class Bundle {
+        private final CreateClientOperation client;
+        private final int position;
+        private final List<CreateClientRoleOperation> roles = new ArrayList<>();
+        private final List<CreateProtocolMapperOperation> protocolMappers = new ArrayList<>();
+
+        Bundle(CreateClientOperation client, int position) {
+            this.client = client;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.Operation;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.List;
+
+/**
+ * The changes that bring an existing realm to the state described by one or more
+ * consecutive changesets.
+ *
+ * @param realmName      the realm being converged
+ * @param changesets     the changesets covered by the plan, in execution order
+ * @param realmPatch     realm settings that differ from the server, or {@code null} if none do
+ * @param partialImport  roles, groups, users and identity providers to add, or {@code null} if there are none
+ * @param clientPatches  client settings that differ from the server, one partial representation per client
+ * @param followUps      operations that must still be executed on their own, in changeset order
+ * @param operationCount the number of operations covered by the plan
+ * @param satisfiedCount the number of operations whose result was already present on the server
+ */
+public record ConvergePlan(
+    String realmName,
+    List<Changeset> changesets,
+    RealmRepresentation realmPatch,
+    PartialImportRepresentation partialImport,
+    List<ClientRepresentation> clientPatches,
+    List<Operation> followUps,
+    int operationCount,
+    int satisfiedCount
+) {
+}
@@ -0,0 +1,378 @@
+package com.keycloakmigrator.planner;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.keycloakmigrator.client.GroupPaths;
+import com.keycloakmigrator.client.RepresentationMapper;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import org.keycloak.representations.idm.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Plans the convergence of an existing realm towards the state described by pending
+ * changesets, starting from a partial export of the realm.
+ *
+ * <p>Operations are applied to an in-memory model of the export. Operations whose result
+ * is already present are dropped, realm and client updates are reduced to the fields that
+ * actually differ, and new roles, groups, users and identity providers are gathered into
+ * a single partial import. What cannot be expressed that way is kept as a follow-up
+ * operation: new clients, because a partial import skips the defaults Keycloak sets up
+ * when a client is created, protocol mappers, and everything that refers to such an
+ * entity.</p>
+ *
+ * <p>Planning extends over consecutive changesets as long as every operation they contain
+ * targets the realm and only adds or updates entities. Delete operations, user updates,
+ * client scopes and authentication flows end the plan, so the model never has to predict
+ * the removal of something it has seen.</p>
+ */
+public final class ConvergePlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(ConvergePlanner.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final Set<Class<? extends Operation>> CONVERGIBLE_OPERATIONS = Set.of(
+        UpdateRealmOperation.class,
+        CreateClientOperation.class,
+        UpdateClientOperation.class,
+        CreateClientRoleOperation.class,
+        CreateRealmRoleOperation.class,
+        CreateGroupOperation.class,
+        CreateUserOperation.class,
+        CreateIdentityProviderOperation.class,
+        CreateProtocolMapperOperation.class
+    );
+
+    /**
+     * The realm a changeset could be converged on, if every operation in it targets the
+     * same realm and can be planned.
+     */
+    public static Optional<String> convergibleRealm(Changeset changeset) {
+        List<Operation> operations = changeset.getOperations();
+        if (operations.isEmpty()) {
+            return Optional.empty();
+        }
+        String realmName = operations.get(0).getTargetRealm();
+        return realmName != null && isConvergible(operations, realmName) ? Optional.of(realmName) : Optional.empty();
+    }
+
+    /**
+     * Plan the changesets starting at {@code start} against the exported realm.
+     *
+     * @param export     partial export of the realm, including groups, roles and clients;
+     *                   it becomes the planning model and is modified
+     * @param changesets the pending changesets, sorted by version
+     * @param start      index of the changeset to start planning from
+     * @return the plan, or empty if the changeset at {@code start} cannot be converged
+     */
+    public Optional<ConvergePlan> plan(RealmRepresentation export, List<Changeset> changesets, int start) {
+        RealmModel model = new RealmModel(export);
+        List<Changeset> planned = new ArrayList<>();
+        int operationCount = 0;
+
+        for (int i = start; i < changesets.size(); i++) {
+            Changeset changeset = changesets.get(i);
+            if (!isConvergible(changeset.getOperations(), export.getRealm())) {
+                log.debug("Convergence of realm '{}' stops before changeset version {}",
+                    export.getRealm(), changeset.getVersion());
+                break;
+            }
+            changeset.getOperations().forEach(model::apply);
+            operationCount += changeset.getOperations().size();
+            planned.add(changeset);
+        }
+
+        if (planned.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new ConvergePlan(export.getRealm(), List.copyOf(planned), model.buildRealmPatch(),
+            model.buildPartialImport(), model.buildClientPatches(), List.copyOf(model.followUps),
+            operationCount, model.satisfied));
+    }
+
+    private static boolean isConvergible(List<Operation> operations, String realmName) {
+        for (Operation op : operations) {
+            if (!realmName.equals(op.getTargetRealm()) || !CONVERGIBLE_OPERATIONS.contains(op.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * In-memory model of the realm, seeded from the export and updated by every planned
+     * operation, together with the changes accumulated so far.
+     */
+    private static final class RealmModel {
+
+        private final RealmRepresentation realm;
+        private final Map<String, ClientRepresentation> clients = new HashMap<>();
+        private final Set<String> realmRoles = new HashSet<>();
+        private final Map<String, Set<String>> clientRoles = new HashMap<>();
+        private final Set<String> groupPaths = new HashSet<>();
+        private final Set<String> identityProviders = new HashSet<>();
+        private final Map<String, Set<String>> clientMappers = new HashMap<>();
+        private final Map<String, Set<String>> scopeMappers = new HashMap<>();
+
+        // Entities that only follow-up operations create; nothing imported may refer to them
+        private final Set<String> deferredClients = new HashSet<>();
+        private final Set<String> deferredGroups = new HashSet<>();
+
+        private ObjectNode realmPatch;
+        private final Map<String, ObjectNode> clientPatches = new LinkedHashMap<>();
+        private final List<RoleRepresentation> importedRealmRoles = new ArrayList<>();
+        private final Map<String, List<RoleRepresentation>> importedClientRoles = new LinkedHashMap<>();
+        private final Map<String, GroupRepresentation> importedGroups = new HashMap<>();
+        private final List<GroupRepresentation> importedTopLevelGroups = new ArrayList<>();
+        private final List<UserRepresentation> importedUsers = new ArrayList<>();
+        private final List<IdentityProviderRepresentation> importedIdentityProviders = new ArrayList<>();
+        private final List<Operation> followUps = new ArrayList<>();
+        private int satisfied;
+
+        RealmModel(RealmRepresentation export) {
+            this.realm = export;
+            if (export.getClients() != null) {
+                for (ClientRepresentation client : export.getClients()) {
+                    clients.put(client.getClientId(), client);
+                    clientMappers.put(client.getClientId(), mapperNames(client.getProtocolMappers()));
+                }
+            }
+            if (export.getRoles() != null) {
+                if (export.getRoles().getRealm() != null) {
+                    export.getRoles().getRealm().forEach(role -> realmRoles.add(role.getName()));
+                }
+                if (export.getRoles().getClient() != null) {
+                    export.getRoles().getClient().forEach((clientId, roles) ->
+                        roles.forEach(role -> clientRoles(clientId).add(role.getName())));
+                }
+            }
+            if (export.getGroups() != null) {
+                addGroupPaths(null, export.getGroups());
+            }
+            if (export.getIdentityProviders() != null) {
+                export.getIdentityProviders().forEach(idp -> identityProviders.add(idp.getAlias()));
+            }
+            if (export.getClientScopes() != null) {
+                for (ClientScopeRepresentation scope : export.getClientScopes()) {
+                    scopeMappers.put(scope.getName(), mapperNames(scope.getProtocolMappers()));
+                }
+            }
+
+            // What remains are the realm settings, snapshotted before and after every update
+            export.setClients(null);
+            export.setRoles(null);
+            export.setGroups(null);
+            export.setIdentityProviders(null);
+            export.setClientScopes(null);
+        }
+
+        void apply(Operation op) {
+            if (op instanceof UpdateRealmOperation update) {
+                updateRealm(update);
+            } else if (op instanceof CreateClientOperation create) {
+                if (clients.containsKey(create.getClientId()) || !deferredClients.add(create.getClientId())) {
+                    satisfied++;
+                } else {
+                    followUps.add(op);
+                }
+            } else if (op instanceof UpdateClientOperation update) {
+                updateClient(update);
+            } else if (op instanceof CreateClientRoleOperation role) {
+                createClientRole(role);
+            } else if (op instanceof CreateRealmRoleOperation role) {
+                if (realmRoles.add(role.getName())) {
+                    importedRealmRoles.add(RepresentationMapper.toEmbeddedRealmRole(role));
+                } else {
+                    satisfied++;
+                }
+            } else if (op instanceof CreateGroupOperation group) {
+                createGroup(group);
+            } else if (op instanceof CreateUserOperation user) {
+                if (refersToDeferred(user.getClientRoles()) || refersToDeferredGroups(user.getGroups())) {
+                    followUps.add(op);
+                } else {
+                    importedUsers.add(RepresentationMapper.toEmbeddedUser(user));
+                }
+            } else if (op instanceof CreateIdentityProviderOperation idp) {
+                if (identityProviders.add(idp.getAlias())) {
+                    importedIdentityProviders.add(RepresentationMapper.toIdentityProviderRepresentation(idp));
+                } else {
+                    satisfied++;
+                }
+            } else if (op instanceof CreateProtocolMapperOperation mapper) {
+                Set<String> existing = mapper.getClientId() != null
+                    ? (deferredClients.contains(mapper.getClientId()) ? null : clientMappers.get(mapper.getClientId()))
+                    : scopeMappers.get(mapper.getClientScopeName());
+                if (existing != null && existing.contains(mapper.getName())) {
+                    satisfied++;
+                } else {
+                    if (existing != null) {
+                        existing.add(mapper.getName());
+                    }
+                    followUps.add(op);
+                }
+            } else {
+                throw new IllegalStateException("Operation cannot be converged: " + op.getDescription());
+            }
+        }
+
+        private void updateRealm(UpdateRealmOperation op) {
+            ObjectNode before = MAPPER.valueToTree(realm);
+            if (!RepresentationMapper.applyRealmUpdate(realm, op)) {
+                satisfied++;
+                return;
+            }
+            if (realmPatch == null) {
+                // Keycloak drops attributes missing from an update, so the patch carries them all
+                realmPatch = MAPPER.createObjectNode().put("realm", realm.getRealm());
+                realmPatch.set("attributes", MAPPER.valueToTree(realm.getAttributes() != null ? realm.getAttributes() : Map.of()));
+            }
+            copyChanges(before, MAPPER.valueToTree(realm), realmPatch);
+        }
+
+        private void updateClient(UpdateClientOperation op) {
+            ClientRepresentation client = clients.get(op.getClientId());
+            if (client == null || deferredClients.contains(op.getClientId())) {
+                followUps.add(op);
+                return;
+            }
+            ObjectNode before = MAPPER.valueToTree(client);
+            if (!RepresentationMapper.applyClientUpdate(client, op)) {
+                satisfied++;
+                return;
+            }
+            // Exports mask client secrets, so only the changed fields are sent back
+            ObjectNode patch = clientPatches.computeIfAbsent(op.getClientId(), clientId ->
+                MAPPER.createObjectNode().put("id", client.getId()).put("clientId", clientId));
+            copyChanges(before, MAPPER.valueToTree(client), patch);
+        }
+
+        private void createClientRole(CreateClientRoleOperation op) {
+            if (!clients.containsKey(op.getClientId()) || deferredClients.contains(op.getClientId())) {
+                followUps.add(op);
+            } else if (clientRoles(op.getClientId()).add(op.getName())) {
+                importedClientRoles.computeIfAbsent(op.getClientId(), k -> new ArrayList<>())
+                    .add(RepresentationMapper.toRoleRepresentation(op));
+            } else {
+                satisfied++;
+            }
+        }
+
+        private void createGroup(CreateGroupOperation op) {
+            String path = GroupPaths.childPath(op.getParentGroup(), op.getName());
+            if (groupPaths.contains(path) || deferredGroups.contains(path)) {
+                satisfied++;
+                return;
+            }
+
+            // A partial import skips the whole subtree of an existing top-level group, so
+            // children of existing groups are created on their own
+            GroupRepresentation parent = op.getParentGroup() != null
+                ? importedGroups.get(GroupPaths.normalize(op.getParentGroup()))
+                : null;
+            if (refersToDeferred(op.getClientRoles()) || (op.getParentGroup() != null && parent == null)) {
+                deferredGroups.add(path);
+                followUps.add(op);
+                return;
+            }
+
+            GroupRepresentation group = RepresentationMapper.toEmbeddedGroup(op);
+            if (parent != null) {
+                if (parent.getSubGroups() == null) {
+                    parent.setSubGroups(new ArrayList<>());
+                }
+                parent.getSubGroups().add(group);
+            } else {
+                importedTopLevelGroups.add(group);
+            }
+            importedGroups.put(path, group);
+            groupPaths.add(path);
+        }
+
+        RealmRepresentation buildRealmPatch() {
+            return realmPatch != null ? MAPPER.convertValue(realmPatch, RealmRepresentation.class) : null;
+        }
+
+        List<ClientRepresentation> buildClientPatches() {
+            return clientPatches.values().stream()
+                .map(patch -> MAPPER.convertValue(patch, ClientRepresentation.class))
+                .toList();
+        }
+
+        PartialImportRepresentation buildPartialImport() {
+            if (importedRealmRoles.isEmpty() && importedClientRoles.isEmpty() && importedTopLevelGroups.isEmpty()
+                && importedUsers.isEmpty() && importedIdentityProviders.isEmpty()) {
+                return null;
+            }
+
+            PartialImportRepresentation partialImport = new PartialImportRepresentation();
+            partialImport.setIfResourceExists(PartialImportRepresentation.Policy.SKIP.name());
+            if (!importedRealmRoles.isEmpty() || !importedClientRoles.isEmpty()) {
+                RolesRepresentation roles = new RolesRepresentation();
+                if (!importedRealmRoles.isEmpty()) roles.setRealm(importedRealmRoles);
+                if (!importedClientRoles.isEmpty()) roles.setClient(importedClientRoles);
+                partialImport.setRoles(roles);
+            }
+            if (!importedTopLevelGroups.isEmpty()) {
+                partialImport.setGroups(importedTopLevelGroups);
+            }
+            if (!importedUsers.isEmpty()) {
+                partialImport.setUsers(importedUsers);
+            }
+            if (!importedIdentityProviders.isEmpty()) {
+                partialImport.setIdentityProviders(importedIdentityProviders);
+            }
+            return partialImport;
+        }
+
+        private boolean refersToDeferred(List<CreateUserOperation.ClientRoleMapping> mappings) {
+            return mappings != null && mappings.stream().anyMatch(m -> deferredClients.contains(m.getClientId()));
+        }
+
+        private boolean refersToDeferredGroups(List<String> paths) {
+            return paths != null && paths.stream().anyMatch(p -> deferredGroups.contains(GroupPaths.normalize(p)));
+        }
+
+        private Set<String> clientRoles(String clientId) {
+            return clientRoles.computeIfAbsent(clientId, k -> new HashSet<>());
+        }
+
+        private void addGroupPaths(String parentPath, List<GroupRepresentation> groups) {
+            for (GroupRepresentation group : groups) {
+                String path = GroupPaths.childPath(parentPath, group.getName());
+                groupPaths.add(path);
+                if (group.getSubGroups() != null) {
+                    addGroupPaths(path, group.getSubGroups());
+                }
+            }
+        }
+
+        /**
+         * Copy the top-level fields that differ between two snapshots into the patch.
+         */
+        private static void copyChanges(ObjectNode before, ObjectNode after, ObjectNode patch) {
+            after.properties().forEach(field -> {
+                if (!field.getValue().equals(before.get(field.getKey()))) {
+                    patch.set(field.getKey(), field.getValue());
+                }
+            });
+        }
+
+        private static Set<String> mapperNames(List<ProtocolMapperRepresentation> mappers) {
+            Set<String> names = new HashSet<>();
+            if (mappers != null) {
+                mappers.forEach(mapper -> names.add(mapper.getName()));
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.model.operations.CreateClientOperation;
+import com.keycloakmigrator.model.operations.CreateClientRoleOperation;
+import com.keycloakmigrator.model.operations.CreateProtocolMapperOperation;
+import com.keycloakmigrator.model.operations.Operation;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A client creation merged with the client roles and protocol mappers that the same
+ * changeset creates for it.
+ *
+ * <p>Produced by {@link ClientBundlePlanner}; never read from a changelog file.</p>
+ */
+public final class CreateClientBundleOperation implements Operation {
+
+    private final CreateClientOperation client;
+    private final List<CreateClientRoleOperation> roles;
+    private final List<CreateProtocolMapperOperation> protocolMappers;
+
+    public CreateClientBundleOperation(CreateClientOperation client,
+                                       List<CreateClientRoleOperation> roles,
+                                       List<CreateProtocolMapperOperation> protocolMappers) {
+        this.client = client;
+        this.roles = List.copyOf(roles);
+        this.protocolMappers = List.copyOf(protocolMappers);
+    }
+
+    public CreateClientOperation getClient() { return client; }
+
+    public List<CreateClientRoleOperation> getRoles() { return roles; }
+
+    public List<CreateProtocolMapperOperation> getProtocolMappers() { return protocolMappers; }
+
+    @Override
+    public void execute(KeycloakAdminClient keycloakClient) throws Exception {
+        keycloakClient.createClient(client, roles, protocolMappers);
+    }
+
+    /**
+     * Execute the bundle, reporting each merged operation as soon as it has been applied.
+     *
+     * @param keycloakClient the Keycloak admin client
+     * @param completed      receives the client, its protocol mappers and each of its roles once applied
+     */
+    public void execute(KeycloakAdminClient keycloakClient, Consumer<Operation> completed) {
+        keycloakClient.createClient(client, roles, protocolMappers, completed);
+    }
+
+    @Override
+    public String getDescription() {
+        return client.getDescription() + " with " + roles.size() + " role(s) and "
+            + protocolMappers.size() + " protocol mapper(s)";
+    }
+
+    @Override
+    public String getTargetRealm() {
+        return client.getTargetRealm();
+    }
+}
@@ -0,0 +1,46 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.model.operations.CreateProtocolMapperOperation;
+import com.keycloakmigrator.model.operations.Operation;
+
+import java.util.List;
+
+/**
+ * Consecutive protocol mapper creations on the same client or client scope, sent
+ * through the bulk mapper endpoint.
+ *
+ * <p>Produced by {@link ProtocolMapperBatchPlanner}; never read from a changelog file.</p>
+ */
+public final class CreateProtocolMappersOperation implements Operation {
+
+    private final List<CreateProtocolMapperOperation> mappers;
+
+    public CreateProtocolMappersOperation(List<CreateProtocolMapperOperation> mappers) {
+        if (mappers.isEmpty()) {
+            throw new IllegalArgumentException("At least one protocol mapper is required");
+        }
+        this.mappers = List.copyOf(mappers);
+    }
+
+    public List<CreateProtocolMapperOperation> getMappers() { return mappers; }
+
+    @Override
+    public void execute(KeycloakAdminClient client) throws Exception {
+        client.createProtocolMappers(mappers);
+    }
+
+    @Override
+    public String getDescription() {
+        CreateProtocolMapperOperation first = mappers.get(0);
+        String owner = first.getClientId() != null
+            ? "client '" + first.getClientId() + "'"
+            : "client scope '" + first.getClientScopeName() + "'";
+        return "Create " + mappers.size() + " protocol mappers for " + owner + " in realm '" + first.getRealm() + "'";
+    }
+
+    @Override
+    public String getTargetRealm() {
+        return mappers.get(0).getTargetRealm();
+    }
+}
@@ -0,0 +1,62 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.operations.CreateProtocolMapperOperation;
+import com.keycloakmigrator.model.operations.Operation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Groups consecutive protocol mapper creations on the same owner.
+ *
+ * <p>Each {@link CreateProtocolMapperOperation} resolves its client or client scope
+ * before posting a single mapper; resolving a client scope lists every scope of the
+ * realm. A run of two or more mappers for the same client or client scope becomes one
+ * {@link CreateProtocolMappersOperation} that resolves the owner once and creates all
+ * mappers in a single request. Only adjacent operations are grouped, so the order of
+ * the changeset is preserved.</p>
+ */
+public final class ProtocolMapperBatchPlanner {
+
+    /**
+     * Plan the operations of a single changeset.
+     *
+     * @param operations the operations, in changeset order
+     * @return the planned operations
+     */
+    public List<Operation> plan(List<Operation> operations) {
+        List<Operation> planned = new ArrayList<>(operations.size());
+        List<CreateProtocolMapperOperation> run = new ArrayList<>();
+
+        for (Operation op : operations) {
+            if (op instanceof CreateProtocolMapperOperation mapper) {
+                if (!run.isEmpty() && !sameOwner(run.get(0), mapper)) {
+                    flush(run, planned);
+                }
+                run.add(mapper);
+            } else {
+                flush(run, planned);
+                planned.add(op);
+            }
+        }
+        flush(run, planned);
+
+        return planned;
+    }
+
+    private void flush(List<CreateProtocolMapperOperation> run, List<Operation> planned) {
+        if (run.size() == 1) {
+            planned.add(run.get(0));
+        } else if (run.size() > 1) {
+            planned.add(new CreateProtocolMappersOperation(run));
+        }
+        run.clear();
+    }
+
+    private static boolean sameOwner(CreateProtocolMapperOperation a, CreateProtocolMapperOperation b) {
+        return Objects.equals(a.getRealm(), b.getRealm())
+            && Objects.equals(a.getClientId(), b.getClientId())
+            && Objects.equals(a.getClientScopeName(), b.getClientScopeName());
+    }
+}
@@ -0,0 +1,22 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.Changeset;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.List;
+
+/**
+ * A realm creation compiled from one or more consecutive changesets.
+ *
+ * @param realmName      the name of the realm being created
+ * @param representation the complete realm payload to send in a single create request
+ * @param changesets     the changesets folded into the payload, in execution order
+ * @param operationCount the number of operations folded into the payload
+ */
+public record RealmImport(
+    String realmName,
+    RealmRepresentation representation,
+    List<Changeset> changesets,
+    int operationCount
+) {
+}
@@ -0,0 +1,215 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.client.GroupPaths;
+import com.keycloakmigrator.client.RepresentationMapper;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import org.keycloak.representations.idm.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Compiles a realm creation and the changesets that populate the new realm into a
+ * single {@link RealmRepresentation}.
+ *
+ * <p>Compilation starts at a changeset whose first operation creates a realm that does
+ * not exist yet and extends over the following changesets as long as every operation
+ * they contain targets that realm and can be expressed in the import payload. Changesets
+ * are folded whole, so migration tracking keeps its per-changeset granularity.</p>
+ *
+ * <p>Client scopes and authentication flows end the fold: a realm import that carries
+ * either of them replaces the defaults Keycloak would otherwise create for the realm.
+ * Delete operations also end it, as does any operation that references a client or
+ * group the import does not contain.</p>
+ */
+public final class RealmImportCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(RealmImportCompiler.class);
+
+    /**
+     * Compile the changesets starting at {@code start} into a realm import.
+     *
+     * @param changesets  the pending changesets, sorted by version
+     * @param start       index of the changeset to start compiling from
+     * @param realmExists checks whether a realm already exists on the server
+     * @return the compiled import, or empty if the changeset at {@code start} does not create a new realm
+     */
+    public Optional<RealmImport> compile(List<Changeset> changesets, int start, Predicate<String> realmExists) {
+        List<Operation> firstOperations = changesets.get(start).getOperations();
+        if (firstOperations.isEmpty() || !(firstOperations.get(0) instanceof CreateRealmOperation createRealm)) {
+            return Optional.empty();
+        }
+        if (realmExists.test(createRealm.getName())) {
+            return Optional.empty();
+        }
+
+        RealmBuilder builder = new RealmBuilder(createRealm);
+        List<Changeset> folded = new ArrayList<>();
+        int operationCount = 1;
+
+        for (int i = start; i < changesets.size(); i++) {
+            Changeset changeset = changesets.get(i);
+            List<Operation> operations = i == start
+                ? firstOperations.subList(1, firstOperations.size())
+                : changeset.getOperations();
+
+            if (!builder.canFold(operations)) {
+                log.debug("Realm import for '{}' stops before changeset version {}",
+                    createRealm.getName(), changeset.getVersion());
+                break;
+            }
+
+            operations.forEach(builder::fold);
+            operationCount += operations.size();
+            folded.add(changeset);
+        }
+
+        if (folded.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new RealmImport(createRealm.getName(), builder.build(), List.copyOf(folded), operationCount));
+    }
+
+    /**
+     * Accumulates the content of the realm being compiled.
+     */
+    private static final class RealmBuilder {
+
+        private final String realmName;
+        private final RealmRepresentation realm;
+        private final Map<String, ClientRepresentation> clients = new LinkedHashMap<>();
+        private final List<RoleRepresentation> realmRoles = new ArrayList<>();
+        private final Map<String, List<RoleRepresentation>> clientRoles = new LinkedHashMap<>();
+        private final Map<String, GroupRepresentation> groups = new HashMap<>();
+        private final List<GroupRepresentation> topLevelGroups = new ArrayList<>();
+        private final List<UserRepresentation> users = new ArrayList<>();
+        private final List<IdentityProviderRepresentation> identityProviders = new ArrayList<>();
+
+        RealmBuilder(CreateRealmOperation op) {
+            this.realmName = op.getName();
+            this.realm = RepresentationMapper.toRealmRepresentation(op);
+        }
+
+        /**
+         * Check whether all operations of a changeset can be folded, taking into account
+         * the clients and groups created earlier in the same changeset.
+         */
+        boolean canFold(List<Operation> operations) {
+            Set<String> stagedClients = new HashSet<>();
+            Set<String> stagedGroups = new HashSet<>();
+
+            for (Operation op : operations) {
+                if (!realmName.equals(op.getTargetRealm())) {
+                    return false;
+                }
+
+                boolean foldable;
+                if (op instanceof UpdateRealmOperation) {
+                    foldable = true;
+                } else if (op instanceof CreateClientOperation create) {
+                    foldable = !hasClient(create.getClientId(), stagedClients) && stagedClients.add(create.getClientId());
+                } else if (op instanceof UpdateClientOperation update) {
+                    foldable = hasClient(update.getClientId(), stagedClients);
+                } else if (op instanceof CreateClientRoleOperation role) {
+                    foldable = hasClient(role.getClientId(), stagedClients);
+                } else if (op instanceof CreateRealmRoleOperation) {
+                    foldable = true;
+                } else if (op instanceof CreateGroupOperation group) {
+                    String path = GroupPaths.childPath(group.getParentGroup(), group.getName());
+                    foldable = !hasGroup(path, stagedGroups)
+                        && (group.getParentGroup() == null || hasGroup(GroupPaths.normalize(group.getParentGroup()), stagedGroups))
+                        && stagedGroups.add(path);
+                } else if (op instanceof CreateUserOperation || op instanceof CreateIdentityProviderOperation) {
+                    foldable = true;
+                } else if (op instanceof CreateProtocolMapperOperation mapper) {
+                    foldable = mapper.getClientId() != null && hasClient(mapper.getClientId(), stagedClients);
+                } else {
+                    foldable = false;
+                }
+
+                if (!foldable) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void fold(Operation op) {
+            if (op instanceof UpdateRealmOperation update) {
+                RepresentationMapper.applyRealmUpdate(realm, update);
+            } else if (op instanceof CreateClientOperation create) {
+                clients.put(create.getClientId(), RepresentationMapper.toClientRepresentation(create));
+            } else if (op instanceof UpdateClientOperation update) {
+                RepresentationMapper.applyClientUpdate(clients.get(update.getClientId()), update);
+            } else if (op instanceof CreateClientRoleOperation role) {
+                clientRoles.computeIfAbsent(role.getClientId(), k -> new ArrayList<>())
+                    .add(RepresentationMapper.toRoleRepresentation(role));
+            } else if (op instanceof CreateRealmRoleOperation role) {
+                realmRoles.add(RepresentationMapper.toEmbeddedRealmRole(role));
+            } else if (op instanceof CreateGroupOperation group) {
+                foldGroup(group);
+            } else if (op instanceof CreateUserOperation user) {
+                users.add(RepresentationMapper.toEmbeddedUser(user));
+            } else if (op instanceof CreateIdentityProviderOperation idp) {
+                identityProviders.add(RepresentationMapper.toIdentityProviderRepresentation(idp));
+            } else if (op instanceof CreateProtocolMapperOperation mapper) {
+                ClientRepresentation client = clients.get(mapper.getClientId());
+                if (client.getProtocolMappers() == null) {
+                    client.setProtocolMappers(new ArrayList<>());
+                }
+                client.getProtocolMappers().add(RepresentationMapper.toProtocolMapperRepresentation(mapper));
+            } else {
+                throw new IllegalStateException("Operation cannot be folded into a realm import: " + op.getDescription());
+            }
+        }
+
+        RealmRepresentation build() {
+            if (!clients.isEmpty()) {
+                realm.setClients(new ArrayList<>(clients.values()));
+            }
+            if (!realmRoles.isEmpty() || !clientRoles.isEmpty()) {
+                RolesRepresentation roles = new RolesRepresentation();
+                if (!realmRoles.isEmpty()) roles.setRealm(realmRoles);
+                if (!clientRoles.isEmpty()) roles.setClient(clientRoles);
+                realm.setRoles(roles);
+            }
+            if (!topLevelGroups.isEmpty()) {
+                realm.setGroups(topLevelGroups);
+            }
+            if (!users.isEmpty()) {
+                realm.setUsers(users);
+            }
+            if (!identityProviders.isEmpty()) {
+                realm.setIdentityProviders(identityProviders);
+            }
+            return realm;
+        }
+
+        private boolean hasClient(String clientId, Set<String> staged) {
+            return clients.containsKey(clientId) || staged.contains(clientId);
+        }
+
+        private boolean hasGroup(String path, Set<String> staged) {
+            return groups.containsKey(path) || staged.contains(path);
+        }
+
+        private void foldGroup(CreateGroupOperation op) {
+            GroupRepresentation group = RepresentationMapper.toEmbeddedGroup(op);
+
+            if (op.getParentGroup() != null) {
+                GroupRepresentation parent = groups.get(GroupPaths.normalize(op.getParentGroup()));
+                if (parent.getSubGroups() == null) {
+                    parent.setSubGroups(new ArrayList<>());
+                }
+                parent.getSubGroups().add(group);
+            } else {
+                topLevelGroups.add(group);
+            }
+            groups.put(GroupPaths.childPath(op.getParentGroup(), op.getName()), group);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.keycloakmigrator.planner;
+
+import java.util.*;
+
+/**
+ * Existing entities of one realm that a set of operations looks up by name.
+ */
+public final class RealmReferences {
+
+    private final String realmName;
+    private final Set<String> clientIds = new LinkedHashSet<>();
+    private final Set<String> clientScopes = new LinkedHashSet<>();
+    private final Set<String> groupPaths = new LinkedHashSet<>();
+    private final Set<String> realmRoles = new LinkedHashSet<>();
+    private final Set<String> roleClientIds = new LinkedHashSet<>();
+    private final Set<String> usernames = new LinkedHashSet<>();
+
+    RealmReferences(String realmName) {
+        this.realmName = realmName;
+    }
+
+    public String getRealmName() { return realmName; }
+
+    /** Clients looked up by client id. */
+    public Set<String> getClientIds() { return clientIds; }
+
+    /** Client scopes looked up by name. */
+    public Set<String> getClientScopes() { return clientScopes; }
+
+    /** Groups looked up by name or path. */
+    public Set<String> getGroupPaths() { return groupPaths; }
+
+    /** Realm roles resolved for role mappings or composites. */
+    public Set<String> getRealmRoles() { return realmRoles; }
+
+    /** Clients whose roles are resolved for role mappings. */
+    public Set<String> getRoleClientIds() { return roleClientIds; }
+
+    /** Users looked up by username. */
+    public Set<String> getUsernames() { return usernames; }
+}
@@ -0,0 +1,434 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.client.GroupPaths;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import com.keycloakmigrator.parser.SourceLocations;
+
+import java.util.*;
+
+/**
+ * Static referential-integrity check of a changelog, run before anything is sent to Keycloak.
+ *
+ * <p>The operations are walked in version order while symbol tables record the realms,
+ * clients, roles, groups, client scopes, users, identity providers and flows that they
+ * create and delete. Every name an operation refers to is looked up in those tables, which
+ * flags references to entities that an earlier changeset deletes or that only a later
+ * changeset creates.</p>
+ *
+ * <p>A reference to an entity that the changelog never creates is an error in a realm that
+ * the changelog creates itself, unless Keycloak creates that entity with every realm. In
+ * other realms the entity may already exist on the server, so such references are only
+ * warnings unless the analysis is strict.</p>
+ *
+ * <p>The tables are hash maps keyed by realm, kind and name, so the analysis takes time
+ * linear in the number of operations and references.</p>
+ */
+public class ReferenceAnalyzer {
+
+    private static final Set<String> BUILT_IN_REALM_ROLES = Set.of("offline_access", "uma_authorization");
+    private static final Set<String> BUILT_IN_CLIENTS = Set.of(
+        "account", "account-console", "admin-cli", "broker", "realm-management", "security-admin-console");
+    private static final Set<String> BUILT_IN_CLIENT_SCOPES = Set.of(
+        "acr", "address", "basic", "email", "microprofile-jwt", "offline_access", "organization", "phone",
+        "profile", "role_list", "roles", "saml_organization", "web-origins");
+    private static final Set<String> BUILT_IN_FLOWS = Set.of(
+        "browser", "clients", "direct grant", "docker auth", "first broker login", "registration",
+        "reset credentials");
+
+    private final SourceLocations locations;
+    private final boolean strict;
+
+    /**
+     * @param locations where the analyzed operations were parsed from; may be empty
+     * @param strict    whether references that no changeset creates are errors in realms
+     *                  that the changelog does not create
+     */
+    public ReferenceAnalyzer(SourceLocations locations, boolean strict) {
+        this.locations = locations;
+        this.strict = strict;
+    }
+
+    /**
+     * Analyze the given changesets in version order.
+     */
+    public Result analyze(List<Changeset> changesets) {
+        List<Changeset> ordered = new ArrayList<>(changesets);
+        ordered.sort(Comparator.comparingInt(Changeset::getVersion));
+
+        // First pass indexes where each entity is first created, so that references
+        // ahead of their creation can be told apart from references to unknown entities
+        Walk index = new Walk(true, new HashMap<>());
+        index.run(ordered);
+        Walk check = new Walk(false, index.firstCreated);
+        check.run(ordered);
+        return new Result(check.findings, check.ordinal);
+    }
+
+    enum Kind {
+        REALM("realm"),
+        CLIENT("client"),
+        CLIENT_ROLE("client role"),
+        REALM_ROLE("realm role"),
+        GROUP("group"),
+        CLIENT_SCOPE("client scope"),
+        USER("user"),
+        IDENTITY_PROVIDER("identity provider"),
+        FLOW("authentication flow");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * An entity in the symbol tables; {@code owner} is the client id of client roles.
+     * Usernames are kept in lower case, as Keycloak stores them.
+     */
+    private record Symbol(String realm, Kind kind, String owner, String name) {
+        Symbol {
+            if (kind == Kind.USER && name != null) {
+                name = name.toLowerCase(Locale.ROOT);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return kind == Kind.CLIENT_ROLE
+                ? kind.label + " '" + name + "' of client '" + owner + "'"
+                : kind.label + " '" + name + "'";
+        }
+    }
+
+    /**
+     * Latest creation or deletion of a symbol, at the position {@code ordinal} of the walk.
+     */
+    private record Entry(boolean deleted, long ordinal, int version, SourceLocations.Location location) {
+        @Override
+        public String toString() {
+            return location != null ? location + " (version " + version + ")" : "version " + version;
+        }
+    }
+
+    private final class Walk {
+
+        private final boolean indexing;
+        private final Map<Symbol, Entry> firstCreated;
+        private final Map<Symbol, Entry> live = new HashMap<>();
+        private final Map<Symbol, Entry> deletions = new HashMap<>();
+        private final List<Finding> findings = new ArrayList<>();
+
+        private long ordinal;
+        private Changeset changeset;
+        private Operation operation;
+
+        Walk(boolean indexing, Map<Symbol, Entry> firstCreated) {
+            this.indexing = indexing;
+            this.firstCreated = firstCreated;
+        }
+
+        void run(List<Changeset> changesets) {
+            for (Changeset cs : changesets) {
+                changeset = cs;
+                for (Operation op : cs.getOperations()) {
+                    operation = op;
+                    visit(op);
+                    ordinal++;
+                }
+            }
+        }
+
+        private void visit(Operation op) {
+            if (op instanceof CreateRealmOperation realm) {
+                create(new Symbol(realm.getName(), Kind.REALM, null, realm.getName()));
+                return;
+            }
+            String realm = op.getTargetRealm();
+            if (realm == null || !reference(new Symbol(realm, Kind.REALM, null, realm))) {
+                return;
+            }
+
+            if (op instanceof DeleteRealmOperation) {
+                delete(new Symbol(realm, Kind.REALM, null, realm));
+            } else if (op instanceof CreateClientOperation client) {
+                referenceAll(realm, Kind.CLIENT_SCOPE, client.getDefaultClientScopes());
+                referenceAll(realm, Kind.CLIENT_SCOPE, client.getOptionalClientScopes());
+                create(new Symbol(realm, Kind.CLIENT, null, client.getClientId()));
+            } else if (op instanceof UpdateClientOperation client) {
+                reference(new Symbol(realm, Kind.CLIENT, null, client.getClientId()));
+            } else if (op instanceof DeleteClientOperation client) {
+                delete(new Symbol(realm, Kind.CLIENT, null, client.getClientId()));
+            } else if (op instanceof CreateClientRoleOperation role) {
+                reference(new Symbol(realm, Kind.CLIENT, null, role.getClientId()));
+                create(new Symbol(realm, Kind.CLIENT_ROLE, role.getClientId(), role.getName()));
+            } else if (op instanceof CreateRealmRoleOperation role) {
+                referenceAll(realm, Kind.REALM_ROLE, role.getCompositeRoles());
+                create(new Symbol(realm, Kind.REALM_ROLE, null, role.getName()));
+            } else if (op instanceof DeleteRoleOperation role) {
+                if (role.getClientId() == null) {
+                    delete(new Symbol(realm, Kind.REALM_ROLE, null, role.getName()));
+                } else if (reference(new Symbol(realm, Kind.CLIENT, null, role.getClientId()))) {
+                    delete(new Symbol(realm, Kind.CLIENT_ROLE, role.getClientId(), role.getName()));
+                }
+            } else if (op instanceof CreateGroupOperation group) {
+                String parent = group.getParentGroup();
+                if (parent != null) {
+                    reference(new Symbol(realm, Kind.GROUP, null, GroupPaths.normalize(parent)));
+                }
+                referenceAll(realm, Kind.REALM_ROLE, group.getRealmRoles());
+                referenceClientRoles(realm, group.getClientRoles());
+                create(new Symbol(realm, Kind.GROUP, null, GroupPaths.childPath(parent, group.getName())));
+            } else if (op instanceof DeleteGroupOperation group) {
+                delete(new Symbol(realm, Kind.GROUP, null, GroupPaths.normalize(group.getName())));
+            } else if (op instanceof CreateUserOperation user) {
+                referenceAll(realm, Kind.REALM_ROLE, user.getRealmRoles());
+                referenceGroups(realm, user.getGroups());
+                referenceClientRoles(realm, user.getClientRoles());
+                create(new Symbol(realm, Kind.USER, null, user.getUsername()));
+            } else if (op instanceof UpdateUserOperation user) {
+                reference(new Symbol(realm, Kind.USER, null, user.getUsername()));
+                referenceAll(realm, Kind.REALM_ROLE, user.getAddRealmRoles());
+                referenceAll(realm, Kind.REALM_ROLE, user.getRemoveRealmRoles());
+                referenceGroups(realm, user.getAddGroups());
+                referenceGroups(realm, user.getRemoveGroups());
+            } else if (op instanceof DeleteUserOperation user) {
+                delete(new Symbol(realm, Kind.USER, null, user.getUsername()));
+            } else if (op instanceof CreateClientScopeOperation scope) {
+                create(new Symbol(realm, Kind.CLIENT_SCOPE, null, scope.getName()));
+            } else if (op instanceof DeleteClientScopeOperation scope) {
+                delete(new Symbol(realm, Kind.CLIENT_SCOPE, null, scope.getName()));
+            } else if (op instanceof CreateProtocolMapperOperation mapper) {
+                referenceMapperOwner(realm, mapper.getClientId(), mapper.getClientScopeName());
+            } else if (op instanceof DeleteProtocolMapperOperation mapper) {
+                referenceMapperOwner(realm, mapper.getClientId(), mapper.getClientScopeName());
+            } else if (op instanceof CreateIdentityProviderOperation idp) {
+                referenceFlow(realm, idp.getFirstBrokerLoginFlowAlias());
+                referenceFlow(realm, idp.getPostBrokerLoginFlowAlias());
+                create(new Symbol(realm, Kind.IDENTITY_PROVIDER, null, idp.getAlias()));
+            } else if (op instanceof DeleteIdentityProviderOperation idp) {
+                delete(new Symbol(realm, Kind.IDENTITY_PROVIDER, null, idp.getAlias()));
+            } else if (op instanceof CreateAuthenticationFlowOperation flow) {
+                create(new Symbol(realm, Kind.FLOW, null, flow.getAlias()));
+            } else if (op instanceof DeleteAuthenticationFlowOperation flow) {
+                delete(new Symbol(realm, Kind.FLOW, null, flow.getAlias()));
+            }
+        }
+
+        private void referenceAll(String realm, Kind kind, List<String> names) {
+            if (names != null) {
+                for (String name : names) {
+                    reference(new Symbol(realm, kind, null, name));
+                }
+            }
+        }
+
+        private void referenceFlow(String realm, String alias) {
+            if (alias != null && !alias.isBlank()) {
+                reference(new Symbol(realm, Kind.FLOW, null, alias));
+            }
+        }
+
+        private void referenceGroups(String realm, List<String> paths) {
+            if (paths != null) {
+                for (String path : paths) {
+                    reference(new Symbol(realm, Kind.GROUP, null, GroupPaths.normalize(path)));
+                }
+            }
+        }
+
+        private void referenceClientRoles(String realm, List<CreateUserOperation.ClientRoleMapping> mappings) {
+            if (mappings == null) {
+                return;
+            }
+            for (CreateUserOperation.ClientRoleMapping mapping : mappings) {
+                if (reference(new Symbol(realm, Kind.CLIENT, null, mapping.getClientId())) && mapping.getRoles() != null) {
+                    for (String role : mapping.getRoles()) {
+                        reference(new Symbol(realm, Kind.CLIENT_ROLE, mapping.getClientId(), role));
+                    }
+                }
+            }
+        }
+
+        private void referenceMapperOwner(String realm, String clientId, String clientScopeName) {
+            if (clientId != null) {
+                reference(new Symbol(realm, Kind.CLIENT, null, clientId));
+            } else if (clientScopeName != null) {
+                reference(new Symbol(realm, Kind.CLIENT_SCOPE, null, clientScopeName));
+            }
+        }
+
+        private void create(Symbol symbol) {
+            Entry entry = new Entry(false, ordinal, changeset.getVersion(), location());
+            if (indexing) {
+                firstCreated.putIfAbsent(symbol, entry);
+            } else {
+                live.put(symbol, entry);
+            }
+        }
+
+        private void delete(Symbol symbol) {
+            if (!indexing && reference(symbol)) {
+                Entry entry = new Entry(true, ordinal, changeset.getVersion(), location());
+                live.put(symbol, entry);
+                deletions.put(symbol, entry);
+            }
+        }
+
+        /**
+         * Check that the symbol exists at the current position of the walk.
+         *
+         * @return false if a dangling reference was reported, so that dependent
+         *         references of the same operation are not reported again
+         */
+        private boolean reference(Symbol symbol) {
+            if (indexing) {
+                return true;
+            }
+            Entry entry = lookup(symbol);
+            if (entry != null) {
+                if (entry.deleted()) {
+                    report(Finding.Severity.ERROR, symbol + " was deleted at " + entry);
+                    return false;
+                }
+                return true;
+            }
+            Entry created = firstCreated.get(symbol);
+            if (created != null && created.ordinal() > ordinal) {
+                report(Finding.Severity.ERROR, symbol + " is only created at " + created);
+                return false;
+            }
+            String removal = removedWithOwner(symbol);
+            if (removal != null) {
+                report(Finding.Severity.ERROR, removal);
+                return false;
+            }
+            if (symbol.kind() == Kind.REALM || isBuiltIn(symbol)) {
+                return true;
+            }
+            Entry realm = lookup(new Symbol(symbol.realm(), Kind.REALM, null, symbol.realm()));
+            if (realm != null || strict) {
+                report(Finding.Severity.ERROR, symbol + " is never created");
+                return false;
+            }
+            report(Finding.Severity.WARNING, symbol + " is not created by the changelog");
+            return true;
+        }
+
+        /**
+         * Latest entry of the symbol, the deletion of an owner that removed it since,
+         * or null if it does not exist in the current incarnation of its owners.
+         */
+        private Entry lookup(Symbol symbol) {
+            Entry entry = live.get(symbol);
+            if (entry == null) {
+                return null;
+            }
+            for (Symbol owner : owners(symbol)) {
+                Entry ownerEntry = live.get(owner);
+                if (ownerEntry != null && ownerEntry.ordinal() > entry.ordinal()) {
+                    return ownerEntry.deleted() ? ownerEntry : null;
+                }
+            }
+            return entry;
+        }
+
+        /**
+         * Describe how a symbol created in an earlier incarnation of one of its owners was
+         * removed, or return null if it was not.
+         */
+        private String removedWithOwner(Symbol symbol) {
+            Entry entry = live.get(symbol);
+            if (entry == null || entry.deleted()) {
+                return null;
+            }
+            for (Symbol owner : owners(symbol)) {
+                Entry deletion = deletions.get(owner);
+                if (deletion != null && deletion.ordinal() > entry.ordinal()) {
+                    return symbol + " was deleted with " + owner + " at " + deletion;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The realm of a symbol, then the client of a client role or the ancestors of a group.
+         */
+        private List<Symbol> owners(Symbol symbol) {
+            if (symbol.kind() == Kind.REALM) {
+                return List.of();
+            }
+            List<Symbol> owners = new ArrayList<>();
+            owners.add(new Symbol(symbol.realm(), Kind.REALM, null, symbol.realm()));
+            if (symbol.kind() == Kind.CLIENT_ROLE) {
+                owners.add(new Symbol(symbol.realm(), Kind.CLIENT, null, symbol.owner()));
+            } else if (symbol.kind() == Kind.GROUP) {
+                String path = symbol.name();
+                for (int i = GroupPaths.separatorIndex(path, 1); i > 0; i = GroupPaths.separatorIndex(path, i + 1)) {
+                    owners.add(new Symbol(symbol.realm(), Kind.GROUP, null, path.substring(0, i)));
+                }
+            }
+            return owners;
+        }
+
+        private boolean isBuiltIn(Symbol symbol) {
+            return switch (symbol.kind()) {
+                case REALM_ROLE -> BUILT_IN_REALM_ROLES.contains(symbol.name())
+                    || symbol.name().equals("default-roles-" + symbol.realm());
+                case CLIENT -> BUILT_IN_CLIENTS.contains(symbol.name());
+                case CLIENT_ROLE -> BUILT_IN_CLIENTS.contains(symbol.owner());
+                case CLIENT_SCOPE -> BUILT_IN_CLIENT_SCOPES.contains(symbol.name());
+                case FLOW -> BUILT_IN_FLOWS.contains(symbol.name());
+                default -> false;
+            };
+        }
+
+        private SourceLocations.Location location() {
+            SourceLocations.Location location = locations.get(operation);
+            return location != null ? location : locations.get(changeset);
+        }
+
+        private void report(Finding.Severity severity, String problem) {
+            findings.add(new Finding(severity, location(), changeset.getVersion(),
+                operation.getDescription() + ": " + problem));
+        }
+    }
+
+    /**
+     * A dangling reference.
+     *
+     * @param location where the referring operation was parsed from, or null if unknown
+     * @param version  the version of the referring changeset
+     */
+    public record Finding(Severity severity, SourceLocations.Location location, int version, String message) {
+
+        public enum Severity { ERROR, WARNING }
+
+        @Override
+        public String toString() {
+            return (location != null ? location.toString() : "version " + version) + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an analysis.
+     *
+     * @param findings   dangling references in the order they were met
+     * @param operations number of operations analyzed
+     */
+    public record Result(List<Finding> findings, long operations) {
+
+        public long errorCount() {
+            return findings.stream().filter(f -> f.severity() == Finding.Severity.ERROR).count();
+        }
+
+        public long warningCount() {
+            return findings.size() - errorCount();
+        }
+
+        public boolean hasErrors() {
+            return errorCount() > 0;
+        }
+    }
+}
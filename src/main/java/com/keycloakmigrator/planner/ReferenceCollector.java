@@ -0,0 +1,95 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+
+import java.util.*;
+
+/**
+ * Collects, per realm, the entities that pending operations look up by name before
+ * acting on them, so that they can be fetched in bulk ahead of execution.
+ *
+ * <p>Names of entities that the operations themselves create are collected too; looking
+ * them up ahead of time simply finds nothing.</p>
+ */
+public class ReferenceCollector {
+
+    /**
+     * Collect the references of all operations of the given changesets.
+     *
+     * @return references keyed by realm name, in order of first appearance
+     */
+    public Map<String, RealmReferences> collect(List<Changeset> changesets) {
+        Map<String, RealmReferences> references = new LinkedHashMap<>();
+        for (Changeset changeset : changesets) {
+            for (Operation op : changeset.getOperations()) {
+                String realm = op.getTargetRealm();
+                if (realm != null) {
+                    collect(op, references.computeIfAbsent(realm, RealmReferences::new));
+                }
+            }
+        }
+        return references;
+    }
+
+    private void collect(Operation op, RealmReferences refs) {
+        if (op instanceof UpdateClientOperation update) {
+            refs.getClientIds().add(update.getClientId());
+        } else if (op instanceof DeleteClientOperation delete) {
+            refs.getClientIds().add(delete.getClientId());
+        } else if (op instanceof CreateClientRoleOperation role) {
+            refs.getClientIds().add(role.getClientId());
+        } else if (op instanceof CreateRealmRoleOperation role) {
+            addAll(refs.getRealmRoles(), role.getCompositeRoles());
+        } else if (op instanceof DeleteRoleOperation role && role.getClientId() != null) {
+            refs.getClientIds().add(role.getClientId());
+        } else if (op instanceof CreateGroupOperation group) {
+            if (group.getParentGroup() != null) {
+                refs.getGroupPaths().add(group.getParentGroup());
+            }
+            addAll(refs.getRealmRoles(), group.getRealmRoles());
+            addClientRoles(refs, group.getClientRoles());
+        } else if (op instanceof DeleteGroupOperation group) {
+            refs.getGroupPaths().add(group.getName());
+        } else if (op instanceof CreateUserOperation user) {
+            addClientRoles(refs, user.getClientRoles());
+        } else if (op instanceof UpdateUserOperation user) {
+            refs.getUsernames().add(user.getUsername());
+            addAll(refs.getRealmRoles(), user.getAddRealmRoles());
+            addAll(refs.getRealmRoles(), user.getRemoveRealmRoles());
+            addAll(refs.getGroupPaths(), user.getAddGroups());
+            addAll(refs.getGroupPaths(), user.getRemoveGroups());
+        } else if (op instanceof DeleteUserOperation user) {
+            refs.getUsernames().add(user.getUsername());
+        } else if (op instanceof DeleteClientScopeOperation scope) {
+            refs.getClientScopes().add(scope.getName());
+        } else if (op instanceof CreateProtocolMapperOperation mapper) {
+            addMapperOwner(refs, mapper.getClientId(), mapper.getClientScopeName());
+        } else if (op instanceof DeleteProtocolMapperOperation mapper) {
+            addMapperOwner(refs, mapper.getClientId(), mapper.getClientScopeName());
+        }
+    }
+
+    private static void addClientRoles(RealmReferences refs, List<CreateUserOperation.ClientRoleMapping> mappings) {
+        if (mappings != null) {
+            for (CreateUserOperation.ClientRoleMapping mapping : mappings) {
+                refs.getClientIds().add(mapping.getClientId());
+                refs.getRoleClientIds().add(mapping.getClientId());
+            }
+        }
+    }
+
+    private static void addMapperOwner(RealmReferences refs, String clientId, String clientScopeName) {
+        if (clientId != null) {
+            refs.getClientIds().add(clientId);
+        } else if (clientScopeName != null) {
+            refs.getClientScopes().add(clientScopeName);
+        }
+    }
+
+    private static void addAll(Set<String> target, List<String> values) {
+        if (values != null) {
+            target.addAll(values);
+        }
+    }
+}
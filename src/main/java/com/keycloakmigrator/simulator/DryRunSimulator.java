@@ -0,0 +1,71 @@
+package com.keycloakmigrator.simulator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.config.KeycloakConfig;
+import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.executor.MigrationOptions;
+import com.keycloakmigrator.model.Changeset;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.List;
+
+/**
+ * Runs a migration against a {@link SimulatedKeycloak} instead of a server, to find the
+ * operations that would fail and the admin calls the migration would make.
+ *
+ * <p>The migration runs through the real {@link MigrationExecutor} and
+ * {@link KeycloakAdminClient}, with a {@link SimulatedTransport} in place of HTTP, so its
+ * planning, caching and batching are those of a real run: references to missing roles,
+ * groups, clients or scopes fail the same operations, and the admin call counts of the
+ * result are the ones a real run against the same state makes.</p>
+ *
+ * <p>The simulated Keycloak starts empty; {@link #seed} adds realms to it, for example
+ * partial exports of the live realms. A simulator runs one migration, since the
+ * migration changes its state.</p>
+ */
+public final class DryRunSimulator {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final SimulatedKeycloak keycloak = new SimulatedKeycloak();
+    private final MigrationOptions options;
+
+    public DryRunSimulator(MigrationOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Add a realm, with the clients, roles, groups, users, client scopes, identity
+     * providers and flows embedded in its representation. Its migration history is read
+     * from its attributes, as in a real run.
+     */
+    public DryRunSimulator seed(RealmRepresentation realm) {
+        keycloak.addRealm((ObjectNode) MAPPER.valueToTree(realm));
+        return this;
+    }
+
+    /**
+     * The simulated Keycloak, to inspect its state after {@link #simulate}.
+     */
+    public SimulatedKeycloak getKeycloak() {
+        return keycloak;
+    }
+
+    /**
+     * Migrate the simulated Keycloak.
+     *
+     * @param changesets  all changesets, as for {@link MigrationExecutor#executeMigrations}
+     * @param targetRealm the realm to track migrations against, or {@code null}
+     * @return the result the migration would have, admin call counts included
+     */
+    public MigrationExecutor.MigrationResult simulate(List<Changeset> changesets, String targetRealm) {
+        KeycloakConfig config = new KeycloakConfig("http://keycloak.simulated", "master", "simulator", "simulator");
+        try (KeycloakAdminClient client = new KeycloakAdminClient(config, new SimulatedTransport(keycloak))) {
+            return new MigrationExecutor(client, options).executeMigrations(changesets, targetRealm);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.keycloakmigrator.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * Response of a {@link SimulatedKeycloak} endpoint.
+ *
+ * @param status    the HTTP status
+ * @param body      the JSON body, or {@code null} for none
+ * @param createdId the id of a created entity, sent as the last segment of the Location header
+ */
+public record Reply(int status, JsonNode body, String createdId) {
+
+    static Reply ok(JsonNode body) {
+        return new Reply(200, body, null);
+    }
+
+    static Reply created(String id) {
+        return new Reply(201, null, id);
+    }
+
+    static Reply noContent() {
+        return new Reply(204, null, null);
+    }
+
+    static Reply accepted() {
+        return new Reply(202, null, null);
+    }
+
+    static Reply notFound(String message) {
+        return error(404, message);
+    }
+
+    static Reply conflict(String message) {
+        return error(409, message);
+    }
+
+    public static Reply error(int status, String message) {
+        return new Reply(status, JsonNodeFactory.instance.objectNode().put("errorMessage", message), null);
+    }
+}
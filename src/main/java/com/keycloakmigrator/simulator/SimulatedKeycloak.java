@@ -0,0 +1,242 @@
+package com.keycloakmigrator.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory Keycloak answering the token endpoint of every realm and the admin endpoints
+ * the migrator uses: realms, clients, roles, users, groups, client scopes, protocol
+ * mappers, identity providers, authentication flows, partial imports and partial exports.
+ *
+ * <p>Each realm is a {@link SimulatedRealm}. Requests are handled under the lock of their
+ * realm, so concurrent requests are safe.</p>
+ */
+public final class SimulatedKeycloak {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String TOKEN = "{\"access_token\":\"simulated-token\",\"token_type\":\"Bearer\","
+        + "\"expires_in\":300,\"refresh_expires_in\":0}";
+
+    private final Map<String, SimulatedRealm> realms = new ConcurrentHashMap<>();
+    private final List<Route> routes = new ArrayList<>();
+
+    public SimulatedKeycloak() {
+        registerRoutes();
+    }
+
+    /**
+     * Store a realm representation, such as a partial export, with the entities embedded
+     * in it. A realm of the same name is replaced.
+     */
+    public void addRealm(ObjectNode representation) {
+        SimulatedRealm realm = new SimulatedRealm(representation);
+        realms.put(realm.getName(), realm);
+    }
+
+    /**
+     * Store a realm representation given as JSON, see {@link #addRealm(ObjectNode)}.
+     */
+    public void addRealm(String json) throws IOException {
+        addRealm((ObjectNode) MAPPER.readTree(json));
+    }
+
+    /**
+     * The stored state of a realm, or {@code null} if it does not exist.
+     */
+    public SimulatedRealm realm(String name) {
+        return realms.get(name);
+    }
+
+    /**
+     * Whether a request goes to a token endpoint rather than to the admin API.
+     */
+    public static boolean isTokenRequest(String path) {
+        return path.endsWith("/protocol/openid-connect/token");
+    }
+
+    /**
+     * Answer a request.
+     *
+     * @param method   the HTTP method
+     * @param path     the request path
+     * @param rawQuery the query string, or {@code null}
+     * @param body     the JSON request body, or {@code null} for none
+     * @return the reply, never {@code null}
+     */
+    public Reply handle(String method, String path, String rawQuery, JsonNode body) throws IOException {
+        if (isTokenRequest(path)) {
+            return Reply.ok(MAPPER.readTree(TOKEN));
+        }
+        List<String> segments = Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toList();
+        if (segments.size() < 2 || !segments.get(0).equals("admin") || !segments.get(1).equals("realms")) {
+            return Reply.notFound("Not implemented: " + method + " " + path);
+        }
+        JsonNode json = body != null ? body : MAPPER.createObjectNode();
+
+        if (segments.size() == 2) {
+            return switch (method) {
+                case "GET" -> Reply.ok(realmList());
+                case "POST" -> createRealm((ObjectNode) json);
+                default -> Reply.error(405, "Method not allowed");
+            };
+        }
+
+        String realmName = segments.get(2);
+        if (segments.size() == 3 && method.equals("DELETE")) {
+            return realms.remove(realmName) != null ? Reply.noContent() : Reply.notFound("Realm not found.");
+        }
+        SimulatedRealm realm = realms.get(realmName);
+        if (realm == null) {
+            return Reply.notFound("Realm not found.");
+        }
+
+        List<String> rest = segments.subList(3, segments.size());
+        Map<String, String> query = query(rawQuery);
+        for (Route route : routes) {
+            List<String> params = route.match(method, rest);
+            if (params != null) {
+                synchronized (realm) {
+                    return route.handler().handle(realm, params, query, json);
+                }
+            }
+        }
+        return Reply.notFound("Not implemented: " + method + " " + path);
+    }
+
+    private void registerRoutes() {
+        route("GET", "", (realm, p, q, b) -> Reply.ok(realm.getRepresentation()));
+        route("PUT", "", (realm, p, q, b) -> realm.update(b));
+
+        route("POST", "partialImport", (realm, p, q, b) -> realm.partialImport(b));
+        route("POST", "partial-export", (realm, p, q, b) -> realm.partialExport(q));
+
+        route("GET", "clients", (realm, p, q, b) -> realm.listClients(q));
+        route("POST", "clients", (realm, p, q, b) -> realm.createClient(b));
+        route("GET", "clients/*", (realm, p, q, b) -> realm.getClient(p.get(0)));
+        route("PUT", "clients/*", (realm, p, q, b) -> realm.updateClient(p.get(0), b));
+        route("DELETE", "clients/*", (realm, p, q, b) -> realm.deleteClient(p.get(0)));
+        route("GET", "clients/*/roles", (realm, p, q, b) -> realm.listClientRoles(p.get(0)));
+        route("POST", "clients/*/roles", (realm, p, q, b) -> realm.createClientRole(p.get(0), b));
+        route("GET", "clients/*/roles/*", (realm, p, q, b) -> realm.getClientRole(p.get(0), p.get(1)));
+        route("DELETE", "clients/*/roles/*", (realm, p, q, b) -> realm.deleteClientRole(p.get(0), p.get(1)));
+        route("GET", "clients/*/protocol-mappers/models", (realm, p, q, b) -> realm.listMappers(false, p.get(0)));
+        route("POST", "clients/*/protocol-mappers/models", (realm, p, q, b) -> realm.createMapper(false, p.get(0), b));
+        route("POST", "clients/*/protocol-mappers/add-models", (realm, p, q, b) -> realm.createMappers(false, p.get(0), b));
+        route("DELETE", "clients/*/protocol-mappers/models/*", (realm, p, q, b) -> realm.deleteMapper(false, p.get(0), p.get(1)));
+
+        route("GET", "roles", (realm, p, q, b) -> realm.listRealmRoles());
+        route("POST", "roles", (realm, p, q, b) -> realm.createRealmRole(b));
+        route("GET", "roles/*", (realm, p, q, b) -> realm.getRealmRole(p.get(0)));
+        route("DELETE", "roles/*", (realm, p, q, b) -> realm.deleteRealmRole(p.get(0)));
+        route("POST", "roles/*/composites", (realm, p, q, b) -> realm.addComposites(p.get(0), b));
+
+        route("GET", "users", (realm, p, q, b) -> realm.listUsers(q));
+        route("GET", "users/count", (realm, p, q, b) -> realm.countUsers());
+        route("POST", "users", (realm, p, q, b) -> realm.createUser(b));
+        route("GET", "users/*", (realm, p, q, b) -> realm.getUser(p.get(0)));
+        route("PUT", "users/*", (realm, p, q, b) -> realm.updateUser(p.get(0), b));
+        route("DELETE", "users/*", (realm, p, q, b) -> realm.deleteUser(p.get(0)));
+        route("PUT", "users/*/reset-password", (realm, p, q, b) -> realm.resetPassword(p.get(0)));
+        route("GET", "users/*/groups", (realm, p, q, b) -> realm.listUserGroups(p.get(0)));
+        route("PUT", "users/*/groups/*", (realm, p, q, b) -> realm.joinGroup(p.get(0), p.get(1), true));
+        route("DELETE", "users/*/groups/*", (realm, p, q, b) -> realm.joinGroup(p.get(0), p.get(1), false));
+        route("GET", "users/*/role-mappings/realm", (realm, p, q, b) -> realm.listRealmRoleMappings(p.get(0)));
+        route("POST", "users/*/role-mappings/realm", (realm, p, q, b) -> realm.mapRealmRoles(p.get(0), b, true));
+        route("DELETE", "users/*/role-mappings/realm", (realm, p, q, b) -> realm.mapRealmRoles(p.get(0), b, false));
+        route("POST", "users/*/role-mappings/clients/*", (realm, p, q, b) -> realm.mapClientRoles(p.get(0), p.get(1), b));
+
+        route("GET", "groups", (realm, p, q, b) -> realm.searchGroups(null, q));
+        route("POST", "groups", (realm, p, q, b) -> realm.createGroup(null, b));
+        route("GET", "groups/*", (realm, p, q, b) -> realm.getGroup(p.get(0)));
+        route("DELETE", "groups/*", (realm, p, q, b) -> realm.deleteGroup(p.get(0)));
+        route("GET", "groups/*/children", (realm, p, q, b) -> realm.searchGroups(p.get(0), q));
+        route("POST", "groups/*/children", (realm, p, q, b) -> realm.createGroup(p.get(0), b));
+        route("POST", "groups/*/role-mappings/realm", (realm, p, q, b) -> realm.mapRealmRoles(p.get(0), b, true));
+        route("POST", "groups/*/role-mappings/clients/*", (realm, p, q, b) -> realm.mapClientRoles(p.get(0), p.get(1), b));
+
+        route("GET", "client-scopes", (realm, p, q, b) -> realm.listClientScopes());
+        route("POST", "client-scopes", (realm, p, q, b) -> realm.createClientScope(b));
+        route("DELETE", "client-scopes/*", (realm, p, q, b) -> realm.deleteClientScope(p.get(0)));
+        route("GET", "client-scopes/*/protocol-mappers/models", (realm, p, q, b) -> realm.listMappers(true, p.get(0)));
+        route("POST", "client-scopes/*/protocol-mappers/models", (realm, p, q, b) -> realm.createMapper(true, p.get(0), b));
+        route("POST", "client-scopes/*/protocol-mappers/add-models", (realm, p, q, b) -> realm.createMappers(true, p.get(0), b));
+        route("DELETE", "client-scopes/*/protocol-mappers/models/*", (realm, p, q, b) -> realm.deleteMapper(true, p.get(0), p.get(1)));
+
+        route("GET", "identity-provider/instances", (realm, p, q, b) -> realm.listIdentityProviders());
+        route("POST", "identity-provider/instances", (realm, p, q, b) -> realm.createIdentityProvider(b));
+        route("DELETE", "identity-provider/instances/*", (realm, p, q, b) -> realm.deleteIdentityProvider(p.get(0)));
+
+        route("GET", "authentication/flows", (realm, p, q, b) -> realm.listFlows());
+        route("POST", "authentication/flows", (realm, p, q, b) -> realm.createFlow(b));
+        route("DELETE", "authentication/flows/*", (realm, p, q, b) -> realm.deleteFlow(p.get(0)));
+        route("GET", "authentication/flows/*/executions", (realm, p, q, b) -> realm.listExecutions(p.get(0)));
+        route("PUT", "authentication/flows/*/executions", (realm, p, q, b) -> realm.updateExecution(p.get(0), b));
+        route("POST", "authentication/flows/*/executions/execution", (realm, p, q, b) -> realm.addExecution(p.get(0), b, false));
+        route("POST", "authentication/flows/*/executions/flow", (realm, p, q, b) -> realm.addExecution(p.get(0), b, true));
+    }
+
+    private void route(String method, String pattern, Handler handler) {
+        routes.add(new Route(method, pattern.isEmpty() ? List.of() : List.of(pattern.split("/")), handler));
+    }
+
+    private Reply createRealm(ObjectNode representation) {
+        String name = representation.path("realm").asText();
+        SimulatedRealm realm = new SimulatedRealm(representation);
+        if (realms.putIfAbsent(name, realm) != null) {
+            return Reply.conflict("Conflict detected. See logs for details");
+        }
+        return Reply.created(name);
+    }
+
+    private ArrayNode realmList() {
+        ArrayNode list = MAPPER.createArrayNode();
+        realms.values().forEach(r -> list.addObject().put("realm", r.getName()));
+        return list;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Reply handle(SimulatedRealm realm, List<String> params, Map<String, String> query, JsonNode body);
+    }
+
+    /**
+     * An endpoint below {@code /admin/realms/{realm}}; {@code *} segments are parameters.
+     */
+    private record Route(String method, List<String> pattern, Handler handler) {
+        List<String> match(String requestMethod, List<String> segments) {
+            if (!method.equals(requestMethod) || pattern.size() != segments.size()) {
+                return null;
+            }
+            List<String> params = new ArrayList<>();
+            for (int i = 0; i < pattern.size(); i++) {
+                if (pattern.get(i).equals("*")) {
+                    params.add(segments.get(i));
+                } else if (!pattern.get(i).equals(segments.get(i))) {
+                    return null;
+                }
+            }
+            return params;
+        }
+    }
+}
@@ -0,0 +1,943 @@
+package com.keycloakmigrator.simulator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.keycloakmigrator.client.GroupPaths;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-memory state of one realm of a {@link SimulatedKeycloak}.
+ *
+ * <p>Entities are stored as the JSON the admin API exchanges, indexed the way the admin
+ * API addresses them: clients, client scopes, users, groups and flows by id, roles by
+ * name, identity providers by alias. Creating an entity whose name is taken fails with
+ * 409, addressing a missing one with 404, as in Keycloak.</p>
+ */
+public final class SimulatedRealm {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ObjectNode representation;
+    private final Map<String, ObjectNode> clients = new LinkedHashMap<>();
+    private final Map<String, Map<String, ObjectNode>> clientRoles = new HashMap<>();
+    private final Map<String, Map<String, ObjectNode>> clientMappers = new HashMap<>();
+    private final Map<String, ObjectNode> realmRoles = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> users = new LinkedHashMap<>();
+    private final Map<String, Set<String>> userGroups = new HashMap<>();
+    private final Map<String, Set<String>> realmRoleMappings = new HashMap<>();
+    private final Map<String, ObjectNode> groups = new LinkedHashMap<>();
+    private final Map<String, String> groupParents = new HashMap<>();
+    private final Map<String, ObjectNode> clientScopes = new LinkedHashMap<>();
+    private final Map<String, Map<String, ObjectNode>> scopeMappers = new HashMap<>();
+    private final Map<String, ObjectNode> identityProviders = new LinkedHashMap<>();
+    private final Map<String, ObjectNode> flows = new LinkedHashMap<>();
+    private final Map<String, List<ObjectNode>> executions = new HashMap<>();
+
+    /**
+     * Create a realm from its representation, including the clients, roles, groups,
+     * users, client scopes, identity providers and flows embedded in it.
+     */
+    SimulatedRealm(ObjectNode representation) {
+        this.representation = representation;
+        for (JsonNode client : representation.path("clients")) {
+            addClient(client.deepCopy());
+        }
+        for (JsonNode role : representation.path("roles").path("realm")) {
+            addRealmRole(role.deepCopy());
+        }
+        representation.path("roles").path("client").fields().forEachRemaining(entry -> {
+            String clientUuid = clientUuid(entry.getKey());
+            if (clientUuid != null) {
+                for (JsonNode role : entry.getValue()) {
+                    addClientRole(clientUuid, role.deepCopy());
+                }
+            }
+        });
+        for (JsonNode group : representation.path("groups")) {
+            addGroup(null, group.deepCopy());
+        }
+        for (JsonNode user : representation.path("users")) {
+            addUser(user.deepCopy());
+        }
+        for (JsonNode scope : representation.path("clientScopes")) {
+            addClientScope(scope.deepCopy());
+        }
+        for (JsonNode idp : representation.path("identityProviders")) {
+            addIdentityProvider(idp.deepCopy());
+        }
+        for (JsonNode flow : representation.path("authenticationFlows")) {
+            addFlow(flow.deepCopy());
+        }
+    }
+
+    public String getName() {
+        return representation.get("realm").asText();
+    }
+
+    /**
+     * The realm representation, as returned by {@code GET /admin/realms/{realm}}.
+     */
+    public ObjectNode getRepresentation() {
+        return representation;
+    }
+
+    // ==================== Realm ====================
+
+    Reply update(JsonNode body) {
+        // Keycloak only updates the fields present in the request
+        representation.setAll((ObjectNode) body);
+        return Reply.noContent();
+    }
+
+    // ==================== Clients ====================
+
+    public Collection<ObjectNode> getClients() {
+        return clients.values();
+    }
+
+    Reply listClients(Map<String, String> query) {
+        String clientId = query.get("clientId");
+        return Reply.ok(array(clients.values().stream()
+            .filter(c -> clientId == null || clientId.equals(c.path("clientId").asText()))
+            .toList()));
+    }
+
+    Reply createClient(JsonNode body) {
+        ObjectNode client = (ObjectNode) body;
+        if (clientUuid(client.path("clientId").asText()) != null) {
+            return Reply.conflict("Client " + client.path("clientId").asText() + " already exists");
+        }
+        return Reply.created(addClient(client));
+    }
+
+    Reply getClient(String id) {
+        ObjectNode client = clients.get(id);
+        return client != null ? Reply.ok(client) : Reply.notFound("Could not find client");
+    }
+
+    Reply updateClient(String id, JsonNode body) {
+        ObjectNode client = clients.get(id);
+        if (client == null) {
+            return Reply.notFound("Could not find client");
+        }
+        client.setAll((ObjectNode) body);
+        client.put("id", id);
+        return Reply.noContent();
+    }
+
+    Reply deleteClient(String id) {
+        if (clients.remove(id) == null) {
+            return Reply.notFound("Could not find client");
+        }
+        clientRoles.remove(id);
+        clientMappers.remove(id);
+        return Reply.noContent();
+    }
+
+    Reply listClientRoles(String clientUuid) {
+        Map<String, ObjectNode> roles = clientRoles.get(clientUuid);
+        return roles != null ? Reply.ok(array(roles.values())) : Reply.notFound("Could not find client");
+    }
+
+    Reply createClientRole(String clientUuid, JsonNode body) {
+        if (!clients.containsKey(clientUuid)) {
+            return Reply.notFound("Could not find client");
+        }
+        String name = body.path("name").asText();
+        if (clientRoles.get(clientUuid).containsKey(name)) {
+            return Reply.conflict("Role with name " + name + " already exists");
+        }
+        return Reply.created(addClientRole(clientUuid, (ObjectNode) body));
+    }
+
+    Reply getClientRole(String clientUuid, String name) {
+        Map<String, ObjectNode> roles = clientRoles.get(clientUuid);
+        ObjectNode role = roles != null ? roles.get(name) : null;
+        return role != null ? Reply.ok(role) : Reply.notFound("Could not find role");
+    }
+
+    Reply deleteClientRole(String clientUuid, String name) {
+        Map<String, ObjectNode> roles = clientRoles.get(clientUuid);
+        return roles != null && roles.remove(name) != null ? Reply.noContent() : Reply.notFound("Could not find role");
+    }
+
+    /**
+     * The internal id of a client, or {@code null} if there is no such client.
+     */
+    public String clientUuid(String clientId) {
+        return clients.values().stream()
+            .filter(c -> clientId.equals(c.path("clientId").asText()))
+            .map(c -> c.get("id").asText())
+            .findFirst()
+            .orElse(null);
+    }
+
+    public Collection<ObjectNode> getClientRoles(String clientId) {
+        String uuid = clientUuid(clientId);
+        return uuid != null ? clientRoles.get(uuid).values() : List.of();
+    }
+
+    // ==================== Realm Roles ====================
+
+    public Collection<ObjectNode> getRealmRoles() {
+        return realmRoles.values();
+    }
+
+    Reply listRealmRoles() {
+        return Reply.ok(array(realmRoles.values()));
+    }
+
+    Reply createRealmRole(JsonNode body) {
+        String name = body.path("name").asText();
+        if (realmRoles.containsKey(name)) {
+            return Reply.conflict("Role with name " + name + " already exists");
+        }
+        return Reply.created(addRealmRole((ObjectNode) body));
+    }
+
+    Reply getRealmRole(String name) {
+        ObjectNode role = realmRoles.get(name);
+        return role != null ? Reply.ok(role) : Reply.notFound("Could not find role");
+    }
+
+    Reply addComposites(String name, JsonNode body) {
+        ObjectNode role = realmRoles.get(name);
+        if (role == null) {
+            return Reply.notFound("Could not find role");
+        }
+        role.put("composite", true);
+        // Same shape as RoleRepresentation.Composites
+        ObjectNode container = role.has("composites") ? (ObjectNode) role.get("composites") : role.putObject("composites");
+        ArrayNode composites = container.has("realm") ? (ArrayNode) container.get("realm") : container.putArray("realm");
+        for (JsonNode composite : body) {
+            composites.add(composite.path("name").asText());
+        }
+        return Reply.noContent();
+    }
+
+    Reply deleteRealmRole(String name) {
+        return realmRoles.remove(name) != null ? Reply.noContent() : Reply.notFound("Could not find role");
+    }
+
+    // ==================== Users ====================
+
+    public Collection<ObjectNode> getUsers() {
+        return users.values();
+    }
+
+    Reply listUsers(Map<String, String> query) {
+        String username = query.get("username");
+        boolean exact = Boolean.parseBoolean(query.get("exact"));
+        List<ObjectNode> matching = users.values().stream()
+            .filter(u -> username == null || (exact
+                ? u.path("username").asText().equalsIgnoreCase(username)
+                : u.path("username").asText().contains(username.toLowerCase(Locale.ROOT))))
+            .toList();
+        return Reply.ok(array(page(matching, query)));
+    }
+
+    Reply countUsers() {
+        return Reply.ok(MAPPER.getNodeFactory().numberNode(users.size()));
+    }
+
+    Reply createUser(JsonNode body) {
+        ObjectNode user = (ObjectNode) body;
+        String username = user.path("username").asText().toLowerCase(Locale.ROOT);
+        if (users.values().stream().anyMatch(u -> u.path("username").asText().equals(username))) {
+            return Reply.conflict("User exists with same username");
+        }
+        return Reply.created(addUser(user));
+    }
+
+    Reply getUser(String id) {
+        ObjectNode user = users.get(id);
+        return user != null ? Reply.ok(user) : Reply.notFound("User not found");
+    }
+
+    Reply updateUser(String id, JsonNode body) {
+        ObjectNode user = users.get(id);
+        if (user == null) {
+            return Reply.notFound("User not found");
+        }
+        user.setAll((ObjectNode) body);
+        user.put("id", id);
+        return Reply.noContent();
+    }
+
+    Reply deleteUser(String id) {
+        if (users.remove(id) == null) {
+            return Reply.notFound("User not found");
+        }
+        userGroups.remove(id);
+        realmRoleMappings.remove(id);
+        return Reply.noContent();
+    }
+
+    Reply resetPassword(String id) {
+        return users.containsKey(id) ? Reply.noContent() : Reply.notFound("User not found");
+    }
+
+    Reply joinGroup(String userId, String groupId, boolean join) {
+        if (!users.containsKey(userId) || !groups.containsKey(groupId)) {
+            return Reply.notFound("User or group not found");
+        }
+        Set<String> memberships = userGroups.computeIfAbsent(userId, u -> new LinkedHashSet<>());
+        if (join) {
+            memberships.add(groupId);
+        } else {
+            memberships.remove(groupId);
+        }
+        return Reply.noContent();
+    }
+
+    Reply listUserGroups(String userId) {
+        if (!users.containsKey(userId)) {
+            return Reply.notFound("User not found");
+        }
+        ArrayNode list = MAPPER.createArrayNode();
+        for (String groupId : getUserGroups(userId)) {
+            list.add(groups.get(groupId).deepCopy().put("path", groupPath(groupId)));
+        }
+        return Reply.ok(list);
+    }
+
+    /**
+     * Group ids the user is a member of.
+     */
+    public Set<String> getUserGroups(String userId) {
+        return userGroups.getOrDefault(userId, Set.of());
+    }
+
+    // ==================== Role Mappings ====================
+
+    Reply listRealmRoleMappings(String holderId) {
+        if (!users.containsKey(holderId) && !groups.containsKey(holderId)) {
+            return Reply.notFound("User or group not found");
+        }
+        ArrayNode list = MAPPER.createArrayNode();
+        for (String name : getRealmRoleMappings(holderId)) {
+            if (realmRoles.containsKey(name)) {
+                list.add(realmRoles.get(name));
+            }
+        }
+        return Reply.ok(list);
+    }
+
+    Reply mapRealmRoles(String holderId, JsonNode body, boolean add) {
+        if (!users.containsKey(holderId) && !groups.containsKey(holderId)) {
+            return Reply.notFound("User or group not found");
+        }
+        Set<String> mapped = realmRoleMappings.computeIfAbsent(holderId, h -> new LinkedHashSet<>());
+        for (JsonNode role : body) {
+            String name = role.path("name").asText();
+            if (!realmRoles.containsKey(name)) {
+                return Reply.notFound("Could not find role");
+            }
+            if (add) {
+                mapped.add(name);
+            } else {
+                mapped.remove(name);
+            }
+        }
+        return Reply.noContent();
+    }
+
+    Reply mapClientRoles(String holderId, String clientUuid, JsonNode body) {
+        if (!users.containsKey(holderId) && !groups.containsKey(holderId)) {
+            return Reply.notFound("User or group not found");
+        }
+        Map<String, ObjectNode> roles = clientRoles.get(clientUuid);
+        if (roles == null) {
+            return Reply.notFound("Could not find client");
+        }
+        for (JsonNode role : body) {
+            if (!roles.containsKey(role.path("name").asText())) {
+                return Reply.notFound("Could not find role");
+            }
+        }
+        return Reply.noContent();
+    }
+
+    /**
+     * Realm role names mapped to a user or group.
+     */
+    public Set<String> getRealmRoleMappings(String holderId) {
+        return realmRoleMappings.getOrDefault(holderId, Set.of());
+    }
+
+    // ==================== Groups ====================
+
+    public Collection<ObjectNode> getGroups() {
+        return groups.values();
+    }
+
+    Reply searchGroups(String parentId, Map<String, String> query) {
+        if (parentId != null && !groups.containsKey(parentId)) {
+            return Reply.notFound("Could not find group by id");
+        }
+        String search = query.get("search");
+        boolean exact = Boolean.parseBoolean(query.get("exact"));
+        List<ObjectNode> matching = groups.values().stream()
+            .filter(g -> Objects.equals(parentId, groupParents.get(g.get("id").asText())))
+            .filter(g -> search == null || (exact
+                ? g.path("name").asText().equals(search)
+                : g.path("name").asText().contains(search)))
+            .toList();
+        return Reply.ok(array(page(matching, query)));
+    }
+
+    Reply createGroup(String parentId, JsonNode body) {
+        if (parentId != null && !groups.containsKey(parentId)) {
+            return Reply.notFound("Could not find group by id");
+        }
+        String name = body.path("name").asText();
+        boolean taken = groups.values().stream().anyMatch(g ->
+            Objects.equals(parentId, groupParents.get(g.get("id").asText())) && name.equals(g.path("name").asText()));
+        if (taken) {
+            return Reply.conflict("Sibling group named '" + name + "' already exists.");
+        }
+        return Reply.created(addGroup(parentId, (ObjectNode) body));
+    }
+
+    Reply getGroup(String id) {
+        ObjectNode group = groups.get(id);
+        return group != null ? Reply.ok(group) : Reply.notFound("Could not find group by id");
+    }
+
+    Reply deleteGroup(String id) {
+        if (!groups.containsKey(id)) {
+            return Reply.notFound("Could not find group by id");
+        }
+        List<String> children = groupParents.entrySet().stream()
+            .filter(e -> id.equals(e.getValue()))
+            .map(Map.Entry::getKey)
+            .toList();
+        children.forEach(this::deleteGroup);
+        groups.remove(id);
+        groupParents.remove(id);
+        userGroups.values().forEach(memberships -> memberships.remove(id));
+        return Reply.noContent();
+    }
+
+    /**
+     * The id of the group at a {@code /}-separated path, or {@code null} if there is none.
+     */
+    public String groupId(String path) {
+        String parent = null;
+        for (String segment : GroupPaths.segments(path)) {
+            String current = parent;
+            parent = groups.values().stream()
+                .filter(g -> Objects.equals(current, groupParents.get(g.get("id").asText())))
+                .filter(g -> segment.equals(g.path("name").asText()))
+                .map(g -> g.get("id").asText())
+                .findFirst()
+                .orElse(null);
+            if (parent == null) {
+                return null;
+            }
+        }
+        return parent;
+    }
+
+    // ==================== Client Scopes ====================
+
+    public Collection<ObjectNode> getClientScopes() {
+        return clientScopes.values();
+    }
+
+    Reply listClientScopes() {
+        return Reply.ok(array(clientScopes.values()));
+    }
+
+    Reply createClientScope(JsonNode body) {
+        String name = body.path("name").asText();
+        if (clientScopes.values().stream().anyMatch(s -> name.equals(s.path("name").asText()))) {
+            return Reply.conflict("Client Scope " + name + " already exists");
+        }
+        return Reply.created(addClientScope((ObjectNode) body));
+    }
+
+    Reply deleteClientScope(String id) {
+        if (clientScopes.remove(id) == null) {
+            return Reply.notFound("Could not find client scope");
+        }
+        scopeMappers.remove(id);
+        return Reply.noContent();
+    }
+
+    // ==================== Protocol Mappers ====================
+
+    /**
+     * @param scope whether the owner is a client scope rather than a client
+     */
+    Reply listMappers(boolean scope, String ownerId) {
+        Map<String, ObjectNode> mappers = mappers(scope, ownerId);
+        return mappers != null ? Reply.ok(array(mappers.values())) : Reply.notFound("Could not find owner");
+    }
+
+    Reply createMapper(boolean scope, String ownerId, JsonNode body) {
+        Map<String, ObjectNode> mappers = mappers(scope, ownerId);
+        if (mappers == null) {
+            return Reply.notFound("Could not find owner");
+        }
+        String name = body.path("name").asText();
+        if (mappers.values().stream().anyMatch(m -> name.equals(m.path("name").asText()))) {
+            return Reply.conflict("Protocol mapper exists with same name");
+        }
+        return Reply.created(addMapper(mappers, (ObjectNode) body));
+    }
+
+    Reply createMappers(boolean scope, String ownerId, JsonNode body) {
+        Map<String, ObjectNode> mappers = mappers(scope, ownerId);
+        if (mappers == null) {
+            return Reply.notFound("Could not find owner");
+        }
+        Set<String> names = new HashSet<>();
+        mappers.values().forEach(m -> names.add(m.path("name").asText()));
+        for (JsonNode mapper : body) {
+            if (!names.add(mapper.path("name").asText())) {
+                return Reply.conflict("Protocol mapper exists with same name");
+            }
+        }
+        for (JsonNode mapper : body) {
+            addMapper(mappers, (ObjectNode) mapper);
+        }
+        return Reply.noContent();
+    }
+
+    Reply deleteMapper(boolean scope, String ownerId, String id) {
+        Map<String, ObjectNode> mappers = mappers(scope, ownerId);
+        return mappers != null && mappers.remove(id) != null ? Reply.noContent() : Reply.notFound("Model not found");
+    }
+
+    private Map<String, ObjectNode> mappers(boolean scope, String ownerId) {
+        return scope ? scopeMappers.get(ownerId) : clientMappers.get(ownerId);
+    }
+
+    // ==================== Identity Providers ====================
+
+    public Collection<ObjectNode> getIdentityProviders() {
+        return identityProviders.values();
+    }
+
+    Reply listIdentityProviders() {
+        return Reply.ok(array(identityProviders.values()));
+    }
+
+    Reply createIdentityProvider(JsonNode body) {
+        String alias = body.path("alias").asText();
+        if (identityProviders.containsKey(alias)) {
+            return Reply.conflict("Identity Provider " + alias + " already exists");
+        }
+        addIdentityProvider((ObjectNode) body);
+        return Reply.created(alias);
+    }
+
+    Reply deleteIdentityProvider(String alias) {
+        return identityProviders.remove(alias) != null ? Reply.noContent() : Reply.notFound("Could not find identity provider");
+    }
+
+    // ==================== Authentication Flows ====================
+
+    public Collection<ObjectNode> getFlows() {
+        return flows.values();
+    }
+
+    Reply listFlows() {
+        return Reply.ok(array(flows.values()));
+    }
+
+    Reply createFlow(JsonNode body) {
+        String alias = body.path("alias").asText();
+        if (flowByAlias(alias) != null) {
+            return Reply.conflict("Flow " + alias + " already exists");
+        }
+        return Reply.created(addFlow((ObjectNode) body));
+    }
+
+    Reply deleteFlow(String id) {
+        ObjectNode flow = flows.remove(id);
+        if (flow == null) {
+            return Reply.notFound("Could not find flow with id");
+        }
+        executions.remove(flow.path("alias").asText());
+        return Reply.noContent();
+    }
+
+    /**
+     * The executions of a flow followed, after each sub-flow, by the executions of that
+     * sub-flow at the next level, as Keycloak lists them.
+     */
+    Reply listExecutions(String flowAlias) {
+        if (!executions.containsKey(flowAlias)) {
+            return Reply.notFound("Flow not found");
+        }
+        List<ObjectNode> listed = new ArrayList<>();
+        listExecutions(flowAlias, 0, listed);
+        return Reply.ok(array(listed));
+    }
+
+    private void listExecutions(String flowAlias, int level, List<ObjectNode> listed) {
+        for (ObjectNode execution : executions.getOrDefault(flowAlias, List.of())) {
+            ObjectNode entry = execution.deepCopy();
+            entry.put("level", level);
+            listed.add(entry);
+            if (execution.path("authenticationFlow").asBoolean()) {
+                listExecutions(execution.path("displayName").asText(), level + 1, listed);
+            }
+        }
+    }
+
+    Reply addExecution(String flowAlias, JsonNode body, boolean subFlow) {
+        List<ObjectNode> flowExecutions = executions.get(flowAlias);
+        if (flowExecutions == null) {
+            return Reply.notFound("Parent flow doesn't exist");
+        }
+        ObjectNode execution = MAPPER.createObjectNode();
+        String id = UUID.randomUUID().toString();
+        execution.put("id", id);
+        execution.put("requirement", "DISABLED");
+        execution.put("level", 0);
+        execution.put("index", flowExecutions.size());
+        execution.put("priority", flowExecutions.size() * 10);
+        execution.put("authenticationFlow", subFlow);
+        if (subFlow) {
+            String alias = body.path("alias").asText();
+            execution.put("displayName", alias);
+            ObjectNode child = MAPPER.createObjectNode();
+            child.put("alias", alias);
+            child.put("providerId", body.path("type").asText("basic-flow"));
+            child.put("topLevel", false);
+            addFlow(child);
+        } else {
+            execution.put("providerId", body.path("provider").asText());
+        }
+        flowExecutions.add(execution);
+        return Reply.created(id);
+    }
+
+    Reply updateExecution(String flowAlias, JsonNode body) {
+        if (!executions.containsKey(flowAlias)) {
+            return Reply.notFound("Flow not found");
+        }
+        ObjectNode execution = findExecution(flowAlias, body.path("id").asText());
+        if (execution == null) {
+            return Reply.notFound("Illegal execution");
+        }
+        if (body.has("requirement")) {
+            execution.put("requirement", body.get("requirement").asText());
+        }
+        if (body.has("priority")) {
+            execution.put("priority", body.get("priority").asInt());
+        }
+        return Reply.accepted();
+    }
+
+    /**
+     * The execution with an id in a flow or, as Keycloak allows, in one of its sub-flows.
+     */
+    private ObjectNode findExecution(String flowAlias, String id) {
+        for (ObjectNode execution : executions.getOrDefault(flowAlias, List.of())) {
+            if (execution.get("id").asText().equals(id)) {
+                return execution;
+            }
+            if (execution.path("authenticationFlow").asBoolean()) {
+                ObjectNode nested = findExecution(execution.path("displayName").asText(), id);
+                if (nested != null) {
+                    return nested;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The flow with an alias, or {@code null} if there is none.
+     */
+    public ObjectNode flowByAlias(String alias) {
+        return flows.values().stream()
+            .filter(f -> alias.equals(f.path("alias").asText()))
+            .findFirst()
+            .orElse(null);
+    }
+
+    public List<ObjectNode> getExecutions(String flowAlias) {
+        return executions.getOrDefault(flowAlias, List.of());
+    }
+
+    // ==================== Partial Import and Export ====================
+
+    /**
+     * Add the clients, roles, identity providers, groups and users of a partial import.
+     *
+     * <p>With the {@code FAIL} policy nothing is imported if any resource already exists;
+     * {@code SKIP} keeps existing resources and {@code OVERWRITE} replaces them.</p>
+     */
+    Reply partialImport(JsonNode body) {
+        String policy = body.path("ifResourceExists").asText("FAIL");
+        List<ImportedResource> resources = new ArrayList<>();
+
+        for (JsonNode client : body.path("clients")) {
+            String clientId = client.path("clientId").asText();
+            resources.add(new ImportedResource("CLIENT", clientId,
+                () -> clientUuid(clientId) != null,
+                () -> deleteClient(clientUuid(clientId)),
+                () -> addClient(client.deepCopy())));
+        }
+        for (JsonNode role : body.path("roles").path("realm")) {
+            String name = role.path("name").asText();
+            resources.add(new ImportedResource("REALM_ROLE", name,
+                () -> realmRoles.containsKey(name),
+                () -> realmRoles.remove(name),
+                () -> addRealmRole(role.deepCopy())));
+        }
+        body.path("roles").path("client").fields().forEachRemaining(entry -> {
+            String clientId = entry.getKey();
+            for (JsonNode role : entry.getValue()) {
+                String name = role.path("name").asText();
+                resources.add(new ImportedResource("CLIENT_ROLE", name,
+                    () -> getClientRoles(clientId).stream().anyMatch(r -> name.equals(r.path("name").asText())),
+                    () -> clientRoles.get(clientUuid(clientId)).remove(name),
+                    () -> clientUuid(clientId) != null ? addClientRole(clientUuid(clientId), role.deepCopy()) : null));
+            }
+        });
+        for (JsonNode idp : body.path("identityProviders")) {
+            String alias = idp.path("alias").asText();
+            resources.add(new ImportedResource("IDP", alias,
+                () -> identityProviders.containsKey(alias),
+                () -> identityProviders.remove(alias),
+                () -> {
+                    addIdentityProvider(idp.deepCopy());
+                    return alias;
+                }));
+        }
+        for (JsonNode group : body.path("groups")) {
+            String name = group.path("name").asText();
+            resources.add(new ImportedResource("GROUP", name,
+                () -> groupId(name) != null,
+                () -> deleteGroup(groupId(name)),
+                () -> addGroup(null, group.deepCopy())));
+        }
+        for (JsonNode user : body.path("users")) {
+            String username = user.path("username").asText().toLowerCase(Locale.ROOT);
+            resources.add(new ImportedResource("USER", username,
+                () -> userId(username) != null,
+                () -> deleteUser(userId(username)),
+                () -> addUser(user.deepCopy())));
+        }
+
+        if (policy.equals("FAIL")) {
+            for (ImportedResource resource : resources) {
+                if (resource.exists().getAsBoolean()) {
+                    return Reply.conflict(resource.type() + " '" + resource.name() + "' already exists");
+                }
+            }
+        }
+
+        ObjectNode results = MAPPER.createObjectNode();
+        ArrayNode entries = MAPPER.createArrayNode();
+        Map<String, Integer> totals = new HashMap<>();
+        for (ImportedResource resource : resources) {
+            String action;
+            String id;
+            if (resource.exists().getAsBoolean()) {
+                if (policy.equals("SKIP")) {
+                    entries.addObject().put("action", "SKIPPED").put("resourceType", resource.type())
+                        .put("resourceName", resource.name());
+                    totals.merge("skipped", 1, Integer::sum);
+                    continue;
+                }
+                resource.remove().run();
+                action = "OVERWRITTEN";
+            } else {
+                action = "ADDED";
+            }
+            id = resource.add().get();
+            entries.addObject().put("action", action).put("resourceType", resource.type())
+                .put("resourceName", resource.name()).put("id", id);
+            totals.merge(action.toLowerCase(Locale.ROOT), 1, Integer::sum);
+        }
+        results.put("added", totals.getOrDefault("added", 0));
+        results.put("skipped", totals.getOrDefault("skipped", 0));
+        results.put("overwritten", totals.getOrDefault("overwritten", 0));
+        results.set("results", entries);
+        return Reply.ok(results);
+    }
+
+    /**
+     * The realm with its client scopes, identity providers and flows, and optionally its
+     * clients, roles and group tree, as returned by {@code partial-export}.
+     */
+    Reply partialExport(Map<String, String> query) {
+        ObjectNode export = representation.deepCopy();
+        export.remove(List.of("clients", "roles", "groups", "users"));
+
+        if (Boolean.parseBoolean(query.get("exportClients"))) {
+            ArrayNode exported = export.putArray("clients");
+            clients.forEach((id, client) ->
+                exported.add(client.deepCopy().set("protocolMappers", array(clientMappers.get(id).values()))));
+        }
+        if (Boolean.parseBoolean(query.get("exportGroupsAndRoles"))) {
+            ObjectNode roles = export.putObject("roles");
+            roles.set("realm", array(realmRoles.values()));
+            ObjectNode byClient = roles.putObject("client");
+            clients.forEach((id, client) -> byClient.set(client.path("clientId").asText(), array(clientRoles.get(id).values())));
+            export.set("groups", groupTree(null, ""));
+        }
+        ArrayNode scopes = export.putArray("clientScopes");
+        clientScopes.forEach((id, scope) ->
+            scopes.add(scope.deepCopy().set("protocolMappers", array(scopeMappers.get(id).values()))));
+        export.set("identityProviders", array(identityProviders.values()));
+        export.set("authenticationFlows", array(flows.values()));
+        return Reply.ok(export);
+    }
+
+    private ArrayNode groupTree(String parentId, String parentPath) {
+        ArrayNode tree = MAPPER.createArrayNode();
+        for (ObjectNode group : groups.values()) {
+            String id = group.get("id").asText();
+            if (Objects.equals(parentId, groupParents.get(id))) {
+                String path = parentPath + "/" + GroupPaths.escape(group.path("name").asText());
+                ObjectNode exported = group.deepCopy();
+                exported.put("path", path);
+                exported.set("subGroups", groupTree(id, path));
+                tree.add(exported);
+            }
+        }
+        return tree;
+    }
+
+    private String groupPath(String id) {
+        String parentId = groupParents.get(id);
+        return (parentId != null ? groupPath(parentId) : "") + "/" + GroupPaths.escape(groups.get(id).path("name").asText());
+    }
+
+    private String userId(String username) {
+        return users.values().stream()
+            .filter(u -> username.equals(u.path("username").asText()))
+            .map(u -> u.get("id").asText())
+            .findFirst()
+            .orElse(null);
+    }
+
+    /**
+     * A resource of a partial import, with how to detect, remove and add it.
+     */
+    private record ImportedResource(String type, String name, BooleanSupplier exists, Runnable remove,
+                                    Supplier<String> add) {
+    }
+
+    // ==================== Storage ====================
+
+    private String addClient(ObjectNode client) {
+        String id = assignId(client);
+        clients.put(id, client);
+        clientRoles.put(id, new LinkedHashMap<>());
+        Map<String, ObjectNode> mappers = new LinkedHashMap<>();
+        clientMappers.put(id, mappers);
+        for (JsonNode mapper : client.path("protocolMappers")) {
+            addMapper(mappers, (ObjectNode) mapper.deepCopy());
+        }
+        client.remove("protocolMappers");
+        return id;
+    }
+
+    private String addClientRole(String clientUuid, ObjectNode role) {
+        assignId(role);
+        role.put("clientRole", true);
+        role.put("containerId", clientUuid);
+        clientRoles.get(clientUuid).put(role.path("name").asText(), role);
+        return role.path("name").asText();
+    }
+
+    private String addRealmRole(ObjectNode role) {
+        assignId(role);
+        role.put("clientRole", false);
+        realmRoles.put(role.path("name").asText(), role);
+        return role.path("name").asText();
+    }
+
+    private String addUser(ObjectNode user) {
+        String id = assignId(user);
+        user.put("username", user.path("username").asText().toLowerCase(Locale.ROOT));
+        users.put(id, user);
+        for (JsonNode group : user.path("groups")) {
+            String groupId = groupId(group.asText());
+            if (groupId != null) {
+                userGroups.computeIfAbsent(id, u -> new LinkedHashSet<>()).add(groupId);
+            }
+        }
+        for (JsonNode role : user.path("realmRoles")) {
+            realmRoleMappings.computeIfAbsent(id, u -> new LinkedHashSet<>()).add(role.asText());
+        }
+        return id;
+    }
+
+    private String addGroup(String parentId, ObjectNode group) {
+        String id = assignId(group);
+        JsonNode subGroups = group.remove("subGroups");
+        groups.put(id, group);
+        if (parentId != null) {
+            groupParents.put(id, parentId);
+        }
+        if (subGroups != null) {
+            for (JsonNode child : subGroups) {
+                addGroup(id, (ObjectNode) child);
+            }
+        }
+        return id;
+    }
+
+    private String addClientScope(ObjectNode scope) {
+        String id = assignId(scope);
+        clientScopes.put(id, scope);
+        Map<String, ObjectNode> mappers = new LinkedHashMap<>();
+        scopeMappers.put(id, mappers);
+        for (JsonNode mapper : scope.path("protocolMappers")) {
+            addMapper(mappers, (ObjectNode) mapper.deepCopy());
+        }
+        scope.remove("protocolMappers");
+        return id;
+    }
+
+    private void addIdentityProvider(ObjectNode idp) {
+        identityProviders.put(idp.path("alias").asText(), idp);
+    }
+
+    private String addFlow(ObjectNode flow) {
+        String id = assignId(flow);
+        flows.put(id, flow);
+        executions.put(flow.path("alias").asText(), new ArrayList<>());
+        return id;
+    }
+
+    private static String addMapper(Map<String, ObjectNode> mappers, ObjectNode mapper) {
+        String id = assignId(mapper);
+        mappers.put(id, mapper);
+        return id;
+    }
+
+    private static String assignId(ObjectNode entity) {
+        if (!entity.hasNonNull("id")) {
+            entity.put("id", UUID.randomUUID().toString());
+        }
+        return entity.get("id").asText();
+    }
+
+    private static List<ObjectNode> page(List<ObjectNode> entities, Map<String, String> query) {
+        int first = Integer.parseInt(query.getOrDefault("first", "0"));
+        int max = Integer.parseInt(query.getOrDefault("max", "100"));
+        return entities.subList(Math.min(first, entities.size()), Math.min(first + max, entities.size()));
+    }
+
+    private static ArrayNode array(Collection<ObjectNode> entities) {
+        ArrayNode array = MAPPER.createArrayNode();
+        entities.forEach(array::add);
+        return array;
+    }
+}
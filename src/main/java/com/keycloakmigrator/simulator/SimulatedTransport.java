@@ -0,0 +1,55 @@
+package com.keycloakmigrator.simulator;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.Form;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * JAX-RS client filter that answers every request of the admin client from a
+ * {@link SimulatedKeycloak}, so that the admin client runs unchanged without a server.
+ *
+ * <p>Request entities are converted to JSON the way the admin client serializes them,
+ * without null fields. Like {@link com.keycloakmigrator.client.http.TrafficReplayer},
+ * the filter runs after the filter that adds the access token, so token requests are
+ * answered too.</p>
+ */
+@Priority(Priorities.USER + 1)
+public final class SimulatedTransport implements ClientRequestFilter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final SimulatedKeycloak keycloak;
+
+    public SimulatedTransport(SimulatedKeycloak keycloak) {
+        this.keycloak = keycloak;
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) throws IOException {
+        URI uri = request.getUri();
+        JsonNode body = request.hasEntity() && !(request.getEntity() instanceof Form)
+            ? MAPPER.valueToTree(request.getEntity())
+            : null;
+        Reply reply = keycloak.handle(request.getMethod(), uri.getRawPath(), uri.getRawQuery(), body);
+
+        Response.ResponseBuilder response = Response.status(reply.status());
+        if (reply.createdId() != null) {
+            response.location(uri.resolve(uri.getRawPath() + "/" + reply.createdId()));
+        }
+        if (reply.body() != null) {
+            response.entity(MAPPER.writeValueAsBytes(reply.body())).type(MediaType.APPLICATION_JSON_TYPE);
+        }
+        request.abortWith(response.build());
+    }
+}
@@ -5,12 +5,16 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.metrics.jfr.TrackerReadEvent;
+import com.keycloakmigrator.metrics.jfr.TrackerWriteEvent;
 import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.UpdateRealmOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Tracks migration history using realm attributes in Keycloak.
@@ -18,6 +22,7 @@ import java.util.*;
  * Attributes used:
  * - migrator.lastVersion: The last applied migration version
  * - migrator.history: JSON array of applied migrations
+ * - migrator.checkpoint: JSON progress of a changeset that failed part way, if any
  */
 public class RealmAttributeTracker {
 
@@ -25,9 +30,11 @@ public class RealmAttributeTracker {
 
     private static final String ATTR_LAST_VERSION = "migrator.lastVersion";
     private static final String ATTR_HISTORY = "migrator.history";
+    private static final String ATTR_CHECKPOINT = "migrator.checkpoint";
 
     private final KeycloakAdminClient client;
     private final ObjectMapper objectMapper;
+    private final Map<String, Map<String, String>> preloadedAttributes = new ConcurrentHashMap<>();
 
     public RealmAttributeTracker(KeycloakAdminClient client) {
         this.client = client;
@@ -35,6 +42,18 @@ public class RealmAttributeTracker {
         this.objectMapper.registerModule(new JavaTimeModule());
     }
 
+    /**
+     * Read the tracking attributes of a realm ahead of time. The next tracking read for
+     * that realm uses them instead of fetching the realm again.
+     *
+     * @param realmName the realm name
+     */
+    public void preload(String realmName) {
+        if (client.realmExists(realmName)) {
+            preloadedAttributes.put(realmName, client.getRealmAttributes(realmName));
+        }
+    }
+
     /**
      * Get the last applied migration version for a realm.
      *
@@ -46,7 +65,7 @@ public class RealmAttributeTracker {
             return 0;
         }
 
-        Map<String, String> attributes = client.getRealmAttributes(realmName);
+        Map<String, String> attributes = readAttributes(realmName);
         String lastVersion = attributes.get(ATTR_LAST_VERSION);
 
         if (lastVersion == null || lastVersion.isBlank()) {
@@ -72,9 +91,25 @@ public class RealmAttributeTracker {
             return Collections.emptyList();
         }
 
-        Map<String, String> attributes = client.getRealmAttributes(realmName);
-        String historyJson = attributes.get(ATTR_HISTORY);
+        Map<String, String> attributes = readAttributes(realmName);
+        return parseHistory(attributes.get(ATTR_HISTORY));
+    }
 
+    private Map<String, String> readAttributes(String realmName) {
+        TrackerReadEvent event = new TrackerReadEvent();
+        event.begin();
+        Map<String, String> preloaded = preloadedAttributes.remove(realmName);
+        Map<String, String> attributes = preloaded != null ? preloaded : client.getRealmAttributes(realmName);
+        event.end();
+        if (event.shouldCommit()) {
+            event.realm = realmName;
+            event.preloaded = preloaded != null;
+            event.commit();
+        }
+        return attributes;
+    }
+
+    private List<MigrationRecord> parseHistory(String historyJson) {
         if (historyJson == null || historyJson.isBlank()) {
             return new ArrayList<>();
         }
@@ -96,24 +131,118 @@ public class RealmAttributeTracker {
     public void recordMigration(String realmName, Changeset changeset) {
         log.debug("Recording migration {} for realm {}", changeset.getVersion(), realmName);
 
-        // Update last version
-        client.setRealmAttribute(realmName, ATTR_LAST_VERSION, String.valueOf(changeset.getVersion()));
+        write(realmName, List.of(), List.of(changeset), null);
+    }
 
-        // Update history
-        List<MigrationRecord> history = getMigrationHistory(realmName);
-        history.add(new MigrationRecord(
-            changeset.getVersion(),
-            changeset.getAuthor(),
-            Instant.now(),
-            changeset.getComment()
-        ));
+    /**
+     * Record how far a failed changeset got, so that a resumed run can skip the
+     * operations that completed.
+     *
+     * @param realmName  the realm name
+     * @param checkpoint the progress of the changeset
+     */
+    public void recordCheckpoint(String realmName, Checkpoint checkpoint) {
+        log.debug("Recording checkpoint of migration {} for realm {}", checkpoint.version(), realmName);
+
+        write(realmName, List.of(), List.of(), checkpoint);
+    }
+
+    /**
+     * Apply realm updates and record changesets and a checkpoint with a single realm update.
+     *
+     * @param realmName  the realm name
+     * @param updates    the realm updates to apply with the tracking attributes
+     * @param changesets the applied changesets, in the order they were applied
+     * @param checkpoint the progress of a failed changeset, or {@code null}
+     */
+    public void write(String realmName, List<UpdateRealmOperation> updates, List<Changeset> changesets,
+                      Checkpoint checkpoint) {
+        TrackerWriteEvent event = new TrackerWriteEvent();
+        event.begin();
+        try {
+            client.updateRealm(realmName, updates, attributes -> migrationAttributes(attributes, changesets, checkpoint));
+            event.succeeded = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.realm = realmName;
+                event.realmUpdates = updates.size();
+                event.changesets = changesets.size();
+                event.checkpoint = checkpoint != null;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Get the progress recorded for a changeset that failed part way.
+     *
+     * @param realmName the realm name
+     * @return the checkpoint, or empty if no changeset is in progress
+     */
+    public Optional<Checkpoint> getCheckpoint(String realmName) {
+        if (!client.realmExists(realmName)) {
+            return Optional.empty();
+        }
+
+        String checkpointJson = readAttributes(realmName).get(ATTR_CHECKPOINT);
+        if (checkpointJson == null || checkpointJson.isBlank()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(objectMapper.readValue(checkpointJson, Checkpoint.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to parse migration checkpoint: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Compute the tracking attributes that record the given changesets and the progress of
+     * a changeset that failed after them. Recording a changeset clears an older checkpoint.
+     *
+     * @param currentAttributes the realm attributes as currently stored
+     * @param changesets        the applied changesets, in the order they were applied
+     * @param checkpoint        the progress of a failed changeset, or {@code null}
+     * @return the attributes to set, empty if there is nothing to record
+     */
+    private Map<String, String> migrationAttributes(Map<String, String> currentAttributes, List<Changeset> changesets,
+                                                    Checkpoint checkpoint) {
+        Map<String, String> attributes = new HashMap<>();
+        if (checkpoint != null && (changesets.isEmpty()
+                || checkpoint.version() > changesets.get(changesets.size() - 1).getVersion())) {
+            try {
+                attributes.put(ATTR_CHECKPOINT, objectMapper.writeValueAsString(checkpoint));
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize migration checkpoint", e);
+            }
+        } else if (!changesets.isEmpty() && currentAttributes.get(ATTR_CHECKPOINT) != null
+                && !currentAttributes.get(ATTR_CHECKPOINT).isBlank()) {
+            attributes.put(ATTR_CHECKPOINT, "");
+        }
+
+        if (changesets.isEmpty()) {
+            return attributes;
+        }
+
+        List<MigrationRecord> history = parseHistory(currentAttributes.get(ATTR_HISTORY));
+        for (Changeset changeset : changesets) {
+            history.add(new MigrationRecord(
+                changeset.getVersion(),
+                changeset.getAuthor(),
+                Instant.now(),
+                changeset.getComment()
+            ));
+        }
 
+        attributes.put(ATTR_LAST_VERSION, String.valueOf(changesets.get(changesets.size() - 1).getVersion()));
         try {
-            String historyJson = objectMapper.writeValueAsString(history);
-            client.setRealmAttribute(realmName, ATTR_HISTORY, historyJson);
+            attributes.put(ATTR_HISTORY, objectMapper.writeValueAsString(history));
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize migration history", e);
         }
+        return attributes;
     }
 
     /**
@@ -154,6 +283,37 @@ public class RealmAttributeTracker {
         String comment
     ) {}
 
+    /**
+     * Progress of a changeset that failed part way.
+     *
+     * @param version             the changeset version
+     * @param completedOperations number of leading operations that all completed
+     * @param completedLater      indexes of further operations that completed ahead of
+     *                            their position, as batching may run them earlier
+     */
+    public record Checkpoint(
+        int version,
+        int completedOperations,
+        List<Integer> completedLater
+    ) {
+        public Checkpoint {
+            completedLater = completedLater != null ? List.copyOf(completedLater) : List.of();
+        }
+
+        /**
+         * Build a checkpoint from the indexes of the completed operations.
+         */
+        public static Checkpoint of(int version, BitSet completed) {
+            int prefix = completed.nextClearBit(0);
+            List<Integer> later = completed.stream().filter(i -> i > prefix).boxed().toList();
+            return new Checkpoint(version, prefix, later);
+        }
+
+        public boolean isCompleted(int operationIndex) {
+            return operationIndex < completedOperations || completedLater.contains(operationIndex);
+        }
+    }
+
     /**
      * Status of migrations for a realm.
      */
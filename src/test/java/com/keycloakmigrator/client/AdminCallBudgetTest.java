@@ -0,0 +1,626 @@
+package com.keycloakmigrator.client;
+
+import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import com.keycloakmigrator.testing.AdminCallCounter;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Admin call budgets of every {@link Operation} type, counted against a {@link FakeKeycloakServer}.
+ *
+ * <p>Each operation runs on a new client, so lookups are not served from the caches of
+ * an earlier operation. The budgets are the calls the operations make today: an
+ * operation that needs more calls, or calls another endpoint, fails its test.</p>
+ */
+class AdminCallBudgetTest {
+
+    private static final String REALM = "/admin/realms/{realm}";
+    private static final String CLIENTS = REALM + "/clients";
+    private static final String CLIENT = CLIENTS + "/{id}";
+    private static final String USERS = REALM + "/users";
+    private static final String USER = USERS + "/{id}";
+    private static final String GROUPS = REALM + "/groups";
+    private static final String GROUP = GROUPS + "/{id}";
+    private static final String ROLES = REALM + "/roles";
+    private static final String SCOPES = REALM + "/client-scopes";
+    private static final String SCOPE = SCOPES + "/{id}";
+    private static final String FLOWS = REALM + "/authentication/flows";
+
+    private FakeKeycloakServer server;
+    private KeycloakAdminClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = FakeKeycloakServer.start();
+        server.addRealm("""
+            {
+              "realm": "app",
+              "enabled": true,
+              "clients": [
+                {"clientId": "frontend", "protocolMappers": [
+                  {"name": "audience", "protocol": "openid-connect", "protocolMapper": "oidc-audience-mapper"}
+                ]}
+              ],
+              "roles": {
+                "realm": [{"name": "admin"}, {"name": "auditor"}],
+                "client": {"frontend": [{"name": "viewer"}]}
+              },
+              "groups": [{"name": "Engineering", "subGroups": [{"name": "Backend"}]}],
+              "users": [{"username": "john", "enabled": true}],
+              "clientScopes": [
+                {"name": "profile-extra", "protocol": "openid-connect", "protocolMappers": [
+                  {"name": "email", "protocol": "openid-connect", "protocolMapper": "oidc-usermodel-property-mapper"}
+                ]}
+              ],
+              "identityProviders": [{"alias": "google", "providerId": "google"}]
+            }
+            """);
+        client = new KeycloakAdminClient(server.config());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    // ==================== Realms ====================
+
+    @Test
+    void execute_withCreateRealm_shouldOnlyPostRealm() throws Exception {
+        // Given
+        final CreateRealmOperation op = new CreateRealmOperation();
+        op.setName("other");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("POST /admin/realms", 1L));
+    }
+
+    @Test
+    void execute_withUpdateRealm_shouldReadAndWriteRealmOnce() throws Exception {
+        // Given
+        final UpdateRealmOperation op = new UpdateRealmOperation();
+        op.setName("app");
+        op.setDisplayName("Application");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + REALM, 1L,
+            "PUT " + REALM, 1L));
+    }
+
+    @Test
+    void execute_withDeleteRealm_shouldOnlyDeleteRealm() throws Exception {
+        // Given
+        final DeleteRealmOperation op = new DeleteRealmOperation();
+        op.setName("app");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("DELETE " + REALM, 1L));
+    }
+
+    // ==================== Clients ====================
+
+    @Test
+    void execute_withCreateClient_shouldOnlyPostClient() throws Exception {
+        // Given
+        final CreateClientOperation op = new CreateClientOperation();
+        op.setRealm("app");
+        op.setClientId("backend");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("POST " + CLIENTS, 1L));
+    }
+
+    @Test
+    void execute_withUpdateClient_shouldLookUpClientOnce() throws Exception {
+        // Given
+        final UpdateClientOperation op = new UpdateClientOperation();
+        op.setRealm("app");
+        op.setClientId("frontend");
+        op.setName("Frontend");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + CLIENTS, 1L,
+            "GET " + CLIENT, 1L,
+            "PUT " + CLIENT, 1L));
+    }
+
+    @Test
+    void execute_withDeleteClient_shouldLookUpClientOnce() throws Exception {
+        // Given
+        final DeleteClientOperation op = new DeleteClientOperation();
+        op.setRealm("app");
+        op.setClientId("frontend");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + CLIENTS, 1L,
+            "DELETE " + CLIENT, 1L));
+    }
+
+    // ==================== Roles ====================
+
+    @Test
+    void execute_withCreateRealmRole_shouldOnlyPostRole() throws Exception {
+        // Given
+        final CreateRealmRoleOperation op = new CreateRealmRoleOperation();
+        op.setRealm("app");
+        op.setName("operator");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("POST " + ROLES, 1L));
+    }
+
+    @Test
+    void execute_withCompositeRealmRole_shouldListRealmRolesOnce() throws Exception {
+        // Given
+        final CreateRealmRoleOperation op = new CreateRealmRoleOperation();
+        op.setRealm("app");
+        op.setName("operator");
+        op.setComposite(true);
+        op.setCompositeRoles(List.of("admin", "auditor"));
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "POST " + ROLES, 1L,
+            "GET " + ROLES, 1L,
+            "POST " + ROLES + "/{id}/composites", 1L));
+    }
+
+    @Test
+    void execute_withCreateClientRole_shouldLookUpClientOnce() throws Exception {
+        // Given
+        final CreateClientRoleOperation op = new CreateClientRoleOperation();
+        op.setRealm("app");
+        op.setClientId("frontend");
+        op.setName("editor");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + CLIENTS, 1L,
+            "POST " + CLIENT + "/roles", 1L));
+    }
+
+    @Test
+    void execute_withDeleteRealmRole_shouldOnlyDeleteRole() throws Exception {
+        // Given
+        final DeleteRoleOperation op = new DeleteRoleOperation();
+        op.setRealm("app");
+        op.setName("auditor");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("DELETE " + ROLES + "/{id}", 1L));
+    }
+
+    @Test
+    void execute_withDeleteClientRole_shouldLookUpClientOnce() throws Exception {
+        // Given
+        final DeleteRoleOperation op = new DeleteRoleOperation();
+        op.setRealm("app");
+        op.setClientId("frontend");
+        op.setName("viewer");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + CLIENTS, 1L,
+            "DELETE " + CLIENT + "/roles/{id}", 1L));
+    }
+
+    // ==================== Users ====================
+
+    @Test
+    void execute_withCreateUser_shouldPostUserAndPassword() throws Exception {
+        // Given
+        final CreateUserOperation op = new CreateUserOperation();
+        op.setRealm("app");
+        op.setUsername("jane");
+        op.setPassword("secret");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "POST " + USERS, 1L,
+            "PUT " + USER + "/reset-password", 1L));
+    }
+
+    @Test
+    void execute_withCreateUserWithClientRoles_shouldListClientRolesOnce() throws Exception {
+        // Given
+        final CreateUserOperation.ClientRoleMapping mapping = new CreateUserOperation.ClientRoleMapping();
+        mapping.setClientId("frontend");
+        mapping.setRoles(List.of("viewer"));
+        final CreateUserOperation op = new CreateUserOperation();
+        op.setRealm("app");
+        op.setUsername("jane");
+        op.setClientRoles(List.of(mapping));
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "POST " + USERS, 1L,
+            "GET " + CLIENTS, 1L,
+            "GET " + CLIENT + "/roles", 1L,
+            "POST " + USER + "/role-mappings/clients/{id}", 1L));
+    }
+
+    @Test
+    void execute_withUpdateUser_shouldLookUpEachReferenceOnce() throws Exception {
+        // Given
+        final UpdateUserOperation op = new UpdateUserOperation();
+        op.setRealm("app");
+        op.setUsername("john");
+        op.setEmail("john@example.com");
+        op.setAddRealmRoles(List.of("admin", "auditor"));
+        op.setAddGroups(List.of("Engineering/Backend"));
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + USERS, 1L,
+            "GET " + USER, 1L,
+            "PUT " + USER, 1L,
+            "GET " + ROLES, 1L,
+            "POST " + USER + "/role-mappings/realm", 1L,
+            "GET " + GROUPS, 1L,
+            "GET " + GROUP + "/children", 1L,
+            "PUT " + USER + "/groups/{id}", 1L));
+    }
+
+    @Test
+    void execute_withDeleteUser_shouldLookUpUserOnce() throws Exception {
+        // Given
+        final DeleteUserOperation op = new DeleteUserOperation();
+        op.setRealm("app");
+        op.setUsername("john");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + USERS, 1L,
+            "DELETE " + USER, 1L));
+    }
+
+    // ==================== Groups ====================
+
+    @Test
+    void execute_withCreateGroup_shouldListRealmRolesOnce() throws Exception {
+        // Given
+        final CreateGroupOperation op = new CreateGroupOperation();
+        op.setRealm("app");
+        op.setName("Sales");
+        op.setRealmRoles(List.of("auditor"));
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "POST " + GROUPS, 1L,
+            "GET " + ROLES, 1L,
+            "POST " + GROUP + "/role-mappings/realm", 1L));
+    }
+
+    @Test
+    void execute_withCreateSubGroup_shouldListGroupsOnce() throws Exception {
+        // Given
+        final CreateGroupOperation op = new CreateGroupOperation();
+        op.setRealm("app");
+        op.setName("Frontend");
+        op.setParentGroup("Engineering");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + GROUPS, 1L,
+            "POST " + GROUP + "/children", 1L));
+    }
+
+    @Test
+    void execute_withDeleteSubGroup_shouldWalkGroupTreeOnce() throws Exception {
+        // Given
+        final DeleteGroupOperation op = new DeleteGroupOperation();
+        op.setRealm("app");
+        op.setName("Engineering/Backend");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + GROUPS, 1L,
+            "GET " + GROUP + "/children", 1L,
+            "DELETE " + GROUP, 1L));
+    }
+
+    // ==================== Client scopes and protocol mappers ====================
+
+    @Test
+    void execute_withCreateClientScope_shouldOnlyPostScope() throws Exception {
+        // Given
+        final CreateClientScopeOperation op = new CreateClientScopeOperation();
+        op.setRealm("app");
+        op.setName("orders");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("POST " + SCOPES, 1L));
+    }
+
+    @Test
+    void execute_withDeleteClientScope_shouldLookUpScopeOnce() throws Exception {
+        // Given
+        final DeleteClientScopeOperation op = new DeleteClientScopeOperation();
+        op.setRealm("app");
+        op.setName("profile-extra");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + SCOPES, 1L,
+            "DELETE " + SCOPE, 1L));
+    }
+
+    @Test
+    void execute_withCreateProtocolMapper_shouldLookUpClientOnce() throws Exception {
+        // Given
+        final CreateProtocolMapperOperation op = new CreateProtocolMapperOperation();
+        op.setRealm("app");
+        op.setClientId("frontend");
+        op.setName("groups");
+        op.setProtocol("openid-connect");
+        op.setProtocolMapper("oidc-group-membership-mapper");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + CLIENTS, 1L,
+            "POST " + CLIENT + "/protocol-mappers/models", 1L));
+    }
+
+    @Test
+    void execute_withDeleteProtocolMapper_shouldLookUpScopeAndMapperOnce() throws Exception {
+        // Given
+        final DeleteProtocolMapperOperation op = new DeleteProtocolMapperOperation();
+        op.setRealm("app");
+        op.setClientScopeName("profile-extra");
+        op.setName("email");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + SCOPES, 1L,
+            "GET " + SCOPE + "/protocol-mappers/models", 1L,
+            "DELETE " + SCOPE + "/protocol-mappers/models/{id}", 1L));
+    }
+
+    // ==================== Identity providers ====================
+
+    @Test
+    void execute_withCreateIdentityProvider_shouldOnlyPostProvider() throws Exception {
+        // Given
+        final CreateIdentityProviderOperation op = new CreateIdentityProviderOperation();
+        op.setRealm("app");
+        op.setAlias("github");
+        op.setProviderId("github");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("POST " + REALM + "/identity-provider/instances", 1L));
+    }
+
+    @Test
+    void execute_withDeleteIdentityProvider_shouldOnlyDeleteProvider() throws Exception {
+        // Given
+        final DeleteIdentityProviderOperation op = new DeleteIdentityProviderOperation();
+        op.setRealm("app");
+        op.setAlias("google");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of("DELETE " + REALM + "/identity-provider/instances/{id}", 1L));
+    }
+
+    // ==================== Authentication flows ====================
+
+    @Test
+    void execute_withCreateAuthenticationFlow_shouldReadExecutionsOnce() throws Exception {
+        // Given
+        final CreateAuthenticationFlowOperation op = browserFlow();
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "POST " + FLOWS, 1L,
+            "POST " + FLOWS + "/{id}/executions/execution", 2L,
+            "GET " + FLOWS + "/{id}/executions", 1L,
+            "PUT " + FLOWS + "/{id}/executions", 1L));
+    }
+
+    @Test
+    void execute_withDeleteAuthenticationFlow_shouldLookUpFlowOnce() throws Exception {
+        // Given
+        try (KeycloakAdminClient seeding = new KeycloakAdminClient(server.config())) {
+            browserFlow().execute(seeding);
+        }
+        final DeleteAuthenticationFlowOperation op = new DeleteAuthenticationFlowOperation();
+        op.setRealm("app");
+        op.setAlias("custom-browser");
+
+        // When
+        final Map<String, Long> calls = countCalls(op);
+
+        // Then
+        assertWithinBudget(calls, Map.of(
+            "GET " + FLOWS, 1L,
+            "DELETE " + FLOWS + "/{id}", 1L));
+    }
+
+    // ==================== Changesets ====================
+
+    @Test
+    void executeMigrations_shouldNotLookUpRealmPerOperation() {
+        // Given
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(1);
+        changeset.setAuthor("test");
+        final List<Operation> roles = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final CreateRealmRoleOperation role = new CreateRealmRoleOperation();
+            role.setRealm("app");
+            role.setName("role-" + i);
+            roles.add(role);
+        }
+        changeset.setOperations(roles);
+
+        // When
+        final MigrationExecutor.MigrationResult result = new MigrationExecutor(client)
+            .executeMigrations(List.of(changeset), "app");
+
+        // Then
+        assertTrue(result.isSuccess());
+        final Map<String, Long> calls = result.adminCallCounts();
+        // Existence check, tracking state read and tracking state write, whatever the number of operations
+        assertEquals(3L, calls.get("GET " + REALM), "realm reads: " + calls);
+        assertEquals(20L, calls.get("POST " + ROLES), "role creations: " + calls);
+    }
+
+    @Test
+    void executeMigrations_withRolesCompositeOfEarlierRoles_shouldListRealmRolesOnce() {
+        // Given
+        final List<Operation> roles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final CreateRealmRoleOperation role = new CreateRealmRoleOperation();
+            role.setRealm("app");
+            role.setName("role-" + i);
+            role.setComposite(true);
+            role.setCompositeRoles(List.of(i == 0 ? "admin" : "role-" + (i - 1)));
+            roles.add(role);
+        }
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(1);
+        changeset.setAuthor("test");
+        changeset.setOperations(roles);
+
+        // When
+        final MigrationExecutor.MigrationResult result = new MigrationExecutor(client)
+            .executeMigrations(List.of(changeset), "app");
+
+        // Then
+        assertTrue(result.isSuccess(), () -> String.valueOf(result.errors()));
+        final Map<String, Long> calls = result.adminCallCounts();
+        // Roles created since the listing are read one by one instead of listing all roles again
+        assertEquals(1L, calls.get("GET " + ROLES), "role listings: " + calls);
+        assertEquals(9L, calls.get("GET " + ROLES + "/{id}"), "role reads: " + calls);
+    }
+
+    private static CreateAuthenticationFlowOperation browserFlow() {
+        final CreateAuthenticationFlowOperation.AuthenticationExecution cookie =
+            new CreateAuthenticationFlowOperation.AuthenticationExecution();
+        cookie.setAuthenticator("auth-cookie");
+        cookie.setRequirement("ALTERNATIVE");
+        final CreateAuthenticationFlowOperation.AuthenticationExecution password =
+            new CreateAuthenticationFlowOperation.AuthenticationExecution();
+        password.setAuthenticator("auth-username-password-form");
+        password.setRequirement(null);
+        final CreateAuthenticationFlowOperation op = new CreateAuthenticationFlowOperation();
+        op.setRealm("app");
+        op.setAlias("custom-browser");
+        op.setExecutions(List.of(cookie, password));
+        return op;
+    }
+
+    /**
+     * Run an operation on the test client and count the admin calls it makes.
+     */
+    private Map<String, Long> countCalls(final Operation op) throws Exception {
+        client.authenticate();
+        final AdminCallCounter counter = new AdminCallCounter();
+        client.addCallListener(counter);
+        op.execute(client);
+        return counter.counts();
+    }
+
+    /**
+     * Check that no endpoint was called more often than its budget, and that no endpoint
+     * outside the budget was called.
+     */
+    private static void assertWithinBudget(final Map<String, Long> calls, final Map<String, Long> budget) {
+        final Map<String, Long> overBudget = new TreeMap<>();
+        calls.forEach((endpoint, count) -> {
+            if (count > budget.getOrDefault(endpoint, 0L)) {
+                overBudget.put(endpoint, count);
+            }
+        });
+        assertTrue(overBudget.isEmpty(), "Exceeded budget " + budget + " with " + overBudget + " (all calls: " + calls + ")");
+    }
+}
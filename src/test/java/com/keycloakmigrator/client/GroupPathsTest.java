@@ -0,0 +1,50 @@
+package com.keycloakmigrator.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link GroupPaths}.
+ */
+class GroupPathsTest {
+
+    @Test
+    void normalize_withBareName_shouldReturnTopLevelPath() {
+        assertEquals("/Engineering", GroupPaths.normalize("Engineering"));
+    }
+
+    @Test
+    void normalize_withRedundantSeparators_shouldDropEmptySegments() {
+        assertEquals("/Engineering/Backend", GroupPaths.normalize("//Engineering/Backend/"));
+    }
+
+    @Test
+    void childPath_withParent_shouldAppendName() {
+        assertEquals("/Engineering/Backend", GroupPaths.childPath("Engineering", "Backend"));
+        assertEquals("/Engineering", GroupPaths.childPath(null, "Engineering"));
+    }
+
+    @Test
+    void segments_withNestedPath_shouldSplitOnSeparator() {
+        assertEquals(List.of("A", "B", "C"), GroupPaths.segments("/A/B/C"));
+    }
+
+    @Test
+    void segments_withEmptyPath_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> GroupPaths.segments("/"));
+    }
+
+    @Test
+    void segments_withEscapedSeparator_shouldKeepSlashInName() {
+        assertEquals(List.of("Engineering", "R/D"), GroupPaths.segments("Engineering/R~/D"));
+    }
+
+    @Test
+    void childPath_withSlashInName_shouldEscapeIt() {
+        assertEquals("/Engineering/R~/D", GroupPaths.childPath("Engineering", "R/D"));
+        assertEquals("/Engineering/R~/D", GroupPaths.normalize("Engineering//R~/D/"));
+    }
+}
@@ -0,0 +1,191 @@
+package com.keycloakmigrator.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.keycloakmigrator.model.operations.CreateAuthenticationFlowOperation;
+import com.keycloakmigrator.model.operations.CreateClientOperation;
+import com.keycloakmigrator.model.operations.CreateClientRoleOperation;
+import com.keycloakmigrator.model.operations.CreateGroupOperation;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import com.keycloakmigrator.testing.FakeKeycloakServer.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link KeycloakAdminClient} against a {@link FakeKeycloakServer}.
+ */
+class KeycloakAdminClientTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private FakeKeycloakServer server;
+    private KeycloakAdminClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = FakeKeycloakServer.start();
+        server.addRealm(largeRealm("app"));
+        client = new KeycloakAdminClient(server.config());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void createGroup_underParentWithSlashInName_shouldResolveParentByEscapedPath() throws Exception {
+        // Given
+        final CreateGroupOperation parent = new CreateGroupOperation();
+        parent.setRealm("app");
+        parent.setName("R/D");
+        client.createGroup(parent);
+        final CreateGroupOperation child = new CreateGroupOperation();
+        child.setRealm("app");
+        child.setName("Lab");
+        child.setParentGroup("R~/D");
+
+        // When
+        try (KeycloakAdminClient other = new KeycloakAdminClient(server.config())) {
+            other.createGroup(child);
+        }
+
+        // Then
+        assertNotNull(server.realm("app").groupId("/R~/D/Lab"));
+    }
+
+    @Test
+    void createClient_withRolesAndNoLocationHeader_shouldLookUpNewClient() {
+        // Given
+        server.locationHeaders(false);
+        final CreateClientOperation op = new CreateClientOperation();
+        op.setRealm("app");
+        op.setClientId("web");
+        final CreateClientRoleOperation role = new CreateClientRoleOperation();
+        role.setRealm("app");
+        role.setClientId("web");
+        role.setName("viewer");
+
+        // When
+        client.createClient(op, List.of(role), List.of());
+
+        // Then
+        assertEquals(1, server.realm("app").getClientRoles("web").size());
+    }
+
+    @Test
+    void setRealmAttribute_shouldSendOnlyRealmNameAndAttributes() throws Exception {
+        // When
+        client.setRealmAttribute("app", "migrator.lastVersion", "7");
+
+        // Then
+        final RecordedRequest put = singleRequest("PUT");
+        final JsonNode payload = MAPPER.readTree(put.body());
+        final Set<String> fields = new HashSet<>();
+        payload.fieldNames().forEachRemaining(fields::add);
+        assertEquals(Set.of("realm", "attributes"), fields);
+        assertTrue(put.body().length < 512, "payload was " + put.body().length + " bytes");
+    }
+
+    @Test
+    void setRealmAttribute_shouldKeepOtherAttributesAndSettings() {
+        // When
+        client.setRealmAttribute("app", "migrator.lastVersion", "7");
+
+        // Then
+        final JsonNode realm = server.getRealm("app");
+        assertEquals("7", realm.get("attributes").get("migrator.lastVersion").asText());
+        assertEquals("corporate", realm.get("attributes").get("customTheme").asText());
+        assertEquals(200, realm.get("clients").size());
+    }
+
+    @Test
+    void createAuthenticationFlow_withSubFlow_shouldApplyRequirementsAndPrioritiesOfTopLevelExecutions() {
+        // Given
+        final CreateAuthenticationFlowOperation op = new CreateAuthenticationFlowOperation();
+        op.setRealm("app");
+        op.setAlias("custom-browser");
+        op.setExecutions(List.of(
+            execution("auth-cookie", "ALTERNATIVE", null),
+            subFlow("custom-forms", "ALTERNATIVE"),
+            execution("auth-otp-form", null, 50)));
+        // Keycloak lists the executions of sub-flows at the next level; seed one as soon as the sub-flow exists
+        client.addCallListener(call -> {
+            if (call.method().equals("POST") && call.path().endsWith("/executions/flow")) {
+                final ObjectNode nested = MAPPER.createObjectNode();
+                nested.put("id", "nested-password");
+                nested.put("providerId", "auth-username-password-form");
+                nested.put("requirement", "REQUIRED");
+                nested.put("priority", 0);
+                nested.put("authenticationFlow", false);
+                server.realm("app").getExecutions("custom-forms").add(nested);
+            }
+        });
+
+        // When
+        client.createAuthenticationFlow(op);
+
+        // Then
+        final List<ObjectNode> executions = server.realm("app").getExecutions("custom-browser");
+        assertEquals(List.of("ALTERNATIVE", "ALTERNATIVE", "DISABLED"),
+            executions.stream().map(e -> e.get("requirement").asText()).toList());
+        assertEquals(List.of(0, 10, 50), executions.stream().map(e -> e.get("priority").asInt()).toList());
+        assertTrue(executions.get(1).get("authenticationFlow").asBoolean());
+        assertNotNull(server.realm("app").flowByAlias("custom-forms"));
+        final ObjectNode nested = server.realm("app").getExecutions("custom-forms").get(0);
+        assertEquals("REQUIRED", nested.get("requirement").asText());
+        assertEquals(0, nested.get("priority").asInt());
+        assertEquals(3, server.getRequests().stream()
+            .filter(r -> r.method().equals("PUT") && r.path().endsWith("/custom-browser/executions"))
+            .count());
+    }
+
+    private static CreateAuthenticationFlowOperation.AuthenticationExecution execution(
+            final String authenticator, final String requirement, final Integer priority) {
+        final CreateAuthenticationFlowOperation.AuthenticationExecution execution =
+            new CreateAuthenticationFlowOperation.AuthenticationExecution();
+        execution.setAuthenticator(authenticator);
+        execution.setRequirement(requirement);
+        execution.setPriority(priority);
+        return execution;
+    }
+
+    private static CreateAuthenticationFlowOperation.AuthenticationExecution subFlow(
+            final String alias, final String requirement) {
+        final CreateAuthenticationFlowOperation.AuthenticationExecution execution = execution(null, requirement, null);
+        execution.setAuthenticatorFlow(true);
+        execution.setFlowAlias(alias);
+        return execution;
+    }
+
+    private RecordedRequest singleRequest(final String method) {
+        final List<RecordedRequest> matching = server.getRequests().stream()
+            .filter(r -> r.method().equals(method))
+            .toList();
+        assertEquals(1, matching.size());
+        return matching.get(0);
+    }
+
+    private static String largeRealm(final String name) throws Exception {
+        final Map<String, Object> realm = new LinkedHashMap<>();
+        realm.put("realm", name);
+        realm.put("enabled", true);
+        realm.put("attributes", Map.of("customTheme", "corporate"));
+        final List<Map<String, Object>> clients = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            clients.add(Map.of(
+                "clientId", "client-" + i,
+                "redirectUris", List.of("https://app-" + i + ".example.com/*", "https://app-" + i + ".example.org/*")
+            ));
+        }
+        realm.put("clients", clients);
+        return MAPPER.writeValueAsString(realm);
+    }
+}
@@ -0,0 +1,83 @@
+package com.keycloakmigrator.client;
+
+import com.keycloakmigrator.model.operations.UpdateClientOperation;
+import com.keycloakmigrator.model.operations.UpdateRealmOperation;
+import com.keycloakmigrator.model.operations.UpdateUserOperation;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.ClientRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RepresentationMapper}.
+ */
+class RepresentationMapperTest {
+
+    @Test
+    void applyRealmUpdate_withValuesAlreadySet_shouldReportNoChange() {
+        // Given
+        final RealmRepresentation realm = new RealmRepresentation();
+        realm.setLoginTheme("corporate");
+        realm.setAccessTokenLifespan(300);
+        final UpdateRealmOperation op = new UpdateRealmOperation();
+        op.setLoginTheme("corporate");
+        op.setAccessTokenLifespan(300);
+
+        // When
+        final boolean changed = RepresentationMapper.applyRealmUpdate(realm, op);
+
+        // Then
+        assertFalse(changed);
+    }
+
+    @Test
+    void applyRealmUpdate_withDifferentValue_shouldApplyAndReportChange() {
+        // Given
+        final RealmRepresentation realm = new RealmRepresentation();
+        realm.setLoginTheme("keycloak");
+        final UpdateRealmOperation op = new UpdateRealmOperation();
+        op.setLoginTheme("corporate");
+
+        // When
+        final boolean changed = RepresentationMapper.applyRealmUpdate(realm, op);
+
+        // Then
+        assertTrue(changed);
+        assertEquals("corporate", realm.getLoginTheme());
+    }
+
+    @Test
+    void applyClientUpdate_withReorderedRedirectUris_shouldReportNoChange() {
+        // Given
+        final ClientRepresentation client = new ClientRepresentation();
+        client.setRedirectUris(List.of("https://a/*", "https://b/*"));
+        final UpdateClientOperation op = new UpdateClientOperation();
+        op.setRedirectUris(List.of("https://b/*", "https://a/*"));
+
+        // When
+        final boolean changed = RepresentationMapper.applyClientUpdate(client, op);
+
+        // Then
+        assertFalse(changed);
+    }
+
+    @Test
+    void applyUserUpdate_withoutRequestedFields_shouldReportNoChange() {
+        // Given
+        final UserRepresentation user = new UserRepresentation();
+        user.setEmail("john@example.com");
+        final UpdateUserOperation op = new UpdateUserOperation();
+        op.setAddRealmRoles(List.of("admin"));
+
+        // When
+        final boolean changed = RepresentationMapper.applyUserUpdate(user, op);
+
+        // Then
+        assertFalse(changed);
+        assertEquals("john@example.com", user.getEmail());
+    }
+}
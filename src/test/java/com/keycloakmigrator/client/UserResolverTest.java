@@ -0,0 +1,156 @@
+package com.keycloakmigrator.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloakmigrator.config.KeycloakConfig;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import jakarta.ws.rs.NotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.KeycloakBuilder;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link UserResolver} against a {@link FakeKeycloakServer}.
+ */
+class UserResolverTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String USERS = "/admin/realms/app/users";
+
+    private FakeKeycloakServer server;
+    private Keycloak keycloak;
+    private UserResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = FakeKeycloakServer.start();
+        final KeycloakConfig config = server.config();
+        keycloak = KeycloakBuilder.builder()
+            .serverUrl(config.getServerUrl())
+            .realm(config.getRealm())
+            .clientId(config.getClientId())
+            .clientSecret(config.getClientSecret())
+            .grantType("client_credentials")
+            .build();
+        resolver = new UserResolver(keycloak);
+    }
+
+    @AfterEach
+    void tearDown() {
+        keycloak.close();
+        server.close();
+    }
+
+    @Test
+    void prefetch_withFewerPagesThanUsernames_shouldScanOnePage() throws Exception {
+        // Given
+        server.addRealm(realmWithUsers(20));
+
+        // When
+        resolver.prefetch("app", List.of("user-1", "User-2", "USER-3"));
+        resolver.resolve("app", "user-1");
+        resolver.resolve("app", "user-2");
+        resolver.resolve("app", "User-3");
+
+        // Then
+        assertEquals(1, count("GET", USERS + "/count"));
+        assertEquals(1, count("GET", USERS));
+    }
+
+    @Test
+    void prefetch_withUsersOnLaterPages_shouldPageUntilAllAreFound() throws Exception {
+        // Given
+        server.addRealm(realmWithUsers(2 * UserResolver.PAGE_SIZE + 1));
+        final List<String> usernames = List.of("user-0", "user-1", "user-2", "user-3",
+            "user-" + UserResolver.PAGE_SIZE, "user-" + 2 * UserResolver.PAGE_SIZE);
+
+        // When
+        resolver.prefetch("app", usernames);
+        for (final String username : usernames) {
+            resolver.resolve("app", username);
+        }
+
+        // Then
+        assertEquals(1, count("GET", USERS + "/count"));
+        assertEquals(3, count("GET", USERS));
+    }
+
+    @Test
+    void prefetch_withMorePagesThanUsernames_shouldSearchEachUser() throws Exception {
+        // Given
+        server.addRealm(realmWithUsers(2 * UserResolver.PAGE_SIZE + 1));
+
+        // When
+        resolver.prefetch("app", List.of("user-1", "user-2"));
+        resolver.resolve("app", "user-1");
+        resolver.resolve("app", "user-2");
+
+        // Then
+        assertEquals(1, count("GET", USERS + "/count"));
+        assertEquals(2, count("GET", USERS));
+    }
+
+    @Test
+    void prefetch_withSingleUsername_shouldNotCountUsers() throws Exception {
+        // Given
+        server.addRealm(realmWithUsers(20));
+
+        // When
+        resolver.prefetch("app", List.of("user-1", "USER-1"));
+
+        // Then
+        assertTrue(server.getRequests().isEmpty());
+    }
+
+    @Test
+    void resolve_withMixedCaseUsernames_shouldSearchOnce() throws Exception {
+        // Given
+        server.addRealm(realmWithUsers(3));
+
+        // When
+        final String id = resolver.resolve("app", "User-1");
+        final String again = resolver.resolve("app", "USER-1");
+
+        // Then
+        assertEquals(id, again);
+        assertEquals(1, count("GET", USERS));
+    }
+
+    @Test
+    void resolve_afterCreatedAndDeleted_shouldUseAndEvictCache() throws Exception {
+        // Given
+        server.addRealm(realmWithUsers(3));
+        resolver.created("app", "Bob", "bob-id");
+        final String created = resolver.resolve("app", "bob");
+        resolver.resolve("app", "user-1");
+
+        // When
+        resolver.deleted("app", "USER-1");
+        resolver.deleted("app", "BOB");
+        resolver.resolve("app", "user-1");
+
+        // Then
+        assertEquals("bob-id", created);
+        assertEquals(2, count("GET", USERS));
+        assertThrows(NotFoundException.class, () -> resolver.resolve("app", "bob"));
+    }
+
+    private long count(final String method, final String path) {
+        return server.getRequests().stream()
+            .filter(r -> r.method().equals(method) && r.path().equals(path))
+            .count();
+    }
+
+    private static String realmWithUsers(final int count) throws Exception {
+        final List<Map<String, Object>> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(Map.of("username", "user-" + i, "enabled", true));
+        }
+        return MAPPER.writeValueAsString(Map.of("realm", "app", "enabled", true, "users", users));
+    }
+}
@@ -0,0 +1,69 @@
+package com.keycloakmigrator.client.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link EndpointTemplates}.
+ */
+class EndpointTemplatesTest {
+
+    @Test
+    void of_shouldReplaceRealmAndIds() {
+        // When
+        final String template = EndpointTemplates.of("/admin/realms/app/clients/3f2a-b1/roles/viewer");
+
+        // Then
+        assertEquals("/admin/realms/{realm}/clients/{id}/roles/{id}", template);
+    }
+
+    @Test
+    void of_withRealmNamedLikeFixedSegment_shouldStillUseRealmPlaceholder() {
+        // When
+        final String template = EndpointTemplates.of("/admin/realms/users/users/42/role-mappings/realm");
+
+        // Then
+        assertEquals("/admin/realms/{realm}/users/{id}/role-mappings/realm", template);
+    }
+
+    @Test
+    void of_withEntityNamedLikeFixedSegment_shouldUseIdPlaceholder() {
+        // When
+        final String role = EndpointTemplates.of("/admin/realms/app/roles/admin");
+        final String group = EndpointTemplates.of("/admin/realms/app/users/42/groups/users");
+        final String mapper = EndpointTemplates.of("/admin/realms/app/identity-provider/instances/realm/mappers");
+
+        // Then
+        assertEquals("/admin/realms/{realm}/roles/{id}", role);
+        assertEquals("/admin/realms/{realm}/users/{id}/groups/{id}", group);
+        assertEquals("/admin/realms/{realm}/identity-provider/instances/{id}/mappers", mapper);
+    }
+
+    @Test
+    void of_withEndpointAfterCollection_shouldKeepIt() {
+        // When
+        final String count = EndpointTemplates.of("/admin/realms/app/users/count");
+        final String execution = EndpointTemplates.of("/admin/realms/app/authentication/flows/browser/executions/execution");
+
+        // Then
+        assertEquals("/admin/realms/{realm}/users/count", count);
+        assertEquals("/admin/realms/{realm}/authentication/flows/{id}/executions/execution", execution);
+    }
+
+    @Test
+    void of_withTokenEndpoint_shouldKeepFixedSegments() {
+        // When
+        final String template = EndpointTemplates.of("/realms/master/protocol/openid-connect/token");
+
+        // Then
+        assertEquals("/realms/{realm}/protocol/openid-connect/token", template);
+    }
+
+    @Test
+    void of_withEmptyPath_shouldReturnRoot() {
+        // When / Then
+        assertEquals("/", EndpointTemplates.of(""));
+        assertEquals("/", EndpointTemplates.of(null));
+    }
+}
@@ -0,0 +1,169 @@
+package com.keycloakmigrator.client.http;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.config.KeycloakConfig;
+import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.executor.MigrationOptions;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.CreateGroupOperation;
+import com.keycloakmigrator.model.operations.CreateRealmRoleOperation;
+import com.keycloakmigrator.model.operations.CreateUserOperation;
+import com.keycloakmigrator.model.operations.Operation;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link TrafficRecorder} and {@link TrafficReplayer}: a migration is
+ * recorded against a {@link FakeKeycloakServer} and replayed after the server is stopped.
+ */
+class TrafficReplayerTest {
+
+    private static final Duration LATENCY = Duration.ofMillis(5);
+
+    @TempDir
+    Path tempDir;
+
+    private Path fixture;
+    private KeycloakConfig config;
+
+    @BeforeEach
+    void record() throws Exception {
+        fixture = tempDir.resolve("migration.json");
+        try (FakeKeycloakServer server = FakeKeycloakServer.start()) {
+            server.addRealm("{\"realm\": \"app\", \"enabled\": true}");
+            server.latency(LATENCY, Duration.ZERO);
+            config = server.config();
+            final TrafficRecorder recorder = new TrafficRecorder();
+            try (KeycloakAdminClient client = new KeycloakAdminClient(config, recorder)) {
+                assertTrue(migrate(client, changesets(false)).isSuccess());
+            }
+            recorder.write(fixture);
+        }
+    }
+
+    @Test
+    void replay_shouldMigrateWithoutServer() throws Exception {
+        // Given
+        final TrafficReplayer replayer = TrafficReplayer.fromFile(fixture).timeScale(0);
+
+        // When
+        final MigrationExecutor.MigrationResult result;
+        try (KeycloakAdminClient client = new KeycloakAdminClient(config, replayer)) {
+            result = migrate(client, changesets(false));
+        }
+
+        // Then
+        assertTrue(result.isSuccess(), () -> String.valueOf(result.errors()));
+        assertDoesNotThrow(replayer::verify);
+        assertEquals(1L, result.adminCallCounts().get("POST /admin/realms/{realm}/groups"));
+    }
+
+    @Test
+    void record_shouldNotWriteCredentials() throws Exception {
+        // When
+        final String json = Files.readString(fixture);
+
+        // Then
+        assertTrue(json.contains("/protocol/openid-connect/token"));
+        assertFalse(json.contains(config.getClientSecret()));
+        assertFalse(json.contains("simulated-token"));
+    }
+
+    @Test
+    void replay_withTimeScale_shouldReproduceRecordedLatency() throws Exception {
+        // Given
+        final List<RecordedExchange> exchanges = TrafficFixture.read(fixture);
+        final long recorded = exchanges.stream().mapToLong(RecordedExchange::durationNanos).sum();
+        final TrafficReplayer replayer = new TrafficReplayer(exchanges).timeScale(0.5);
+
+        // When
+        final long start = System.nanoTime();
+        try (KeycloakAdminClient client = new KeycloakAdminClient(config, replayer)) {
+            migrate(client, changesets(false));
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        // Then
+        assertTrue(recorded >= exchanges.size() * LATENCY.toNanos());
+        assertTrue(elapsed >= recorded / 2, "replay took " + elapsed + " ns for " + recorded + " ns recorded");
+    }
+
+    @Test
+    void replay_withAdditionalOperation_shouldReportDivergence() throws Exception {
+        // Given
+        final TrafficReplayer replayer = TrafficReplayer.fromFile(fixture).timeScale(0);
+
+        // When
+        try (KeycloakAdminClient client = new KeycloakAdminClient(config, replayer)) {
+            migrate(client, changesets(true));
+        }
+
+        // Then
+        final IllegalStateException error = assertThrows(IllegalStateException.class, replayer::verify);
+        assertTrue(error.getMessage().contains("unexpected: POST /admin/realms/app/roles"), error.getMessage());
+    }
+
+    @Test
+    void replay_withRequestsInOtherOrder_shouldReportOutOfOrder() throws Exception {
+        // Given
+        final List<RecordedExchange> exchanges = new ArrayList<>(TrafficFixture.read(fixture));
+        final int last = exchanges.size() - 1;
+        exchanges.add(last - 1, exchanges.remove(last));
+        final TrafficReplayer replayer = new TrafficReplayer(exchanges).timeScale(0);
+
+        // When
+        try (KeycloakAdminClient client = new KeycloakAdminClient(config, replayer)) {
+            migrate(client, changesets(false));
+        }
+
+        // Then
+        final IllegalStateException error = assertThrows(IllegalStateException.class, replayer::verify);
+        assertTrue(error.getMessage().contains("out of order"), error.getMessage());
+    }
+
+    private static MigrationExecutor.MigrationResult migrate(final KeycloakAdminClient client, final List<Changeset> changesets) {
+        return new MigrationExecutor(client, MigrationOptions.defaults().prefetch(false))
+            .executeMigrations(changesets, "app");
+    }
+
+    private static List<Changeset> changesets(final boolean additionalRole) {
+        final List<Operation> operations = new ArrayList<>();
+        operations.add(role("auditor"));
+        if (additionalRole) {
+            operations.add(role("viewer"));
+        }
+        final CreateGroupOperation group = new CreateGroupOperation();
+        group.setRealm("app");
+        group.setName("Ops");
+        group.setRealmRoles(List.of("auditor"));
+        operations.add(group);
+        final CreateUserOperation user = new CreateUserOperation();
+        user.setRealm("app");
+        user.setUsername("jane");
+        user.setGroups(List.of("/Ops"));
+        operations.add(user);
+
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(1);
+        changeset.setAuthor("test");
+        changeset.setOperations(operations);
+        return List.of(changeset);
+    }
+
+    private static CreateRealmRoleOperation role(final String name) {
+        final CreateRealmRoleOperation role = new CreateRealmRoleOperation();
+        role.setRealm("app");
+        role.setName(name);
+        return role;
+    }
+}
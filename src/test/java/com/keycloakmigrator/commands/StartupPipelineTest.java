@@ -0,0 +1,98 @@
+package com.keycloakmigrator.commands;
+
+import com.keycloakmigrator.model.Changeset;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link StartupPipeline}.
+ */
+class StartupPipelineTest {
+
+    private final StartupPipeline pipeline = new StartupPipeline();
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    void parse_shouldRunParsingAndAuthenticationConcurrently() throws Exception {
+        // Given
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final Changeset changeset = new Changeset();
+
+        // When
+        final List<Changeset> changesets = pipeline.parse(
+            () -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "authentication did not start alongside parsing");
+                return List.of(changeset);
+            },
+            () -> {
+                bothStarted.countDown();
+                awaitQuietly(bothStarted);
+            },
+            null);
+        pipeline.awaitConnection();
+
+        // Then
+        assertEquals(List.of(changeset), changesets);
+    }
+
+    @Test
+    void awaitConnection_withFailedAuthentication_shouldRethrowCause() throws Exception {
+        // Given
+        pipeline.parse(List::of, () -> { throw new IllegalStateException("401 Unauthorized"); }, null);
+
+        // When
+        final IllegalStateException e = assertThrows(IllegalStateException.class, pipeline::awaitConnection);
+
+        // Then
+        assertEquals("401 Unauthorized", e.getMessage());
+    }
+
+    @Test
+    void awaitConnection_withFailedTrackingFetch_shouldIgnoreIt() throws Exception {
+        // Given
+        pipeline.parse(List::of, () -> { }, () -> { throw new IllegalStateException("404 Not Found"); });
+
+        // When / Then
+        assertDoesNotThrow(pipeline::awaitConnection);
+    }
+
+    @Test
+    void printTimings_shouldNameCriticalPath() throws Exception {
+        // Given
+        pipeline.parse(() -> {
+            Thread.sleep(50);
+            return List.of();
+        }, () -> { }, () -> { });
+        pipeline.awaitConnection();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        pipeline.printTimings(new PrintStream(output, true));
+
+        // Then
+        final String printed = output.toString();
+        assertTrue(printed.contains("critical path: Changelog parsing"), printed);
+        assertTrue(printed.contains("Tracking state:"), printed);
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
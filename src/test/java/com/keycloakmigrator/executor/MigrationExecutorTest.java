@@ -0,0 +1,259 @@
+package com.keycloakmigrator.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.metrics.PerformanceReport;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.CreateClientOperation;
+import com.keycloakmigrator.model.operations.CreateClientRoleOperation;
+import com.keycloakmigrator.model.operations.Operation;
+import com.keycloakmigrator.model.operations.UpdateRealmOperation;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link MigrationExecutor} against a {@link FakeKeycloakServer}.
+ */
+class MigrationExecutorTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private FakeKeycloakServer server;
+    private KeycloakAdminClient client;
+    private final List<String> executed = new ArrayList<>();
+    private final Set<String> failing = new HashSet<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = FakeKeycloakServer.start();
+        server.addRealm("{\"realm\": \"app\", \"enabled\": true, \"attributes\": {}}");
+        client = new KeycloakAdminClient(server.config());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void executeMigrations_withFailingOperation_shouldRecordCompletedOperations() throws Exception {
+        // Given
+        failing.add("c");
+
+        // When
+        final MigrationExecutor.MigrationResult result = new MigrationExecutor(client)
+            .executeMigrations(List.of(changeset()), "app");
+
+        // Then
+        assertTrue(result.hasErrors());
+        assertEquals(List.of("a", "b", "c"), executed);
+        final JsonNode checkpoint = checkpoint();
+        assertEquals(1, checkpoint.get("version").asInt());
+        assertEquals(2, checkpoint.get("completedOperations").asInt());
+    }
+
+    @Test
+    void executeMigrations_withResume_shouldContinueFromFirstUnfinishedOperation() {
+        // Given
+        failing.add("c");
+        new MigrationExecutor(client).executeMigrations(List.of(changeset()), "app");
+        failing.clear();
+        executed.clear();
+
+        // When
+        final MigrationExecutor.MigrationResult result = new MigrationExecutor(client, MigrationOptions.defaults().resume(true))
+            .executeMigrations(List.of(changeset()), "app");
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertEquals(List.of("c", "d"), executed);
+        assertEquals("1", server.getRealm("app").get("attributes").get("migrator.lastVersion").asText());
+        assertEquals("", server.getRealm("app").get("attributes").get("migrator.checkpoint").asText());
+    }
+
+    @Test
+    void executeMigrations_withoutResume_shouldStartChangesetOver() {
+        // Given
+        failing.add("c");
+        new MigrationExecutor(client).executeMigrations(List.of(changeset()), "app");
+        failing.clear();
+        executed.clear();
+
+        // When
+        new MigrationExecutor(client).executeMigrations(List.of(changeset()), "app");
+
+        // Then
+        assertEquals(List.of("a", "b", "c", "d"), executed);
+    }
+
+    @Test
+    void executeMigrations_withResumeAfterBundledRoleFailed_shouldNotCreateClientAgain() {
+        // Given
+        new MigrationExecutor(client).executeMigrations(List.of(clientChangeset("viewer")), "app");
+        server.clearRequests();
+
+        // When
+        final MigrationExecutor.MigrationResult result = new MigrationExecutor(client, MigrationOptions.defaults().resume(true))
+            .executeMigrations(List.of(clientChangeset("editor")), "app");
+
+        // Then
+        assertTrue(result.isSuccess());
+        assertTrue(server.getRequests().stream().noneMatch(r ->
+            r.method().equals("POST") && r.path().endsWith("/clients")));
+        assertEquals(2, server.realm("app").getClientRoles("web").size());
+    }
+
+    @Test
+    void executeMigrations_withRejectedRealmUpdate_shouldApplySameChangesetsWithAndWithoutBuffering() throws Exception {
+        // Given
+        server.addRealm("{\"realm\": \"other\", \"enabled\": true, \"attributes\": {}}");
+        final KeycloakAdminClient rejecting = new KeycloakAdminClient(server.config()) {
+            @Override
+            public void updateRealm(final String realmName, final List<UpdateRealmOperation> ops,
+                                    final Function<Map<String, String>, Map<String, String>> attributeUpdates) {
+                if (ops.stream().anyMatch(op -> "broken".equals(op.getLoginTheme()))) {
+                    throw new IllegalArgumentException("Invalid theme");
+                }
+                super.updateRealm(realmName, ops, attributeUpdates);
+            }
+        };
+
+        // When
+        final MigrationExecutor.MigrationResult buffered = new MigrationExecutor(rejecting)
+            .executeMigrations(themeChangesets("app"), "app");
+        final MigrationExecutor.MigrationResult unbuffered = new MigrationExecutor(rejecting,
+            MigrationOptions.defaults().realmUpdateBuffering(false)).executeMigrations(themeChangesets("other"), "other");
+        rejecting.close();
+
+        // Then
+        assertEquals(List.of(1, 3), versions(unbuffered.applied()));
+        assertEquals(versions(unbuffered.applied()), versions(buffered.applied()));
+        assertEquals(List.of(2), versions(buffered.errors().stream().map(MigrationExecutor.MigrationError::changeset).toList()));
+        assertEquals("3", server.getRealm("app").get("attributes").get("migrator.lastVersion").asText());
+        assertEquals("3", server.getRealm("other").get("attributes").get("migrator.lastVersion").asText());
+    }
+
+    @Test
+    void executeMigrations_shouldReportOperationAndAdminCallTimings() {
+        // When
+        final PerformanceReport report = new MigrationExecutor(client)
+            .executeMigrations(List.of(changeset()), "app").performance();
+
+        // Then
+        assertEquals(4, report.operations().stream().mapToLong(s -> s.latency().count()).sum());
+        assertEquals("app", report.operations().get(0).realm());
+        assertEquals(4, report.slowest().size());
+        assertTrue(report.adminCalls().stream().anyMatch(s ->
+            s.method().equals("GET") && s.endpoint().equals("/admin/realms/{realm}") && s.statuses().containsKey(200)));
+        assertTrue(report.phases().stream().anyMatch(p -> p.phase().equals("Execution")));
+    }
+
+    @Test
+    void executeMigrations_withOtherExecutorOnSameClient_shouldOnlyCountOwnAdminCalls() {
+        // Given
+        final MigrationExecutor idle = new MigrationExecutor(client);
+        new MigrationExecutor(client).executeMigrations(List.of(changeset()), "app");
+
+        // When
+        final MigrationExecutor.MigrationResult result = idle.executeMigrations(List.of(changeset()), "app");
+        final MigrationExecutor.MigrationResult fresh = new MigrationExecutor(client)
+            .executeMigrations(List.of(changeset()), "app");
+
+        // Then
+        assertEquals(0, result.totalApplied());
+        assertEquals(fresh.adminCallCounts(), result.adminCallCounts());
+    }
+
+    private JsonNode checkpoint() throws Exception {
+        return MAPPER.readTree(server.getRealm("app").get("attributes").get("migrator.checkpoint").asText());
+    }
+
+    private Changeset changeset() {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(1);
+        changeset.setAuthor("test");
+        changeset.setOperations(List.of(step("a"), step("b"), step("c"), step("d")));
+        return changeset;
+    }
+
+    /**
+     * Three realm updates that may fail without stopping the run; the second is rejected.
+     */
+    private static List<Changeset> themeChangesets(final String realm) {
+        final List<Changeset> changesets = new ArrayList<>();
+        for (final String theme : List.of("corporate", "broken", "plain")) {
+            final UpdateRealmOperation update = new UpdateRealmOperation();
+            update.setName(realm);
+            update.setLoginTheme(theme);
+            final Changeset changeset = new Changeset();
+            changeset.setVersion(changesets.size() + 1);
+            changeset.setAuthor("test");
+            changeset.setFailOnError(false);
+            changeset.setOperations(List.of(update));
+            changesets.add(changeset);
+        }
+        return changesets;
+    }
+
+    private static List<Integer> versions(final List<Changeset> changesets) {
+        return changesets.stream().map(Changeset::getVersion).toList();
+    }
+
+    /**
+     * A client with two roles, the second named {@code secondRole}; naming it like the
+     * first makes its creation fail after the client has been created.
+     */
+    private static Changeset clientChangeset(final String secondRole) {
+        final CreateClientOperation createClient = new CreateClientOperation();
+        createClient.setRealm("app");
+        createClient.setClientId("web");
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(1);
+        changeset.setAuthor("test");
+        changeset.setOperations(List.of(createClient, clientRole("viewer"), clientRole(secondRole)));
+        return changeset;
+    }
+
+    private static CreateClientRoleOperation clientRole(final String name) {
+        final CreateClientRoleOperation role = new CreateClientRoleOperation();
+        role.setRealm("app");
+        role.setClientId("web");
+        role.setName(name);
+        return role;
+    }
+
+    private Operation step(final String name) {
+        return new Operation() {
+            @Override
+            public void execute(final KeycloakAdminClient keycloakClient) {
+                executed.add(name);
+                if (failing.contains(name)) {
+                    throw new IllegalStateException("Step failed: " + name);
+                }
+            }
+
+            @Override
+            public String getDescription() {
+                return "Step " + name;
+            }
+
+            @Override
+            public String getTargetRealm() {
+                return "app";
+            }
+        };
+    }
+}
@@ -0,0 +1,163 @@
+package com.keycloakmigrator.executor;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.config.KeycloakConfig;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.CreateClientOperation;
+import com.keycloakmigrator.model.operations.CreateUserOperation;
+import com.keycloakmigrator.model.operations.UpdateRealmOperation;
+import com.keycloakmigrator.tracking.RealmAttributeTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RealmUpdateBuffer}.
+ */
+class RealmUpdateBufferTest {
+
+    private final RecordingClient client = new RecordingClient();
+    private final RealmUpdateBuffer buffer = new RealmUpdateBuffer(new RealmAttributeTracker(client));
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+    }
+
+    @Test
+    void flush_withUpdatesFromSeveralChangesets_shouldWriteRealmOnce() {
+        // Given
+        final Changeset first = changeset(1);
+        final Changeset second = changeset(2);
+        buffer.update(first, updateRealm("app", "corporate", null));
+        buffer.record("app", first);
+        buffer.update(second, updateRealm("app", null, 600));
+        buffer.record("app", second);
+
+        // When
+        final Map<Changeset, Exception> failures = buffer.flush("app");
+
+        // Then
+        assertTrue(failures.isEmpty());
+        assertEquals(1, client.updates.size());
+        assertEquals(2, client.updates.get(0).size());
+        assertEquals("2", client.attributes.get(0).get("migrator.lastVersion"));
+    }
+
+    @Test
+    void flush_withRejectedCombinedUpdate_shouldAttributeFailureToChangeset() {
+        // Given
+        final Changeset good = changeset(1);
+        final Changeset bad = changeset(2);
+        buffer.update(good, updateRealm("app", "corporate", null));
+        buffer.update(bad, updateRealm("app", "broken", null));
+        client.rejectedTheme = "broken";
+
+        // When
+        final Map<Changeset, Exception> failures = buffer.flush("app");
+
+        // Then
+        assertEquals(Set.of(bad), failures.keySet());
+        assertEquals(3, client.updates.size());
+    }
+
+    @Test
+    void flush_withRejectedChangesetBeforeOthers_shouldStillRecordLaterChangesets() {
+        // Given
+        final Changeset first = changeset(1);
+        final Changeset rejected = changeset(2);
+        final Changeset last = changeset(3);
+        buffer.update(first, updateRealm("app", "corporate", null));
+        buffer.record("app", first);
+        buffer.update(rejected, updateRealm("app", "broken", null));
+        buffer.record("app", rejected);
+        buffer.update(last, updateRealm("app", null, 600));
+        buffer.record("app", last);
+        client.rejectedTheme = "broken";
+
+        // When
+        final Map<Changeset, Exception> failures = buffer.flush("app");
+
+        // Then
+        assertEquals(Set.of(rejected), failures.keySet());
+        assertEquals(4, client.updates.size());
+        assertEquals("1", client.attributes.get(1).get("migrator.lastVersion"));
+        assertEquals("3", client.attributes.get(3).get("migrator.lastVersion"));
+    }
+
+    @Test
+    void updatedRealms_shouldOnlyListRealmsWithBufferedUpdatesOfChangeset() {
+        // Given
+        final Changeset first = changeset(1);
+        final Changeset second = changeset(2);
+        buffer.update(first, updateRealm("app", "corporate", null));
+        buffer.record("tracking", first);
+        buffer.record("app", second);
+
+        // When
+        final Set<String> realms = buffer.updatedRealms(first);
+
+        // Then
+        assertEquals(Set.of("app"), realms);
+        assertTrue(buffer.updatedRealms(second).isEmpty());
+    }
+
+    @Test
+    void flush_withNothingBuffered_shouldNotCallServer() {
+        // When
+        final Map<Changeset, Exception> failures = buffer.flushAll();
+
+        // Then
+        assertTrue(failures.isEmpty());
+        assertTrue(client.updates.isEmpty());
+    }
+
+    @Test
+    void dependsOnRealmState_shouldOnlyFlushForSettingsDependentOperations() {
+        assertFalse(RealmUpdateBuffer.dependsOnRealmState(new CreateClientOperation()));
+        assertTrue(RealmUpdateBuffer.dependsOnRealmState(new CreateUserOperation()));
+    }
+
+    private static Changeset changeset(final int version) {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(version);
+        changeset.setAuthor("test");
+        return changeset;
+    }
+
+    private static UpdateRealmOperation updateRealm(final String realm, final String loginTheme, final Integer lifespan) {
+        final UpdateRealmOperation op = new UpdateRealmOperation();
+        op.setName(realm);
+        op.setLoginTheme(loginTheme);
+        op.setAccessTokenLifespan(lifespan);
+        return op;
+    }
+
+    /**
+     * Client that records combined realm updates instead of sending them.
+     */
+    private static class RecordingClient extends KeycloakAdminClient {
+
+        private final List<List<UpdateRealmOperation>> updates = new ArrayList<>();
+        private final List<Map<String, String>> attributes = new ArrayList<>();
+        private String rejectedTheme;
+
+        RecordingClient() {
+            super(new KeycloakConfig("http://localhost:1", "master", "test", "secret"));
+        }
+
+        @Override
+        public void updateRealm(String realmName, List<UpdateRealmOperation> ops,
+                                Function<Map<String, String>, Map<String, String>> attributeUpdates) {
+            updates.add(ops);
+            attributes.add(attributeUpdates.apply(Map.of()));
+            if (rejectedTheme != null && ops.stream().anyMatch(op -> rejectedTheme.equals(op.getLoginTheme()))) {
+                throw new IllegalArgumentException("Invalid theme");
+            }
+        }
+    }
+}
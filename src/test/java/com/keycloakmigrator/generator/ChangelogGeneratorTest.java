@@ -0,0 +1,143 @@
+package com.keycloakmigrator.generator;
+
+import com.keycloakmigrator.model.ChangeLog;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.CreateGroupOperation;
+import com.keycloakmigrator.model.operations.CreateUserOperation;
+import com.keycloakmigrator.model.operations.Operation;
+import com.keycloakmigrator.parser.XmlChangesetParser;
+import jakarta.xml.bind.JAXBException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ChangelogGenerator}.
+ */
+class ChangelogGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void generate_shouldWriteFilesValidAgainstSchema() throws IOException {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults().realms(2).groupDepth(3).files(3);
+
+        // When
+        final ChangelogGenerator.Summary summary = new ChangelogGenerator(options).generate(tempDir);
+
+        // Then
+        assertEquals(3, summary.files().size());
+        final XmlChangesetParser parser = new XmlChangesetParser(true);
+        for (final Path file : summary.files()) {
+            final XmlChangesetParser.ValidationResult result = parser.validate(file);
+            assertTrue(result.valid(), result.toString());
+        }
+    }
+
+    @Test
+    void generate_shouldWriteConfiguredNumberOfChangesetsAndOperations() throws IOException {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults()
+            .clients(3).clientRoles(1).roles(5).groups(4).users(7).operationsPerChangeset(4).files(2);
+
+        // When
+        final ChangelogGenerator.Summary summary = new ChangelogGenerator(options).generate(tempDir);
+        final List<Changeset> changesets = new XmlChangesetParser(true).parseDirectory(tempDir);
+
+        // Then
+        assertEquals(1 + 3 * 2 + 5 + 4 + 7, summary.operations());
+        assertEquals(6, summary.changesets());
+        assertEquals(6, changesets.size());
+        assertEquals(summary.operations(), changesets.stream().mapToLong(c -> c.getOperations().size()).sum());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), changesets.stream().map(Changeset::getVersion).toList());
+    }
+
+    @Test
+    void generate_withIncludes_shouldIncludeAllPartsFromMasterFile() throws IOException, JAXBException {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults().users(50).files(4).includes(true);
+
+        // When
+        final ChangelogGenerator.Summary summary = new ChangelogGenerator(options).generate(tempDir);
+        final ChangeLog changeLog = new XmlChangesetParser(true).parseFile(tempDir.resolve("changelog.xml"));
+
+        // Then
+        assertEquals(tempDir.resolve("changelog.xml"), summary.files().get(0));
+        assertTrue(Files.isDirectory(tempDir.resolve("parts")));
+        assertEquals(summary.changesets(), changeLog.getChangesets().size());
+    }
+
+    @Test
+    void generate_withGroupDepth_shouldNestGroupsUnderPreviousGroupOfChain() throws IOException {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults().clients(0).roles(2).groups(6).groupDepth(3).users(0);
+
+        // When
+        new ChangelogGenerator(options).generate(tempDir);
+        final List<CreateGroupOperation> groups = operations(CreateGroupOperation.class);
+
+        // Then
+        assertEquals(6, groups.size());
+        assertNull(groups.get(0).getParentGroup());
+        assertEquals("/group-1", groups.get(1).getParentGroup());
+        assertEquals("/group-1/group-2", groups.get(2).getParentGroup());
+        assertNull(groups.get(3).getParentGroup());
+        assertEquals("/group-4/group-5", groups.get(5).getParentGroup());
+        assertEquals(2, groups.get(0).getRealmRoles().size());
+    }
+
+    @Test
+    void generate_shouldMapUsersToDistinctRolesAndGroups() throws IOException {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults().roles(3).roleMappings(3).groups(2).groupMemberships(2);
+
+        // When
+        new ChangelogGenerator(options).generate(tempDir);
+        final List<CreateUserOperation> users = operations(CreateUserOperation.class);
+
+        // Then
+        assertEquals(100, users.size());
+        for (final CreateUserOperation user : users) {
+            assertEquals(3, user.getRealmRoles().stream().distinct().count());
+            assertEquals(2, user.getGroups().stream().distinct().count());
+        }
+    }
+
+    @Test
+    void generate_withSameSeed_shouldWriteIdenticalChangelog() throws IOException {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults().seed(42);
+
+        // When
+        final Path first = new ChangelogGenerator(options).generate(tempDir.resolve("a")).files().get(0);
+        final Path second = new ChangelogGenerator(options).generate(tempDir.resolve("b")).files().get(0);
+
+        // Then
+        assertEquals(Files.readString(first), Files.readString(second));
+    }
+
+    @Test
+    void generate_withMoreRoleMappingsThanRoles_shouldThrow() {
+        // Given
+        final GeneratorOptions options = GeneratorOptions.defaults().roles(1).roleMappings(2);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> new ChangelogGenerator(options).generate(tempDir));
+    }
+
+    private <T extends Operation> List<T> operations(final Class<T> type) throws IOException {
+        return new XmlChangesetParser(true).parseDirectory(tempDir).stream()
+            .flatMap(changeset -> changeset.getOperations().stream())
+            .filter(type::isInstance)
+            .map(type::cast)
+            .toList();
+    }
+}
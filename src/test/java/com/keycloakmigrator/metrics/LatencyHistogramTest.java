@@ -0,0 +1,56 @@
+package com.keycloakmigrator.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void percentile_shouldBeWithinOneBucketOfExactValue() {
+        // Given
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+
+        // When
+        final long p50 = histogram.percentile(50);
+        final long p99 = histogram.percentile(99);
+
+        // Then
+        assertTrue(p50 >= 50_000_000L && p50 <= 50_000_000L * 1.19, "p50 = " + p50);
+        assertTrue(p99 >= 99_000_000L && p99 <= 100_000_000L, "p99 = " + p99);
+        assertEquals(100, histogram.getCount());
+        assertEquals(5_050_000_000L, histogram.getTotalNanos());
+        assertEquals(100_000_000L, histogram.getMaxNanos());
+    }
+
+    @Test
+    void percentile_withoutRecordings_shouldBeZero() {
+        // When / Then
+        assertEquals(0, new LatencyHistogram().percentile(95));
+    }
+
+    @Test
+    void record_aboveLastBound_shouldCountInOverflowBucket() {
+        // Given
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final long[] bounds = LatencyHistogram.bucketUpperBounds();
+
+        // When
+        histogram.record(bounds[bounds.length - 1] + 1);
+
+        // Then
+        final long[] counts = histogram.bucketCounts();
+        assertEquals(bounds.length + 1, counts.length);
+        assertEquals(1, counts[counts.length - 1]);
+        assertEquals(1, Arrays.stream(counts).sum());
+        assertEquals(bounds[bounds.length - 1] + 1, histogram.percentile(100));
+    }
+}
@@ -0,0 +1,90 @@
+package com.keycloakmigrator.metrics;
+
+import com.keycloakmigrator.client.http.AdminCall;
+import com.keycloakmigrator.model.operations.CreateRealmRoleOperation;
+import com.keycloakmigrator.tracking.RealmAttributeTracker.MigrationStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link PrometheusTextfile}.
+ */
+class PrometheusTextfileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void render_shouldWriteRealmStatusAndAdminCalls() {
+        // Given
+        final PerformanceRecorder recorder = new PerformanceRecorder();
+        recorder.onCall(new AdminCall("GET", "/admin/realms/app", "/admin/realms/{realm}", 200, 1_000_000));
+        recorder.onCall(new AdminCall("GET", "/admin/realms/app", "/admin/realms/{realm}", 200, 1_000_000));
+
+        // When
+        final String text = new PrometheusTextfile()
+            .realmStatus("app", new MigrationStatus("app", 4, 6, 2, List.of()))
+            .performance(recorder.report())
+            .render();
+
+        // Then
+        assertTrue(text.contains("# TYPE keycloak_migrator_changesets_pending gauge\n"), text);
+        assertTrue(text.contains("keycloak_migrator_changesets_pending{realm=\"app\"} 2\n"), text);
+        assertTrue(text.contains("keycloak_migrator_last_applied_version{realm=\"app\"} 4\n"), text);
+        assertTrue(text.contains("# TYPE keycloak_migrator_admin_calls_total counter\n"), text);
+        assertTrue(text.contains(
+            "keycloak_migrator_admin_calls_total{method=\"GET\",endpoint=\"/admin/realms/{realm}\",status=\"200\"} 2\n"), text);
+    }
+
+    @Test
+    void render_shouldWriteCumulativeOperationHistogram() {
+        // Given
+        final CreateRealmRoleOperation op = new CreateRealmRoleOperation();
+        op.setRealm("app");
+        op.setName("admin");
+        final PerformanceRecorder recorder = new PerformanceRecorder();
+        recorder.recordOperation(op, 1, 150_000);
+        recorder.recordOperation(op, 1, 3_000_000);
+
+        // When
+        final String text = new PrometheusTextfile().performance(recorder.report()).render();
+
+        // Then
+        final String labels = "type=\"CreateRealmRoleOperation\",realm=\"app\"";
+        assertTrue(text.contains("# TYPE keycloak_migrator_operation_duration_seconds histogram\n"), text);
+        assertTrue(text.contains("keycloak_migrator_operation_duration_seconds_bucket{" + labels + ",le=\"0.0001\"} 0\n"), text);
+        assertTrue(text.contains("keycloak_migrator_operation_duration_seconds_bucket{" + labels + ",le=\"0.0002\"} 1\n"), text);
+        assertTrue(text.contains("keycloak_migrator_operation_duration_seconds_bucket{" + labels + ",le=\"0.0032\"} 2\n"), text);
+        assertTrue(text.contains("keycloak_migrator_operation_duration_seconds_bucket{" + labels + ",le=\"+Inf\"} 2\n"), text);
+        assertTrue(text.contains("keycloak_migrator_operation_duration_seconds_count{" + labels + "} 2\n"), text);
+    }
+
+    @Test
+    void write_shouldReplaceFileWithoutLeavingTemporaryFile() throws Exception {
+        // Given
+        final Path file = tempDir.resolve("migrator.prom");
+        Files.writeString(file, "old");
+
+        // When
+        new PrometheusTextfile()
+            .gauge("run_success", "Whether the last run applied every pending changeset", Map.of(), 1)
+            .write(file);
+
+        // Then
+        assertEquals("""
+            # HELP keycloak_migrator_run_success Whether the last run applied every pending changeset
+            # TYPE keycloak_migrator_run_success gauge
+            keycloak_migrator_run_success 1
+            """, Files.readString(file));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+}
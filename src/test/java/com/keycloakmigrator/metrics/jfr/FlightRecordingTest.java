@@ -0,0 +1,50 @@
+package com.keycloakmigrator.metrics.jfr;
+
+import com.keycloakmigrator.parser.XmlChangesetParser;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FlightRecording}.
+ */
+class FlightRecordingTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void close_shouldWriteMigratorEvents() throws Exception {
+        // Given
+        final Path changelog = tempDir.resolve("changelog.xml");
+        Files.writeString(changelog, """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <changelog xmlns="http://keycloak-migrator.com/changelog">
+                <changeset version="1" author="test">
+                    <createRealm name="app"/>
+                </changeset>
+            </changelog>
+            """);
+        final Path file = tempDir.resolve("run.jfr");
+
+        // When
+        try (FlightRecording ignored = FlightRecording.start(file)) {
+            new XmlChangesetParser(false).parseFile(changelog);
+        }
+
+        // Then
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().equals("com.keycloakmigrator.ParseFile"))
+            .toList();
+        assertEquals(1, events.size());
+        assertEquals(changelog.toString(), events.get(0).getString("file"));
+        assertEquals(1, events.get(0).getInt("changesets"));
+    }
+}
@@ -0,0 +1,63 @@
+package com.keycloakmigrator.metrics.trace;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloakmigrator.client.http.AdminCall;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link Trace}.
+ */
+class TraceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeOtlpJson_shouldNestSpansUnderCurrentSpanOfThread() throws Exception {
+        // Given
+        final Trace trace = new Trace("migrate");
+        final Trace.Span changeset = trace.startSpan("changeset 1").attribute("migrator.changeset.version", 1);
+        final Trace.Span operation = trace.startSpan("CreateRealmRoleOperation").attribute("migrator.realm", "app");
+        trace.onCall(new AdminCall("POST", "/admin/realms/app/roles", "/admin/realms/{realm}/roles", 409, 2_000_000));
+        operation.end(false);
+        changeset.end(false);
+        trace.onCall(new AdminCall("PUT", "/admin/realms/app", "/admin/realms/{realm}", 204, 1_000_000));
+        final Path file = tempDir.resolve("trace.json");
+
+        // When
+        trace.writeOtlpJson(file);
+
+        // Then
+        final JsonNode resourceSpans = new ObjectMapper().readTree(file.toFile()).get("resourceSpans").get(0);
+        assertEquals("keycloak-migrator", resourceSpans.get("resource").get("attributes").get(0).get("value").get("stringValue").asText());
+        final Map<String, JsonNode> spans = new HashMap<>();
+        resourceSpans.get("scopeSpans").get(0).get("spans").forEach(span -> spans.put(span.get("name").asText(), span));
+        assertEquals(5, spans.size());
+
+        final JsonNode root = spans.get("migrate");
+        assertFalse(root.has("parentSpanId"));
+        assertEquals(32, root.get("traceId").asText().length());
+        assertEquals(parentOf(spans, "changeset 1"), root.get("spanId").asText());
+        assertEquals(parentOf(spans, "CreateRealmRoleOperation"), spans.get("changeset 1").get("spanId").asText());
+        assertEquals(parentOf(spans, "POST /admin/realms/{realm}/roles"), spans.get("CreateRealmRoleOperation").get("spanId").asText());
+        assertEquals(parentOf(spans, "PUT /admin/realms/{realm}"), root.get("spanId").asText());
+
+        final JsonNode call = spans.get("POST /admin/realms/{realm}/roles");
+        assertEquals(3, call.get("kind").asInt());
+        assertEquals(2, call.get("status").get("code").asInt());
+        assertEquals(2_000_000, call.get("endTimeUnixNano").asLong() - call.get("startTimeUnixNano").asLong());
+        assertEquals("1", spans.get("changeset 1").get("attributes").get(0).get("value").get("intValue").asText());
+    }
+
+    private static String parentOf(final Map<String, JsonNode> spans, final String name) {
+        return spans.get(name).get("parentSpanId").asText();
+    }
+}
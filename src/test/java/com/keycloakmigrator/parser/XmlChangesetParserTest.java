@@ -318,4 +318,32 @@ class XmlChangesetParserTest {
         // Then
         assertEquals("dev", changeLog.getChangesets().get(0).getContext());
     }
+
+    @Test
+    void parseFile_withLocations_shouldRecordLineOfEachChangesetAndOperation() throws IOException, JAXBException {
+        // Given
+        final String xml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <changelog xmlns="http://keycloak-migrator.com/changelog">
+                <changeset version="1" author="admin">
+                    <createRealm name="realm1"><enabled>true</enabled></createRealm>
+
+                    <createRealm name="realm2"><enabled>true</enabled></createRealm>
+                </changeset>
+            </changelog>
+            """;
+        final Path file = tempDir.resolve("changelog.xml");
+        Files.writeString(file, xml);
+        final SourceLocations locations = new SourceLocations();
+
+        // When
+        final ChangeLog changeLog = parser.parseFile(file, locations);
+
+        // Then
+        final Changeset changeset = changeLog.getChangesets().get(0);
+        assertEquals(3, locations.size());
+        assertEquals(new SourceLocations.Location(file, 3), locations.get(changeset));
+        assertEquals(4, locations.get(changeset.getOperations().get(0)).line());
+        assertEquals(6, locations.get(changeset.getOperations().get(1)).line());
+    }
 }
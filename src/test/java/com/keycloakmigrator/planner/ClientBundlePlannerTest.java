@@ -0,0 +1,106 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.operations.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ClientBundlePlanner}.
+ */
+class ClientBundlePlannerTest {
+
+    private final ClientBundlePlanner planner = new ClientBundlePlanner();
+
+    @Test
+    void plan_withRolesAndMappersForNewClient_shouldMergeThemIntoOneOperation() {
+        // Given
+        final CreateClientOperation client = createClient("frontend");
+        final CreateRealmRoleOperation realmRole = new CreateRealmRoleOperation();
+        realmRole.setRealm("app");
+        realmRole.setName("user");
+        final List<Operation> operations = List.of(
+            client,
+            createClientRole("frontend", "viewer"),
+            realmRole,
+            createMapper("frontend", "groups"),
+            createClientRole("frontend", "editor")
+        );
+
+        // When
+        final List<Operation> planned = planner.plan(operations);
+
+        // Then
+        assertEquals(2, planned.size());
+        final CreateClientBundleOperation bundle = assertInstanceOf(CreateClientBundleOperation.class, planned.get(0));
+        assertSame(client, bundle.getClient());
+        assertEquals(List.of("viewer", "editor"), bundle.getRoles().stream().map(CreateClientRoleOperation::getName).toList());
+        assertEquals("groups", bundle.getProtocolMappers().get(0).getName());
+        assertSame(realmRole, planned.get(1));
+    }
+
+    @Test
+    void plan_withRoleForExistingClient_shouldKeepOperationAsIs() {
+        // Given
+        final CreateClientRoleOperation role = createClientRole("existing", "viewer");
+        final List<Operation> operations = List.of(createClient("frontend"), role);
+
+        // When
+        final List<Operation> planned = planner.plan(operations);
+
+        // Then
+        assertEquals(2, planned.size());
+        assertInstanceOf(CreateClientOperation.class, planned.get(0));
+        assertSame(role, planned.get(1));
+    }
+
+    @Test
+    void plan_withDeleteBetweenCreations_shouldNotMoveLaterOperations() {
+        // Given
+        final DeleteRoleOperation delete = new DeleteRoleOperation();
+        delete.setRealm("app");
+        delete.setClientId("frontend");
+        delete.setName("viewer");
+        final CreateClientRoleOperation recreate = createClientRole("frontend", "viewer");
+        final List<Operation> operations = List.of(
+            createClient("frontend"),
+            createClientRole("frontend", "viewer"),
+            delete,
+            recreate
+        );
+
+        // When
+        final List<Operation> planned = planner.plan(operations);
+
+        // Then
+        assertEquals(3, planned.size());
+        assertInstanceOf(CreateClientBundleOperation.class, planned.get(0));
+        assertSame(delete, planned.get(1));
+        assertSame(recreate, planned.get(2));
+    }
+
+    private static CreateClientOperation createClient(final String clientId) {
+        final CreateClientOperation op = new CreateClientOperation();
+        op.setRealm("app");
+        op.setClientId(clientId);
+        return op;
+    }
+
+    private static CreateClientRoleOperation createClientRole(final String clientId, final String name) {
+        final CreateClientRoleOperation op = new CreateClientRoleOperation();
+        op.setRealm("app");
+        op.setClientId(clientId);
+        op.setName(name);
+        return op;
+    }
+
+    private static CreateProtocolMapperOperation createMapper(final String clientId, final String name) {
+        final CreateProtocolMapperOperation op = new CreateProtocolMapperOperation();
+        op.setRealm("app");
+        op.setClientId(clientId);
+        op.setName(name);
+        return op;
+    }
+}
@@ -0,0 +1,241 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConvergePlanner}.
+ */
+class ConvergePlannerTest {
+
+    private final ConvergePlanner planner = new ConvergePlanner();
+
+    @Test
+    void plan_withEverythingAlreadyPresent_shouldPlanNoChanges() {
+        // Given
+        final UpdateRealmOperation update = new UpdateRealmOperation();
+        update.setName("app");
+        update.setDisplayName("App");
+        final List<Changeset> changesets = List.of(
+            changeset(1, update, createClient("app", "frontend"), createClientRole("app", "frontend", "viewer")),
+            changeset(2, createRealmRole("app", "admin"), createGroup("app", "Engineering", null))
+        );
+
+        // When
+        final ConvergePlan plan = planner.plan(export(), changesets, 0).orElseThrow();
+
+        // Then
+        assertEquals(2, plan.changesets().size());
+        assertEquals(5, plan.operationCount());
+        assertEquals(5, plan.satisfiedCount());
+        assertNull(plan.realmPatch());
+        assertNull(plan.partialImport());
+        assertTrue(plan.clientPatches().isEmpty());
+        assertTrue(plan.followUps().isEmpty());
+    }
+
+    @Test
+    void plan_withNewEntities_shouldGatherThemInOnePartialImport() {
+        // Given
+        final CreateIdentityProviderOperation idp = new CreateIdentityProviderOperation();
+        idp.setRealm("app");
+        idp.setAlias("google");
+        idp.setProviderId("google");
+        final List<Changeset> changesets = List.of(
+            changeset(1, createRealmRole("app", "auditor"), createClientRole("app", "frontend", "editor")),
+            changeset(2, createGroup("app", "Sales", null), createGroup("app", "EMEA", "Sales")),
+            changeset(3, createUser("app", "john"), idp)
+        );
+
+        // When
+        final ConvergePlan plan = planner.plan(export(), changesets, 0).orElseThrow();
+
+        // Then
+        final PartialImportRepresentation partialImport = plan.partialImport();
+        assertEquals("SKIP", partialImport.getIfResourceExists());
+        assertEquals("auditor", partialImport.getRoles().getRealm().get(0).getName());
+        assertEquals("editor", partialImport.getRoles().getClient().get("frontend").get(0).getName());
+        assertEquals(1, partialImport.getGroups().size());
+        assertEquals("EMEA", partialImport.getGroups().get(0).getSubGroups().get(0).getName());
+        assertEquals("john", partialImport.getUsers().get(0).getUsername());
+        assertEquals("google", partialImport.getIdentityProviders().get(0).getAlias());
+        assertTrue(plan.followUps().isEmpty());
+        assertEquals(0, plan.satisfiedCount());
+    }
+
+    @Test
+    void plan_withChangedSettings_shouldPatchOnlyDifferingFields() {
+        // Given
+        final UpdateRealmOperation realmUpdate = new UpdateRealmOperation();
+        realmUpdate.setName("app");
+        realmUpdate.setDisplayName("App");
+        realmUpdate.setRegistrationAllowed(true);
+        final UpdateClientOperation clientUpdate = new UpdateClientOperation();
+        clientUpdate.setRealm("app");
+        clientUpdate.setClientId("frontend");
+        clientUpdate.setEnabled(true);
+        clientUpdate.setRootUrl("https://app.example.com");
+
+        // When
+        final ConvergePlan plan = planner.plan(export(), List.of(changeset(1, realmUpdate, clientUpdate)), 0).orElseThrow();
+
+        // Then
+        final RealmRepresentation realmPatch = plan.realmPatch();
+        assertEquals("app", realmPatch.getRealm());
+        assertTrue(realmPatch.isRegistrationAllowed());
+        assertNull(realmPatch.getDisplayName());
+        assertEquals(Map.of("lastMigrationVersion", "3"), realmPatch.getAttributes());
+
+        final ClientRepresentation clientPatch = plan.clientPatches().get(0);
+        assertEquals("frontend-id", clientPatch.getId());
+        assertEquals("https://app.example.com", clientPatch.getRootUrl());
+        assertNull(clientPatch.isEnabled());
+        assertNull(clientPatch.getSecret());
+    }
+
+    @Test
+    void plan_withNewClient_shouldCreateItAndItsDependentsAsFollowUps() {
+        // Given
+        final CreateUserOperation.ClientRoleMapping mapping = new CreateUserOperation.ClientRoleMapping();
+        mapping.setClientId("backend");
+        mapping.setRoles(List.of("reader"));
+        final CreateUserOperation user = createUser("app", "jane");
+        user.setClientRoles(List.of(mapping));
+        final CreateClientOperation client = createClient("app", "backend");
+        final CreateClientRoleOperation role = createClientRole("app", "backend", "reader");
+
+        // When
+        final ConvergePlan plan = planner.plan(export(), List.of(changeset(1, client, role, user)), 0).orElseThrow();
+
+        // Then
+        assertEquals(List.of(client, role, user), plan.followUps());
+        assertNull(plan.partialImport());
+    }
+
+    @Test
+    void plan_withChildOfExistingGroup_shouldCreateItAsFollowUp() {
+        // Given
+        final CreateGroupOperation child = createGroup("app", "Backend", "Engineering");
+
+        // When
+        final ConvergePlan plan = planner.plan(export(), List.of(changeset(1, child)), 0).orElseThrow();
+
+        // Then
+        assertEquals(List.of(child), plan.followUps());
+        assertNull(plan.partialImport());
+    }
+
+    @Test
+    void plan_withDeleteOperation_shouldStopBeforeThatChangeset() {
+        // Given
+        final DeleteUserOperation delete = new DeleteUserOperation();
+        delete.setRealm("app");
+        delete.setUsername("john");
+        final List<Changeset> changesets = List.of(
+            changeset(1, createRealmRole("app", "auditor")),
+            changeset(2, delete),
+            changeset(3, createRealmRole("app", "reviewer"))
+        );
+
+        // When
+        final ConvergePlan plan = planner.plan(export(), changesets, 0).orElseThrow();
+
+        // Then
+        assertEquals(1, plan.changesets().size());
+        assertEquals(1, plan.partialImport().getRoles().getRealm().size());
+        assertTrue(planner.plan(export(), changesets, 1).isEmpty());
+    }
+
+    @Test
+    void convergibleRealm_withOperationsOnSeveralRealms_shouldBeEmpty() {
+        // Given
+        final Changeset single = changeset(1, createRealmRole("app", "a"), createGroup("app", "G", null));
+        final Changeset mixed = changeset(2, createRealmRole("app", "a"), createRealmRole("other", "b"));
+
+        // When / Then
+        assertEquals("app", ConvergePlanner.convergibleRealm(single).orElseThrow());
+        assertTrue(ConvergePlanner.convergibleRealm(mixed).isEmpty());
+    }
+
+    private static RealmRepresentation export() {
+        final RealmRepresentation realm = new RealmRepresentation();
+        realm.setRealm("app");
+        realm.setDisplayName("App");
+        realm.setRegistrationAllowed(false);
+        realm.setAttributes(Map.of("lastMigrationVersion", "3"));
+
+        final ClientRepresentation client = new ClientRepresentation();
+        client.setId("frontend-id");
+        client.setClientId("frontend");
+        client.setEnabled(true);
+        client.setSecret("**********");
+        realm.setClients(new ArrayList<>(List.of(client)));
+
+        final RoleRepresentation admin = new RoleRepresentation();
+        admin.setName("admin");
+        final RoleRepresentation viewer = new RoleRepresentation();
+        viewer.setName("viewer");
+        final RolesRepresentation roles = new RolesRepresentation();
+        roles.setRealm(List.of(admin));
+        roles.setClient(Map.of("frontend", List.of(viewer)));
+        realm.setRoles(roles);
+
+        final GroupRepresentation engineering = new GroupRepresentation();
+        engineering.setName("Engineering");
+        realm.setGroups(List.of(engineering));
+        return realm;
+    }
+
+    private static Changeset changeset(final int version, final Operation... operations) {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(version);
+        changeset.setAuthor("test");
+        changeset.setOperations(List.of(operations));
+        return changeset;
+    }
+
+    private static CreateClientOperation createClient(final String realm, final String clientId) {
+        final CreateClientOperation op = new CreateClientOperation();
+        op.setRealm(realm);
+        op.setClientId(clientId);
+        return op;
+    }
+
+    private static CreateClientRoleOperation createClientRole(final String realm, final String clientId, final String name) {
+        final CreateClientRoleOperation op = new CreateClientRoleOperation();
+        op.setRealm(realm);
+        op.setClientId(clientId);
+        op.setName(name);
+        return op;
+    }
+
+    private static CreateRealmRoleOperation createRealmRole(final String realm, final String name) {
+        final CreateRealmRoleOperation op = new CreateRealmRoleOperation();
+        op.setRealm(realm);
+        op.setName(name);
+        return op;
+    }
+
+    private static CreateGroupOperation createGroup(final String realm, final String name, final String parent) {
+        final CreateGroupOperation op = new CreateGroupOperation();
+        op.setRealm(realm);
+        op.setName(name);
+        op.setParentGroup(parent);
+        return op;
+    }
+
+    private static CreateUserOperation createUser(final String realm, final String username) {
+        final CreateUserOperation op = new CreateUserOperation();
+        op.setRealm(realm);
+        op.setUsername(username);
+        return op;
+    }
+}
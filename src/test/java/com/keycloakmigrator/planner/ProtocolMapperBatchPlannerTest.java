@@ -0,0 +1,80 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.operations.CreateProtocolMapperOperation;
+import com.keycloakmigrator.model.operations.DeleteUserOperation;
+import com.keycloakmigrator.model.operations.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ProtocolMapperBatchPlanner}.
+ */
+class ProtocolMapperBatchPlannerTest {
+
+    private final ProtocolMapperBatchPlanner planner = new ProtocolMapperBatchPlanner();
+
+    @Test
+    void plan_withConsecutiveMappersOnSameScope_shouldGroupThem() {
+        // Given
+        final List<Operation> operations = List.of(
+            scopeMapper("profile", "a"),
+            scopeMapper("profile", "b"),
+            scopeMapper("profile", "c")
+        );
+
+        // When
+        final List<Operation> planned = planner.plan(operations);
+
+        // Then
+        assertEquals(1, planned.size());
+        final CreateProtocolMappersOperation batch = assertInstanceOf(CreateProtocolMappersOperation.class, planned.get(0));
+        assertEquals(3, batch.getMappers().size());
+        assertEquals("Create 3 protocol mappers for client scope 'profile' in realm 'app'", batch.getDescription());
+    }
+
+    @Test
+    void plan_withDifferentOwners_shouldStartNewGroup() {
+        // Given
+        final List<Operation> operations = List.of(
+            scopeMapper("profile", "a"),
+            scopeMapper("profile", "b"),
+            scopeMapper("email", "c")
+        );
+
+        // When
+        final List<Operation> planned = planner.plan(operations);
+
+        // Then
+        assertEquals(2, planned.size());
+        assertInstanceOf(CreateProtocolMappersOperation.class, planned.get(0));
+        assertInstanceOf(CreateProtocolMapperOperation.class, planned.get(1));
+    }
+
+    @Test
+    void plan_withInterleavedOperation_shouldPreserveOrder() {
+        // Given
+        final DeleteUserOperation delete = new DeleteUserOperation();
+        final List<Operation> operations = List.of(
+            scopeMapper("profile", "a"),
+            delete,
+            scopeMapper("profile", "b")
+        );
+
+        // When
+        final List<Operation> planned = planner.plan(operations);
+
+        // Then
+        assertEquals(operations, planned);
+    }
+
+    private static CreateProtocolMapperOperation scopeMapper(final String scope, final String name) {
+        final CreateProtocolMapperOperation op = new CreateProtocolMapperOperation();
+        op.setRealm("app");
+        op.setClientScopeName(scope);
+        op.setName(name);
+        return op;
+    }
+}
@@ -0,0 +1,172 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link RealmImportCompiler}.
+ */
+class RealmImportCompilerTest {
+
+    private final RealmImportCompiler compiler = new RealmImportCompiler();
+
+    @Test
+    void compile_withRealmAndContent_shouldFoldEverythingIntoOnePayload() {
+        // Given
+        final List<Changeset> changesets = List.of(
+            changeset(1, createRealm("app")),
+            changeset(2, createClient("app", "frontend"), createClientRole("app", "frontend", "viewer")),
+            changeset(3, createGroup("app", "Engineering", null), createGroup("app", "Backend", "Engineering")),
+            changeset(4, createUser("app", "john"))
+        );
+
+        // When
+        final Optional<RealmImport> result = compiler.compile(changesets, 0, realm -> false);
+
+        // Then
+        assertTrue(result.isPresent());
+        final RealmImport realmImport = result.get();
+        assertEquals("app", realmImport.realmName());
+        assertEquals(4, realmImport.changesets().size());
+        assertEquals(6, realmImport.operationCount());
+
+        final RealmRepresentation realm = realmImport.representation();
+        assertEquals("app", realm.getRealm());
+        assertEquals("frontend", realm.getClients().get(0).getClientId());
+        assertEquals("viewer", realm.getRoles().getClient().get("frontend").get(0).getName());
+        assertEquals(1, realm.getGroups().size());
+        final GroupRepresentation engineering = realm.getGroups().get(0);
+        assertEquals("Backend", engineering.getSubGroups().get(0).getName());
+        assertEquals("secret", realm.getUsers().get(0).getCredentials().get(0).getValue());
+    }
+
+    @Test
+    void compile_withExistingRealm_shouldReturnEmpty() {
+        // Given
+        final List<Changeset> changesets = List.of(changeset(1, createRealm("app")));
+
+        // When
+        final Optional<RealmImport> result = compiler.compile(changesets, 0, realm -> true);
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void compile_withoutCreateRealmFirst_shouldReturnEmpty() {
+        // Given
+        final List<Changeset> changesets = List.of(changeset(1, createClient("app", "frontend")));
+
+        // When
+        final Optional<RealmImport> result = compiler.compile(changesets, 0, realm -> false);
+
+        // Then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void compile_withClientScope_shouldStopBeforeThatChangeset() {
+        // Given
+        final CreateClientScopeOperation scope = new CreateClientScopeOperation();
+        scope.setRealm("app");
+        scope.setName("api-access");
+        final List<Changeset> changesets = List.of(
+            changeset(1, createRealm("app")),
+            changeset(2, createClient("app", "frontend")),
+            changeset(3, scope),
+            changeset(4, createUser("app", "john"))
+        );
+
+        // When
+        final RealmImport realmImport = compiler.compile(changesets, 0, realm -> false).orElseThrow();
+
+        // Then
+        assertEquals(List.of(1, 2), realmImport.changesets().stream().map(Changeset::getVersion).toList());
+        assertNull(realmImport.representation().getUsers());
+    }
+
+    @Test
+    void compile_withOperationOnOtherRealm_shouldStopBeforeThatChangeset() {
+        // Given
+        final List<Changeset> changesets = List.of(
+            changeset(1, createRealm("app")),
+            changeset(2, createClient("app", "frontend"), createClient("other", "backend"))
+        );
+
+        // When
+        final RealmImport realmImport = compiler.compile(changesets, 0, realm -> false).orElseThrow();
+
+        // Then
+        assertEquals(1, realmImport.changesets().size());
+        assertNull(realmImport.representation().getClients());
+    }
+
+    @Test
+    void compile_withRoleForUnknownClient_shouldStopBeforeThatChangeset() {
+        // Given
+        final List<Changeset> changesets = List.of(
+            changeset(1, createRealm("app")),
+            changeset(2, createClientRole("app", "missing", "viewer"))
+        );
+
+        // When
+        final RealmImport realmImport = compiler.compile(changesets, 0, realm -> false).orElseThrow();
+
+        // Then
+        assertEquals(1, realmImport.changesets().size());
+        assertNull(realmImport.representation().getRoles());
+    }
+
+    private static Changeset changeset(final int version, final Operation... operations) {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(version);
+        changeset.setAuthor("test");
+        changeset.setOperations(List.of(operations));
+        return changeset;
+    }
+
+    private static CreateRealmOperation createRealm(final String name) {
+        final CreateRealmOperation op = new CreateRealmOperation();
+        op.setName(name);
+        return op;
+    }
+
+    private static CreateClientOperation createClient(final String realm, final String clientId) {
+        final CreateClientOperation op = new CreateClientOperation();
+        op.setRealm(realm);
+        op.setClientId(clientId);
+        return op;
+    }
+
+    private static CreateClientRoleOperation createClientRole(final String realm, final String clientId, final String name) {
+        final CreateClientRoleOperation op = new CreateClientRoleOperation();
+        op.setRealm(realm);
+        op.setClientId(clientId);
+        op.setName(name);
+        return op;
+    }
+
+    private static CreateGroupOperation createGroup(final String realm, final String name, final String parent) {
+        final CreateGroupOperation op = new CreateGroupOperation();
+        op.setRealm(realm);
+        op.setName(name);
+        op.setParentGroup(parent);
+        return op;
+    }
+
+    private static CreateUserOperation createUser(final String realm, final String username) {
+        final CreateUserOperation op = new CreateUserOperation();
+        op.setRealm(realm);
+        op.setUsername(username);
+        op.setPassword("secret");
+        return op;
+    }
+}
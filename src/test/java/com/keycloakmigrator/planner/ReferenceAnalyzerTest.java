@@ -0,0 +1,267 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.generator.ChangelogGenerator;
+import com.keycloakmigrator.generator.GeneratorOptions;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import com.keycloakmigrator.parser.SourceLocations;
+import com.keycloakmigrator.parser.XmlChangesetParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReferenceAnalyzer}.
+ */
+class ReferenceAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void analyze_withRoleCreatedInLaterFile_shouldReportFileAndLineOfBoth() throws Exception {
+        // Given
+        Files.writeString(tempDir.resolve("01-groups.xml"), """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <changelog xmlns="http://keycloak-migrator.com/changelog">
+                <changeset version="1" author="test">
+                    <createGroup realm="app" name="Ops">
+                        <realmRoles><role>auditor</role></realmRoles>
+                    </createGroup>
+                </changeset>
+            </changelog>
+            """);
+        Files.writeString(tempDir.resolve("02-roles.xml"), """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <changelog xmlns="http://keycloak-migrator.com/changelog">
+                <changeset version="2" author="test">
+                    <createRealmRole realm="app" name="auditor"/>
+                </changeset>
+            </changelog>
+            """);
+        final SourceLocations locations = new SourceLocations();
+        final List<Changeset> changesets = new XmlChangesetParser(true).parseDirectory(tempDir, locations);
+
+        // When
+        final ReferenceAnalyzer.Result result = new ReferenceAnalyzer(locations, false).analyze(changesets);
+
+        // Then
+        assertEquals(1, result.errorCount());
+        final ReferenceAnalyzer.Finding finding = result.findings().get(0);
+        assertEquals(new SourceLocations.Location(tempDir.resolve("01-groups.xml"), 4), finding.location());
+        assertTrue(finding.message().contains(
+            "realm role 'auditor' is only created at " + tempDir.resolve("02-roles.xml") + ":4 (version 2)"),
+            finding.message());
+    }
+
+    @Test
+    void analyze_withDeletedParentGroup_shouldReportSubgroupAsDeleted() {
+        // Given
+        final List<Changeset> changesets = List.of(
+            changeset(1, group("app", "Engineering", null), group("app", "Backend", "Engineering")),
+            changeset(2, deleteGroup("app", "/Engineering")),
+            changeset(3, user("app", "jane", "Engineering/Backend", null)));
+
+        // When
+        final ReferenceAnalyzer.Result result = analyze(changesets, false);
+
+        // Then
+        assertEquals(1, result.errorCount());
+        assertTrue(result.findings().get(0).message().endsWith("group '/Engineering/Backend' was deleted at version 2"),
+            result.findings().get(0).message());
+    }
+
+    @Test
+    void analyze_inRealmCreatedByChangelog_shouldReportNeverCreatedButAcceptBuiltIns() {
+        // Given
+        final CreateRealmOperation realm = new CreateRealmOperation();
+        realm.setName("shop");
+        final List<Changeset> changesets = List.of(
+            changeset(1, realm, user("shop", "bob", null, "offline_access")),
+            changeset(2, user("shop", "alice", null, "clerk")));
+
+        // When
+        final ReferenceAnalyzer.Result result = analyze(changesets, false);
+
+        // Then
+        assertEquals(1, result.findings().size());
+        assertEquals(ReferenceAnalyzer.Finding.Severity.ERROR, result.findings().get(0).severity());
+        assertEquals(2, result.findings().get(0).version());
+        assertTrue(result.findings().get(0).message().endsWith("realm role 'clerk' is never created"));
+    }
+
+    @Test
+    void analyze_inExistingRealm_shouldWarnUnlessStrict() {
+        // Given
+        final List<Changeset> changesets = List.of(changeset(1, user("app", "bob", "/Staff", "clerk")));
+
+        // When
+        final ReferenceAnalyzer.Result lenient = analyze(changesets, false);
+        final ReferenceAnalyzer.Result strict = analyze(changesets, true);
+
+        // Then
+        assertFalse(lenient.hasErrors());
+        assertEquals(2, lenient.warningCount());
+        assertEquals(2, strict.errorCount());
+    }
+
+    @Test
+    void analyze_withRecreatedClient_shouldNotResolveRolesOfDeletedClient() {
+        // Given
+        final CreateClientRoleOperation role = new CreateClientRoleOperation();
+        role.setRealm("app");
+        role.setClientId("frontend");
+        role.setName("viewer");
+        final DeleteClientOperation delete = new DeleteClientOperation();
+        delete.setRealm("app");
+        delete.setClientId("frontend");
+        final CreateUserOperation user = user("app", "jane", null, null);
+        final CreateUserOperation.ClientRoleMapping mapping = new CreateUserOperation.ClientRoleMapping();
+        mapping.setClientId("frontend");
+        mapping.setRoles(List.of("viewer"));
+        user.setClientRoles(List.of(mapping));
+
+        // When
+        final ReferenceAnalyzer.Result result = analyze(List.of(
+            changeset(1, client("app", "frontend"), role),
+            changeset(2, delete, client("app", "frontend")),
+            changeset(3, user)), true);
+
+        // Then
+        assertEquals(1, result.errorCount());
+        assertTrue(result.findings().get(0).message().endsWith(
+            "client role 'viewer' of client 'frontend' was deleted with client 'frontend' at version 2"),
+            result.findings().get(0).message());
+    }
+
+    @Test
+    void analyze_withIdentityProviderUsingLaterFlow_shouldReportFlowCreatedLater() {
+        // Given
+        final CreateIdentityProviderOperation idp = new CreateIdentityProviderOperation();
+        idp.setRealm("app");
+        idp.setAlias("github");
+        idp.setProviderId("github");
+        idp.setFirstBrokerLoginFlowAlias("first broker login");
+        idp.setPostBrokerLoginFlowAlias("link-accounts");
+        final CreateAuthenticationFlowOperation flow = new CreateAuthenticationFlowOperation();
+        flow.setRealm("app");
+        flow.setAlias("link-accounts");
+
+        // When
+        final ReferenceAnalyzer.Result result = analyze(List.of(changeset(1, idp), changeset(2, flow)), true);
+
+        // Then
+        assertEquals(1, result.errorCount());
+        assertTrue(result.findings().get(0).message().endsWith("authentication flow 'link-accounts' is only created at version 2"),
+            result.findings().get(0).message());
+    }
+
+    @Test
+    void analyze_afterRealmRecreated_shouldReportEntityDeletedWithRealm() {
+        // Given
+        final CreateRealmOperation realm = new CreateRealmOperation();
+        realm.setName("shop");
+        final CreateRealmRoleOperation role = new CreateRealmRoleOperation();
+        role.setRealm("shop");
+        role.setName("clerk");
+        final DeleteRealmOperation delete = new DeleteRealmOperation();
+        delete.setName("shop");
+
+        // When
+        final ReferenceAnalyzer.Result result = analyze(List.of(
+            changeset(1, realm, role),
+            changeset(2, delete),
+            changeset(3, realm),
+            changeset(4, user("shop", "bob", null, "clerk"))), false);
+
+        // Then
+        assertEquals(1, result.errorCount());
+        assertTrue(result.findings().get(0).message().endsWith("realm role 'clerk' was deleted with realm 'shop' at version 2"),
+            result.findings().get(0).message());
+    }
+
+    @Test
+    void analyze_withUsernameInOtherCase_shouldResolveUser() {
+        // Given
+        final CreateRealmOperation realm = new CreateRealmOperation();
+        realm.setName("shop");
+        final UpdateUserOperation update = new UpdateUserOperation();
+        update.setRealm("shop");
+        update.setUsername("alice");
+        final DeleteUserOperation delete = new DeleteUserOperation();
+        delete.setRealm("shop");
+        delete.setUsername("ALICE");
+
+        // When
+        final ReferenceAnalyzer.Result result = analyze(List.of(
+            changeset(1, realm, user("shop", "Alice", null, null)),
+            changeset(2, update, delete)), true);
+
+        // Then
+        assertEquals(List.of(), result.findings());
+    }
+
+    @Test
+    void analyze_withGeneratedChangelog_shouldFindNoDanglingReferences() throws Exception {
+        // Given
+        new ChangelogGenerator(GeneratorOptions.defaults().realms(2).groupDepth(3).files(3)).generate(tempDir);
+        final SourceLocations locations = new SourceLocations();
+        final List<Changeset> changesets = new XmlChangesetParser(true).parseDirectory(tempDir, locations);
+
+        // When
+        final ReferenceAnalyzer.Result result = new ReferenceAnalyzer(locations, true).analyze(changesets);
+
+        // Then
+        assertEquals(List.of(), result.findings());
+        assertEquals(changesets.stream().mapToLong(c -> c.getOperations().size()).sum(), result.operations());
+    }
+
+    private static ReferenceAnalyzer.Result analyze(final List<Changeset> changesets, final boolean strict) {
+        return new ReferenceAnalyzer(new SourceLocations(), strict).analyze(changesets);
+    }
+
+    private static Changeset changeset(final int version, final Operation... operations) {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(version);
+        changeset.setAuthor("test");
+        changeset.setOperations(new ArrayList<>(List.of(operations)));
+        return changeset;
+    }
+
+    private static CreateClientOperation client(final String realm, final String clientId) {
+        final CreateClientOperation client = new CreateClientOperation();
+        client.setRealm(realm);
+        client.setClientId(clientId);
+        return client;
+    }
+
+    private static CreateGroupOperation group(final String realm, final String name, final String parent) {
+        final CreateGroupOperation group = new CreateGroupOperation();
+        group.setRealm(realm);
+        group.setName(name);
+        group.setParentGroup(parent);
+        return group;
+    }
+
+    private static DeleteGroupOperation deleteGroup(final String realm, final String name) {
+        final DeleteGroupOperation group = new DeleteGroupOperation();
+        group.setRealm(realm);
+        group.setName(name);
+        return group;
+    }
+
+    private static CreateUserOperation user(final String realm, final String username, final String group, final String role) {
+        final CreateUserOperation user = new CreateUserOperation();
+        user.setRealm(realm);
+        user.setUsername(username);
+        user.setGroups(group == null ? null : List.of(group));
+        user.setRealmRoles(role == null ? null : List.of(role));
+        return user;
+    }
+}
@@ -0,0 +1,85 @@
+package com.keycloakmigrator.planner;
+
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReferenceCollector}.
+ */
+class ReferenceCollectorTest {
+
+    private final ReferenceCollector collector = new ReferenceCollector();
+
+    @Test
+    void collect_withUserUpdate_shouldCollectUserRolesAndGroups() {
+        // Given
+        final UpdateUserOperation update = new UpdateUserOperation();
+        update.setRealm("app");
+        update.setUsername("john");
+        update.setAddRealmRoles(List.of("admin"));
+        update.setAddGroups(List.of("Engineering/Backend"));
+
+        // When
+        final Map<String, RealmReferences> references = collector.collect(List.of(changeset(update)));
+
+        // Then
+        final RealmReferences refs = references.get("app");
+        assertEquals(Set.of("john"), refs.getUsernames());
+        assertEquals(Set.of("admin"), refs.getRealmRoles());
+        assertEquals(Set.of("Engineering/Backend"), refs.getGroupPaths());
+    }
+
+    @Test
+    void collect_withClientRoleMappings_shouldCollectClientAndItsRoles() {
+        // Given
+        final CreateUserOperation.ClientRoleMapping mapping = new CreateUserOperation.ClientRoleMapping();
+        mapping.setClientId("frontend");
+        mapping.setRoles(List.of("viewer"));
+        final CreateGroupOperation group = new CreateGroupOperation();
+        group.setRealm("app");
+        group.setName("Viewers");
+        group.setClientRoles(List.of(mapping));
+
+        // When
+        final Map<String, RealmReferences> references = collector.collect(List.of(changeset(group)));
+
+        // Then
+        final RealmReferences refs = references.get("app");
+        assertEquals(Set.of("frontend"), refs.getClientIds());
+        assertEquals(Set.of("frontend"), refs.getRoleClientIds());
+        assertTrue(refs.getGroupPaths().isEmpty());
+    }
+
+    @Test
+    void collect_withSeveralRealms_shouldKeepReferencesApart() {
+        // Given
+        final DeleteClientScopeOperation scope = new DeleteClientScopeOperation();
+        scope.setRealm("one");
+        scope.setName("legacy");
+        final DeleteUserOperation user = new DeleteUserOperation();
+        user.setRealm("two");
+        user.setUsername("jane");
+
+        // When
+        final Map<String, RealmReferences> references = collector.collect(List.of(changeset(scope, user)));
+
+        // Then
+        assertEquals(List.of("one", "two"), List.copyOf(references.keySet()));
+        assertEquals(Set.of("legacy"), references.get("one").getClientScopes());
+        assertEquals(Set.of("jane"), references.get("two").getUsernames());
+    }
+
+    private static Changeset changeset(final Operation... operations) {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(1);
+        changeset.setOperations(List.of(operations));
+        return changeset;
+    }
+}
@@ -0,0 +1,161 @@
+package com.keycloakmigrator.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.executor.MigrationExecutor;
+import com.keycloakmigrator.executor.MigrationOptions;
+import com.keycloakmigrator.model.Changeset;
+import com.keycloakmigrator.model.operations.*;
+import com.keycloakmigrator.testing.FakeKeycloakServer;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.RealmRepresentation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link DryRunSimulator}.
+ */
+class DryRunSimulatorTest {
+
+    private static final String EXISTING_REALM = """
+        {
+          "realm": "app",
+          "enabled": true,
+          "clients": [{"clientId": "frontend"}],
+          "roles": {"realm": [{"name": "admin"}], "client": {"frontend": [{"name": "viewer"}]}},
+          "groups": [{"name": "Engineering", "subGroups": [{"name": "Backend"}]}],
+          "users": [{"username": "john", "enabled": true}]
+        }
+        """;
+
+    @Test
+    void simulate_fromNothing_shouldApplyNewRealm() {
+        // Given
+        final DryRunSimulator simulator = new DryRunSimulator(MigrationOptions.defaults().realmImport(false));
+
+        // When
+        final MigrationExecutor.MigrationResult result = simulator.simulate(newRealm(), "shop");
+
+        // Then
+        assertTrue(result.isSuccess(), () -> String.valueOf(result.errors()));
+        assertEquals(2, result.totalApplied());
+        final SimulatedRealm shop = simulator.getKeycloak().realm("shop");
+        assertNotNull(shop.groupId("/Staff"));
+        assertEquals(1, shop.getUsers().size());
+    }
+
+    @Test
+    void simulate_withMissingReference_shouldFailOperationWithoutServer() {
+        // Given
+        final CreateGroupOperation group = group("app", "Sales", null, "auditor");
+        final DryRunSimulator simulator = new DryRunSimulator(MigrationOptions.defaults());
+
+        // When
+        final MigrationExecutor.MigrationResult result = simulator.simulate(List.of(changeset(1, group)), "app");
+
+        // Then
+        assertEquals(1, result.errors().size());
+        assertEquals(1, result.errors().get(0).changeset().getVersion());
+    }
+
+    @Test
+    void simulate_seededWithExport_shouldPredictAdminCallsOfRealRun() throws Exception {
+        // Given
+        final List<Changeset> changesets = List.of(
+            changeset(1, group("app", "Frontend", "/Engineering", "admin"), role("app", "auditor")),
+            changeset(2, user("app", "jane", "/Engineering/Backend", "auditor"), deleteUser("app", "john")));
+        final MigrationOptions options = MigrationOptions.defaults().prefetch(false);
+
+        try (FakeKeycloakServer server = FakeKeycloakServer.start()) {
+            server.addRealm(EXISTING_REALM);
+            final DryRunSimulator simulator = new DryRunSimulator(options);
+            try (KeycloakAdminClient client = new KeycloakAdminClient(server.config())) {
+                final RealmRepresentation export = client.exportRealm("app");
+                export.setUsers(client.exportUsers("app", List.of("john")));
+                simulator.seed(export);
+            }
+
+            // When
+            final MigrationExecutor.MigrationResult predicted = simulator.simulate(changesets, "app");
+            final MigrationExecutor.MigrationResult actual;
+            try (KeycloakAdminClient client = new KeycloakAdminClient(server.config())) {
+                actual = new MigrationExecutor(client, options).executeMigrations(changesets, "app");
+            }
+
+            // Then
+            assertTrue(predicted.isSuccess(), () -> String.valueOf(predicted.errors()));
+            assertTrue(actual.isSuccess(), () -> String.valueOf(actual.errors()));
+            assertEquals(actual.adminCallCounts(), predicted.adminCallCounts());
+        }
+    }
+
+    @Test
+    void simulate_seededWithAppliedHistory_shouldSkipAppliedChangesets() throws Exception {
+        // Given
+        final List<Changeset> changesets = newRealm();
+        final DryRunSimulator first = new DryRunSimulator(MigrationOptions.defaults());
+        first.simulate(changesets, "shop");
+        final RealmRepresentation migrated = new ObjectMapper()
+            .treeToValue(first.getKeycloak().realm("shop").getRepresentation(), RealmRepresentation.class);
+
+        // When
+        final MigrationExecutor.MigrationResult result = new DryRunSimulator(MigrationOptions.defaults())
+            .seed(migrated)
+            .simulate(changesets, "shop");
+
+        // Then
+        assertEquals(0, result.totalPending());
+    }
+
+    private static List<Changeset> newRealm() {
+        final CreateRealmOperation realm = new CreateRealmOperation();
+        realm.setName("shop");
+        realm.setEnabled(true);
+        return List.of(
+            changeset(1, realm, role("shop", "clerk")),
+            changeset(2, group("shop", "Staff", null, "clerk"), user("shop", "bob", "/Staff", "clerk")));
+    }
+
+    private static DeleteUserOperation deleteUser(final String realm, final String username) {
+        final DeleteUserOperation user = new DeleteUserOperation();
+        user.setRealm(realm);
+        user.setUsername(username);
+        return user;
+    }
+
+    private static Changeset changeset(final int version, final Operation... operations) {
+        final Changeset changeset = new Changeset();
+        changeset.setVersion(version);
+        changeset.setAuthor("test");
+        changeset.setOperations(new ArrayList<>(List.of(operations)));
+        return changeset;
+    }
+
+    private static CreateRealmRoleOperation role(final String realm, final String name) {
+        final CreateRealmRoleOperation role = new CreateRealmRoleOperation();
+        role.setRealm(realm);
+        role.setName(name);
+        return role;
+    }
+
+    private static CreateGroupOperation group(final String realm, final String name, final String parent, final String role) {
+        final CreateGroupOperation group = new CreateGroupOperation();
+        group.setRealm(realm);
+        group.setName(name);
+        group.setParentGroup(parent);
+        group.setRealmRoles(List.of(role));
+        return group;
+    }
+
+    private static CreateUserOperation user(final String realm, final String username, final String group, final String role) {
+        final CreateUserOperation user = new CreateUserOperation();
+        user.setRealm(realm);
+        user.setUsername(username);
+        user.setGroups(List.of(group));
+        user.setRealmRoles(List.of(role));
+        return user;
+    }
+}
@@ -0,0 +1,33 @@
+package com.keycloakmigrator.testing;
+
+import com.keycloakmigrator.client.http.AdminCall;
+import com.keycloakmigrator.client.http.AdminCallListener;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts admin calls by method and endpoint template, for example
+ * {@code GET /admin/realms/{realm}/clients}, keyed like
+ * {@code MigrationResult.adminCallCounts()}.
+ */
+public final class AdminCallCounter implements AdminCallListener {
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCall(AdminCall call) {
+        counts.computeIfAbsent(call.method() + " " + call.endpoint(), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Calls per {@code "METHOD endpoint"}, sorted by key.
+     */
+    public Map<String, Long> counts() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((key, count) -> snapshot.put(key, count.sum()));
+        return snapshot;
+    }
+}
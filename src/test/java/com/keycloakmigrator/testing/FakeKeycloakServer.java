@@ -0,0 +1,230 @@
+package com.keycloakmigrator.testing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.keycloakmigrator.config.KeycloakConfig;
+import com.keycloakmigrator.simulator.Reply;
+import com.keycloakmigrator.simulator.SimulatedKeycloak;
+import com.keycloakmigrator.simulator.SimulatedRealm;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Keycloak admin API, for tests that need to observe the
+ * requests the migrator sends and for measuring it without a real Keycloak.
+ *
+ * <p>Serves the token endpoint of every realm and the admin endpoints the migrator uses
+ * for realms, clients, roles, users, groups, client scopes, protocol mappers, identity
+ * providers, authentication flows, partial imports and partial exports over HTTP, backed
+ * by a {@link SimulatedKeycloak}. Every admin request is recorded with its body.</p>
+ *
+ * <p>Requests are handled concurrently. {@link #latency} delays every response and
+ * {@link #errorRate} fails a share of admin requests before they reach the store, so
+ * throughput and error handling can be exercised against a slow or unreliable server.</p>
+ */
+public class FakeKeycloakServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final SimulatedKeycloak keycloak = new SimulatedKeycloak();
+    private final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fake-keycloak");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Random random = new Random();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private volatile long latencyNanos;
+    private volatile long jitterNanos;
+    private volatile double errorRate;
+    private volatile int errorStatus;
+    private volatile boolean locationHeaders = true;
+
+    private FakeKeycloakServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Start a server on a free local port.
+     */
+    public static FakeKeycloakServer start() throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        FakeKeycloakServer fake = new FakeKeycloakServer(httpServer);
+        httpServer.createContext("/", fake::handle);
+        httpServer.setExecutor(fake.executor);
+        httpServer.start();
+        return fake;
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Configuration for a client authenticating against this server.
+     */
+    public KeycloakConfig config() {
+        return new KeycloakConfig(getUrl(), "master", "migrator", "secret");
+    }
+
+    /**
+     * Delay every response, including token responses, by a fixed latency plus a
+     * uniformly distributed jitter.
+     *
+     * @param latency the minimum delay
+     * @param jitter  the maximum additional delay
+     */
+    public FakeKeycloakServer latency(Duration latency, Duration jitter) {
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        return this;
+    }
+
+    /**
+     * Fail a share of admin requests with an error status, leaving the store unchanged.
+     *
+     * @param rate   the probability that a request fails, between 0 and 1
+     * @param status the status of failed requests, for example 503
+     */
+    public FakeKeycloakServer errorRate(double rate, int status) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + rate);
+        }
+        this.errorRate = rate;
+        this.errorStatus = status;
+        return this;
+    }
+
+    /**
+     * Whether create responses carry a {@code Location} header, as Keycloak sends; some
+     * proxies strip it.
+     */
+    public FakeKeycloakServer locationHeaders(boolean locationHeaders) {
+        this.locationHeaders = locationHeaders;
+        return this;
+    }
+
+    /**
+     * Seed the jitter and error draws, to make a run reproducible.
+     */
+    public FakeKeycloakServer seed(long seed) {
+        random.setSeed(seed);
+        return this;
+    }
+
+    /**
+     * Admin requests failed by {@link #errorRate} so far.
+     */
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * Store a realm representation, given as JSON, with the entities embedded in it.
+     */
+    public void addRealm(String json) throws IOException {
+        keycloak.addRealm(json);
+    }
+
+    public ObjectNode getRealm(String name) {
+        SimulatedRealm realm = keycloak.realm(name);
+        return realm != null ? realm.getRepresentation() : null;
+    }
+
+    /**
+     * The stored state of a realm, or {@code null} if it does not exist.
+     */
+    public SimulatedRealm realm(String name) {
+        return keycloak.realm(name);
+    }
+
+    /**
+     * Admin API requests received so far, in order. Token requests are not included.
+     */
+    public List<RecordedRequest> getRequests() {
+        return List.copyOf(requests);
+    }
+
+    public void clearRequests() {
+        requests.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            delay();
+
+            if (SimulatedKeycloak.isTokenRequest(path)) {
+                respond(exchange, path, keycloak.handle(method, path, null, null));
+                return;
+            }
+
+            requests.add(new RecordedRequest(method, path, body));
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                respond(exchange, path, Reply.error(errorStatus, "Injected failure"));
+                return;
+            }
+            JsonNode json = body.length > 0 ? MAPPER.readTree(body) : null;
+            respond(exchange, path, keycloak.handle(method, path, exchange.getRequestURI().getRawQuery(), json));
+        }
+    }
+
+    private void delay() {
+        long nanos = latencyNanos + (jitterNanos > 0 ? (long) (random.nextDouble() * jitterNanos) : 0);
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void respond(HttpExchange exchange, String path, Reply reply) throws IOException {
+        if (reply.createdId() != null && locationHeaders) {
+            exchange.getResponseHeaders().set("Location", getUrl() + path + "/" + reply.createdId());
+        }
+        if (reply.body() == null) {
+            exchange.sendResponseHeaders(reply.status(), -1);
+            return;
+        }
+        byte[] bytes = MAPPER.writeValueAsBytes(reply.body());
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(reply.status(), bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * An admin API request as received by the server.
+     */
+    public record RecordedRequest(String method, String path, byte[] body) {
+        public String bodyAsString() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
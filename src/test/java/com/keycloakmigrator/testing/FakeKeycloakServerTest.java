@@ -0,0 +1,135 @@
+package com.keycloakmigrator.testing;
+
+import com.keycloakmigrator.client.KeycloakAdminClient;
+import com.keycloakmigrator.simulator.SimulatedRealm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.PartialImportRepresentation;
+import org.keycloak.representations.idm.RealmRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.RolesRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link FakeKeycloakServer}.
+ */
+class FakeKeycloakServerTest {
+
+    private FakeKeycloakServer server;
+    private KeycloakAdminClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = FakeKeycloakServer.start();
+        server.addRealm("""
+            {
+              "realm": "app",
+              "clients": [{"clientId": "frontend"}],
+              "roles": {"realm": [{"name": "admin"}], "client": {"frontend": [{"name": "viewer"}]}},
+              "groups": [{"name": "Engineering", "subGroups": [{"name": "Backend"}]}]
+            }
+            """);
+        client = new KeycloakAdminClient(server.config());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void partialImport_shouldAddRolesGroupsAndUsers() {
+        // Given
+        final PartialImportRepresentation partialImport = partialImport("SKIP");
+
+        // When
+        client.partialImport("app", partialImport);
+
+        // Then
+        final SimulatedRealm realm = server.realm("app");
+        assertEquals(List.of("admin", "auditor"), realm.getRealmRoles().stream().map(r -> r.get("name").asText()).toList());
+        assertNotNull(realm.groupId("Sales"));
+        final String userId = realm.getUsers().iterator().next().get("id").asText();
+        assertEquals(Set.of(realm.groupId("Sales")), realm.getUserGroups(userId));
+    }
+
+    @Test
+    void partialImport_withFailPolicyAndExistingResource_shouldImportNothing() {
+        // Given
+        final PartialImportRepresentation partialImport = partialImport("FAIL");
+        final RoleRepresentation existing = new RoleRepresentation();
+        existing.setName("admin");
+        partialImport.getRoles().getRealm().add(existing);
+
+        // When / Then
+        assertThrows(RuntimeException.class, () -> client.partialImport("app", partialImport));
+        assertEquals(1, server.realm("app").getRealmRoles().size());
+        assertNull(server.realm("app").groupId("Sales"));
+    }
+
+    @Test
+    void exportRealm_shouldReturnClientsRolesAndGroupTree() {
+        // When
+        final RealmRepresentation export = client.exportRealm("app");
+
+        // Then
+        assertEquals("frontend", export.getClients().get(0).getClientId());
+        assertEquals("viewer", export.getRoles().getClient().get("frontend").get(0).getName());
+        final GroupRepresentation engineering = export.getGroups().get(0);
+        assertEquals("/Engineering/Backend", engineering.getSubGroups().get(0).getPath());
+    }
+
+    @Test
+    void errorRate_shouldFailRequestsWithoutChangingStore() {
+        // Given
+        server.errorRate(1.0, 503);
+
+        // When / Then
+        assertThrows(RuntimeException.class, () -> client.deleteRealmRole("app", "admin"));
+        assertEquals(1, server.realm("app").getRealmRoles().size());
+        assertEquals(1, server.getInjectedErrors());
+    }
+
+    @Test
+    void latency_shouldDelayResponses() {
+        // Given
+        client.authenticate();
+        server.latency(Duration.ofMillis(50), Duration.ofMillis(10));
+
+        // When
+        final long start = System.nanoTime();
+        client.deleteRealmRole("app", "admin");
+        final long elapsed = System.nanoTime() - start;
+
+        // Then
+        assertTrue(elapsed >= Duration.ofMillis(50).toNanos(), "request took " + elapsed + " ns");
+    }
+
+    private static PartialImportRepresentation partialImport(final String policy) {
+        final RoleRepresentation auditor = new RoleRepresentation();
+        auditor.setName("auditor");
+        final RolesRepresentation roles = new RolesRepresentation();
+        roles.setRealm(new ArrayList<>(List.of(auditor)));
+        final GroupRepresentation sales = new GroupRepresentation();
+        sales.setName("Sales");
+        final UserRepresentation jane = new UserRepresentation();
+        jane.setUsername("jane");
+        jane.setGroups(List.of("/Sales"));
+        final PartialImportRepresentation partialImport = new PartialImportRepresentation();
+        partialImport.setIfResourceExists(policy);
+        partialImport.setRoles(roles);
+        partialImport.setGroups(List.of(sales));
+        partialImport.setUsers(List.of(jane));
+        return partialImport;
+    }
+}